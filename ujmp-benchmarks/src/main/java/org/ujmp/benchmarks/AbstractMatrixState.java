@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.benchmark.AbstractMatrix2DBenchmark;
+import org.ujmp.core.benchmark.BenchmarkUtil;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.util.UJMPSettings;
+
+/**
+ * Common parameters of all matrix benchmarks: the implementation to test, the
+ * matrix size and the number of threads UJMP may use. The input matrices are
+ * created once per trial with the same random values as the old benchmark
+ * tasks, so that timings of different implementations remain comparable.
+ */
+public abstract class AbstractMatrixState {
+
+	public static final long SEED = 3345454363676l;
+
+	@Param({ "Default", "Array", "Block", "Colt", "CommonsMathArray", "CommonsMathBlock", "EJML",
+			"Jama", "JBlas", "JSci", "JScience", "MTJ", "Ojalgo", "ParallelColt", "VecMath" })
+	public String implementation;
+
+	@Param({ "10", "100", "500", "1000" })
+	public int size;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	private AbstractMatrix2DBenchmark factory = null;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		UJMPSettings.getInstance().setNumberOfThreads(threads);
+		factory = MatrixImplementations.getFactory(implementation);
+		createMatrices();
+	}
+
+	protected abstract void createMatrices() throws Exception;
+
+	public final DoubleMatrix2D create(long rows, long cols) {
+		return factory.createMatrix(rows, cols);
+	}
+
+	public final DoubleMatrix2D create(Matrix source) {
+		return factory.createMatrix(source);
+	}
+
+	public final DoubleMatrix2D rand(int id, long rows, long cols) {
+		DoubleMatrix2D m = create(rows, cols);
+		BenchmarkUtil.rand(SEED, 0, id, m);
+		return m;
+	}
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Compares two benchmark runs. For every benchmark, a confidence interval for
+ * the relative change of the mean is computed with Welch's t-test, which does
+ * not assume equal variances in both runs. A benchmark is only reported as a
+ * regression if the whole interval lies above the threshold, i.e. if it is
+ * slower (or allocates more) with the given confidence and by a relevant
+ * amount.
+ */
+public class BenchmarkComparison {
+
+	public static final double DEFAULTCONFIDENCE = 0.99;
+
+	public static final double DEFAULTTHRESHOLD = 0.05;
+
+	public enum Status {
+		REGRESSION, IMPROVEMENT, UNCHANGED, NEW, MISSING
+	};
+
+	public static class Difference {
+
+		private final String key;
+
+		private final BenchmarkRecord baseline;
+
+		private final BenchmarkRecord current;
+
+		private final double change;
+
+		private final double lower;
+
+		private final double upper;
+
+		private final Status status;
+
+		private Difference(String key, BenchmarkRecord baseline, BenchmarkRecord current,
+				double change, double lower, double upper, Status status) {
+			this.key = key;
+			this.baseline = baseline;
+			this.current = current;
+			this.change = change;
+			this.lower = lower;
+			this.upper = upper;
+			this.status = status;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public BenchmarkRecord getBaseline() {
+			return baseline;
+		}
+
+		public BenchmarkRecord getCurrent() {
+			return current;
+		}
+
+		/**
+		 * @return relative change of the mean, positive values are worse
+		 */
+		public double getChange() {
+			return change;
+		}
+
+		public double getLower() {
+			return lower;
+		}
+
+		public double getUpper() {
+			return upper;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+	}
+
+	private final BenchmarkRun baseline;
+
+	private final BenchmarkRun current;
+
+	private final double confidence;
+
+	private final double threshold;
+
+	private final List<Difference> differences = new ArrayList<Difference>();
+
+	public BenchmarkComparison(BenchmarkRun baseline, BenchmarkRun current) {
+		this(baseline, current, DEFAULTCONFIDENCE, DEFAULTTHRESHOLD);
+	}
+
+	public BenchmarkComparison(BenchmarkRun baseline, BenchmarkRun current, double confidence,
+			double threshold) {
+		this.baseline = baseline;
+		this.current = current;
+		this.confidence = confidence;
+		this.threshold = threshold;
+
+		for (BenchmarkRecord c : current.getRecords()) {
+			BenchmarkRecord b = baseline.getRecord(c.getKey());
+			if (b == null) {
+				differences.add(new Difference(c.getKey(), null, c, Double.NaN, Double.NaN,
+						Double.NaN, Status.NEW));
+			} else {
+				differences.add(compare(b, c));
+			}
+		}
+		for (BenchmarkRecord b : baseline.getRecords()) {
+			if (current.getRecord(b.getKey()) == null) {
+				differences.add(new Difference(b.getKey(), b, null, Double.NaN, Double.NaN,
+						Double.NaN, Status.MISSING));
+			}
+		}
+
+		Collections.sort(differences, new Comparator<Difference>() {
+			public int compare(Difference d1, Difference d2) {
+				int c = d1.getStatus().compareTo(d2.getStatus());
+				return c != 0 ? c : d1.getKey().compareTo(d2.getKey());
+			}
+		});
+	}
+
+	private Difference compare(BenchmarkRecord b, BenchmarkRecord c) {
+		double m1 = b.getMean();
+		double m2 = c.getMean();
+		double diff = m2 - m1;
+		double halfWidth;
+
+		int n1 = b.getSampleCount();
+		int n2 = c.getSampleCount();
+		if (n1 < 2 || n2 < 2) {
+			halfWidth = Double.POSITIVE_INFINITY;
+		} else {
+			double s1 = b.getVariance() / n1;
+			double s2 = c.getVariance() / n2;
+			double se = Math.sqrt(s1 + s2);
+			if (se == 0.0) {
+				halfWidth = 0.0;
+			} else {
+				double df = (s1 + s2) * (s1 + s2)
+						/ (s1 * s1 / (n1 - 1) + s2 * s2 / (n2 - 1));
+				halfWidth = MathUtil.tinv(1.0 - (1.0 - confidence) / 2.0, df) * se;
+			}
+		}
+
+		// positive values are always worse
+		double sign = b.isHigherBetter() ? -1.0 : 1.0;
+		double change = relative(sign * diff, m1);
+		double lower = relative(sign * diff - halfWidth, m1);
+		double upper = relative(sign * diff + halfWidth, m1);
+
+		Status status = Status.UNCHANGED;
+		if (lower > threshold) {
+			status = Status.REGRESSION;
+		} else if (upper < -threshold) {
+			status = Status.IMPROVEMENT;
+		}
+		return new Difference(b.getKey(), b, c, change, lower, upper, status);
+	}
+
+	private static double relative(double diff, double reference) {
+		if (reference != 0.0) {
+			return diff / Math.abs(reference);
+		} else if (diff == 0.0 || Double.isNaN(diff)) {
+			return 0.0;
+		} else {
+			return diff > 0 ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+		}
+	}
+
+	public List<Difference> getDifferences() {
+		return differences;
+	}
+
+	public List<Difference> getDifferences(Status status) {
+		List<Difference> list = new ArrayList<Difference>();
+		for (Difference d : differences) {
+			if (d.getStatus() == status) {
+				list.add(d);
+			}
+		}
+		return list;
+	}
+
+	public boolean hasRegressions() {
+		return !getDifferences(Status.REGRESSION).isEmpty();
+	}
+
+	/**
+	 * @return a plain text report of all differences, regressions first
+	 */
+	public String getReport() {
+		StringBuilder s = new StringBuilder();
+		s.append("Benchmark comparison\n");
+		s.append("  baseline: ").append(describe(baseline)).append('\n');
+		s.append("  current:  ").append(describe(current)).append('\n');
+		s.append(String.format(Locale.US, "  confidence: %.1f%%, threshold: %.1f%%\n",
+				100.0 * confidence, 100.0 * threshold));
+		for (Status status : Status.values()) {
+			s.append("  ").append(status).append(": ").append(getDifferences(status).size())
+					.append('\n');
+		}
+		s.append('\n');
+		for (Difference d : differences) {
+			s.append(String.format(Locale.US, "%-11s ", d.getStatus()));
+			if (d.getBaseline() != null && d.getCurrent() != null) {
+				s.append(String.format(Locale.US, "%+7.1f%% [%+7.1f%%, %+7.1f%%]  %12.4g -> %12.4g %s  ",
+						100.0 * d.getChange(), 100.0 * d.getLower(), 100.0 * d.getUpper(), d
+								.getBaseline().getMean(), d.getCurrent().getMean(), d.getCurrent()
+								.getUnit()));
+			}
+			s.append(d.getKey()).append('\n');
+		}
+		return s.toString();
+	}
+
+	private static String describe(BenchmarkRun run) {
+		Map<String, String> env = run.getEnvironment();
+		return env.get(BenchmarkRun.COMMIT) + " (" + env.get(BenchmarkRun.TIME) + ", "
+				+ env.get(BenchmarkRun.CPU) + ", " + env.get(BenchmarkRun.JVM) + ")";
+	}
+
+	@Override
+	public String toString() {
+		return getReport();
+	}
+
+}
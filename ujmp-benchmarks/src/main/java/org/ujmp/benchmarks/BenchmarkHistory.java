@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores benchmark runs in a directory, one subdirectory per environment and
+ * one JSON file per run. File names start with the time of the run, so that
+ * sorting them by name gives the chronological order:
+ * 
+ * <pre>
+ * history/&lt;environment&gt;/&lt;yyyyMMdd-HHmmss&gt;_&lt;commit&gt;.json
+ * </pre>
+ */
+public class BenchmarkHistory {
+
+	private final File directory;
+
+	public BenchmarkHistory(File directory) {
+		this.directory = directory;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public File add(BenchmarkRun run) throws IOException {
+		String time = run.getTime().replaceAll("[^0-9T]", "").replace('T', '-');
+		String commit = String.valueOf(run.getCommit()).replaceAll("[^A-Za-z0-9._-]+", "-");
+		File file = new File(new File(directory, run.getEnvironmentKey()), time + "_" + commit
+				+ ".json");
+		run.save(file);
+		return file;
+	}
+
+	/**
+	 * @return all runs in the given environment, oldest first
+	 */
+	public List<BenchmarkRun> getRuns(String environmentKey) throws IOException {
+		List<BenchmarkRun> runs = new ArrayList<BenchmarkRun>();
+		File[] files = new File(directory, environmentKey).listFiles();
+		if (files != null) {
+			Arrays.sort(files);
+			for (File f : files) {
+				if (f.getName().endsWith(".json")) {
+					runs.add(BenchmarkRun.load(f));
+				}
+			}
+		}
+		return runs;
+	}
+
+	/**
+	 * @return the most recent run of this commit in the given environment or
+	 *         null
+	 */
+	public BenchmarkRun getRun(String environmentKey, String commit) throws IOException {
+		List<BenchmarkRun> runs = getRuns(environmentKey);
+		for (int i = runs.size() - 1; i >= 0; i--) {
+			if (commit.equals(runs.get(i).getCommit())) {
+				return runs.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the most recent run in the same environment which belongs to a
+	 *         different commit, or null if there is none
+	 */
+	public BenchmarkRun getBaseline(BenchmarkRun run) throws IOException {
+		List<BenchmarkRun> runs = getRuns(run.getEnvironmentKey());
+		for (int i = runs.size() - 1; i >= 0; i--) {
+			BenchmarkRun candidate = runs.get(i);
+			if (candidate.getCommit() != null && !candidate.getCommit().equals(run.getCommit())) {
+				return candidate;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * All samples of one benchmark with one set of parameters, e.g. the average
+ * time of every measurement iteration of
+ * <code>DenseDoubleMatrix2DBenchmark.mtimes{implementation=Default, size=100, threads=1}</code>.
+ */
+public class BenchmarkRecord {
+
+	private final String key;
+
+	private final String unit;
+
+	private final boolean higherIsBetter;
+
+	private final double[] samples;
+
+	public BenchmarkRecord(String key, String unit, boolean higherIsBetter, double[] samples) {
+		this.key = key;
+		this.unit = unit;
+		this.higherIsBetter = higherIsBetter;
+		this.samples = samples;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public String getUnit() {
+		return unit;
+	}
+
+	/**
+	 * @return true for throughput, false for time and allocation
+	 */
+	public boolean isHigherBetter() {
+		return higherIsBetter;
+	}
+
+	public double[] getSamples() {
+		return samples;
+	}
+
+	public int getSampleCount() {
+		return samples.length;
+	}
+
+	public double getMean() {
+		double sum = 0.0;
+		for (double d : samples) {
+			sum += d;
+		}
+		return sum / samples.length;
+	}
+
+	public double getVariance() {
+		if (samples.length < 2) {
+			return Double.NaN;
+		}
+		double mean = getMean();
+		double sum = 0.0;
+		for (double d : samples) {
+			sum += (d - mean) * (d - mean);
+		}
+		return sum / (samples.length - 1);
+	}
+
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		json.put("key", key);
+		json.put("unit", unit);
+		json.put("higherIsBetter", higherIsBetter);
+		JSONArray values = new JSONArray();
+		for (double d : samples) {
+			values.put(d);
+		}
+		json.put("samples", values);
+		return json;
+	}
+
+	public static BenchmarkRecord fromJson(JSONObject json) {
+		JSONArray values = json.getJSONArray("samples");
+		double[] samples = new double[values.length()];
+		for (int i = 0; i < samples.length; i++) {
+			samples[i] = values.getDouble(i);
+		}
+		return new BenchmarkRecord(json.getString("key"), json.getString("unit"),
+				json.getBoolean("higherIsBetter"), samples);
+	}
+
+	@Override
+	public String toString() {
+		return key + ": " + getMean() + " " + unit + " (n=" + samples.length + ")";
+	}
+
+}
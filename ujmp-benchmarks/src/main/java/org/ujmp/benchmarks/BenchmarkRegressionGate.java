@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Records a JMH result file in the benchmark history and compares it with a
+ * previous run measured in the same environment. Exits with status 1 if a
+ * statistically significant regression was found, so that it can be used as
+ * a build step after running {@link UJMPBenchmarks}.
+ * 
+ * <pre>
+ * BenchmarkRegressionGate &lt;history dir&gt; &lt;jmh result.json&gt; [commit] [baseline commit]
+ * </pre>
+ * 
+ * The commit defaults to the current git revision, the baseline to the most
+ * recent run of another commit. Confidence level and threshold can be set
+ * with the system properties <code>ujmp.benchmark.confidence</code> and
+ * <code>ujmp.benchmark.threshold</code>.
+ */
+public class BenchmarkRegressionGate {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("usage: BenchmarkRegressionGate <history dir> <jmh result.json>"
+					+ " [commit] [baseline commit]");
+			System.exit(2);
+		}
+
+		BenchmarkHistory history = new BenchmarkHistory(new File(args[0]));
+		String commit = args.length > 2 ? args[2] : getGitCommit();
+		BenchmarkRun run = BenchmarkRun.fromJmh(new File(args[1]), commit);
+
+		BenchmarkRun baseline = null;
+		if (args.length > 3) {
+			baseline = history.getRun(run.getEnvironmentKey(), args[3]);
+			if (baseline == null) {
+				System.err.println("no run of commit " + args[3] + " found for environment "
+						+ run.getEnvironmentKey());
+				System.exit(2);
+			}
+		} else {
+			baseline = history.getBaseline(run);
+		}
+
+		File file = history.add(run);
+		System.out.println("results stored in " + file);
+
+		if (baseline == null) {
+			System.out.println("no baseline available for environment " + run.getEnvironmentKey());
+			return;
+		}
+
+		double confidence = Double.parseDouble(System.getProperty("ujmp.benchmark.confidence",
+				String.valueOf(BenchmarkComparison.DEFAULTCONFIDENCE)));
+		double threshold = Double.parseDouble(System.getProperty("ujmp.benchmark.threshold",
+				String.valueOf(BenchmarkComparison.DEFAULTTHRESHOLD)));
+		BenchmarkComparison comparison = new BenchmarkComparison(baseline, run, confidence,
+				threshold);
+
+		String report = comparison.getReport();
+		System.out.println(report);
+		File reportFile = new File(file.getPath().replaceAll("\\.json$", ".txt"));
+		Writer w = new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8");
+		try {
+			w.write(report);
+		} finally {
+			w.close();
+		}
+
+		if (comparison.hasRegressions()) {
+			System.exit(1);
+		}
+	}
+
+	public static String getGitCommit() {
+		try {
+			Process p = new ProcessBuilder("git", "rev-parse", "--short", "HEAD")
+					.redirectErrorStream(true).start();
+			BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()));
+			String line = br.readLine();
+			br.close();
+			if (p.waitFor() == 0 && line != null) {
+				return line.trim();
+			}
+		} catch (Exception e) {
+		}
+		return "unknown";
+	}
+
+}
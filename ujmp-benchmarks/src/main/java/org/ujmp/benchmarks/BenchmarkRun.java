@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.ujmp.core.benchmark.BenchmarkUtil;
+
+/**
+ * The results of one benchmark run together with the environment it was
+ * measured in: commit, host, CPU, operating system and JVM. Runs are only
+ * compared if they were measured in the same environment, see
+ * {@link #getEnvironmentKey()}.
+ */
+public class BenchmarkRun {
+
+	public static final String COMMIT = "commit";
+
+	public static final String TIME = "time";
+
+	public static final String HOST = "host";
+
+	public static final String CPU = "cpu";
+
+	public static final String CORES = "cores";
+
+	public static final String OS = "os";
+
+	public static final String JVM = "jvm";
+
+	public static final String ALLOCATION = "gc.alloc.rate.norm";
+
+	private final Map<String, String> environment = new LinkedHashMap<String, String>();
+
+	private final Map<String, BenchmarkRecord> records = new LinkedHashMap<String, BenchmarkRecord>();
+
+	public BenchmarkRun() {
+	}
+
+	public Map<String, String> getEnvironment() {
+		return environment;
+	}
+
+	public String getCommit() {
+		return environment.get(COMMIT);
+	}
+
+	public String getTime() {
+		return environment.get(TIME);
+	}
+
+	/**
+	 * Runs with the same key were measured on the same machine with the same
+	 * JVM and can be compared with each other.
+	 */
+	public String getEnvironmentKey() {
+		String key = environment.get(HOST) + "_" + environment.get(CPU) + "_"
+				+ environment.get(CORES) + "_" + environment.get(OS) + "_" + environment.get(JVM);
+		return key.replaceAll("[^A-Za-z0-9._-]+", "-");
+	}
+
+	public void addRecord(BenchmarkRecord record) {
+		records.put(record.getKey(), record);
+	}
+
+	public BenchmarkRecord getRecord(String key) {
+		return records.get(key);
+	}
+
+	public Collection<BenchmarkRecord> getRecords() {
+		return records.values();
+	}
+
+	/**
+	 * Creates a run from a JMH result file in JSON format, as written by
+	 * {@link UJMPBenchmarks}. The primary metric and, if the GC profiler was
+	 * enabled, the allocation per operation are recorded.
+	 */
+	public static BenchmarkRun fromJmh(File file, String commit) throws IOException {
+		JSONArray results = null;
+		Reader r = open(file);
+		try {
+			results = new JSONArray(new JSONTokener(r));
+		} finally {
+			r.close();
+		}
+
+		BenchmarkRun run = new BenchmarkRun();
+		run.environment.put(COMMIT, commit);
+		run.environment.put(TIME, new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss").format(new Date(
+				file.lastModified())));
+		run.environment.put(HOST, BenchmarkUtil.getHostName());
+		run.environment.put(CPU, getCpuName());
+		run.environment.put(CORES, String.valueOf(Runtime.getRuntime().availableProcessors()));
+		run.environment.put(OS, System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+		run.environment.put(JVM, System.getProperty("java.vm.name") + " "
+				+ System.getProperty("java.version"));
+
+		for (int i = 0; i < results.length(); i++) {
+			JSONObject result = results.getJSONObject(i);
+			if (i == 0 && result.has("vmName")) {
+				run.environment.put(JVM, result.getString("vmName") + " "
+						+ result.optString("jdkVersion", result.optString("vmVersion")));
+			}
+
+			String key = getKey(result);
+			boolean higherIsBetter = "thrpt".equals(result.optString("mode"));
+
+			JSONObject primary = result.getJSONObject("primaryMetric");
+			run.addRecord(new BenchmarkRecord(key, primary.getString("scoreUnit"), higherIsBetter,
+					getSamples(primary)));
+
+			JSONObject secondary = result.optJSONObject("secondaryMetrics");
+			if (secondary != null) {
+				Iterator<String> it = secondary.keys();
+				while (it.hasNext()) {
+					String name = it.next();
+					if (name.endsWith(ALLOCATION)) {
+						JSONObject metric = secondary.getJSONObject(name);
+						run.addRecord(new BenchmarkRecord(key + " [" + ALLOCATION + "]", metric
+								.getString("scoreUnit"), false, getSamples(metric)));
+					}
+				}
+			}
+		}
+		return run;
+	}
+
+	private static String getKey(JSONObject result) {
+		StringBuilder s = new StringBuilder();
+		s.append(result.getString("benchmark"));
+		JSONObject params = result.optJSONObject("params");
+		if (params != null) {
+			Map<String, String> sorted = new TreeMap<String, String>();
+			Iterator<String> it = params.keys();
+			while (it.hasNext()) {
+				String name = it.next();
+				sorted.put(name, params.getString(name));
+			}
+			s.append(sorted);
+		}
+		return s.toString();
+	}
+
+	private static double[] getSamples(JSONObject metric) {
+		JSONArray forks = metric.optJSONArray("rawData");
+		if (forks == null) {
+			return new double[] { metric.getDouble("score") };
+		}
+		int count = 0;
+		for (int f = 0; f < forks.length(); f++) {
+			count += forks.getJSONArray(f).length();
+		}
+		double[] samples = new double[count];
+		int i = 0;
+		for (int f = 0; f < forks.length(); f++) {
+			JSONArray iterations = forks.getJSONArray(f);
+			for (int j = 0; j < iterations.length(); j++) {
+				samples[i++] = iterations.optDouble(j);
+			}
+		}
+		return samples;
+	}
+
+	public static String getCpuName() {
+		File cpuinfo = new File("/proc/cpuinfo");
+		if (cpuinfo.canRead()) {
+			BufferedReader br = null;
+			try {
+				br = new BufferedReader(open(cpuinfo));
+				String line = null;
+				while ((line = br.readLine()) != null) {
+					if (line.startsWith("model name")) {
+						return line.substring(line.indexOf(':') + 1).trim();
+					}
+				}
+			} catch (IOException e) {
+			} finally {
+				try {
+					if (br != null) {
+						br.close();
+					}
+				} catch (IOException e) {
+				}
+			}
+		}
+		String cpu = System.getenv("PROCESSOR_IDENTIFIER");
+		return cpu != null ? cpu : System.getProperty("os.arch");
+	}
+
+	public JSONObject toJson() {
+		JSONObject json = new JSONObject();
+		json.put("environment", environment);
+		JSONArray array = new JSONArray();
+		for (BenchmarkRecord record : records.values()) {
+			array.put(record.toJson());
+		}
+		json.put("results", array);
+		return json;
+	}
+
+	public static BenchmarkRun fromJson(JSONObject json) {
+		BenchmarkRun run = new BenchmarkRun();
+		JSONObject environment = json.getJSONObject("environment");
+		Iterator<String> it = environment.keys();
+		while (it.hasNext()) {
+			String name = it.next();
+			run.environment.put(name, environment.getString(name));
+		}
+		JSONArray array = json.getJSONArray("results");
+		for (int i = 0; i < array.length(); i++) {
+			run.addRecord(BenchmarkRecord.fromJson(array.getJSONObject(i)));
+		}
+		return run;
+	}
+
+	public void save(File file) throws IOException {
+		file.getParentFile().mkdirs();
+		Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			w.write(toJson().toString(2));
+		} finally {
+			w.close();
+		}
+	}
+
+	public static BenchmarkRun load(File file) throws IOException {
+		Reader r = open(file);
+		try {
+			return fromJson(new JSONObject(new JSONTokener(r)));
+		} finally {
+			r.close();
+		}
+	}
+
+	private static Reader open(File file) throws IOException {
+		return new InputStreamReader(new FileInputStream(file), "UTF-8");
+	}
+
+}
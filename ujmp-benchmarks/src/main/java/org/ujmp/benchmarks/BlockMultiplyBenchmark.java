@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.benchmark.BenchmarkUtil;
+import org.ujmp.core.doublematrix.impl.BlockDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.BlockMatrixLayout.BlockOrder;
+import org.ujmp.core.util.UJMPSettings;
+
+/**
+ * Time and allocation of the block matrix multiplication for different block
+ * sizes and block orders. Run with <code>-prof gc</code> (done by default in
+ * {@link UJMPBenchmarks}) to see the bytes allocated per multiplication in
+ * <code>gc.alloc.rate.norm</code>; ideally this is the size of the result.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xmx2G" })
+@State(Scope.Benchmark)
+public class BlockMultiplyBenchmark {
+
+	@Param({ "200", "600", "1000" })
+	public int size;
+
+	@Param({ "50", "100" })
+	public int blockSize;
+
+	@Param({ "ROWMAJOR", "COLUMNMAJOR" })
+	public BlockOrder blockOrder;
+
+	@Param({ "1", "4" })
+	public int threads;
+
+	private BlockDenseDoubleMatrix2D a;
+
+	private BlockDenseDoubleMatrix2D b;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		UJMPSettings.getInstance().setNumberOfThreads(threads);
+		UJMPSettings.getInstance().setUseBlockMatrixMultiply(true);
+		a = new BlockDenseDoubleMatrix2D(size, size, blockSize, blockOrder);
+		b = new BlockDenseDoubleMatrix2D(size, size, blockSize, blockOrder);
+		BenchmarkUtil.rand(AbstractMatrixState.SEED, 0, 0, a);
+		BenchmarkUtil.rand(AbstractMatrixState.SEED, 0, 1, b);
+	}
+
+	@Benchmark
+	public Matrix mtimes() {
+		return a.mtimes(b);
+	}
+
+}
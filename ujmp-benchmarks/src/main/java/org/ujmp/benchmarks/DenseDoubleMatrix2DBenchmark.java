@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.benchmark.BenchmarkUtil;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * JMH version of the tasks in <code>org.ujmp.core.benchmark</code>: one
+ * benchmark per operation, run for every implementation, size and thread count
+ * given in {@link AbstractMatrixState}. Operations which are not supported by
+ * an implementation fail for this parameter combination only.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xmx2G" })
+public class DenseDoubleMatrix2DBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SquareState extends AbstractMatrixState {
+		public DoubleMatrix2D a;
+		public DoubleMatrix2D b;
+
+		@Override
+		protected void createMatrices() {
+			a = rand(0, size, size);
+			b = rand(1, size, size);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class SymmetricState extends AbstractMatrixState {
+		public DoubleMatrix2D a;
+
+		@Override
+		protected void createMatrices() {
+			a = create(size, size);
+			BenchmarkUtil.randSymm(SEED, 0, 0, a);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class PositiveDefiniteState extends AbstractMatrixState {
+		public DoubleMatrix2D a;
+
+		@Override
+		protected void createMatrices() {
+			a = create(size, size);
+			BenchmarkUtil.randPositiveDefinite(SEED, 0, 0, a);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class SolveSquareState extends AbstractMatrixState {
+		public DoubleMatrix2D a;
+		public DoubleMatrix2D b;
+
+		@Override
+		protected void createMatrices() {
+			a = rand(0, size, size);
+			b = rightHandSide(this, a);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class SolveTallState extends AbstractMatrixState {
+		public DoubleMatrix2D a;
+		public DoubleMatrix2D b;
+
+		@Override
+		protected void createMatrices() {
+			a = rand(0, 2 * size, size);
+			b = rightHandSide(this, a);
+		}
+	}
+
+	private static DoubleMatrix2D rightHandSide(AbstractMatrixState state, DoubleMatrix2D a) {
+		DefaultDenseDoubleMatrix2D x = new DefaultDenseDoubleMatrix2D(
+				MathUtil.longToInt(a.getColumnCount()), MathUtil.longToInt(a.getRowCount()));
+		BenchmarkUtil.rand(AbstractMatrixState.SEED, 0, 1, x);
+		return state.create(new DefaultDenseDoubleMatrix2D(a).mtimes(x));
+	}
+
+	@Benchmark
+	public Matrix timesScalar(SquareState s) {
+		return s.a.times(1.0001);
+	}
+
+	@Benchmark
+	public Matrix plusMatrix(SquareState s) {
+		return s.a.plus(s.b);
+	}
+
+	@Benchmark
+	public Matrix transpose(SquareState s) {
+		return s.a.transpose();
+	}
+
+	@Benchmark
+	public Matrix mtimes(SquareState s) {
+		return s.a.mtimes(s.b);
+	}
+
+	@Benchmark
+	public Matrix inv(SquareState s) {
+		return s.a.inv();
+	}
+
+	@Benchmark
+	public Matrix invSPD(PositiveDefiniteState s) {
+		return s.a.invSPD();
+	}
+
+	@Benchmark
+	public Matrix solveSquare(SolveSquareState s) {
+		return s.a.solve(s.b);
+	}
+
+	@Benchmark
+	public Matrix solveTall(SolveTallState s) {
+		return s.a.solve(s.b);
+	}
+
+	@Benchmark
+	public Matrix[] svd(SquareState s) {
+		return s.a.svd();
+	}
+
+	@Benchmark
+	public Matrix[] eig(SymmetricState s) {
+		return s.a.eig();
+	}
+
+	@Benchmark
+	public Matrix chol(PositiveDefiniteState s) {
+		return s.a.chol();
+	}
+
+	@Benchmark
+	public Matrix[] lu(SquareState s) {
+		return s.a.lu();
+	}
+
+	@Benchmark
+	public Matrix[] qr(SquareState s) {
+		return s.a.qr();
+	}
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ujmp.core.benchmark.AbstractMatrix2DBenchmark;
+
+/**
+ * Short names for the dense matrix implementations that can be benchmarked.
+ * Every name refers to the existing {@link AbstractMatrix2DBenchmark} of a
+ * plugin, which is used as a factory for matrices of that type. Fully
+ * qualified class names of other {@link AbstractMatrix2DBenchmark}s are
+ * accepted as well, e.g. <code>-p implementation=my.package.MyBenchmark</code>.
+ */
+public abstract class MatrixImplementations {
+
+	private static final Map<String, String> IMPLEMENTATIONS;
+
+	static {
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		map.put("Default", "org.ujmp.core.benchmark.DefaultDenseDoubleMatrix2DBenchmark");
+		map.put("Array", "org.ujmp.core.benchmark.ArrayDenseDoubleMatrix2DBenchmark");
+		map.put("Block", "org.ujmp.core.benchmark.BlockDenseDoubleMatrix2DBenchmark");
+		map.put("Colt", "org.ujmp.colt.benchmark.ColtDenseDoubleMatrix2DBenchmark");
+		map.put("CommonsMathArray",
+				"org.ujmp.commonsmath.benchmark.CommonsMathArrayDenseDoubleMatrix2DBenchmark");
+		map.put("CommonsMathBlock",
+				"org.ujmp.commonsmath.benchmark.CommonsMathBlockDenseDoubleMatrix2DBenchmark");
+		map.put("EJML", "org.ujmp.ejml.benchmark.EJMLDenseDoubleMatrix2DBenchmark");
+		map.put("Jama", "org.ujmp.jama.benchmark.JamaDenseDoubleMatrix2DBenchmark");
+		map.put("JBlas", "org.ujmp.jblas.benchmark.JBlasDenseDoubleMatrix2DBenchmark");
+		map.put("JSci", "org.ujmp.jsci.benchmark.JSciDenseDoubleMatrix2DBenchmark");
+		map.put("JScience", "org.ujmp.jscience.benchmark.JScienceDenseDoubleMatrix2DBenchmark");
+		map.put("MTJ", "org.ujmp.mtj.benchmark.MTJDenseDoubleMatrix2DBenchmark");
+		map.put("Ojalgo", "org.ujmp.ojalgo.benchmark.OjalgoDenseDoubleMatrix2DBenchmark");
+		map.put("ParallelColt",
+				"org.ujmp.parallelcolt.benchmark.ParallelColtDenseDoubleMatrix2DBenchmark");
+		map.put("VecMath", "org.ujmp.vecmath.benchmark.VecMathDenseDoubleMatrix2DBenchmark");
+		IMPLEMENTATIONS = Collections.unmodifiableMap(map);
+	}
+
+	public static Map<String, String> getImplementations() {
+		return IMPLEMENTATIONS;
+	}
+
+	public static AbstractMatrix2DBenchmark getFactory(String implementation) {
+		String className = IMPLEMENTATIONS.get(implementation);
+		if (className == null) {
+			className = implementation;
+		}
+		try {
+			return (AbstractMatrix2DBenchmark) Class.forName(className).newInstance();
+		} catch (Exception e) {
+			throw new RuntimeException("matrix implementation not available: " + implementation, e);
+		}
+	}
+
+}
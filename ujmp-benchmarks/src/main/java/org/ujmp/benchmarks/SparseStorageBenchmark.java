@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.DefaultSparseDoubleMatrix;
+import org.ujmp.core.genericmatrix.impl.DefaultSparseGenericMatrix;
+
+/**
+ * Compares the primitive storage of {@link DefaultSparseDoubleMatrix} with the
+ * <code>HashMap&lt;Coordinates, Double&gt;</code> of
+ * {@link DefaultSparseGenericMatrix}, which was used for sparse double matrices
+ * before. All results are normalised to a single entry. With
+ * <code>-prof gc</code> (done by default in {@link UJMPBenchmarks}),
+ * <code>gc.alloc.rate.norm</code> of {@link #fill()} shows the bytes
+ * allocated per entry while the matrix is built, including the tables
+ * discarded when growing. {@link #fillPresized()} reserves the space in
+ * advance, so that its allocation is close to the memory the matrix retains
+ * per entry.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xmx2G" })
+@State(Scope.Benchmark)
+public class SparseStorageBenchmark {
+
+	public static final int ENTRIES = 100000;
+
+	public static final long SIZE = 1000000;
+
+	@Param({ "HashMap", "OpenAddressing" })
+	public String storage;
+
+	private long[] rows;
+
+	private long[] columns;
+
+	private Matrix matrix;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(AbstractMatrixState.SEED);
+		rows = new long[ENTRIES];
+		columns = new long[ENTRIES];
+		for (int i = 0; i < ENTRIES; i++) {
+			rows[i] = (long) (random.nextDouble() * SIZE);
+			columns[i] = (long) (random.nextDouble() * SIZE);
+		}
+		matrix = fill();
+	}
+
+	private Matrix create() {
+		if ("HashMap".equals(storage)) {
+			return new DefaultSparseGenericMatrix<Double>(SIZE, SIZE);
+		} else {
+			return new DefaultSparseDoubleMatrix(SIZE, SIZE);
+		}
+	}
+
+	private Matrix fill(Matrix m) {
+		final long[] rows = this.rows;
+		final long[] columns = this.columns;
+		for (int i = 0; i < ENTRIES; i++) {
+			m.setAsDouble(i + 1, rows[i], columns[i]);
+		}
+		return m;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public Matrix fill() {
+		return fill(create());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public Matrix fillPresized() {
+		Matrix m = create();
+		if (m instanceof DefaultSparseDoubleMatrix) {
+			((DefaultSparseDoubleMatrix) m).ensureCapacity(ENTRIES);
+		}
+		return fill(m);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES)
+	public double get() {
+		final Matrix m = matrix;
+		final long[] rows = this.rows;
+		final long[] columns = this.columns;
+		double sum = 0.0;
+		for (int i = 0; i < ENTRIES; i++) {
+			sum += m.getAsDouble(rows[i], columns[i]);
+		}
+		return sum;
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.benchmarks;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+import org.ujmp.core.benchmark.BenchmarkUtil;
+
+/**
+ * Runs the JMH benchmarks of UJMP. Accepts the usual JMH command line options,
+ * e.g. <code>DenseDoubleMatrix2DBenchmark.mtimes -p implementation=Default,JBlas
+ * -p size=100,1000 -p threads=1</code>. Unless a result file is given with
+ * <code>-rff</code>, the results are written as JSON to
+ * <code>results/jmh/&lt;host&gt;/&lt;os&gt;/Java&lt;version&gt;/&lt;time&gt;.json</code>
+ * so that they can be compared between runs. The GC profiler is always
+ * enabled to report allocations per operation.
+ */
+public class UJMPBenchmarks {
+
+	public static File getDefaultResultFile() {
+		String time = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		return new File("results/jmh/" + BenchmarkUtil.getHostName() + "/"
+				+ System.getProperty("os.name") + "/Java" + System.getProperty("java.version")
+				+ "/" + time + ".json");
+	}
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+		if (commandLine.getIncludes().isEmpty()) {
+			options.include(UJMPBenchmarks.class.getPackage().getName() + ".*");
+		}
+
+		if (!commandLine.getResult().hasValue()) {
+			File file = getDefaultResultFile();
+			file.getParentFile().mkdirs();
+			options.result(file.getPath());
+			if (!commandLine.getResultFormat().hasValue()) {
+				options.resultFormat(ResultFormatType.JSON);
+			}
+		}
+
+		boolean gcProfiler = false;
+		for (ProfilerConfig profiler : commandLine.getProfilers()) {
+			gcProfiler |= "gc".equals(profiler.getKlass())
+					|| GCProfiler.class.getName().equals(profiler.getKlass());
+		}
+		if (!gcProfiler) {
+			options.addProfiler(GCProfiler.class);
+		}
+
+		new Runner(options.build()).run();
+	}
+
+}
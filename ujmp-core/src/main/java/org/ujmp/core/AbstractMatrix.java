@@ -117,9 +117,12 @@ import org.ujmp.core.doublematrix.calculation.general.decomposition.LU;
 import org.ujmp.core.doublematrix.calculation.general.decomposition.Pinv;
 import org.ujmp.core.doublematrix.calculation.general.decomposition.Princomp;
 import org.ujmp.core.doublematrix.calculation.general.decomposition.QR;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.RandomizedSVD;
 import org.ujmp.core.doublematrix.calculation.general.decomposition.SVD;
 import org.ujmp.core.doublematrix.calculation.general.decomposition.Solve;
 import org.ujmp.core.doublematrix.calculation.general.decomposition.SolveSPD;
+import org.ujmp.core.doublematrix.calculation.general.iterative.Arnoldi;
+import org.ujmp.core.doublematrix.calculation.general.iterative.Lanczos;
 import org.ujmp.core.doublematrix.calculation.general.misc.Center;
 import org.ujmp.core.doublematrix.calculation.general.misc.CosineSimilarity;
 import org.ujmp.core.doublematrix.calculation.general.misc.DiscretizeToColumns;
@@ -1925,34 +1928,7 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 	}
 
 	public final Matrix[] svd(int k) {
-
-		// how many iterations for self-multiplication, good values seem to be
-		// in the range 3 to 8
-		final int iterations = 3;
-
-		// self-multiplication
-		Matrix aSquared = this.mtimes(transpose());
-		for (int i = 0; i < iterations; i++) {
-			aSquared = aSquared.mtimes(aSquared);
-		}
-
-		// multiply with random matrix
-		Matrix o = Matrix.Factory.randn(getRowCount(), k);
-		Matrix y = aSquared.mtimes(this).mtimes(o);
-
-		// decompose
-		Matrix[] qr = y.qr();
-		Matrix q = qr[0];
-
-		// calculate low rank SVD
-		Matrix b = q.transpose().mtimes(this);
-		Matrix[] svd = b.svd();
-		Matrix uHat = svd[0];
-		Matrix s = svd[1];
-		Matrix v = svd[2];
-		Matrix u = q.mtimes(uHat);
-
-		return new Matrix[] { u, s, v };
+		return RandomizedSVD.INSTANCE.calc(this, k);
 	}
 
 	public Matrix[] eig() {
@@ -1963,6 +1939,14 @@ public abstract class AbstractMatrix extends Number implements Matrix {
 		return Eig.INSTANCE.calc(this);
 	}
 
+	public final Matrix[] eig(int k) {
+		return Arnoldi.INSTANCE.calc(this, k);
+	}
+
+	public final Matrix[] eigSymm(int k) {
+		return Lanczos.INSTANCE.calc(this, k);
+	}
+
 	public Matrix[] qr() {
 		return QR.INSTANCE.calc(this);
 	}
@@ -30,6 +30,7 @@ import org.ujmp.core.DenseMatrix2D;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.SparseMatrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
 import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
 import org.ujmp.core.mapmatrix.MapMatrix;
@@ -37,6 +38,7 @@ import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
 import org.ujmp.core.util.VerifyUtil;
 import org.ujmp.core.util.concurrent.PForEquidistant;
+import org.ujmp.core.util.concurrent.PForRange;
 
 public class MinusMatrix {
 	public static final MinusMatrixCalculation<Matrix, Matrix, Matrix> MATRIX = new MinusMatrixMatrix();
@@ -235,7 +237,22 @@ class MinusMatrixDenseDoubleMatrix2D implements
 	private final void calc(final double[] source1, final double[] source2, final double[] target) {
 		VerifyUtil.verifySameSize(source1, source2, target);
 		final int length = source1.length;
-		for (int i = 0; i < length; i++) {
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		if (threads > 1 && length >= AbstractEntrywiseDoubleCalculation.MINPARALLELSIZE) {
+			new PForRange(threads, AbstractEntrywiseDoubleCalculation.MINPARALLELSIZE / 4, 0,
+					length - 1) {
+				public void step(int first, int last) {
+					calc(source1, source2, target, first, last + 1);
+				}
+			};
+		} else {
+			calc(source1, source2, target, 0, length);
+		}
+	}
+
+	private static final void calc(final double[] source1, final double[] source2,
+			final double[] target, final int from, final int to) {
+		for (int i = from; i < to; i++) {
 			target[i] = source1[i] - source2[i];
 		}
 	}
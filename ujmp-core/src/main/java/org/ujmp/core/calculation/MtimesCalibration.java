@@ -0,0 +1,417 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+
+package org.ujmp.core.calculation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.PanelMultiply;
+import org.ujmp.core.util.UJMPSettings;
+
+/**
+ * Decides which kernel is used for multiplying two dense double matrices.
+ * For every shape class and for a number of sizes, the profile contains a
+ * ranking of the available strategies, fastest first. The size of a
+ * multiplication of an m x k by a k x n matrix is measured as the cube root
+ * of m*k*n, the ranking of the largest profiled size below that is used.
+ * <p>
+ * Calibration is disabled by default. When it is enabled in
+ * {@link UJMPSettings}, the profile is read from the profile file on the first
+ * multiplication with at least {@link Mtimes#THRESHOLD} rows and columns in
+ * the first matrix. If there is no file or it has been created on a
+ * different machine, all strategies are measured once, which takes up to
+ * {@link #MAXCALIBRATIONTIME}, and the result is saved to the file. Smaller
+ * multiplications and multiplications without calibration use a static
+ * profile, which follows the rule of {@link Mtimes#THRESHOLD}: multi-threaded
+ * if the first matrix has at least that many rows and columns.
+ */
+public class MtimesCalibration {
+
+	public enum Strategy {
+		SINGLETHREADED, MULTITHREADED, PANEL, BLOCK, NATIVE;
+	}
+
+	public enum Shape {
+		SQUARE, TALL, WIDE, VECTOR;
+
+		public static Shape getShape(final int m, final int k, final int n) {
+			if (m == 1 || n == 1) {
+				return VECTOR;
+			} else if (m >= 4 * n) {
+				return TALL;
+			} else if (n >= 4 * m) {
+				return WIDE;
+			} else {
+				return SQUARE;
+			}
+		}
+
+		/**
+		 * Returns the dimensions m, k, n of a multiplication with this shape
+		 * and the given size.
+		 */
+		public int[] getDimensions(final int size) {
+			final int t = Math.max(1, (int) Math.round(size / Math.cbrt(4.0)));
+			switch (this) {
+			case TALL:
+				return new int[] { 4 * t, t, t };
+			case WIDE:
+				return new int[] { t, t, 4 * t };
+			case VECTOR:
+				final int v = Math.min(MAXVECTORLENGTH, (int) Math.round(Math.pow(size, 1.5)));
+				return new int[] { v, v, 1 };
+			default:
+				return new int[] { size, size, size };
+			}
+		}
+	}
+
+	/** Sizes for which the strategies are ranked. */
+	public static final int[] SIZES = new int[] { 8, 16, 32, 64, 128, 256 };
+
+	/** Multiplications smaller than this are never dispatched. */
+	public static final int MINSIZE = SIZES[0];
+
+	public static final int MAXVECTORLENGTH = 2048;
+
+	/** Maximum total time for the calibration in milliseconds. */
+	public static final long MAXCALIBRATIONTIME = 10000;
+
+	private static final int MINRUNS = 3;
+
+	private static final int MAXRUNS = 10;
+
+	private static final long MINRUNTIME = 20000000L;
+
+	private static final String MACHINE = "machine";
+
+	// volatile, so that other threads see the profile only when it is complete
+	private static volatile MtimesCalibration instance = null;
+
+	private static final Strategy[] SINGLETHREADED = new Strategy[] { Strategy.SINGLETHREADED };
+
+	private static final Strategy[] MULTITHREADED = new Strategy[] { Strategy.NATIVE,
+			Strategy.PANEL, Strategy.MULTITHREADED, Strategy.SINGLETHREADED };
+
+	private final Map<Shape, Strategy[][]> rankings = new EnumMap<Shape, Strategy[][]>(Shape.class);
+
+	private final String machine;
+
+	// true for the static profile, until a ranking is changed
+	private boolean useThreshold = false;
+
+	public MtimesCalibration(final String machine) {
+		this.machine = machine;
+		for (Shape shape : Shape.values()) {
+			rankings.put(shape, new Strategy[SIZES.length][]);
+		}
+	}
+
+	public static final MtimesCalibration getInstance() {
+		MtimesCalibration calibration = instance;
+		if (calibration == null) {
+			synchronized (MtimesCalibration.class) {
+				calibration = instance;
+				if (calibration == null) {
+					calibration = createInstance();
+					instance = calibration;
+				}
+			}
+		}
+		return calibration;
+	}
+
+	public static final synchronized void setInstance(final MtimesCalibration calibration) {
+		instance = calibration;
+	}
+
+	private static final MtimesCalibration createInstance() {
+		final UJMPSettings settings = UJMPSettings.getInstance();
+		if (!settings.isUseMtimesCalibration()) {
+			return getDefault();
+		}
+		final File file = settings.getMtimesProfile();
+		if (file != null && file.exists()) {
+			try {
+				final MtimesCalibration profile = load(file);
+				if (getMachineKey().equals(profile.machine)) {
+					return profile;
+				}
+			} catch (Exception e) {
+				// outdated or broken profile, calibrate again
+			}
+		}
+		final MtimesCalibration profile = calibrate();
+		if (file != null) {
+			try {
+				profile.save(file);
+			} catch (IOException e) {
+				// profile is used for this session only
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Returns the strategies for multiplying an m x k by a k x n matrix,
+	 * fastest first.
+	 */
+	public final Strategy[] getRanking(final int m, final int k, final int n) {
+		if (useThreshold) {
+			return getDefaultRanking(m, k, n);
+		}
+		final double size = Math.cbrt((double) m * (double) k * (double) n);
+		if (size < MINSIZE) {
+			return SINGLETHREADED;
+		}
+		final Strategy[][] ranking = rankings.get(Shape.getShape(m, k, n));
+		int index = 0;
+		while (index + 1 < SIZES.length && SIZES[index + 1] <= size) {
+			index++;
+		}
+		return ranking[index];
+	}
+
+	public final Strategy[] getRanking(final Shape shape, final int sizeIndex) {
+		return rankings.get(shape)[sizeIndex];
+	}
+
+	public final void setRanking(final Shape shape, final int sizeIndex, final Strategy... ranking) {
+		rankings.get(shape)[sizeIndex] = ranking;
+		useThreshold = false;
+	}
+
+	public final String getMachine() {
+		return machine;
+	}
+
+	/**
+	 * Identifies the hardware and software the profile has been measured on.
+	 */
+	public static final String getMachineKey() {
+		return System.getProperty("os.arch") + "/" + Runtime.getRuntime().availableProcessors()
+				+ "/" + UJMPSettings.getInstance().getNumberOfThreads() + "/"
+				+ System.getProperty("java.vm.name") + "/" + System.getProperty("java.version")
+				+ "/" + (Mtimes.MTIMES_JBLAS != null ? "native" : "java");
+	}
+
+	/**
+	 * Returns the ranking of the static profile: native, packed and
+	 * multi-threaded multiplication if the first matrix has at least
+	 * {@link Mtimes#THRESHOLD} rows and columns, otherwise single-threaded.
+	 */
+	public static final Strategy[] getDefaultRanking(final int m, final int k, final int n) {
+		return m >= Mtimes.THRESHOLD && k >= Mtimes.THRESHOLD ? MULTITHREADED : SINGLETHREADED;
+	}
+
+	/**
+	 * Returns a profile which does not depend on measurements. Its rankings
+	 * are given by {@link #getDefaultRanking(int, int, int)} for the exact
+	 * dimensions; the size classes are only used if a ranking is changed.
+	 */
+	public static final MtimesCalibration getDefault() {
+		final MtimesCalibration profile = new MtimesCalibration("default");
+		for (Shape shape : Shape.values()) {
+			for (int i = 0; i < SIZES.length; i++) {
+				if (SIZES[i] < Mtimes.THRESHOLD) {
+					profile.setRanking(shape, i, SINGLETHREADED);
+				} else {
+					profile.setRanking(shape, i, MULTITHREADED);
+				}
+			}
+		}
+		profile.useThreshold = true;
+		return profile;
+	}
+
+	/**
+	 * Measures all strategies for all shapes and sizes on this machine. If
+	 * the calibration takes longer than {@link #MAXCALIBRATIONTIME}, the
+	 * remaining sizes get the ranking of the largest measured size.
+	 */
+	public static final MtimesCalibration calibrate() {
+		final MtimesDenseDoubleMatrix2D mtimes = new MtimesDenseDoubleMatrix2D();
+		final List<Strategy> candidates = new ArrayList<Strategy>();
+		candidates.add(Strategy.SINGLETHREADED);
+		if (UJMPSettings.getInstance().getNumberOfThreads() > 1) {
+			candidates.add(Strategy.MULTITHREADED);
+		}
+		candidates.add(Strategy.PANEL);
+		candidates.add(Strategy.BLOCK);
+		if (Mtimes.MTIMES_JBLAS != null) {
+			candidates.add(Strategy.NATIVE);
+		}
+
+		// let the JIT compile all kernels before measuring
+		for (Strategy strategy : candidates) {
+			final int[] d = Shape.SQUARE.getDimensions(64);
+			final DefaultDenseDoubleMatrix2D a = random(d[0], d[1]);
+			final DefaultDenseDoubleMatrix2D b = random(d[1], d[2]);
+			final DefaultDenseDoubleMatrix2D c = new DefaultDenseDoubleMatrix2D(d[0], d[2]);
+			for (int i = 0; i < MAXRUNS; i++) {
+				mtimes.calc(strategy, a, b, c);
+			}
+		}
+
+		final MtimesCalibration profile = new MtimesCalibration(getMachineKey());
+		final long deadline = System.currentTimeMillis() + MAXCALIBRATIONTIME;
+		for (int i = 0; i < SIZES.length; i++) {
+			for (Shape shape : Shape.values()) {
+				if (i > 0 && System.currentTimeMillis() > deadline) {
+					profile.setRanking(shape, i, profile.getRanking(shape, i - 1));
+				} else {
+					profile.setRanking(shape, i, measure(mtimes, shape, SIZES[i], candidates));
+				}
+			}
+		}
+		return profile;
+	}
+
+	private static final Strategy[] measure(final MtimesDenseDoubleMatrix2D mtimes,
+			final Shape shape, final int size, final List<Strategy> candidates) {
+		final int[] d = shape.getDimensions(size);
+		final DefaultDenseDoubleMatrix2D a = random(d[0], d[1]);
+		final DefaultDenseDoubleMatrix2D b = random(d[1], d[2]);
+		final DefaultDenseDoubleMatrix2D c = new DefaultDenseDoubleMatrix2D(d[0], d[2]);
+
+		final Strategy[] ranking = candidates.toArray(new Strategy[candidates.size()]);
+		final long[] times = new long[ranking.length];
+		for (int i = 0; i < ranking.length; i++) {
+			if (ranking[i] == Strategy.PANEL && !PanelMultiply.isSuitable(d[0], d[1], d[2])) {
+				times[i] = Long.MAX_VALUE;
+				continue;
+			}
+			mtimes.calc(ranking[i], a, b, c);
+			long best = Long.MAX_VALUE;
+			long total = 0;
+			for (int r = 0; r < MAXRUNS && (r < MINRUNS || total < MINRUNTIME); r++) {
+				final long t0 = System.nanoTime();
+				mtimes.calc(ranking[i], a, b, c);
+				final long t = System.nanoTime() - t0;
+				best = Math.min(best, t);
+				total += t;
+			}
+			times[i] = best;
+		}
+
+		// insertion sort, there are only a few strategies
+		for (int i = 1; i < ranking.length; i++) {
+			for (int j = i; j > 0 && times[j] < times[j - 1]; j--) {
+				final long t = times[j];
+				times[j] = times[j - 1];
+				times[j - 1] = t;
+				final Strategy s = ranking[j];
+				ranking[j] = ranking[j - 1];
+				ranking[j - 1] = s;
+			}
+		}
+		return ranking;
+	}
+
+	private static final DefaultDenseDoubleMatrix2D random(final int rows, final int columns) {
+		final Random random = new Random(rows * 31 + columns);
+		final double[] values = new double[rows * columns];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextDouble();
+		}
+		return new DefaultDenseDoubleMatrix2D(values, rows, columns);
+	}
+
+	public static final MtimesCalibration load(final File file) throws IOException {
+		final Properties properties = new Properties();
+		final InputStream is = new FileInputStream(file);
+		try {
+			properties.load(is);
+		} finally {
+			is.close();
+		}
+		final MtimesCalibration profile = new MtimesCalibration(properties.getProperty(MACHINE));
+		for (Shape shape : Shape.values()) {
+			for (int i = 0; i < SIZES.length; i++) {
+				final String value = properties.getProperty(shape.name() + "." + SIZES[i]);
+				if (value == null) {
+					throw new IOException("no ranking for " + shape + " " + SIZES[i]);
+				}
+				final String[] names = value.split(",");
+				final Strategy[] ranking = new Strategy[names.length];
+				for (int j = 0; j < names.length; j++) {
+					ranking[j] = Strategy.valueOf(names[j].trim());
+				}
+				profile.setRanking(shape, i, ranking);
+			}
+		}
+		return profile;
+	}
+
+	public final void save(final File file) throws IOException {
+		final Properties properties = new Properties();
+		properties.setProperty(MACHINE, machine);
+		for (Shape shape : Shape.values()) {
+			for (int i = 0; i < SIZES.length; i++) {
+				final StringBuilder s = new StringBuilder();
+				for (Strategy strategy : getRanking(shape, i)) {
+					if (s.length() > 0) {
+						s.append(',');
+					}
+					s.append(strategy.name());
+				}
+				properties.setProperty(shape.name() + "." + SIZES[i], s.toString());
+			}
+		}
+		final OutputStream os = new FileOutputStream(file);
+		try {
+			properties.store(os, "UJMP matrix multiplication profile");
+		} finally {
+			os.close();
+		}
+	}
+
+	public String toString() {
+		final StringBuilder s = new StringBuilder();
+		s.append(machine).append('\n');
+		for (Shape shape : Shape.values()) {
+			for (int i = 0; i < SIZES.length; i++) {
+				s.append(shape).append(' ').append(SIZES[i]).append(": ");
+				for (Strategy strategy : getRanking(shape, i)) {
+					s.append(strategy).append(' ');
+				}
+				s.append('\n');
+			}
+		}
+		return s.toString();
+	}
+
+}
@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt, Frode Carlsen
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.ujmp.core.util.VerifyUtil.verifyTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ujmp.core.calculation.MtimesCalibration.Strategy;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.BlockDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.BlockMatrixLayout;
+import org.ujmp.core.doublematrix.impl.BlockMatrixLayout.BlockOrder;
+import org.ujmp.core.doublematrix.impl.BlockMultiply;
+import org.ujmp.core.doublematrix.impl.PanelMultiply;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Contains matrix multiplication methods for different matrix implementations
+ * 
+ * @author Holger Arndt
+ * @author Frode Carlsen
+ * 
+ */
+class MtimesDenseDoubleMatrix2D implements
+		MtimesCalculation<DenseDoubleMatrix2D, DenseDoubleMatrix2D, DenseDoubleMatrix2D> {
+
+	public final void calc(final DenseDoubleMatrix2D source1, final DenseDoubleMatrix2D source2,
+			final DenseDoubleMatrix2D target) {
+		verifyTrue(source1 != null, "a == null");
+		verifyTrue(source2 != null, "b == null");
+		verifyTrue(target != null, "c == null");
+		verifyTrue(source1.getColumnCount() == source2.getRowCount(), "a.cols!=b.rows");
+		verifyTrue(source1.getRowCount() == target.getRowCount(), "a.rows!=c.rows");
+		verifyTrue(source2.getColumnCount() == target.getColumnCount(), "a.cols!=c.cols");
+		final int m = (int) source1.getRowCount();
+		final int k = (int) source1.getColumnCount();
+		final int n = (int) source2.getColumnCount();
+		if (UJMPSettings.getInstance().isUseBlockMatrixMultiply() && m >= Mtimes.THRESHOLD
+				&& k >= Mtimes.THRESHOLD) {
+			calc(Strategy.BLOCK, source1, source2, target);
+			return;
+		}
+		final Strategy[] ranking;
+		if (m < Mtimes.THRESHOLD || k < Mtimes.THRESHOLD) {
+			// not worth calibrating, and must not trigger the calibration
+			ranking = MtimesCalibration.getDefaultRanking(m, k, n);
+		} else {
+			ranking = MtimesCalibration.getInstance().getRanking(m, k, n);
+		}
+		if (source1 instanceof BlockDenseDoubleMatrix2D
+				&& source2 instanceof BlockDenseDoubleMatrix2D
+				&& ranking[0] != Strategy.SINGLETHREADED) {
+			// no conversion needed, all other kernels would access single values
+			calc(Strategy.BLOCK, source1, source2, target);
+			return;
+		}
+		for (Strategy strategy : ranking) {
+			if (isAvailable(strategy, source1, source2, target)) {
+				calc(strategy, source1, source2, target);
+				return;
+			}
+		}
+		calc(Strategy.SINGLETHREADED, source1, source2, target);
+	}
+
+	/**
+	 * Checks if a strategy can be applied to the given matrices and is not
+	 * disabled in the settings.
+	 */
+	final boolean isAvailable(final Strategy strategy, final DenseDoubleMatrix2D source1,
+			final DenseDoubleMatrix2D source2, final DenseDoubleMatrix2D target) {
+		switch (strategy) {
+		case NATIVE:
+			return Mtimes.MTIMES_JBLAS != null && UJMPSettings.getInstance().isUseJBlas();
+		case PANEL:
+			return source1 instanceof HasColumnMajorDoubleArray1D
+					&& source2 instanceof HasColumnMajorDoubleArray1D
+					&& target instanceof HasColumnMajorDoubleArray1D
+					&& UJMPSettings.getInstance().isUsePanelMatrixMultiply()
+					&& PanelMultiply.isSuitable((int) source1.getRowCount(),
+							(int) source1.getColumnCount(), (int) source2.getColumnCount());
+		default:
+			return true;
+		}
+	}
+
+	/**
+	 * Multiplies the matrices with the given strategy, without checking if it
+	 * is available.
+	 */
+	final void calc(final Strategy strategy, final DenseDoubleMatrix2D source1,
+			final DenseDoubleMatrix2D source2, final DenseDoubleMatrix2D target) {
+		switch (strategy) {
+		case NATIVE:
+			Mtimes.MTIMES_JBLAS.calc((DenseDoubleMatrix2D) source1, (DenseDoubleMatrix2D) source2,
+					(DenseDoubleMatrix2D) target);
+			break;
+		case BLOCK:
+			calcBlockMatrixMultiThreaded(source1, source2, target);
+			break;
+		case PANEL:
+			PanelMultiply.multiply(
+					((HasColumnMajorDoubleArray1D) source1).getColumnMajorDoubleArray1D(),
+					(int) source1.getRowCount(), (int) source1.getColumnCount(),
+					((HasColumnMajorDoubleArray1D) source2).getColumnMajorDoubleArray1D(),
+					(int) source2.getColumnCount(),
+					((HasColumnMajorDoubleArray1D) target).getColumnMajorDoubleArray1D());
+			break;
+		case MULTITHREADED:
+			if (source1 instanceof HasColumnMajorDoubleArray1D
+					&& source2 instanceof HasColumnMajorDoubleArray1D
+					&& target instanceof HasColumnMajorDoubleArray1D) {
+				calcDoubleArrayMultiThreaded(
+						((HasColumnMajorDoubleArray1D) source1).getColumnMajorDoubleArray1D(),
+						(int) source1.getRowCount(), (int) source1.getColumnCount(),
+						((HasColumnMajorDoubleArray1D) source2).getColumnMajorDoubleArray1D(),
+						(int) source2.getRowCount(), (int) source2.getColumnCount(),
+						((HasColumnMajorDoubleArray1D) target).getColumnMajorDoubleArray1D());
+			} else if (source1 instanceof HasRowMajorDoubleArray2D
+					&& source2 instanceof HasRowMajorDoubleArray2D
+					&& target instanceof HasRowMajorDoubleArray2D) {
+				calcDoubleArray2DMultiThreaded(
+						((HasRowMajorDoubleArray2D) source1).getRowMajorDoubleArray2D(),
+						((HasRowMajorDoubleArray2D) source2).getRowMajorDoubleArray2D(),
+						((HasRowMajorDoubleArray2D) target).getRowMajorDoubleArray2D());
+			} else {
+				calcDenseDoubleMatrix2DMultiThreaded(source1, source2, target);
+			}
+			break;
+		default:
+			if (source1 instanceof HasColumnMajorDoubleArray1D
+					&& source2 instanceof HasColumnMajorDoubleArray1D
+					&& target instanceof HasColumnMajorDoubleArray1D) {
+				gemmDoubleArraySingleThreaded(
+						((HasColumnMajorDoubleArray1D) source1).getColumnMajorDoubleArray1D(),
+						(int) source1.getRowCount(), (int) source1.getColumnCount(),
+						((HasColumnMajorDoubleArray1D) source2).getColumnMajorDoubleArray1D(),
+						(int) source2.getRowCount(), (int) source2.getColumnCount(),
+						((HasColumnMajorDoubleArray1D) target).getColumnMajorDoubleArray1D());
+			} else if (source1 instanceof HasRowMajorDoubleArray2D
+					&& source2 instanceof HasRowMajorDoubleArray2D
+					&& target instanceof HasRowMajorDoubleArray2D) {
+				calcDoubleArray2DSingleThreaded(
+						((HasRowMajorDoubleArray2D) source1).getRowMajorDoubleArray2D(),
+						((HasRowMajorDoubleArray2D) source2).getRowMajorDoubleArray2D(),
+						((HasRowMajorDoubleArray2D) target).getRowMajorDoubleArray2D());
+			} else {
+				calcDenseDoubleMatrix2DSingleThreaded(source1, source2, target);
+			}
+		}
+	}
+
+	private void calcBlockMatrixMultiThreaded(DenseDoubleMatrix2D source1,
+			DenseDoubleMatrix2D source2, DenseDoubleMatrix2D target) {
+		BlockDenseDoubleMatrix2D a = null;
+		BlockDenseDoubleMatrix2D b = null;
+		BlockDenseDoubleMatrix2D c = null;
+		if (source1 instanceof BlockDenseDoubleMatrix2D) {
+			a = (BlockDenseDoubleMatrix2D) source1;
+		} else {
+			a = new BlockDenseDoubleMatrix2D(source1);
+		}
+		if (source2 instanceof BlockDenseDoubleMatrix2D
+				&& a.getBlockStripeSize() == ((BlockDenseDoubleMatrix2D) source2)
+						.getBlockStripeSize()) {
+			b = (BlockDenseDoubleMatrix2D) source2;
+		} else {
+			b = new BlockDenseDoubleMatrix2D(source2, a.getBlockStripeSize(),
+					BlockOrder.COLUMNMAJOR);
+		}
+		final int arows = (int) a.getRowCount();
+		final int bcols = (int) b.getColumnCount();
+		if (target instanceof BlockDenseDoubleMatrix2D
+				&& a.getBlockStripeSize() == ((BlockDenseDoubleMatrix2D) target)
+						.getBlockStripeSize()) {
+			c = (BlockDenseDoubleMatrix2D) target;
+		} else {
+			c = new BlockDenseDoubleMatrix2D(arows, bcols, a.getBlockStripeSize(),
+					BlockOrder.ROWMAJOR);
+		}
+
+		// force optimal block order
+		BlockOrder prevA = a.setBlockOrder(BlockOrder.ROWMAJOR);
+		BlockOrder prevB = b.setBlockOrder(BlockOrder.COLUMNMAJOR);
+
+		blockMultiplyMultiThreaded(a, b, c);
+
+		if (c != target) {
+			for (int j = bcols; --j != -1;) {
+				for (int i = arows; --i != -1;) {
+					target.setDouble(c.getDouble(i, j), i, j);
+				}
+			}
+		}
+
+		// reset block order
+		if (Mtimes.RESET_BLOCK_ORDER) {
+			a.setBlockOrder(prevA);
+			b.setBlockOrder(prevB);
+		}
+	}
+
+	private final void gemmDoubleArraySingleThreaded(final double[] A, final int m1RowCount,
+			final int m1ColumnCount, final double[] B, final int m2RowCount,
+			final int m2ColumnCount, final double[] C) {
+
+		for (int j = 0; j < m2ColumnCount; j++) {
+			final int jcolTimesM1RowCount = j * m1RowCount;
+			final int jcolTimesM1ColumnCount = j * m1ColumnCount;
+			Arrays.fill(C, jcolTimesM1RowCount, jcolTimesM1RowCount + m1RowCount, 0.0d);
+			for (int lcol = 0; lcol < m1ColumnCount; ++lcol) {
+				final double temp = B[lcol + jcolTimesM1ColumnCount];
+				if (temp != 0.0d) {
+					final int lcolTimesM1RowCount = lcol * m1RowCount;
+					calcOneColumn(temp, A, C, m1RowCount, jcolTimesM1RowCount, lcolTimesM1RowCount);
+				}
+			}
+		}
+	}
+
+	private final void calcDoubleArrayMultiThreaded(final double[] A, final int m1RowCount,
+			final int m1ColumnCount, final double[] B, final int m2RowCount,
+			final int m2ColumnCount, final double[] C) {
+		new PForRange(0, m2ColumnCount - 1) {
+			@Override
+			public void step(int first, int last) {
+				for (int i = first; i <= last; i++) {
+					final int jcolTimesM1RowCount = i * m1RowCount;
+					final int jcolTimesM1ColumnCount = i * m1ColumnCount;
+					Arrays.fill(C, jcolTimesM1RowCount, jcolTimesM1RowCount + m1RowCount, 0.0d);
+					for (int lcol = 0; lcol < m1ColumnCount; ++lcol) {
+						final double temp = B[lcol + jcolTimesM1ColumnCount];
+						if (temp != 0.0d) {
+							final int lcolTimesM1RowCount = lcol * m1RowCount;
+							calcOneColumn(temp, A, C, m1RowCount, jcolTimesM1RowCount,
+									lcolTimesM1RowCount);
+						}
+					}
+				}
+			}
+		};
+	}
+
+	private final static void calcOneColumn(final double temp, final double[] A, final double[] C,
+			final int m1RowCount, int index1, int index2) {
+		for (int irow = 0; irow < m1RowCount; ++irow) {
+			C[index1++] += A[index2++] * temp;
+		}
+	}
+
+	private final void calcDoubleArray2DSingleThreaded(final double[][] m1, final double[][] m2,
+			final double[][] ret) {
+		final int columnCount = m1[0].length;
+		final double[] columns = new double[columnCount];
+
+		for (int c = m2[0].length; --c != -1;) {
+			for (int k = columnCount; --k != -1;) {
+				columns[k] = m2[k][c];
+			}
+			for (int r = m1.length; --r != -1;) {
+				double sum = 0.0d;
+				final double[] row = m1[r];
+				for (int k = columnCount; --k != -1;) {
+					sum += row[k] * columns[k];
+				}
+				ret[r][c] = sum;
+			}
+		}
+	}
+
+	private final void calcDoubleArray2DMultiThreaded(final double[][] m1, final double[][] m2,
+			final double[][] ret) {
+		final int columnCount = m1[0].length;
+
+		new PForRange(0, m2[0].length - 1) {
+			@Override
+			public void step(int first, int last) {
+				// each range needs its own copy of the column
+				final double[] columns = new double[columnCount];
+				for (int i = first; i <= last; i++) {
+					for (int k = columnCount; --k != -1;) {
+						columns[k] = m2[k][i];
+					}
+					for (int r = m1.length; --r != -1;) {
+						double sum = 0.0d;
+						final double[] row = m1[r];
+						for (int k = columnCount; --k != -1;) {
+							sum += row[k] * columns[k];
+						}
+						ret[r][i] = sum;
+					}
+				}
+			}
+		};
+	}
+
+	private final void calcDenseDoubleMatrix2DSingleThreaded(final DenseDoubleMatrix2D A,
+			final DenseDoubleMatrix2D B, final DenseDoubleMatrix2D C) {
+		final int m1RowCount = (int) A.getRowCount();
+		final int m1ColumnCount = (int) A.getColumnCount();
+		final int m2ColumnCount = (int) B.getColumnCount();
+
+		for (int i = 0; i < m2ColumnCount; i++) {
+			for (int irow = 0; irow < m1RowCount; ++irow) {
+				C.setDouble(0.0d, irow, i);
+			}
+			for (int lcol = 0; lcol < m1ColumnCount; ++lcol) {
+				final double temp = B.getDouble(lcol, i);
+				if (temp != 0.0d) {
+					for (int irow = 0; irow < m1RowCount; ++irow) {
+						C.setDouble(C.getDouble(irow, i) + A.getDouble(irow, lcol) * temp, irow, i);
+					}
+				}
+			}
+		}
+	}
+
+	private final void calcDenseDoubleMatrix2DMultiThreaded(final DenseDoubleMatrix2D A,
+			final DenseDoubleMatrix2D B, final DenseDoubleMatrix2D C) {
+		final int m1RowCount = (int) A.getRowCount();
+		final int m1ColumnCount = (int) A.getColumnCount();
+		final int m2ColumnCount = (int) B.getColumnCount();
+
+		new PFor(0, m2ColumnCount - 1) {
+			@Override
+			public void step(int i) {
+				for (int irow = 0; irow < m1RowCount; ++irow) {
+					C.setDouble(0.0d, irow, i);
+				}
+				for (int lcol = 0; lcol < m1ColumnCount; ++lcol) {
+					final double temp = B.getDouble(lcol, i);
+					if (temp != 0.0d) {
+						for (int irow = 0; irow < m1RowCount; ++irow) {
+							C.setDouble(C.getDouble(irow, i) + A.getDouble(irow, lcol) * temp,
+									irow, i);
+						}
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Multiply two matrices concurrently, the block tasks are distributed over
+	 * the fork/join pool by work stealing.
+	 * 
+	 * @param b
+	 *            - matrix to multiply this with.
+	 * @return new matrix C containing result of matrix multiplication C = A x
+	 *         B.
+	 */
+	/**
+	 * @param a
+	 * @param b
+	 * @param c
+	 * @return
+	 */
+	private BlockDenseDoubleMatrix2D blockMultiplyMultiThreaded(final BlockDenseDoubleMatrix2D a,
+			final BlockDenseDoubleMatrix2D b, final BlockDenseDoubleMatrix2D c) {
+		final BlockMatrixLayout al = a.getBlockLayout();
+		final BlockMatrixLayout bl = b.getBlockLayout();
+		verifyTrue(al.columns == bl.rows, "b.rows != this.columns");
+		verifyTrue(al.blockStripe == bl.blockStripe, "block sizes differ: %s != %s",
+				al.blockStripe, bl.blockStripe);
+
+		final List<BlockMultiply> tasks = new ArrayList<BlockMultiply>();
+
+		final int kMax = (int) b.getColumnCount();
+		final int jMax = (int) a.getColumnCount();
+		final int iMax = (int) a.getRowCount();
+
+		final int bColSlice = Math.min(al.blockStripe, kMax);
+		final int aRowSlice = Math.min(al.blockStripe, iMax);
+
+		// Number of blocks to take for each concurrent task. Every task covers
+		// the complete dimension J, so that it can accumulate its blocks of C
+		// in place without synchronization.
+		final int blocksPerTask = 1;
+
+		for (int k = 0, kStride; k < kMax; k += kStride) {
+			kStride = Math.min(blocksPerTask * bColSlice, kMax - k);
+
+			for (int i = 0, iStride; i < iMax; i += iStride) {
+				iStride = Math.min(blocksPerTask * aRowSlice, iMax - i);
+
+				tasks.add(new BlockMultiply(a, b, c, i, (i + iStride), 0, jMax, k, (k + kStride)));
+			}
+		}
+
+		// one task per index, idle workers steal the remaining tasks
+		new PForRange(UJMPSettings.getInstance().getNumberOfThreads(), 1, 0, tasks.size() - 1) {
+			@Override
+			public void step(int first, int last) {
+				for (int i = first; i <= last; i++) {
+					tasks.get(i).call();
+				}
+			}
+		};
+
+		return c;
+	}
+};
@@ -30,6 +30,7 @@ import org.ujmp.core.DenseMatrix2D;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.SparseMatrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
 import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
 import org.ujmp.core.mapmatrix.MapMatrix;
@@ -37,6 +38,7 @@ import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
 import org.ujmp.core.util.VerifyUtil;
 import org.ujmp.core.util.concurrent.PForEquidistant;
+import org.ujmp.core.util.concurrent.PForRange;
 
 public class TimesScalar {
 	public static final TimesScalarCalculation<Matrix, Matrix> MATRIX = new TimesScalarMatrix();
@@ -248,7 +250,22 @@ class TimesScalarDenseDoubleMatrix2D implements
 	private final void calc(final double[] source, final double factor, final double[] target) {
 		VerifyUtil.verifySameSize(source, target);
 		final int length = source.length;
-		for (int i = 0; i < length; i++) {
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		if (threads > 1 && length >= AbstractEntrywiseDoubleCalculation.MINPARALLELSIZE) {
+			new PForRange(threads, AbstractEntrywiseDoubleCalculation.MINPARALLELSIZE / 4, 0,
+					length - 1) {
+				public void step(int first, int last) {
+					calc(source, factor, target, first, last + 1);
+				}
+			};
+		} else {
+			calc(source, factor, target, 0, length);
+		}
+	}
+
+	private static final void calc(final double[] source, final double factor,
+			final double[] target, final int from, final int to) {
+		for (int i = from; i < to; i++) {
 			target[i] = source[i] * factor;
 		}
 	}
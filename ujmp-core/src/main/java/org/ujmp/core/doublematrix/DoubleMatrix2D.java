@@ -38,4 +38,18 @@ public interface DoubleMatrix2D extends BaseDoubleMatrix, NumberMatrix2D<Double>
 
 	public void setDouble(double value, int row, int column);
 
+	/**
+	 * Calls the visitor for every entry of the matrix, including zeros. The
+	 * order of the entries depends on the storage layout of the matrix.
+	 */
+	public void forEachDouble(DoubleMatrix2DVisitor visitor);
+
+	/**
+	 * Calls the visitor for every entry which is stored in the matrix, i.e. for
+	 * all entries of a dense matrix and at least for all non-zero entries of a
+	 * sparse matrix. The order of the entries depends on the storage layout of
+	 * the matrix.
+	 */
+	public void forEachAvailableDouble(DoubleMatrix2DVisitor visitor);
+
 }
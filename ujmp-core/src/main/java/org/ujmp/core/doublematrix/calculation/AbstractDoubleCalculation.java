@@ -26,10 +26,12 @@ package org.ujmp.core.doublematrix.calculation;
 import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.AbstractCalculation;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.DoubleMatrix;
 import org.ujmp.core.doublematrix.DoubleMatrix2D;
 import org.ujmp.core.doublematrix.impl.DoubleCalculationMatrix;
 import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.util.MathUtil;
 
 public abstract class AbstractDoubleCalculation extends AbstractCalculation implements
 		DoubleCalculation {
@@ -49,9 +51,17 @@ public abstract class AbstractDoubleCalculation extends AbstractCalculation impl
 	}
 
 	public Matrix calcNew() {
-		Matrix result = DoubleMatrix2D.Factory.zeros(getSize()[ROW], getSize()[COLUMN]);
-		for (long[] c : result.allCoordinates()) {
-			result.setAsDouble(getDouble(c), c);
+		final DenseDoubleMatrix2D result = DoubleMatrix2D.Factory.zeros(getSize()[ROW],
+				getSize()[COLUMN]);
+		final int rows = MathUtil.longToInt(result.getRowCount());
+		final int cols = MathUtil.longToInt(result.getColumnCount());
+		final long[] coordinates = new long[2];
+		for (int c = 0; c < cols; c++) {
+			coordinates[COLUMN] = c;
+			for (int r = 0; r < rows; r++) {
+				coordinates[ROW] = r;
+				result.setDouble(getDouble(coordinates), r, c);
+			}
 		}
 		if (getMetaData() != null) {
 			result.setMetaData(getMetaData().clone());
@@ -66,8 +76,22 @@ public abstract class AbstractDoubleCalculation extends AbstractCalculation impl
 		}
 
 		final Matrix matrix = getSource();
-		for (final long[] c : getSource().allCoordinates()) {
-			matrix.setAsDouble(getDouble(c), c);
+		if (matrix instanceof DoubleMatrix2D && matrix.getDimensionCount() == 2) {
+			final DoubleMatrix2D m = (DoubleMatrix2D) matrix;
+			final int rows = MathUtil.longToInt(m.getRowCount());
+			final int cols = MathUtil.longToInt(m.getColumnCount());
+			final long[] coordinates = new long[2];
+			for (int r = 0; r < rows; r++) {
+				coordinates[ROW] = r;
+				for (int c = 0; c < cols; c++) {
+					coordinates[COLUMN] = c;
+					m.setDouble(getDouble(coordinates), r, c);
+				}
+			}
+		} else {
+			for (final long[] c : getSource().allCoordinates()) {
+				matrix.setAsDouble(getDouble(c), c);
+			}
 		}
 		getSource().fireValueChanged();
 		return getSource();
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation;
+
+import java.util.LinkedList;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.doublematrix.SparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.ArrayDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DoubleCalculationMatrix;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
+import org.ujmp.core.util.LongArrayList;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Base class for calculations which apply a function to every entry of a
+ * single matrix. If source and target expose their backing arrays, the
+ * function is applied to the arrays directly, without coordinates, in
+ * parallel for large matrices. Subclasses with a cheap function should
+ * override {@link #apply(double[], double[], int, int)} with a plain loop,
+ * which the JIT compiler can vectorise.
+ * <p>
+ * Entrywise calculations which are linked with <code>Ret.LINK</code>, e.g.
+ * <code>m.minus(Ret.LINK, false, 1).times(Ret.LINK, false, 2).exp(Ret.LINK)</code>
+ * , are fused: {@link #getDouble(long...)} reads the value from the innermost
+ * source only once and applies all functions of the chain, and
+ * <code>Ret.NEW</code> runs the array kernels of the whole chain block by
+ * block over the innermost source, without creating intermediate matrices.
+ * <p>
+ * If the innermost source is sparse and all functions of the chain map zero to
+ * zero, only the stored entries are visited and <code>Ret.NEW</code> returns a
+ * sparse matrix.
+ */
+public abstract class AbstractEntrywiseDoubleCalculation extends AbstractDoubleCalculation {
+	private static final long serialVersionUID = 2981744227735706471L;
+
+	/**
+	 * minimum number of entries for which multiple threads are used
+	 */
+	public static final int MINPARALLELSIZE = 1 << 16;
+
+	/**
+	 * number of entries which pass through all calculations of a chain before
+	 * the next block is started, small enough to stay in the L1 cache
+	 */
+	public static final int BLOCKSIZE = 1024;
+
+	private transient AbstractEntrywiseDoubleCalculation[] chain = null;
+
+	public AbstractEntrywiseDoubleCalculation(Matrix... sources) {
+		super(sources);
+	}
+
+	/**
+	 * The function which is applied to every entry.
+	 */
+	public abstract double apply(double value);
+
+	/**
+	 * Applies the function to <code>source[from]</code> to
+	 * <code>source[to-1]</code> and stores the results in <code>target</code>
+	 * , which may be the same array.
+	 */
+	public void apply(final double[] source, final double[] target, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			target[i] = apply(source[i]);
+		}
+	}
+
+	/**
+	 * @return false if the result depends on more than the value of the entry
+	 *         in the first source, in this case the array kernels are not used
+	 */
+	public boolean isEntrywise() {
+		return true;
+	}
+
+	/**
+	 * @return true if the function maps zero to zero, so that it does not
+	 *         have to be applied to the implicit zeros of a sparse matrix
+	 */
+	public boolean isZeroPreserving() {
+		return apply(0.0) == 0.0;
+	}
+
+	/**
+	 * Returns the entrywise calculations which are linked to this one, in the
+	 * order in which they have to be applied. The first element is the
+	 * innermost calculation, the last element is this calculation.
+	 */
+	public final AbstractEntrywiseDoubleCalculation[] getChain() {
+		if (chain == null) {
+			final LinkedList<AbstractEntrywiseDoubleCalculation> list = new LinkedList<AbstractEntrywiseDoubleCalculation>();
+			AbstractEntrywiseDoubleCalculation calculation = this;
+			list.addFirst(calculation);
+			while (calculation.isEntrywise()
+					&& calculation.getSource() instanceof DoubleCalculationMatrix) {
+				final DoubleCalculation inner = ((DoubleCalculationMatrix) calculation.getSource())
+						.getCalculation();
+				if (inner instanceof AbstractEntrywiseDoubleCalculation
+						&& ((AbstractEntrywiseDoubleCalculation) inner).isEntrywise()) {
+					calculation = (AbstractEntrywiseDoubleCalculation) inner;
+					list.addFirst(calculation);
+				} else {
+					break;
+				}
+			}
+			chain = list.toArray(new AbstractEntrywiseDoubleCalculation[list.size()]);
+		}
+		return chain;
+	}
+
+	public double getDouble(long... coordinates) {
+		final AbstractEntrywiseDoubleCalculation[] chain = getChain();
+		final Matrix source = chain[0].getSource();
+		double value = coordinates.length == 2 ? source.getAsDouble(coordinates[ROW],
+				coordinates[COLUMN]) : source.getAsDouble(coordinates);
+		for (int i = 0; i < chain.length; i++) {
+			value = chain[i].apply(value);
+		}
+		return value;
+	}
+
+	public Iterable<long[]> availableCoordinates() {
+		final AbstractEntrywiseDoubleCalculation[] chain = getChain();
+		final Matrix source = chain[0].getSource();
+		if (isEntrywise() && isSparse2D(source) && isZeroPreserving(chain)) {
+			return source.availableCoordinates();
+		}
+		return super.availableCoordinates();
+	}
+
+	public Matrix calcNew() {
+		final AbstractEntrywiseDoubleCalculation[] chain = getChain();
+		final Matrix source = chain[0].getSource();
+		if (isEntrywise() && isSparse2D(source) && isZeroPreserving(chain)) {
+			final SparseDoubleMatrix2D result = SparseDoubleMatrix2D.Factory.zeros(
+					source.getRowCount(), source.getColumnCount());
+			((DoubleMatrix2D) source).forEachAvailableDouble(new DoubleMatrix2DVisitor() {
+				public void visit(int row, int column, double value) {
+					for (int i = 0; i < chain.length; i++) {
+						value = chain[i].apply(value);
+					}
+					if (value != 0.0) {
+						result.setDouble(value, row, column);
+					}
+				}
+			});
+			if (getMetaData() != null) {
+				result.setMetaData(getMetaData().clone());
+			}
+			return result;
+		} else if (isEntrywise() && source instanceof DenseDoubleMatrix2D && hasArray(source)) {
+			final DenseDoubleMatrix2D result = createTarget(source);
+			calc(chain, (DenseDoubleMatrix2D) source, result);
+			if (getMetaData() != null) {
+				result.setMetaData(getMetaData().clone());
+			}
+			return result;
+		}
+		return super.calcNew();
+	}
+
+	public Matrix calcOrig() {
+		final Matrix source = getSource();
+		if (isEntrywise() && source instanceof DenseDoubleMatrix2D && hasArray(source)) {
+			calc(new AbstractEntrywiseDoubleCalculation[] { this }, (DenseDoubleMatrix2D) source,
+					(DenseDoubleMatrix2D) source);
+			source.fireValueChanged();
+			return source;
+		} else if (isEntrywise() && isSparse2D(source) && isZeroPreserving()) {
+			// the entries are collected first, because setting a value can
+			// change the storage which is being iterated
+			final DoubleMatrix2D m = (DoubleMatrix2D) source;
+			final long cols = m.getColumnCount();
+			final LongArrayList keys = new LongArrayList();
+			m.forEachAvailableDouble(new DoubleMatrix2DVisitor() {
+				public void visit(int row, int column, double value) {
+					keys.add(row * cols + column);
+				}
+			});
+			final int count = MathUtil.longToInt(keys.size());
+			for (int i = 0; i < count; i++) {
+				final long key = keys.get(i);
+				final long row = key / cols;
+				final long column = key - row * cols;
+				m.setDouble(apply(m.getDouble(row, column)), row, column);
+			}
+			source.fireValueChanged();
+			return source;
+		}
+		return super.calcOrig();
+	}
+
+	/**
+	 * Creates a dense matrix with the same array layout as the source, so that
+	 * the array kernels can be used
+	 */
+	private static DenseDoubleMatrix2D createTarget(Matrix source) {
+		if (source instanceof HasRowMajorDoubleArray2D
+				&& !(source instanceof HasColumnMajorDoubleArray1D)) {
+			return new ArrayDenseDoubleMatrix2D(source.getRowCount(), source.getColumnCount());
+		} else {
+			return DoubleMatrix2D.Factory.zeros(source.getRowCount(), source.getColumnCount());
+		}
+	}
+
+	private static boolean hasArray(Matrix m) {
+		return m instanceof HasColumnMajorDoubleArray1D || m instanceof HasRowMajorDoubleArray2D;
+	}
+
+	private static boolean isSparse2D(Matrix m) {
+		return m.isSparse() && m instanceof DoubleMatrix2D && m.getDimensionCount() == 2;
+	}
+
+	private static boolean isZeroPreserving(AbstractEntrywiseDoubleCalculation[] chain) {
+		for (int i = 0; i < chain.length; i++) {
+			if (!chain[i].isZeroPreserving()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void calc(final AbstractEntrywiseDoubleCalculation[] chain,
+			final DenseDoubleMatrix2D source, final DenseDoubleMatrix2D target) {
+		if (source instanceof HasColumnMajorDoubleArray1D
+				&& target instanceof HasColumnMajorDoubleArray1D) {
+			calc(chain, ((HasColumnMajorDoubleArray1D) source).getColumnMajorDoubleArray1D(),
+					((HasColumnMajorDoubleArray1D) target).getColumnMajorDoubleArray1D());
+		} else if (source instanceof HasRowMajorDoubleArray2D
+				&& target instanceof HasRowMajorDoubleArray2D) {
+			calc(chain, ((HasRowMajorDoubleArray2D) source).getRowMajorDoubleArray2D(),
+					((HasRowMajorDoubleArray2D) target).getRowMajorDoubleArray2D());
+		} else {
+			for (int r = (int) source.getRowCount(); --r != -1;) {
+				for (int c = (int) source.getColumnCount(); --c != -1;) {
+					double value = source.getDouble(r, c);
+					for (int i = 0; i < chain.length; i++) {
+						value = chain[i].apply(value);
+					}
+					target.setDouble(value, r, c);
+				}
+			}
+		}
+	}
+
+	private static void calc(final AbstractEntrywiseDoubleCalculation[] chain,
+			final double[] source, final double[] target) {
+		final int length = source.length;
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		if (threads > 1 && length >= MINPARALLELSIZE) {
+			new PForRange(threads, MINPARALLELSIZE / 4, 0, length - 1) {
+				public void step(int first, int last) {
+					apply(chain, source, target, first, last + 1);
+				}
+			};
+		} else {
+			apply(chain, source, target, 0, length);
+		}
+	}
+
+	private static void calc(final AbstractEntrywiseDoubleCalculation[] chain,
+			final double[][] source, final double[][] target) {
+		final int rows = source.length;
+		final int cols = rows == 0 ? 0 : source[0].length;
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		if (threads > 1 && (long) rows * cols >= MINPARALLELSIZE) {
+			new PForRange(threads, 0, rows - 1) {
+				public void step(int first, int last) {
+					for (int r = first; r <= last; r++) {
+						apply(chain, source[r], target[r], 0, cols);
+					}
+				}
+			};
+		} else {
+			for (int r = 0; r < rows; r++) {
+				apply(chain, source[r], target[r], 0, cols);
+			}
+		}
+	}
+
+	private static void apply(final AbstractEntrywiseDoubleCalculation[] chain,
+			final double[] source, final double[] target, final int from, final int to) {
+		if (chain.length == 1) {
+			chain[0].apply(source, target, from, to);
+		} else {
+			for (int start = from; start < to; start += BLOCKSIZE) {
+				final int end = Math.min(start + BLOCKSIZE, to);
+				chain[0].apply(source, target, start, end);
+				for (int i = 1; i < chain.length; i++) {
+					chain[i].apply(target, target, start, end);
+				}
+			}
+		}
+	}
+
+}
@@ -24,10 +24,10 @@
 package org.ujmp.core.doublematrix.calculation.basic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 import org.ujmp.core.util.MathUtil;
 
-public class DivideScalar extends AbstractDoubleCalculation {
+public class DivideScalar extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -2643371901937237834L;
 
 	private final boolean ignoreNaN;
@@ -44,9 +44,18 @@ public class DivideScalar extends AbstractDoubleCalculation {
 		this.value = ignoreNaN ? MathUtil.ignoreNaN(v) : v;
 	}
 
-	public double getDouble(long... coordinates) {
-		return ignoreNaN ? MathUtil.ignoreNaN(getSources()[0].getAsDouble(coordinates)) / value
-				: getSources()[0].getAsDouble(coordinates) / value;
+	public double apply(double v) {
+		return (ignoreNaN ? MathUtil.ignoreNaN(v) : v) / value;
+	}
+
+	public void apply(final double[] source, final double[] target, final int from, final int to) {
+		if (ignoreNaN) {
+			super.apply(source, target, from, to);
+		} else {
+			for (int i = from; i < to; i++) {
+				target[i] = source[i] / value;
+			}
+		}
 	}
 
 }
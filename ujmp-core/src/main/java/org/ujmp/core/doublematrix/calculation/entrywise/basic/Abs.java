@@ -24,17 +24,23 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Abs extends AbstractDoubleCalculation {
+public class Abs extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 6393277198816850597L;
 
 	public Abs(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.abs(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.abs(value);
+	}
+
+	public void apply(final double[] source, final double[] target, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			target[i] = Math.abs(source[i]);
+		}
 	}
 
 }
@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Exp extends AbstractDoubleCalculation {
+public class Exp extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 4197072098253310072L;
 
 	public Exp(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.exp(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.exp(value);
 	}
 
 }
@@ -24,18 +24,18 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
+import org.ujmp.core.util.MathUtil;
 
-public class Log10 extends AbstractDoubleCalculation {
+public class Log10 extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -5673588058854751554L;
 
 	public Log10(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		double v = getSource().getAsDouble(coordinates);
-		return Math.log(v) / Math.log(10.0);
+	public double apply(double value) {
+		return Math.log(value) / MathUtil.LOG10;
 	}
 
 }
@@ -24,18 +24,18 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
+import org.ujmp.core.util.MathUtil;
 
-public class Log2 extends AbstractDoubleCalculation {
+public class Log2 extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 1858516096849343584L;
 
 	public Log2(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		double v = getSource().getAsDouble(coordinates);
-		return Math.log(v) / Math.log(2.0);
+	public double apply(double value) {
+		return Math.log(value) / MathUtil.LOG2;
 	}
 
 }
@@ -23,27 +23,43 @@
 
 package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
-import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Power extends AbstractDoubleCalculation {
+public class Power extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -6766560469728046231L;
 
+	private final boolean scalarExponent;
+
+	private final double exponent;
+
 	public Power(Matrix m1, Matrix m2) {
-		super(m1, m2);
-		if (m2.isScalar() && !Coordinates.equals(m1.getSize(), m2.getSize())) {
-			getSources()[1] = Matrix.Factory.fill(m2.getAsDouble(0, 0), m1.getSize());
-		}
+		super(m2.isScalar() ? new Matrix[] { m1 } : new Matrix[] { m1, m2 });
+		scalarExponent = m2.isScalar();
+		exponent = scalarExponent ? m2.getAsDouble(0, 0) : Double.NaN;
 	}
 
 	public Power(Matrix m1, double v2) {
-		this(m1, Matrix.Factory.fill(v2, m1.getSize()));
+		super(m1);
+		scalarExponent = true;
+		exponent = v2;
+	}
+
+	public boolean isEntrywise() {
+		return scalarExponent;
+	}
+
+	public double apply(double value) {
+		return Math.pow(value, exponent);
 	}
 
 	public double getDouble(long... coordinates) {
-		return Math.pow(getSource().getAsDouble(coordinates),
-				getSources()[1].getAsDouble(coordinates));
+		if (scalarExponent) {
+			return super.getDouble(coordinates);
+		} else {
+			return Math.pow(getSource().getAsDouble(coordinates),
+					getSources()[1].getAsDouble(coordinates));
+		}
 	}
 
 }
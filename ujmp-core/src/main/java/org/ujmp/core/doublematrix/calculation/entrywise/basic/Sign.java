@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Sign extends AbstractDoubleCalculation {
+public class Sign extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 8479106978433813886L;
 
 	public Sign(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.signum(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.signum(value);
 	}
 
 }
@@ -24,17 +24,23 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.basic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Sqrt extends AbstractDoubleCalculation {
+public class Sqrt extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -8139556053923421840L;
 
 	public Sqrt(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.sqrt(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.sqrt(value);
+	}
+
+	public void apply(final double[] source, final double[] target, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			target[i] = Math.sqrt(source[i]);
+		}
 	}
 
 }
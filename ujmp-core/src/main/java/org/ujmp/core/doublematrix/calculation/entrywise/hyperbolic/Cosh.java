@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.hyperbolic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Cosh extends AbstractDoubleCalculation {
+public class Cosh extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 8550455956560577297L;
 
 	public Cosh(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.cosh(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.cosh(value);
 	}
 
 }
@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.hyperbolic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Sinh extends AbstractDoubleCalculation {
+public class Sinh extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 2083545526665186477L;
 
 	public Sinh(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.sinh(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.sinh(value);
 	}
 
 }
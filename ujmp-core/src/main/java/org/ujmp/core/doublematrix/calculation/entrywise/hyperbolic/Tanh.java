@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.hyperbolic;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Tanh extends AbstractDoubleCalculation {
+public class Tanh extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -3681404429953396643L;
 
 	public Tanh(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.tanh(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.tanh(value);
 	}
 
 }
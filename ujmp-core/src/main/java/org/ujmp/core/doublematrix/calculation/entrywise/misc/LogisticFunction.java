@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.misc;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class LogisticFunction extends AbstractDoubleCalculation {
+public class LogisticFunction extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -82780095324379021L;
 
 	public LogisticFunction(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return 1.0 / (Math.exp(-getSource().getAsDouble(coordinates)) + 1.0);
+	public double apply(double value) {
+		return 1.0 / (Math.exp(-value) + 1.0);
 	}
 
 }
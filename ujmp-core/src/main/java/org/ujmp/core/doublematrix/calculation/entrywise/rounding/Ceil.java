@@ -24,17 +24,23 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.rounding;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Ceil extends AbstractDoubleCalculation {
+public class Ceil extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 3050677685836703426L;
 
 	public Ceil(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.ceil(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.ceil(value);
+	}
+
+	public void apply(final double[] source, final double[] target, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			target[i] = Math.ceil(source[i]);
+		}
 	}
 
 }
@@ -24,17 +24,23 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.rounding;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Floor extends AbstractDoubleCalculation {
+public class Floor extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -695413938968267729L;
 
 	public Floor(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.floor(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.floor(value);
+	}
+
+	public void apply(final double[] source, final double[] target, final int from, final int to) {
+		for (int i = from; i < to; i++) {
+			target[i] = Math.floor(source[i]);
+		}
 	}
 
 }
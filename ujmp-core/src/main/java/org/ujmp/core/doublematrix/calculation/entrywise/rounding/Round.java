@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.rounding;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Round extends AbstractDoubleCalculation {
+public class Round extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -5038322249059783563L;
 
 	public Round(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.round(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.round(value);
 	}
 
 }
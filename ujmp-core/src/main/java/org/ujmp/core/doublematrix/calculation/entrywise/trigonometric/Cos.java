@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.trigonometric;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Cos extends AbstractDoubleCalculation {
+public class Cos extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = 5733248311765384359L;
 
 	public Cos(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.cos(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.cos(value);
 	}
 
 }
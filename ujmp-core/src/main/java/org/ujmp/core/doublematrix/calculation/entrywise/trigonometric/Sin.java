@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.trigonometric;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Sin extends AbstractDoubleCalculation {
+public class Sin extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -8127064720590287207L;
 
 	public Sin(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.sin(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.sin(value);
 	}
 
 }
@@ -24,17 +24,17 @@
 package org.ujmp.core.doublematrix.calculation.entrywise.trigonometric;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.AbstractEntrywiseDoubleCalculation;
 
-public class Tan extends AbstractDoubleCalculation {
+public class Tan extends AbstractEntrywiseDoubleCalculation {
 	private static final long serialVersionUID = -8951036874489201088L;
 
 	public Tan(Matrix matrix) {
 		super(matrix);
 	}
 
-	public double getDouble(long... coordinates) {
-		return Math.tan(getSource().getAsDouble(coordinates));
+	public double apply(double value) {
+		return Math.tan(value);
 	}
 
 }
@@ -0,0 +1,569 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.decomposition;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Blocked LU, Cholesky and QR decompositions on column-major arrays.
+ * <P>
+ * All three are right-looking: a panel of BLOCKSIZE columns is factorized
+ * with the unblocked algorithm, then the trailing matrix is updated with the
+ * whole panel at once. The trailing update is a matrix multiplication which is
+ * split into tiles of columns that are processed in parallel; within a tile
+ * the rows are traversed in strips that fit into the cache, so that each strip
+ * of the panel is reused for all columns of the tile. QR collects the
+ * Householder reflectors of a panel in the compact WY representation I - V*T*V'
+ * to apply them to the trailing matrix as a block.
+ * <P>
+ * The factors are stored in the same way as in the unblocked LU, Chol and QR
+ * implementations, so that results and error handling are the same.
+ */
+public final class BlockedDecomposition {
+
+	/**
+	 * Number of columns of a panel
+	 */
+	public static int BLOCKSIZE = 64;
+
+	/**
+	 * Number of rows processed together in the trailing update
+	 */
+	private static final int ROWSTRIP = 256;
+
+	/**
+	 * Number of columns of the trailing matrix processed by one task
+	 */
+	private static final int COLUMNTILE = 16;
+
+	/**
+	 * Minimum number of multiply-adds to run an update in parallel
+	 */
+	private static final long PARALLELTHRESHOLD = 1 << 16;
+
+	private BlockedDecomposition() {
+	}
+
+	/**
+	 * Copies a matrix into a new column-major array
+	 */
+	public static double[] toColumnMajorArray(Matrix source) {
+		final int m = MathUtil.longToInt(source.getRowCount());
+		final int n = MathUtil.longToInt(source.getColumnCount());
+		if (source instanceof HasColumnMajorDoubleArray1D && !source.isSparse()) {
+			return ((HasColumnMajorDoubleArray1D) source).getColumnMajorDoubleArray1D().clone();
+		}
+		final double[] a = new double[m * n];
+		if (source instanceof DoubleMatrix2D && source.getDimensionCount() == 2) {
+			final DoubleMatrix2DVisitor visitor = new DoubleMatrix2DVisitor() {
+				public void visit(int row, int column, double value) {
+					a[column * m + row] = value;
+				}
+			};
+			if (source.isSparse()) {
+				((DoubleMatrix2D) source).forEachAvailableDouble(visitor);
+			} else {
+				((DoubleMatrix2D) source).forEachDouble(visitor);
+			}
+		} else {
+			for (int c = 0; c < n; c++) {
+				for (int r = 0; r < m; r++) {
+					a[c * m + r] = source.getAsDouble(r, c);
+				}
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * LU decomposition with partial pivoting of the column-major m-by-n matrix
+	 * a. a is overwritten with L (below the diagonal, unit diagonal) and U, so
+	 * that A(piv,:) = L*U.
+	 *
+	 * @return the sign of the permutation
+	 */
+	public static int lu(final double[] a, final int m, final int n, final int[] piv) {
+		for (int i = 0; i < m; i++) {
+			piv[i] = i;
+		}
+		int pivsign = 1;
+		final int mn = Math.min(m, n);
+
+		for (int k0 = 0; k0 < mn; k0 += BLOCKSIZE) {
+			final int first = k0;
+			final int last = Math.min(k0 + BLOCKSIZE, mn);
+
+			// unblocked factorization of the panel
+			for (int j = first; j < last; j++) {
+				final int jOffset = j * m;
+				int p = j;
+				double max = Math.abs(a[jOffset + j]);
+				for (int i = j + 1; i < m; i++) {
+					if (Math.abs(a[jOffset + i]) > max) {
+						max = Math.abs(a[jOffset + i]);
+						p = i;
+					}
+				}
+				if (p != j) {
+					for (int c = 0; c < n; c++) {
+						final int cOffset = c * m;
+						final double t = a[cOffset + p];
+						a[cOffset + p] = a[cOffset + j];
+						a[cOffset + j] = t;
+					}
+					final int t = piv[p];
+					piv[p] = piv[j];
+					piv[j] = t;
+					pivsign = -pivsign;
+				}
+				final double pivot = a[jOffset + j];
+				if (pivot != 0.0) {
+					for (int i = j + 1; i < m; i++) {
+						a[jOffset + i] /= pivot;
+					}
+				}
+				for (int c = j + 1; c < last; c++) {
+					final int cOffset = c * m;
+					final double u = a[cOffset + j];
+					if (u != 0.0) {
+						for (int i = j + 1; i < m; i++) {
+							a[cOffset + i] -= a[jOffset + i] * u;
+						}
+					}
+				}
+			}
+
+			// U12 = L11 \ A12 and A22 = A22 - L21 * U12
+			if (last < n) {
+				final long work = (long) (m - first) * (n - last) * (last - first);
+				new PForRange(getThreadCount(work), 0, (n - last - 1) / COLUMNTILE) {
+					public void step(int firstTile, int lastTile) {
+						final int c0 = last + firstTile * COLUMNTILE;
+						final int c1 = Math.min(last + (lastTile + 1) * COLUMNTILE, n);
+						for (int c = c0; c < c1; c++) {
+							final int cOffset = c * m;
+							for (int j = first; j < last; j++) {
+								final double u = a[cOffset + j];
+								if (u != 0.0) {
+									final int jOffset = j * m;
+									for (int i = j + 1; i < last; i++) {
+										a[cOffset + i] -= a[jOffset + i] * u;
+									}
+								}
+							}
+						}
+						for (int r0 = last; r0 < m; r0 += ROWSTRIP) {
+							final int r1 = Math.min(r0 + ROWSTRIP, m);
+							for (int c = c0; c < c1; c++) {
+								final int cOffset = c * m;
+								for (int j = first; j < last; j++) {
+									final double u = a[cOffset + j];
+									if (u != 0.0) {
+										final int jOffset = j * m;
+										for (int i = r0; i < r1; i++) {
+											a[cOffset + i] -= a[jOffset + i] * u;
+										}
+									}
+								}
+							}
+						}
+					}
+				};
+			}
+		}
+		return pivsign;
+	}
+
+	/**
+	 * Solves A*X = B with the LU decomposition of the square matrix A computed
+	 * by {@link #lu(double[], int, int, int[])}. B is a column-major n-by-nrhs
+	 * matrix which is not modified.
+	 */
+	public static double[] luSolve(final double[] lu, final int n, final int[] piv,
+			final double[] b, final int nrhs) {
+		final double[] x = new double[n * nrhs];
+		new PForRange(getThreadCount((long) n * n * nrhs), 0, nrhs - 1) {
+			public void step(int first, int last) {
+				for (int c = first; c <= last; c++) {
+					final int offset = c * n;
+					for (int i = 0; i < n; i++) {
+						x[offset + i] = b[offset + piv[i]];
+					}
+					for (int k = 0; k < n; k++) {
+						final double xk = x[offset + k];
+						if (xk != 0.0) {
+							final int kOffset = k * n;
+							for (int i = k + 1; i < n; i++) {
+								x[offset + i] -= xk * lu[kOffset + i];
+							}
+						}
+					}
+					for (int k = n - 1; k >= 0; k--) {
+						final int kOffset = k * n;
+						final double xk = x[offset + k] /= lu[kOffset + k];
+						if (xk != 0.0) {
+							for (int i = 0; i < k; i++) {
+								x[offset + i] -= xk * lu[kOffset + i];
+							}
+						}
+					}
+				}
+			}
+		};
+		return x;
+	}
+
+	/**
+	 * Cholesky decomposition of the symmetric column-major n-by-n matrix a.
+	 * Only the lower triangle is read, a is overwritten with the lower
+	 * triangular factor L so that A = L*L'.
+	 *
+	 * @return true if A is symmetric and positive definite
+	 */
+	public static boolean chol(final double[] a, final int n) {
+		boolean isspd = true;
+		for (int j = 0; j < n && isspd; j++) {
+			for (int i = j + 1; i < n; i++) {
+				if (a[j * n + i] != a[i * n + j]) {
+					isspd = false;
+					break;
+				}
+			}
+		}
+
+		for (int k0 = 0; k0 < n; k0 += BLOCKSIZE) {
+			final int first = k0;
+			final int last = Math.min(k0 + BLOCKSIZE, n);
+
+			// unblocked factorization of the panel
+			for (int j = first; j < last; j++) {
+				final int jOffset = j * n;
+				final double d = a[jOffset + j];
+				isspd = isspd & (d > 0.0);
+				final double ljj = Math.sqrt(Math.max(d, 0.0));
+				a[jOffset + j] = ljj;
+				for (int i = j + 1; i < n; i++) {
+					a[jOffset + i] /= ljj;
+				}
+				for (int c = j + 1; c < last; c++) {
+					final int cOffset = c * n;
+					final double l = a[jOffset + c];
+					if (l != 0.0) {
+						for (int i = c; i < n; i++) {
+							a[cOffset + i] -= a[jOffset + i] * l;
+						}
+					}
+				}
+			}
+
+			// A22 = A22 - L21 * L21', lower triangle only
+			if (last < n) {
+				final long work = (long) (n - last) * (n - last) * (last - first) / 2;
+				new PForRange(getThreadCount(work), 0, (n - last - 1) / COLUMNTILE) {
+					public void step(int firstTile, int lastTile) {
+						final int c0 = last + firstTile * COLUMNTILE;
+						final int c1 = Math.min(last + (lastTile + 1) * COLUMNTILE, n);
+						for (int r0 = c0; r0 < n; r0 += ROWSTRIP) {
+							final int r1 = Math.min(r0 + ROWSTRIP, n);
+							for (int c = c0; c < c1 && c < r1; c++) {
+								final int cOffset = c * n;
+								final int start = Math.max(r0, c);
+								for (int j = first; j < last; j++) {
+									final int jOffset = j * n;
+									final double l = a[jOffset + c];
+									if (l != 0.0) {
+										for (int i = start; i < r1; i++) {
+											a[cOffset + i] -= a[jOffset + i] * l;
+										}
+									}
+								}
+							}
+						}
+					}
+				};
+			}
+		}
+
+		for (int c = 1; c < n; c++) {
+			final int cOffset = c * n;
+			for (int i = 0; i < c; i++) {
+				a[cOffset + i] = 0.0;
+			}
+		}
+		return isspd;
+	}
+
+	/**
+	 * Solves A*X = B with the Cholesky factor L computed by
+	 * {@link #chol(double[], int)}. B is a column-major n-by-nrhs matrix which
+	 * is not modified.
+	 */
+	public static double[] cholSolve(final double[] l, final int n, final double[] b,
+			final int nrhs) {
+		final double[] x = b.clone();
+		new PForRange(getThreadCount((long) n * n * nrhs), 0, nrhs - 1) {
+			public void step(int first, int last) {
+				for (int c = first; c <= last; c++) {
+					final int offset = c * n;
+					// L*Y = B
+					for (int k = 0; k < n; k++) {
+						final int kOffset = k * n;
+						final double xk = x[offset + k] /= l[kOffset + k];
+						if (xk != 0.0) {
+							for (int i = k + 1; i < n; i++) {
+								x[offset + i] -= xk * l[kOffset + i];
+							}
+						}
+					}
+					// L'*X = Y
+					for (int k = n - 1; k >= 0; k--) {
+						final int kOffset = k * n;
+						double s = x[offset + k];
+						for (int i = k + 1; i < n; i++) {
+							s -= l[kOffset + i] * x[offset + i];
+						}
+						x[offset + k] = s / l[kOffset + k];
+					}
+				}
+			}
+		};
+		return x;
+	}
+
+	/**
+	 * Householder QR decomposition of the column-major m-by-n matrix a with m
+	 * &gt;= n. a is overwritten with the Householder vectors on and below the
+	 * diagonal and the strictly upper triangle of R.
+	 *
+	 * @return the diagonal of R
+	 */
+	public static double[] qr(final double[] a, final int m, final int n) {
+		final double[] rdiag = new double[n];
+
+		for (int k0 = 0; k0 < n; k0 += BLOCKSIZE) {
+			final int first = k0;
+			final int last = Math.min(k0 + BLOCKSIZE, n);
+
+			// unblocked factorization of the panel
+			for (int k = first; k < last; k++) {
+				final int kOffset = k * m;
+				double sum = 0.0;
+				for (int i = k; i < m; i++) {
+					sum += a[kOffset + i] * a[kOffset + i];
+				}
+				double nrm = Math.sqrt(sum);
+				if (nrm != 0.0) {
+					if (a[kOffset + k] < 0) {
+						nrm = -nrm;
+					}
+					for (int i = k; i < m; i++) {
+						a[kOffset + i] /= nrm;
+					}
+					a[kOffset + k] += 1.0;
+					for (int j = k + 1; j < last; j++) {
+						final int jOffset = j * m;
+						double s = 0.0;
+						for (int i = k; i < m; i++) {
+							s += a[kOffset + i] * a[jOffset + i];
+						}
+						s = -s / a[kOffset + k];
+						for (int i = k; i < m; i++) {
+							a[jOffset + i] += s * a[kOffset + i];
+						}
+					}
+				}
+				rdiag[k] = -nrm;
+			}
+
+			// A22 = Q1' * A22 = (I - V*T'*V') * A22
+			if (last < n) {
+				applyBlockReflector(a, m, first, last, a, last, n, true);
+			}
+		}
+		return rdiag;
+	}
+
+	/**
+	 * Returns the explicit column-major m-by-n factor Q of a QR decomposition
+	 * computed by {@link #qr(double[], int, int)}.
+	 */
+	public static double[] qrQ(final double[] qr, final int m, final int n) {
+		final double[] q = new double[m * n];
+		for (int j = 0; j < n; j++) {
+			q[j * m + j] = 1.0;
+		}
+		final int blocks = (n + BLOCKSIZE - 1) / BLOCKSIZE;
+		for (int b = blocks - 1; b >= 0; b--) {
+			final int first = b * BLOCKSIZE;
+			final int last = Math.min(first + BLOCKSIZE, n);
+			applyBlockReflector(qr, m, first, last, q, first, n, false);
+		}
+		return q;
+	}
+
+	/**
+	 * Solves the least squares problem A*X = B with a QR decomposition
+	 * computed by {@link #qr(double[], int, int)}. B is a column-major
+	 * m-by-nrhs matrix which is not modified, the result is n-by-nrhs.
+	 */
+	public static double[] qrSolve(final double[] qr, final double[] rdiag, final int m,
+			final int n, final double[] b, final int nrhs) {
+		final double[] y = b.clone();
+		for (int k0 = 0; k0 < n; k0 += BLOCKSIZE) {
+			applyBlockReflector(qr, m, k0, Math.min(k0 + BLOCKSIZE, n), y, 0, nrhs, true);
+		}
+		final double[] x = new double[n * nrhs];
+		new PForRange(getThreadCount((long) n * n * nrhs), 0, nrhs - 1) {
+			public void step(int first, int last) {
+				for (int c = first; c <= last; c++) {
+					final int xOffset = c * n;
+					System.arraycopy(y, c * m, x, xOffset, n);
+					for (int k = n - 1; k >= 0; k--) {
+						final double xk = x[xOffset + k] /= rdiag[k];
+						if (xk != 0.0) {
+							final int kOffset = k * m;
+							for (int i = 0; i < k; i++) {
+								x[xOffset + i] -= xk * qr[kOffset + i];
+							}
+						}
+					}
+				}
+			}
+		};
+		return x;
+	}
+
+	/**
+	 * Computes the upper triangular kb-by-kb matrix T of the WY representation
+	 * H(first) * ... * H(last-1) = I - V*T*V' of a panel of Householder
+	 * vectors stored as in {@link #qr(double[], int, int)}, where each
+	 * reflector is H = I - v*v'/v(k).
+	 */
+	private static double[] triangularFactor(final double[] v, final int m, final int first,
+			final int last) {
+		final int kb = last - first;
+		final double[] t = new double[kb * kb];
+		final double[] w = new double[kb];
+		for (int j = 0; j < kb; j++) {
+			final int k = first + j;
+			final int kOffset = k * m;
+			final double vkk = v[kOffset + k];
+			final double tau = vkk == 0.0 ? 0.0 : 1.0 / vkk;
+			t[j * kb + j] = tau;
+			if (tau == 0.0) {
+				continue;
+			}
+			// w = V(:,0:j-1)' * v_j
+			for (int p = 0; p < j; p++) {
+				final int pOffset = (first + p) * m;
+				double s = 0.0;
+				for (int i = k; i < m; i++) {
+					s += v[pOffset + i] * v[kOffset + i];
+				}
+				w[p] = s;
+			}
+			// T(0:j-1,j) = -tau * T(0:j-1,0:j-1) * w
+			for (int p = 0; p < j; p++) {
+				double s = 0.0;
+				for (int q = p; q < j; q++) {
+					s += t[q * kb + p] * w[q];
+				}
+				t[j * kb + p] = -tau * s;
+			}
+		}
+		return t;
+	}
+
+	/**
+	 * Applies the block reflector of the Householder vectors in the columns
+	 * first to last-1 of v to the columns c0 to c1-1 of the column-major
+	 * matrix x with m rows: x = (I - V*T*V') * x or, if transpose is true, x =
+	 * (I - V*T'*V') * x.
+	 */
+	private static void applyBlockReflector(final double[] v, final int m, final int first,
+			final int last, final double[] x, final int c0, final int c1, final boolean transpose) {
+		final int kb = last - first;
+		final double[] t = triangularFactor(v, m, first, last);
+		final long work = 2l * (m - first) * (c1 - c0) * kb;
+		new PForRange(getThreadCount(work), 0, (c1 - c0 - 1) / COLUMNTILE) {
+			public void step(int firstTile, int lastTile) {
+				final double[] w = new double[kb];
+				final double[] tw = new double[kb];
+				final int start = c0 + firstTile * COLUMNTILE;
+				final int end = Math.min(c0 + (lastTile + 1) * COLUMNTILE, c1);
+				for (int c = start; c < end; c++) {
+					final int cOffset = c * m;
+					// w = V' * x
+					for (int p = 0; p < kb; p++) {
+						final int pOffset = (first + p) * m;
+						double s = 0.0;
+						for (int i = first + p; i < m; i++) {
+							s += v[pOffset + i] * x[cOffset + i];
+						}
+						w[p] = s;
+					}
+					// tw = T * w or T' * w
+					for (int p = 0; p < kb; p++) {
+						double s = 0.0;
+						if (transpose) {
+							for (int q = 0; q <= p; q++) {
+								s += t[p * kb + q] * w[q];
+							}
+						} else {
+							for (int q = p; q < kb; q++) {
+								s += t[q * kb + p] * w[q];
+							}
+						}
+						tw[p] = s;
+					}
+					// x = x - V * tw
+					for (int p = 0; p < kb; p++) {
+						final double s = tw[p];
+						if (s != 0.0) {
+							final int pOffset = (first + p) * m;
+							for (int i = first + p; i < m; i++) {
+								x[cOffset + i] -= v[pOffset + i] * s;
+							}
+						}
+					}
+				}
+			}
+		};
+	}
+
+	private static int getThreadCount(long operations) {
+		if (operations < PARALLELTHRESHOLD) {
+			return 1;
+		} else {
+			return UJMPSettings.getInstance().getNumberOfThreads();
+		}
+	}
+
+}
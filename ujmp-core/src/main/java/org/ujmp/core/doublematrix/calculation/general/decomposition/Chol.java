@@ -25,7 +25,9 @@ package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
 import org.ujmp.core.util.DecompositionOps;
+import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
 
 /**
@@ -97,6 +99,41 @@ public interface Chol<T> {
 		}
 	};
 
+	/**
+	 * Blocked right-looking Cholesky decomposition, see
+	 * {@link BlockedDecomposition}
+	 */
+	public static final Chol<Matrix> BLOCKED = new Chol<Matrix>() {
+
+		public final Matrix calc(Matrix source) {
+			if (source.getRowCount() != source.getColumnCount()) {
+				return UJMP.calc(source);
+			}
+			final int n = MathUtil.longToInt(source.getRowCount());
+			final double[] a = BlockedDecomposition.toColumnMajorArray(source);
+			BlockedDecomposition.chol(a, n);
+			return new DefaultDenseDoubleMatrix2D(a, n, n);
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			if (source.getRowCount() != source.getColumnCount()) {
+				return UJMP.solve(source, b);
+			}
+			final int n = MathUtil.longToInt(source.getRowCount());
+			if (b.getRowCount() != n) {
+				throw new IllegalArgumentException("Matrix row dimensions must agree.");
+			}
+			final double[] a = BlockedDecomposition.toColumnMajorArray(source);
+			if (!BlockedDecomposition.chol(a, n)) {
+				throw new RuntimeException("Matrix is not symmetric positive definite.");
+			}
+			final int nrhs = MathUtil.longToInt(b.getColumnCount());
+			final double[] x = BlockedDecomposition.cholSolve(a, n,
+					BlockedDecomposition.toColumnMajorArray(b), nrhs);
+			return new DefaultDenseDoubleMatrix2D(x, n, nrhs);
+		}
+	};
+
 	public static final Chol<Matrix> MATRIXSMALLMULTITHREADED = UJMP;
 
 	public static final Chol<Matrix> MATRIXSMALLSINGLETHREADED = UJMP;
@@ -108,7 +145,7 @@ public interface Chol<T> {
 				chol = DecompositionOps.CHOL_JBLAS;
 			}
 			if (chol == null) {
-				chol = UJMP;
+				chol = BLOCKED;
 			}
 			return chol.calc(source);
 		}
@@ -119,7 +156,7 @@ public interface Chol<T> {
 				chol = DecompositionOps.CHOL_JBLAS;
 			}
 			if (chol == null) {
-				chol = UJMP;
+				chol = BLOCKED;
 			}
 			return chol.solve(source, b);
 		}
@@ -135,7 +172,7 @@ public interface Chol<T> {
 				chol = DecompositionOps.CHOL_OJALGO;
 			}
 			if (chol == null) {
-				chol = UJMP;
+				chol = BLOCKED;
 			}
 			return chol.calc(source);
 		}
@@ -149,7 +186,7 @@ public interface Chol<T> {
 				chol = DecompositionOps.CHOL_OJALGO;
 			}
 			if (chol == null) {
-				chol = UJMP;
+				chol = BLOCKED;
 			}
 			return chol.solve(source, b);
 		}
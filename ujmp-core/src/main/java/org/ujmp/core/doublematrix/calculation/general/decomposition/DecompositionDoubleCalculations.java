@@ -122,7 +122,9 @@ public interface DecompositionDoubleCalculations {
 	/**
 	 * Calculates a low rank approximation of the singular value decomposition
 	 * of the matrix: A = U*S*V' but considers only the k largest singular
-	 * values. This speeds up processing for large matrices.
+	 * values. This speeds up processing for large matrices. U is m-by-k, S is
+	 * k-by-k and V is n-by-k. The decomposition is computed with the
+	 * randomized algorithm of {@link RandomizedSVD}.
 	 * 
 	 * @param k
 	 *            number of singular values to consider
@@ -145,6 +147,33 @@ public interface DecompositionDoubleCalculations {
 	 */
 	public Matrix[] eigSymm();
 
+	/**
+	 * Calculates the k eigenvalues of largest magnitude and the corresponding
+	 * eigenvectors with the implicitly restarted Arnoldi method, which only
+	 * needs matrix-vector products. V is n-by-k and D is k-by-k, in the format
+	 * of {@link #eig()}. If the k-th eigenvalue is complex, its conjugate is
+	 * included as well and V has k+1 columns.
+	 * 
+	 * @param k
+	 *            number of eigenvalues to compute
+	 * 
+	 * @return Eigen decomposition of the matrix.
+	 */
+	public Matrix[] eig(int k);
+
+	/**
+	 * Calculates the k eigenvalues of largest magnitude and the corresponding
+	 * eigenvectors of a symmetric matrix with the implicitly restarted Lanczos
+	 * method, which only needs matrix-vector products. V is n-by-k and D is
+	 * k-by-k diagonal.
+	 * 
+	 * @param k
+	 *            number of eigenvalues to compute
+	 * 
+	 * @return Eigen decomposition of the matrix.
+	 */
+	public Matrix[] eigSymm(int k);
+
 	/**
 	 * Calculates a QR decomposition of the matrix.
 	 * 
@@ -25,7 +25,9 @@ package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
 import org.ujmp.core.util.DecompositionOps;
+import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
 
 /**
@@ -100,6 +102,58 @@ public interface LU<T> {
 		}
 	};
 
+	/**
+	 * Blocked right-looking LU decomposition, see {@link BlockedDecomposition}
+	 */
+	public static final LU<Matrix> BLOCKED = new LU<Matrix>() {
+
+		public final Matrix[] calc(Matrix source) {
+			final int m = MathUtil.longToInt(source.getRowCount());
+			final int n = MathUtil.longToInt(source.getColumnCount());
+			final int mn = Math.min(m, n);
+			final double[] a = BlockedDecomposition.toColumnMajorArray(source);
+			final int[] piv = new int[m];
+			BlockedDecomposition.lu(a, m, n, piv);
+			final double[] l = new double[m * mn];
+			for (int j = 0; j < mn; j++) {
+				l[j * m + j] = 1.0;
+				System.arraycopy(a, j * m + j + 1, l, j * m + j + 1, m - j - 1);
+			}
+			final double[] u = new double[mn * n];
+			for (int j = 0; j < n; j++) {
+				System.arraycopy(a, j * m, u, j * mn, Math.min(j + 1, mn));
+			}
+			final DenseDoubleMatrix2D p = DenseDoubleMatrix2D.Factory.zeros(m, m);
+			for (int i = 0; i < m; i++) {
+				p.setDouble(1, i, piv[i]);
+			}
+			return new Matrix[] { new DefaultDenseDoubleMatrix2D(l, m, mn),
+					new DefaultDenseDoubleMatrix2D(u, mn, n), p };
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			if (source.getRowCount() != source.getColumnCount()) {
+				return UJMP.solve(source, b);
+			}
+			final int n = MathUtil.longToInt(source.getRowCount());
+			if (b.getRowCount() != n) {
+				throw new IllegalArgumentException("Matrix row dimensions must agree.");
+			}
+			final double[] a = BlockedDecomposition.toColumnMajorArray(source);
+			final int[] piv = new int[n];
+			BlockedDecomposition.lu(a, n, n, piv);
+			for (int j = 0; j < n; j++) {
+				if (a[j * n + j] == 0.0) {
+					throw new RuntimeException("Matrix is singular.");
+				}
+			}
+			final int nrhs = MathUtil.longToInt(b.getColumnCount());
+			final double[] x = BlockedDecomposition.luSolve(a, n, piv,
+					BlockedDecomposition.toColumnMajorArray(b), nrhs);
+			return new DefaultDenseDoubleMatrix2D(x, n, nrhs);
+		}
+	};
+
 	public static final LU<Matrix> MATRIXSMALLMULTITHREADED = UJMP;
 
 	public static final LU<Matrix> MATRIXSMALLSINGLETHREADED = UJMP;
@@ -111,7 +165,7 @@ public interface LU<T> {
 				lu = DecompositionOps.LU_JBLAS;
 			}
 			if (lu == null) {
-				lu = UJMP;
+				lu = BLOCKED;
 			}
 			return lu.calc(source);
 		}
@@ -125,7 +179,7 @@ public interface LU<T> {
 				lu = DecompositionOps.LU_OJALGO;
 			}
 			if (lu == null) {
-				lu = UJMP;
+				lu = BLOCKED;
 			}
 			return lu.solve(source, b);
 		}
@@ -141,7 +195,7 @@ public interface LU<T> {
 				lu = DecompositionOps.LU_OJALGO;
 			}
 			if (lu == null) {
-				lu = UJMP;
+				lu = BLOCKED;
 			}
 			return lu.calc(source);
 		}
@@ -155,7 +209,7 @@ public interface LU<T> {
 				lu = DecompositionOps.LU_OJALGO;
 			}
 			if (lu == null) {
-				lu = UJMP;
+				lu = BLOCKED;
 			}
 			return lu.solve(source, b);
 		}
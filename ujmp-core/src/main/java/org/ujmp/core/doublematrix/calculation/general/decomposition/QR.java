@@ -26,6 +26,7 @@ package org.ujmp.core.doublematrix.calculation.general.decomposition;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
 import org.ujmp.core.util.DecompositionOps;
 import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
@@ -98,7 +99,7 @@ public interface QR<T> {
 				qr = DecompositionOps.QR_MTJ;
 			}
 			if (qr == null) {
-				qr = UJMP;
+				qr = BLOCKED;
 			}
 			return qr.calc(source);
 		}
@@ -115,7 +116,7 @@ public interface QR<T> {
 				qr = DecompositionOps.QR_MTJ;
 			}
 			if (qr == null) {
-				qr = UJMP;
+				qr = BLOCKED;
 			}
 			return qr.solve(source, b);
 		}
@@ -134,7 +135,7 @@ public interface QR<T> {
 				qr = DecompositionOps.QR_MTJ;
 			}
 			if (qr == null) {
-				qr = UJMP;
+				qr = BLOCKED;
 			}
 			return qr.calc(source);
 		}
@@ -151,7 +152,7 @@ public interface QR<T> {
 				qr = DecompositionOps.QR_MTJ;
 			}
 			if (qr == null) {
-				qr = UJMP;
+				qr = BLOCKED;
 			}
 			return qr.solve(source, b);
 		}
@@ -180,6 +181,53 @@ public interface QR<T> {
 		}
 	};
 
+	/**
+	 * Householder QR decomposition with blocked reflectors in compact WY
+	 * representation, see {@link BlockedDecomposition}
+	 */
+	public static final QR<Matrix> BLOCKED = new QR<Matrix>() {
+
+		public final Matrix[] calc(Matrix source) {
+			if (source.getRowCount() < source.getColumnCount()) {
+				throw new RuntimeException("only matrices m>=n are allowed");
+			}
+			final int m = MathUtil.longToInt(source.getRowCount());
+			final int n = MathUtil.longToInt(source.getColumnCount());
+			final double[] a = BlockedDecomposition.toColumnMajorArray(source);
+			final double[] rdiag = BlockedDecomposition.qr(a, m, n);
+			final double[] r = new double[n * n];
+			for (int j = 0; j < n; j++) {
+				System.arraycopy(a, j * m, r, j * n, j);
+				r[j * n + j] = rdiag[j];
+			}
+			return new Matrix[] {
+					new DefaultDenseDoubleMatrix2D(BlockedDecomposition.qrQ(a, m, n), m, n),
+					new DefaultDenseDoubleMatrix2D(r, n, n) };
+		}
+
+		public final Matrix solve(Matrix source, Matrix b) {
+			if (source.getRowCount() < source.getColumnCount()) {
+				throw new RuntimeException("only matrices m>=n are allowed");
+			}
+			final int m = MathUtil.longToInt(source.getRowCount());
+			final int n = MathUtil.longToInt(source.getColumnCount());
+			if (b.getRowCount() != m) {
+				throw new IllegalArgumentException("Matrix row dimensions must agree.");
+			}
+			final double[] a = BlockedDecomposition.toColumnMajorArray(source);
+			final double[] rdiag = BlockedDecomposition.qr(a, m, n);
+			for (int j = 0; j < n; j++) {
+				if (rdiag[j] == 0.0) {
+					throw new RuntimeException("Matrix is rank deficient.");
+				}
+			}
+			final int nrhs = MathUtil.longToInt(b.getColumnCount());
+			final double[] x = BlockedDecomposition.qrSolve(a, rdiag, m, n,
+					BlockedDecomposition.toColumnMajorArray(b), nrhs);
+			return new DefaultDenseDoubleMatrix2D(x, n, nrhs);
+		}
+	};
+
 	public static final QR<Matrix> MATRIXSMALLMULTITHREADED = UJMP;
 
 	public static final QR<Matrix> MATRIXSMALLSINGLETHREADED = UJMP;
@@ -0,0 +1,325 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.decomposition;
+
+import java.util.Random;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.SparseDoubleMatrix2DBuilder;
+import org.ujmp.core.doublematrix.stub.AbstractCompressedSparseDoubleMatrix2D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Truncated singular value decomposition A = U*S*V' of the k largest singular
+ * values using the randomized range finder of Halko, Martinsson and Tropp.
+ * <P>
+ * The range of A is sampled by multiplying it with a Gaussian matrix of k +
+ * oversampling columns. Each power iteration multiplies the sample with A*A'
+ * to separate the leading singular values from the rest, but instead of
+ * forming A*A' the sample is orthonormalised with a Householder QR after each
+ * multiplication with A or A', so the condition number is never squared. The
+ * small matrix B = Q'*A is decomposed via a QR of B' and the SVD of the
+ * resulting triangular factor.
+ * <P>
+ * A is only accessed through products with tall dense matrices. Sparse
+ * matrices are converted once into compressed row format so that these
+ * products use the parallel kernels of SparseMultiply, dense and block
+ * matrices use the regular matrix multiplication. The Gaussian matrix is
+ * generated in parallel in blocks of rows which have their own random
+ * generators, so the result for a given seed does not depend on the number of
+ * threads.
+ * <P>
+ * U is m-by-k, S is k-by-k and V is n-by-k.
+ */
+public class RandomizedSVD {
+
+	public static final int DEFAULT_OVERSAMPLING = 10;
+
+	public static final int DEFAULT_POWERITERATIONS = 2;
+
+	public static final RandomizedSVD INSTANCE = new RandomizedSVD();
+
+	/**
+	 * Rows of the Gaussian matrix which share a random generator
+	 */
+	private static final int BLOCKSIZE = 4096;
+
+	/**
+	 * Minimum number of multiply-adds to run a QR update in parallel
+	 */
+	private static final int PARALLELTHRESHOLD = 1 << 16;
+
+	private final int oversampling;
+
+	private final int powerIterations;
+
+	private final Long seed;
+
+	public RandomizedSVD() {
+		this(DEFAULT_OVERSAMPLING, DEFAULT_POWERITERATIONS);
+	}
+
+	public RandomizedSVD(int oversampling, int powerIterations) {
+		this(oversampling, powerIterations, null);
+	}
+
+	public RandomizedSVD(int oversampling, int powerIterations, long seed) {
+		this(oversampling, powerIterations, Long.valueOf(seed));
+	}
+
+	private RandomizedSVD(int oversampling, int powerIterations, Long seed) {
+		if (oversampling < 0) {
+			throw new IllegalArgumentException("oversampling must not be negative");
+		}
+		if (powerIterations < 0) {
+			throw new IllegalArgumentException("number of power iterations must not be negative");
+		}
+		this.oversampling = oversampling;
+		this.powerIterations = powerIterations;
+		this.seed = seed;
+	}
+
+	public final int getOversampling() {
+		return oversampling;
+	}
+
+	public final int getPowerIterations() {
+		return powerIterations;
+	}
+
+	public final Matrix[] calc(Matrix source, int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("number of singular values must be positive");
+		}
+		final int m = MathUtil.longToInt(source.getRowCount());
+		final int n = MathUtil.longToInt(source.getColumnCount());
+		k = Math.min(k, Math.min(m, n));
+		final int l = Math.min(k + oversampling, Math.min(m, n));
+		final Matrix a = prepare(source);
+
+		// sample the range of A and refine it with power iterations
+		final long seed = this.seed == null ? MathUtil.getRandom().nextLong() : this.seed;
+		double[] q = times(a, gaussian(n, l, seed), n, l);
+		orthonormalize(q, m, l, null);
+		for (int i = 0; i < powerIterations; i++) {
+			final double[] z = transposeTimes(a, q, m, n, l);
+			orthonormalize(z, n, l, null);
+			q = times(a, z, n, l);
+			orthonormalize(q, m, l, null);
+		}
+
+		// B' = A'*Q = Q2*R and R = Ur*S*Vr', so A = (Q*Vr)*S*(Q2*Ur)'
+		final double[] q2 = transposeTimes(a, q, m, n, l);
+		final double[] r = new double[l * l];
+		orthonormalize(q2, n, l, r);
+		final Matrix[] svd = SVD.INSTANCE.calc(new DefaultDenseDoubleMatrix2D(r, l, l));
+
+		final Matrix u = multiply(q, m, l, svd[2], k);
+		final Matrix v = multiply(q2, n, l, svd[0], k);
+		final DefaultDenseDoubleMatrix2D s = new DefaultDenseDoubleMatrix2D(k, k);
+		for (int i = 0; i < k; i++) {
+			s.setDouble(svd[1].getAsDouble(i, i), i, i);
+		}
+		return new Matrix[] { u, s, v };
+	}
+
+	/**
+	 * Sparse matrices are converted to compressed rows because every power
+	 * iteration runs over all entries twice.
+	 */
+	private static Matrix prepare(Matrix source) {
+		if (source instanceof AbstractCompressedSparseDoubleMatrix2D || !source.isSparse()) {
+			return source;
+		} else {
+			return new SparseDoubleMatrix2DBuilder(source).toCompressedRow();
+		}
+	}
+
+	/**
+	 * Returns A*X for a column-major n-by-l matrix X as column-major m-by-l
+	 * array
+	 */
+	private static double[] times(Matrix a, double[] x, int n, int l) {
+		final int m = MathUtil.longToInt(a.getRowCount());
+		final DefaultDenseDoubleMatrix2D result = new DefaultDenseDoubleMatrix2D(m, l);
+		Matrix.mtimes.calc(a, new DefaultDenseDoubleMatrix2D(x, n, l), result);
+		return result.getColumnMajorDoubleArray1D();
+	}
+
+	/**
+	 * Returns A'*Q for a column-major m-by-l matrix Q as column-major n-by-l
+	 * array. It is calculated as (Q'*A)' to avoid transposing A.
+	 */
+	private static double[] transposeTimes(Matrix a, final double[] q, final int m, final int n,
+			final int l) {
+		final double[] qt = new double[l * m];
+		transpose(q, m, l, qt);
+		final DefaultDenseDoubleMatrix2D product = new DefaultDenseDoubleMatrix2D(l, n);
+		Matrix.mtimes.calc(new DefaultDenseDoubleMatrix2D(qt, l, m), a, product);
+		final double[] result = new double[n * l];
+		transpose(product.getColumnMajorDoubleArray1D(), l, n, result);
+		return result;
+	}
+
+	/**
+	 * Returns X*Y(:,0:k-1) for a column-major rows-by-l matrix X and an l-by-l
+	 * matrix Y
+	 */
+	private static Matrix multiply(double[] x, int rows, int l, Matrix y, int k) {
+		final double[] ykarr = new double[l * k];
+		for (int j = 0; j < k; j++) {
+			for (int i = 0; i < l; i++) {
+				ykarr[j * l + i] = y.getAsDouble(i, j);
+			}
+		}
+		final DefaultDenseDoubleMatrix2D result = new DefaultDenseDoubleMatrix2D(rows, k);
+		Matrix.mtimes.calc(new DefaultDenseDoubleMatrix2D(x, rows, l),
+				new DefaultDenseDoubleMatrix2D(ykarr, l, k), result);
+		return result;
+	}
+
+	private static void transpose(double[] x, int rows, int cols, double[] result) {
+		for (int j = 0; j < cols; j++) {
+			final int offset = j * rows;
+			for (int i = 0; i < rows; i++) {
+				result[i * cols + j] = x[offset + i];
+			}
+		}
+	}
+
+	/**
+	 * Column-major n-by-l matrix of standard normal values. Each block of rows
+	 * has its own generator seeded from the block number.
+	 */
+	private static double[] gaussian(final int n, final int l, final long seed) {
+		final double[] omega = new double[n * l];
+		final int blocks = (n + BLOCKSIZE - 1) / BLOCKSIZE;
+		new PFor(getThreadCount((long) n * l), 0, blocks - 1) {
+			public void step(int block) {
+				final Random random = new Random(seed + block * 0x9E3779B97F4A7C15L);
+				final int first = block * BLOCKSIZE;
+				final int last = Math.min(first + BLOCKSIZE, n);
+				for (int j = 0; j < l; j++) {
+					final int offset = j * n;
+					for (int i = first; i < last; i++) {
+						omega[offset + i] = random.nextGaussian();
+					}
+				}
+			}
+		};
+		return omega;
+	}
+
+	/**
+	 * Replaces the column-major m-by-l matrix A (m &gt;= l) with the
+	 * orthonormal factor Q of its Householder QR decomposition. If r is not
+	 * null, the triangular factor is stored in it in column-major order.
+	 */
+	static void orthonormalize(final double[] a, final int m, final int l, final double[] r) {
+		final double[] rdiag = new double[l];
+
+		for (int k = 0; k < l; k++) {
+			final int kOffset = k * m;
+			double sum = 0.0;
+			for (int i = k; i < m; i++) {
+				sum += a[kOffset + i] * a[kOffset + i];
+			}
+			double nrm = Math.sqrt(sum);
+			if (nrm != 0.0) {
+				if (a[kOffset + k] < 0) {
+					nrm = -nrm;
+				}
+				for (int i = k; i < m; i++) {
+					a[kOffset + i] /= nrm;
+				}
+				a[kOffset + k] += 1.0;
+
+				// apply the reflector to the remaining columns
+				final int first = k;
+				new PForRange(getThreadCount((long) (m - k) * (l - k - 1)), k + 1, l - 1) {
+					public void step(int firstColumn, int lastColumn) {
+						for (int j = firstColumn; j <= lastColumn; j++) {
+							reflect(a, kOffset, a, j * m, first, m);
+						}
+					}
+				};
+			}
+			rdiag[k] = -nrm;
+		}
+
+		if (r != null) {
+			for (int j = 0; j < l; j++) {
+				for (int i = 0; i < l; i++) {
+					r[j * l + i] = i < j ? a[j * m + i] : (i == j ? rdiag[i] : 0.0);
+				}
+			}
+		}
+
+		// accumulate Q from the last reflector to the first
+		final double[] q = new double[m * l];
+		for (int k = l - 1; k >= 0; k--) {
+			final int kOffset = k * m;
+			q[kOffset + k] = 1.0;
+			if (a[kOffset + k] != 0.0) {
+				final int first = k;
+				new PForRange(getThreadCount((long) (m - k) * (l - k)), k, l - 1) {
+					public void step(int firstColumn, int lastColumn) {
+						for (int j = firstColumn; j <= lastColumn; j++) {
+							reflect(a, kOffset, q, j * m, first, m);
+						}
+					}
+				};
+			}
+		}
+		System.arraycopy(q, 0, a, 0, q.length);
+	}
+
+	/**
+	 * Applies the Householder reflector stored in v from row k on to a column
+	 * of x
+	 */
+	private static void reflect(double[] v, int vOffset, double[] x, int xOffset, int k, int m) {
+		double s = 0.0;
+		for (int i = k; i < m; i++) {
+			s += v[vOffset + i] * x[xOffset + i];
+		}
+		s = -s / v[vOffset + k];
+		for (int i = k; i < m; i++) {
+			x[xOffset + i] += s * v[vOffset + i];
+		}
+	}
+
+	private static int getThreadCount(long operations) {
+		if (operations < PARALLELTHRESHOLD) {
+			return 1;
+		} else {
+			return UJMPSettings.getInstance().getNumberOfThreads();
+		}
+	}
+
+}
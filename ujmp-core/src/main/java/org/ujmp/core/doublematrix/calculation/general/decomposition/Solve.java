@@ -24,6 +24,7 @@
 package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.calculation.general.iterative.IterativeSolve;
 import org.ujmp.core.util.DecompositionOps;
 import org.ujmp.core.util.UJMPSettings;
 
@@ -38,6 +39,9 @@ public interface Solve<T> {
 	public static final Solve<Matrix> MATRIX = new Solve<Matrix>() {
 
 		public final Matrix calc(Matrix a, Matrix b) {
+			if (IterativeSolve.isSuitable(a)) {
+				return IterativeSolve.GENERAL.calc(a, b);
+			}
 			if (a.isSquare()) {
 				if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 					if (a.getRowCount() >= SQUARETHRESHOLD && a.getColumnCount() >= SQUARETHRESHOLD) {
@@ -24,6 +24,7 @@
 package org.ujmp.core.doublematrix.calculation.general.decomposition;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.calculation.general.iterative.IterativeSolve;
 import org.ujmp.core.util.DecompositionOps;
 import org.ujmp.core.util.UJMPSettings;
 
@@ -36,6 +37,9 @@ public interface SolveSymm<T> extends Solve<T> {
 	public static final SolveSymm<Matrix> MATRIX = new SolveSymm<Matrix>() {
 
 		public final Matrix calc(Matrix a, Matrix b) {
+			if (IterativeSolve.isSuitable(a)) {
+				return IterativeSolve.GENERAL.calc(a, b);
+			}
 			if (UJMPSettings.getInstance().getNumberOfThreads() == 1) {
 				if (a.getRowCount() >= SQUARETHRESHOLD && a.getColumnCount() >= SQUARETHRESHOLD) {
 					return MATRIXSQUARELARGESINGLETHREADED.calc(a, b);
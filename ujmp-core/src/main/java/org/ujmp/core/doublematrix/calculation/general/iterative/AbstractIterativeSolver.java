@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Base class of the Krylov subspace solvers for A*x = b. The matrix is only
+ * accessed through a {@link LinearOperator}, so the solvers also work for
+ * operators which are never stored as a matrix. An optional
+ * {@link Preconditioner} can be applied to speed up the convergence.
+ */
+public abstract class AbstractIterativeSolver {
+
+	private final Preconditioner preconditioner;
+
+	public AbstractIterativeSolver() {
+		this(null);
+	}
+
+	public AbstractIterativeSolver(Preconditioner preconditioner) {
+		this.preconditioner = preconditioner;
+	}
+
+	public final Preconditioner getPreconditioner() {
+		return preconditioner;
+	}
+
+	/**
+	 * Solves A*x = b. The content of x is used as initial guess and replaced
+	 * with the solution.
+	 * 
+	 * @return true if the solver has converged according to the monitor
+	 */
+	public abstract boolean solve(LinearOperator a, double[] b, double[] x,
+			ConvergenceMonitor monitor);
+
+	public final boolean solve(LinearOperator a, double[] b, double[] x) {
+		return solve(a, b, x, new ConvergenceMonitor());
+	}
+
+	/**
+	 * Solves A*X = B column by column, starting from zero.
+	 * 
+	 * @throws RuntimeException
+	 *             if the solver does not converge for a column
+	 */
+	public Matrix solve(Matrix a, Matrix b) {
+		return solve(a, b, new ConvergenceMonitor());
+	}
+
+	public Matrix solve(Matrix a, Matrix b, ConvergenceMonitor monitor) {
+		if (!a.isSquare()) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		if (b.getRowCount() != a.getRowCount()) {
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		}
+		final LinearOperator operator = new MatrixLinearOperator(a);
+		final int n = operator.getRowCount();
+		final int columns = MathUtil.longToInt(b.getColumnCount());
+		final Matrix result = DenseMatrix.Factory.zeros(n, columns);
+		final double[] rhs = new double[n];
+		final double[] x = new double[n];
+		for (int j = 0; j < columns; j++) {
+			for (int i = 0; i < n; i++) {
+				rhs[i] = b.getAsDouble(i, j);
+				x[i] = 0.0;
+			}
+			if (!solve(operator, rhs, x, monitor)) {
+				throw new RuntimeException("iterative solver did not converge after "
+						+ monitor.getIterations() + " iterations, residual norm is "
+						+ monitor.getResidualNorm());
+			}
+			for (int i = 0; i < n; i++) {
+				result.setAsDouble(x[i], i, j);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes z = M^-1 * r or copies r if there is no preconditioner.
+	 */
+	protected final void precondition(double[] r, double[] z) {
+		if (preconditioner == null) {
+			System.arraycopy(r, 0, z, 0, r.length);
+		} else {
+			preconditioner.apply(r, z);
+		}
+	}
+
+	/**
+	 * Computes r = b - A*x
+	 */
+	protected static final void residual(LinearOperator a, double[] b, double[] x, double[] r) {
+		a.multiply(x, r);
+		for (int i = 0; i < r.length; i++) {
+			r[i] = b[i] - r[i];
+		}
+	}
+
+	protected static final double dot(double[] x, double[] y) {
+		double sum = 0.0;
+		for (int i = 0; i < x.length; i++) {
+			sum += x[i] * y[i];
+		}
+		return sum;
+	}
+
+	protected static final double norm(double[] x) {
+		return Math.sqrt(dot(x, x));
+	}
+
+	/**
+	 * Computes y = y + alpha * x
+	 */
+	protected static final void axpy(double alpha, double[] x, double[] y) {
+		for (int i = 0; i < y.length; i++) {
+			y[i] += alpha * x[i];
+		}
+	}
+
+	protected static final void verifySizes(LinearOperator a, double[] b, double[] x) {
+		if (a.getRowCount() != a.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		if (b.length != a.getRowCount() || x.length != a.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix row dimensions must agree.");
+		}
+	}
+
+}
@@ -0,0 +1,680 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Eig;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Implicitly restarted Arnoldi method of Sorensen for k eigenvalues and
+ * eigenvectors of a square matrix, which is only accessed through products
+ * with a vector. This needs O(n*m) memory for a Krylov basis of m vectors
+ * instead of the O(n^2) of a dense decomposition.
+ * <P>
+ * The basis is extended to m = max(2*k+1, 20) vectors, each of which is
+ * orthogonalised twice against the previous ones. The eigenvalues of the small
+ * m-by-m Hessenberg matrix H are the Ritz values. The m-k unwanted Ritz values
+ * are used as shifts of QR steps on H which remove their directions from the
+ * first k basis vectors, so the basis can be extended again without starting
+ * from scratch. This is repeated until the residual norms of all wanted Ritz
+ * pairs are below tolerance * |lambda|.
+ * <P>
+ * The result has the format of {@link Eig}: V is n-by-k and contains the
+ * normalised eigenvectors, D is k-by-k and block diagonal with the real
+ * eigenvalues in 1-by-1 blocks and complex eigenvalues lambda + i*mu in 2-by-2
+ * blocks [lambda, mu; -mu, lambda], for which the two columns of V contain the
+ * real and imaginary part of the eigenvector. If the k-th eigenvalue is
+ * complex, its conjugate is included as well and k+1 eigenpairs are returned.
+ * The eigenvalues are ordered according to {@link Which}, starting with the
+ * most wanted one.
+ */
+public class Arnoldi {
+
+	/**
+	 * Selects the eigenvalues to compute
+	 */
+	public enum Which {
+		LARGESTMAGNITUDE, LARGESTREAL, SMALLESTREAL
+	};
+
+	public static final double DEFAULT_TOLERANCE = 1e-10;
+
+	public static final int DEFAULT_MAXRESTARTS = 1000;
+
+	public static final Arnoldi INSTANCE = new Arnoldi();
+
+	/**
+	 * Minimum size of the Krylov basis
+	 */
+	private static final int MINBASISSIZE = 20;
+
+	/**
+	 * Minimum number of multiply-adds to orthogonalise in parallel
+	 */
+	private static final long PARALLELTHRESHOLD = 1 << 16;
+
+	private static final double EPSILON = Math.pow(2.0, -52.0);
+
+	private static final double EPSILON23 = Math.pow(EPSILON, 2.0 / 3.0);
+
+	private final Which which;
+
+	private final double tolerance;
+
+	private final int maxRestarts;
+
+	private final Long seed;
+
+	public Arnoldi() {
+		this(Which.LARGESTMAGNITUDE);
+	}
+
+	public Arnoldi(Which which) {
+		this(which, DEFAULT_TOLERANCE, DEFAULT_MAXRESTARTS);
+	}
+
+	public Arnoldi(Which which, double tolerance, int maxRestarts) {
+		this(which, tolerance, maxRestarts, null);
+	}
+
+	public Arnoldi(Which which, double tolerance, int maxRestarts, long seed) {
+		this(which, tolerance, maxRestarts, Long.valueOf(seed));
+	}
+
+	private Arnoldi(Which which, double tolerance, int maxRestarts, Long seed) {
+		if (which == null) {
+			throw new IllegalArgumentException("which must not be null");
+		}
+		if (!(tolerance > 0.0)) {
+			throw new IllegalArgumentException("tolerance must be positive");
+		}
+		if (maxRestarts < 0) {
+			throw new IllegalArgumentException("maximum number of restarts must not be negative");
+		}
+		this.which = which;
+		this.tolerance = tolerance;
+		this.maxRestarts = maxRestarts;
+		this.seed = seed;
+	}
+
+	public final Which getWhich() {
+		return which;
+	}
+
+	public final double getTolerance() {
+		return tolerance;
+	}
+
+	public final int getMaxRestarts() {
+		return maxRestarts;
+	}
+
+	/**
+	 * Returns true if the operator is known to be symmetric. The Hessenberg
+	 * matrix is tridiagonal and all Ritz values are real in that case.
+	 */
+	protected boolean isSymmetric() {
+		return false;
+	}
+
+	public final Matrix[] calc(Matrix source, int k) {
+		if (!source.isSquare()) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		return calc(new MatrixLinearOperator(source), k);
+	}
+
+	public final Matrix[] calc(LinearOperator a, int k) {
+		if (a.getRowCount() != a.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+		if (k < 1) {
+			throw new IllegalArgumentException("number of eigenvalues must be positive");
+		}
+		final int n = a.getRowCount();
+		k = Math.min(k, n);
+		final int m = Math.min(n, Math.max(2 * k + 1, MINBASISSIZE));
+		final Random random = new Random(this.seed == null ? MathUtil.getRandom().nextLong()
+				: this.seed);
+
+		final double[][] v = new double[m][n];
+		final double[][] h = new double[m][m];
+		final double[] f = new double[n];
+
+		int start = 0;
+		for (int restart = 0;; restart++) {
+			extend(a, v, h, f, start, m, random);
+			final double fNorm = norm(f);
+
+			final Ritz ritz = new Ritz(h, m);
+			final List<int[]> wanted = ritz.first(k);
+			int kk = 0;
+			int nconv = 0;
+			for (int[] unit : wanted) {
+				kk += unit.length;
+				if (ritz.getResidual(unit, fNorm) <= tolerance
+						* Math.max(EPSILON23, ritz.getMagnitude(unit[0]))) {
+					nconv += unit.length;
+				}
+			}
+			if (nconv == kk || kk == m) {
+				return ritz.vectors(v, wanted, kk, n);
+			}
+			if (restart >= maxRestarts) {
+				throw new RuntimeException("eigensolver did not converge after " + restart
+						+ " restarts");
+			}
+
+			// like ARPACK, keep more Ritz vectors when some have converged, so
+			// that the remaining ones are not slowed down by fewer shifts
+			int keep = kk + Math.min(nconv, (m - kk) / 2);
+			if (keep == 1) {
+				keep = m >= 6 ? m / 2 : 2;
+			}
+			int kept = 0;
+			for (int[] unit : ritz.first(keep)) {
+				kept += unit.length;
+			}
+			if (kept >= m) {
+				kept = kk;
+			}
+
+			// QR steps with the unwanted Ritz values as shifts
+			final double[][] q = identity(m);
+			for (int[] unit : ritz.after(kept)) {
+				if (unit.length == 1) {
+					shift(h, q, m, ritz.re[unit[0]], 0.0);
+				} else {
+					shift(h, q, m, ritz.re[unit[0]], ritz.im[unit[0]]);
+				}
+			}
+			compress(v, h, q, f, m, kept);
+			start = kept;
+		}
+	}
+
+	/**
+	 * Extends the Arnoldi factorization A*V = V*H + f*e' from start to m basis
+	 * vectors. f is the residual vector of the current factorization.
+	 */
+	private void extend(LinearOperator a, double[][] v, double[][] h, double[] f, int start,
+			int m, Random random) {
+		final int n = f.length;
+		final double[] coefficients = new double[m];
+		if (start == 0 || !normalize(f, v[start], norm(f))) {
+			newStartVector(v, start, n, random);
+			if (start > 0) {
+				h[start][start - 1] = 0.0;
+			}
+		} else {
+			h[start][start - 1] = norm(f);
+		}
+		for (int j = start; j < m; j++) {
+			final double[] w = j + 1 < m ? v[j + 1] : f;
+			a.multiply(v[j], w);
+			final double wNorm = norm(w);
+			orthogonalize(v, j + 1, w, coefficients);
+			for (int i = 0; i <= j; i++) {
+				h[i][j] = coefficients[i];
+			}
+			if (isSymmetric()) {
+				for (int i = 0; i < j - 1; i++) {
+					h[i][j] = 0.0;
+				}
+				if (j > 0) {
+					h[j - 1][j] = h[j][j - 1];
+				}
+			}
+			if (j + 1 < m) {
+				final double beta = norm(w);
+				if (beta > EPSILON * wNorm && normalize(w, w, beta)) {
+					h[j + 1][j] = beta;
+				} else {
+					// invariant subspace, continue with a new direction
+					newStartVector(v, j + 1, n, random);
+					h[j + 1][j] = 0.0;
+				}
+			} else if (norm(w) <= EPSILON * wNorm) {
+				Arrays.fill(w, 0.0);
+			}
+		}
+	}
+
+	/**
+	 * Replaces row j of v with a random unit vector orthogonal to the first j
+	 * rows
+	 */
+	private void newStartVector(double[][] v, int j, int n, Random random) {
+		final double[] coefficients = new double[j + 1];
+		while (true) {
+			for (int i = 0; i < n; i++) {
+				v[j][i] = random.nextGaussian();
+			}
+			orthogonalize(v, j, v[j], coefficients);
+			if (normalize(v[j], v[j], norm(v[j]))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Orthogonalises w against the first j rows of v with classical
+	 * Gram-Schmidt applied twice and stores the coefficients
+	 */
+	private static void orthogonalize(final double[][] v, final int j, final double[] w,
+			final double[] coefficients) {
+		final int n = w.length;
+		final double[] c = new double[j];
+		Arrays.fill(coefficients, 0, j, 0.0);
+		for (int pass = 0; pass < 2; pass++) {
+			new PFor(getThreadCount((long) n * j), 0, j - 1) {
+				public void step(int i) {
+					c[i] = dot(v[i], w);
+				}
+			};
+			new PForRange(getThreadCount((long) n * j), 0, n - 1) {
+				public void step(int first, int last) {
+					for (int i = 0; i < j; i++) {
+						final double ci = c[i];
+						final double[] vi = v[i];
+						for (int r = first; r <= last; r++) {
+							w[r] -= ci * vi[r];
+						}
+					}
+				}
+			};
+			for (int i = 0; i < j; i++) {
+				coefficients[i] += c[i];
+			}
+		}
+	}
+
+	/**
+	 * One QR step on H with a real shift or a pair of complex conjugate shifts
+	 * re +- i*im: H = Q'*H*Q with (H - re*I) = Q*R or (H - re*I)^2 + im^2*I =
+	 * Q*R. The transformation is accumulated in q.
+	 */
+	private void shift(double[][] h, double[][] q, int m, double re, double im) {
+		final double[][] p = new double[m][m];
+		if (im == 0.0) {
+			for (int i = 0; i < m; i++) {
+				System.arraycopy(h[i], 0, p[i], 0, m);
+				p[i][i] -= re;
+			}
+		} else {
+			for (int i = 0; i < m; i++) {
+				for (int j = 0; j < m; j++) {
+					double sum = 0.0;
+					for (int l = 0; l < m; l++) {
+						sum += h[i][l] * h[l][j];
+					}
+					p[i][j] = sum - 2.0 * re * h[i][j];
+				}
+				p[i][i] += re * re + im * im;
+			}
+		}
+		final double[][] qs = orthogonalFactor(p, m);
+		final double[][] hq = multiply(h, qs, m);
+		final double[][] qt = transpose(qs, m);
+		final double[][] result = multiply(qt, hq, m);
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < m; j++) {
+				if (i > j + 1 || (isSymmetric() && j > i + 1)) {
+					h[i][j] = 0.0;
+				} else if (isSymmetric() && j == i + 1) {
+					h[i][j] = result[j][i];
+				} else {
+					h[i][j] = result[i][j];
+				}
+			}
+		}
+		final double[][] qq = multiply(q, qs, m);
+		for (int i = 0; i < m; i++) {
+			System.arraycopy(qq[i], 0, q[i], 0, m);
+		}
+	}
+
+	/**
+	 * Keeps the first kk basis vectors after the QR steps: V = V*Q(:,0:kk-1)
+	 * and f = V*Q(:,kk)*H(kk,kk-1) + f*Q(m-1,kk-1)
+	 */
+	private static void compress(final double[][] v, final double[][] h, final double[][] q,
+			final double[] f, final int m, final int kk) {
+		final int n = f.length;
+		final double beta = h[kk][kk - 1];
+		final double sigma = q[m - 1][kk - 1];
+		new PForRange(getThreadCount((long) n * m * kk), 0, n - 1) {
+			public void step(int first, int last) {
+				final double[] tmp = new double[kk + 1];
+				for (int r = first; r <= last; r++) {
+					for (int j = 0; j <= kk; j++) {
+						double sum = 0.0;
+						for (int i = 0; i < m; i++) {
+							sum += v[i][r] * q[i][j];
+						}
+						tmp[j] = sum;
+					}
+					for (int j = 0; j < kk; j++) {
+						v[j][r] = tmp[j];
+					}
+					f[r] = tmp[kk] * beta + f[r] * sigma;
+				}
+			}
+		};
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < m; j++) {
+				if (i >= kk || j >= kk) {
+					h[i][j] = 0.0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the orthogonal factor Q of the Householder QR decomposition of
+	 * the m-by-m matrix p, which is overwritten
+	 */
+	private static double[][] orthogonalFactor(double[][] p, int m) {
+		final double[][] q = identity(m);
+		final double[] u = new double[m];
+		for (int k = 0; k < m - 1; k++) {
+			double norm = 0.0;
+			for (int i = k; i < m; i++) {
+				norm = Math.hypot(norm, p[i][k]);
+			}
+			if (norm == 0.0) {
+				continue;
+			}
+			final double alpha = p[k][k] > 0 ? -norm : norm;
+			for (int i = k; i < m; i++) {
+				u[i] = p[i][k];
+			}
+			u[k] -= alpha;
+			double uu = 0.0;
+			for (int i = k; i < m; i++) {
+				uu += u[i] * u[i];
+			}
+			if (uu == 0.0) {
+				continue;
+			}
+			// P = (I - 2uu'/u'u) * P, Q = Q * (I - 2uu'/u'u)
+			for (int j = k; j < m; j++) {
+				double s = 0.0;
+				for (int i = k; i < m; i++) {
+					s += u[i] * p[i][j];
+				}
+				s = 2.0 * s / uu;
+				for (int i = k; i < m; i++) {
+					p[i][j] -= s * u[i];
+				}
+			}
+			for (int i = 0; i < m; i++) {
+				double s = 0.0;
+				for (int l = k; l < m; l++) {
+					s += q[i][l] * u[l];
+				}
+				s = 2.0 * s / uu;
+				for (int l = k; l < m; l++) {
+					q[i][l] -= s * u[l];
+				}
+			}
+		}
+		return q;
+	}
+
+	/**
+	 * Eigenvalues and eigenvectors of the Hessenberg matrix, grouped into units
+	 * of one real eigenvalue or a pair of complex conjugate eigenvalues
+	 */
+	private final class Ritz {
+
+		private final int m;
+
+		private final double[] re;
+
+		private final double[] im;
+
+		private final double[][] y;
+
+		private final List<int[]> units = new ArrayList<int[]>();
+
+		public Ritz(double[][] h, int m) {
+			this.m = m;
+			final double[] array = new double[m * m];
+			for (int j = 0; j < m; j++) {
+				for (int i = 0; i < m; i++) {
+					array[j * m + i] = h[i][j];
+				}
+			}
+			final Eig.EigMatrix eig = new Eig.EigMatrix(new DefaultDenseDoubleMatrix2D(array, m, m));
+			this.re = eig.getRealEigenvalues();
+			this.im = eig.getImagEigenvalues();
+			this.y = eig.getV().toDoubleArray();
+			for (int i = 0; i < m; i++) {
+				if (im[i] > 0.0 && i + 1 < m) {
+					units.add(new int[] { i, i + 1 });
+					i++;
+				} else {
+					units.add(new int[] { i });
+				}
+			}
+			// from the most to the least wanted
+			Collections.sort(units, new Comparator<int[]>() {
+				public int compare(int[] u1, int[] u2) {
+					return Double.compare(score(u2[0]), score(u1[0]));
+				}
+			});
+		}
+
+		/**
+		 * Returns the most wanted units which contain at least k eigenvalues
+		 */
+		public List<int[]> first(int k) {
+			int count = 0;
+			int index = 0;
+			while (count < k && index < units.size()) {
+				count += units.get(index++).length;
+			}
+			return units.subList(0, index);
+		}
+
+		/**
+		 * Returns the units after the first count eigenvalues
+		 */
+		public List<int[]> after(int count) {
+			int index = 0;
+			for (int c = 0; c < count; index++) {
+				c += units.get(index).length;
+			}
+			return units.subList(index, units.size());
+		}
+
+		private double score(int i) {
+			switch (which) {
+			case LARGESTREAL:
+				return re[i];
+			case SMALLESTREAL:
+				return -re[i];
+			default:
+				return Math.hypot(re[i], im[i]);
+			}
+		}
+
+		public double getMagnitude(int i) {
+			return Math.hypot(re[i], im[i]);
+		}
+
+		/**
+		 * Residual norm ||A*x - lambda*x|| of the normalised Ritz vector
+		 */
+		public double getResidual(int[] unit, double fNorm) {
+			double last = 0.0;
+			double norm = 0.0;
+			for (int c : unit) {
+				last = Math.hypot(last, y[m - 1][c]);
+				for (int i = 0; i < m; i++) {
+					norm = Math.hypot(norm, y[i][c]);
+				}
+			}
+			return norm == 0.0 ? 0.0 : fNorm * last / norm;
+		}
+
+		/**
+		 * Returns V*Y for the selected units and the corresponding block
+		 * diagonal eigenvalue matrix
+		 */
+		public Matrix[] vectors(final double[][] v, List<int[]> selected, final int kk, final int n) {
+			final int[] columns = new int[kk];
+			final Matrix d = DenseMatrix.Factory.zeros(kk, kk);
+			int c = 0;
+			for (int[] unit : selected) {
+				if (unit.length == 1) {
+					d.setAsDouble(re[unit[0]], c, c);
+				} else {
+					d.setAsDouble(re[unit[0]], c, c);
+					d.setAsDouble(im[unit[0]], c, c + 1);
+					d.setAsDouble(im[unit[1]], c + 1, c);
+					d.setAsDouble(re[unit[1]], c + 1, c + 1);
+				}
+				for (int i : unit) {
+					columns[c++] = i;
+				}
+			}
+
+			final double[] x = new double[n * kk];
+			new PForRange(getThreadCount((long) n * m * kk), 0, n - 1) {
+				public void step(int first, int last) {
+					for (int j = 0; j < kk; j++) {
+						final int col = columns[j];
+						final int offset = j * n;
+						for (int i = 0; i < m; i++) {
+							final double yij = y[i][col];
+							if (yij != 0.0) {
+								final double[] vi = v[i];
+								for (int r = first; r <= last; r++) {
+									x[offset + r] += vi[r] * yij;
+								}
+							}
+						}
+					}
+				}
+			};
+
+			// normalise real vectors and pairs of real and imaginary part
+			c = 0;
+			for (int[] unit : selected) {
+				double norm = 0.0;
+				for (int j = c; j < c + unit.length; j++) {
+					for (int r = 0; r < n; r++) {
+						norm = Math.hypot(norm, x[j * n + r]);
+					}
+				}
+				if (norm != 0.0) {
+					for (int j = c * n; j < (c + unit.length) * n; j++) {
+						x[j] /= norm;
+					}
+				}
+				c += unit.length;
+			}
+			return new Matrix[] { new DefaultDenseDoubleMatrix2D(x, n, kk), d };
+		}
+	}
+
+	private static boolean normalize(double[] x, double[] result, double norm) {
+		if (norm == 0.0 || MathUtil.isNaNOrInfinite(norm)) {
+			return false;
+		}
+		for (int i = 0; i < x.length; i++) {
+			result[i] = x[i] / norm;
+		}
+		return true;
+	}
+
+	private static double dot(double[] x, double[] y) {
+		double sum = 0.0;
+		for (int i = 0; i < x.length; i++) {
+			sum += x[i] * y[i];
+		}
+		return sum;
+	}
+
+	private static double norm(double[] x) {
+		return Math.sqrt(dot(x, x));
+	}
+
+	private static double[][] identity(int m) {
+		final double[][] q = new double[m][m];
+		for (int i = 0; i < m; i++) {
+			q[i][i] = 1.0;
+		}
+		return q;
+	}
+
+	private static double[][] transpose(double[][] a, int m) {
+		final double[][] result = new double[m][m];
+		for (int i = 0; i < m; i++) {
+			for (int j = 0; j < m; j++) {
+				result[j][i] = a[i][j];
+			}
+		}
+		return result;
+	}
+
+	private static double[][] multiply(double[][] a, double[][] b, int m) {
+		final double[][] result = new double[m][m];
+		for (int i = 0; i < m; i++) {
+			for (int l = 0; l < m; l++) {
+				final double ail = a[i][l];
+				if (ail != 0.0) {
+					for (int j = 0; j < m; j++) {
+						result[i][j] += ail * b[l][j];
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private static int getThreadCount(long operations) {
+		if (operations < PARALLELTHRESHOLD) {
+			return 1;
+		} else {
+			return UJMPSettings.getInstance().getNumberOfThreads();
+		}
+	}
+
+}
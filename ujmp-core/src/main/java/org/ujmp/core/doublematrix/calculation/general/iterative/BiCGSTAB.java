@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+/**
+ * Stabilized bi-conjugate gradient method (BiCGSTAB) of van der Vorst for
+ * general square matrices. The preconditioner is applied from the right, so
+ * the monitored residual is the residual of the original system.
+ */
+public class BiCGSTAB extends AbstractIterativeSolver {
+
+	public BiCGSTAB() {
+		super();
+	}
+
+	public BiCGSTAB(Preconditioner preconditioner) {
+		super(preconditioner);
+	}
+
+	public boolean solve(LinearOperator a, double[] b, double[] x, ConvergenceMonitor monitor) {
+		verifySizes(a, b, x);
+		final int n = b.length;
+		final double[] r = new double[n];
+		final double[] rhat = new double[n];
+		final double[] p = new double[n];
+		final double[] v = new double[n];
+		final double[] phat = new double[n];
+		final double[] s = new double[n];
+		final double[] shat = new double[n];
+		final double[] t = new double[n];
+
+		residual(a, b, x, r);
+		if (monitor.start(norm(b), norm(r))) {
+			return monitor.isConverged();
+		}
+		System.arraycopy(r, 0, rhat, 0, n);
+		double rho = 1.0;
+		double alpha = 1.0;
+		double omega = 1.0;
+
+		for (int k = 1;; k++) {
+			final double rhoNew = dot(rhat, r);
+			if (rhoNew == 0.0) {
+				// breakdown, the shadow residual is orthogonal to r
+				return false;
+			}
+			final double beta = (rhoNew / rho) * (alpha / omega);
+			rho = rhoNew;
+			for (int i = 0; i < n; i++) {
+				p[i] = r[i] + beta * (p[i] - omega * v[i]);
+			}
+			precondition(p, phat);
+			a.multiply(phat, v);
+			alpha = rho / dot(rhat, v);
+			for (int i = 0; i < n; i++) {
+				s[i] = r[i] - alpha * v[i];
+			}
+			axpy(alpha, phat, x);
+			final double sNorm = norm(s);
+			if (monitor.isFinished(k, sNorm) && monitor.isConverged()) {
+				return true;
+			}
+
+			precondition(s, shat);
+			a.multiply(shat, t);
+			final double tt = dot(t, t);
+			omega = tt == 0.0 ? 0.0 : dot(t, s) / tt;
+			axpy(omega, shat, x);
+			for (int i = 0; i < n; i++) {
+				r[i] = s[i] - omega * t[i];
+			}
+			if (monitor.isFinished(k, norm(r)) || omega == 0.0) {
+				return monitor.isConverged();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+/**
+ * Conjugate gradient method for symmetric positive definite matrices. With a
+ * preconditioner, which must be symmetric positive definite as well, this is
+ * the preconditioned conjugate gradient method.
+ */
+public class ConjugateGradient extends AbstractIterativeSolver {
+
+	public ConjugateGradient() {
+		super();
+	}
+
+	public ConjugateGradient(Preconditioner preconditioner) {
+		super(preconditioner);
+	}
+
+	public boolean solve(LinearOperator a, double[] b, double[] x, ConvergenceMonitor monitor) {
+		verifySizes(a, b, x);
+		final int n = b.length;
+		final double[] r = new double[n];
+		final double[] z = new double[n];
+		final double[] p = new double[n];
+		final double[] q = new double[n];
+
+		residual(a, b, x, r);
+		if (monitor.start(norm(b), norm(r))) {
+			return monitor.isConverged();
+		}
+		precondition(r, z);
+		System.arraycopy(z, 0, p, 0, n);
+		double rz = dot(r, z);
+
+		for (int k = 1;; k++) {
+			a.multiply(p, q);
+			final double alpha = rz / dot(p, q);
+			axpy(alpha, p, x);
+			axpy(-alpha, q, r);
+			if (monitor.isFinished(k, norm(r))) {
+				return monitor.isConverged();
+			}
+			precondition(r, z);
+			final double rzNew = dot(r, z);
+			final double beta = rzNew / rz;
+			rz = rzNew;
+			for (int i = 0; i < n; i++) {
+				p[i] = z[i] + beta * p[i];
+			}
+		}
+	}
+
+}
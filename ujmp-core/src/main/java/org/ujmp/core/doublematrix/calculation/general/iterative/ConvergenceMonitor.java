@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Stopping criterion and history of an iterative solver. The iteration stops
+ * when the norm of the residual b - A*x falls below tolerance * ||b|| or when
+ * the maximum number of iterations is reached. Subclasses can override
+ * {@link #iterationDone(int, double)} to report the progress.
+ */
+public class ConvergenceMonitor {
+
+	public static final double DEFAULT_TOLERANCE = 1e-10;
+
+	public static final int DEFAULT_MAXITERATIONS = 10000;
+
+	private final double tolerance;
+
+	private final int maxIterations;
+
+	private double threshold = 0.0;
+
+	private double residualNorm = Double.NaN;
+
+	private int iterations = 0;
+
+	private boolean converged = false;
+
+	private double[] history = new double[16];
+
+	public ConvergenceMonitor() {
+		this(DEFAULT_TOLERANCE, DEFAULT_MAXITERATIONS);
+	}
+
+	public ConvergenceMonitor(double tolerance, int maxIterations) {
+		if (!(tolerance >= 0.0)) {
+			throw new IllegalArgumentException("tolerance must not be negative");
+		}
+		if (maxIterations < 0) {
+			throw new IllegalArgumentException("maximum number of iterations must not be negative");
+		}
+		this.tolerance = tolerance;
+		this.maxIterations = maxIterations;
+	}
+
+	/**
+	 * Resets the monitor before a new solve.
+	 * 
+	 * @param rhsNorm
+	 *            norm of the right hand side b
+	 * @param residualNorm
+	 *            norm of the initial residual
+	 * @return true if the initial guess is already good enough
+	 */
+	public boolean start(double rhsNorm, double residualNorm) {
+		this.threshold = tolerance * rhsNorm;
+		this.iterations = 0;
+		this.converged = false;
+		this.residualNorm = Double.NaN;
+		return isFinished(0, residualNorm);
+	}
+
+	/**
+	 * Records the residual norm after an iteration.
+	 * 
+	 * @return true if the solver should stop
+	 */
+	public final boolean isFinished(int iteration, double residualNorm) {
+		if (iteration >= history.length) {
+			final double[] newHistory = new double[Math.max(iteration + 1, history.length * 2)];
+			System.arraycopy(history, 0, newHistory, 0, history.length);
+			history = newHistory;
+		}
+		history[iteration] = residualNorm;
+		this.iterations = iteration;
+		this.residualNorm = residualNorm;
+		this.converged = residualNorm <= threshold;
+		iterationDone(iteration, residualNorm);
+		return converged || iteration >= maxIterations || MathUtil.isNaNOrInfinite(residualNorm);
+	}
+
+	/**
+	 * Called after every iteration, does nothing by default.
+	 */
+	protected void iterationDone(int iteration, double residualNorm) {
+	}
+
+	public final double getTolerance() {
+		return tolerance;
+	}
+
+	public final int getMaxIterations() {
+		return maxIterations;
+	}
+
+	public final boolean isConverged() {
+		return converged;
+	}
+
+	public final int getIterations() {
+		return iterations;
+	}
+
+	public final double getResidualNorm() {
+		return residualNorm;
+	}
+
+	/**
+	 * Returns the residual norms of the last solve, starting with the initial
+	 * residual.
+	 */
+	public final double[] getResidualHistory() {
+		final double[] result = new double[iterations + 1];
+		System.arraycopy(history, 0, result, 0, result.length);
+		return result;
+	}
+
+}
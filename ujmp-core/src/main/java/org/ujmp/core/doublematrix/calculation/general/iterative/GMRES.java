@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+import java.util.Arrays;
+
+/**
+ * Restarted generalized minimal residual method GMRES(m) for general square
+ * matrices. The Krylov basis is orthogonalised with modified Gram-Schmidt and
+ * the least squares problem is updated with Givens rotations, so the residual
+ * norm is known in every iteration without computing A*x. The preconditioner
+ * is applied from the right. The memory grows with the restart length, which
+ * is the number of basis vectors of length n that are kept.
+ */
+public class GMRES extends AbstractIterativeSolver {
+
+	public static final int DEFAULT_RESTART = 50;
+
+	private final int restart;
+
+	public GMRES() {
+		this(DEFAULT_RESTART, null);
+	}
+
+	public GMRES(Preconditioner preconditioner) {
+		this(DEFAULT_RESTART, preconditioner);
+	}
+
+	public GMRES(int restart, Preconditioner preconditioner) {
+		super(preconditioner);
+		if (restart < 1) {
+			throw new IllegalArgumentException("restart must be positive");
+		}
+		this.restart = restart;
+	}
+
+	public final int getRestart() {
+		return restart;
+	}
+
+	public boolean solve(LinearOperator a, double[] b, double[] x, ConvergenceMonitor monitor) {
+		verifySizes(a, b, x);
+		final int n = b.length;
+		final int m = Math.min(restart, n);
+		final double[][] v = new double[m + 1][n];
+		final double[][] h = new double[m + 1][m];
+		final double[] cs = new double[m];
+		final double[] sn = new double[m];
+		final double[] g = new double[m + 1];
+		final double[] y = new double[m];
+		final double[] z = new double[n];
+		final double[] w = new double[n];
+
+		final double bNorm = norm(b);
+		residual(a, b, x, w);
+		double beta = norm(w);
+		if (monitor.start(bNorm, beta)) {
+			return monitor.isConverged();
+		}
+
+		int iteration = 0;
+		while (true) {
+			for (int i = 0; i < n; i++) {
+				v[0][i] = w[i] / beta;
+			}
+			Arrays.fill(g, 0.0);
+			g[0] = beta;
+
+			int j = 0;
+			boolean finished = false;
+			while (j < m && !finished) {
+				// w = A * M^-1 * v_j, orthogonalised against v_0..v_j
+				precondition(v[j], z);
+				a.multiply(z, w);
+				for (int i = 0; i <= j; i++) {
+					final double hij = dot(w, v[i]);
+					h[i][j] = hij;
+					axpy(-hij, v[i], w);
+				}
+				final double hNext = norm(w);
+				h[j + 1][j] = hNext;
+				if (hNext != 0.0) {
+					for (int i = 0; i < n; i++) {
+						v[j + 1][i] = w[i] / hNext;
+					}
+				}
+
+				// apply the previous rotations and eliminate h(j+1,j)
+				for (int i = 0; i < j; i++) {
+					final double temp = cs[i] * h[i][j] + sn[i] * h[i + 1][j];
+					h[i + 1][j] = -sn[i] * h[i][j] + cs[i] * h[i + 1][j];
+					h[i][j] = temp;
+				}
+				final double rr = Math.hypot(h[j][j], h[j + 1][j]);
+				if (rr == 0.0) {
+					cs[j] = 1.0;
+					sn[j] = 0.0;
+				} else {
+					cs[j] = h[j][j] / rr;
+					sn[j] = h[j + 1][j] / rr;
+				}
+				h[j][j] = rr;
+				h[j + 1][j] = 0.0;
+				g[j + 1] = -sn[j] * g[j];
+				g[j] = cs[j] * g[j];
+
+				j++;
+				iteration++;
+				// an invariant subspace has been found if h(j+1,j) is zero
+				finished = monitor.isFinished(iteration, Math.abs(g[j])) || hNext == 0.0;
+			}
+
+			// y = H \ g, x = x + M^-1 * V * y
+			for (int i = j - 1; i >= 0; i--) {
+				double sum = g[i];
+				for (int k = i + 1; k < j; k++) {
+					sum -= h[i][k] * y[k];
+				}
+				y[i] = h[i][i] == 0.0 ? 0.0 : sum / h[i][i];
+			}
+			Arrays.fill(w, 0.0);
+			for (int i = 0; i < j; i++) {
+				axpy(y[i], v[i], w);
+			}
+			precondition(w, z);
+			axpy(1.0, z, x);
+
+			// the true residual replaces the estimate of the rotations
+			residual(a, b, x, w);
+			beta = norm(w);
+			if (monitor.isFinished(iteration, beta)) {
+				return monitor.isConverged();
+			}
+		}
+	}
+
+}
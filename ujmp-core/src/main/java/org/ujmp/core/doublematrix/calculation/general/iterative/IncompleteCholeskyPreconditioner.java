@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.SparseDoubleMatrix2DBuilder;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Incomplete Cholesky factorization without fill-in, IC(0), for symmetric
+ * positive definite matrices. The factor L has the same non-zero pattern as
+ * the lower triangle of A and M = L*L'. Only the lower triangle of A is used.
+ * The factorization can break down for matrices which are not diagonally
+ * dominant, in that case an IllegalStateException is thrown.
+ */
+public class IncompleteCholeskyPreconditioner implements Preconditioner {
+
+	private final int n;
+
+	private final int[] pointers;
+
+	private final int[] indices;
+
+	private final double[] values;
+
+	public IncompleteCholeskyPreconditioner(Matrix matrix) {
+		n = MathUtil.longToInt(matrix.getRowCount());
+		if (n != matrix.getColumnCount()) {
+			throw new IllegalArgumentException("Matrix must be square.");
+		}
+
+		// the lower triangle in compressed rows with sorted column indices
+		final CompressedRowSparseDoubleMatrix2D a = new SparseDoubleMatrix2DBuilder(matrix)
+				.toCompressedRow();
+		final int[] ap = a.getPointers();
+		final int[] ai = a.getIndices();
+		final double[] av = a.getValues();
+		final SparseDoubleMatrix2DBuilder lower = new SparseDoubleMatrix2DBuilder(n, n,
+				a.getNonZeroCount() / 2 + n);
+		for (int i = 0; i < n; i++) {
+			for (int pos = ap[i]; pos < ap[i + 1] && ai[pos] <= i; pos++) {
+				lower.add(i, ai[pos], av[pos]);
+			}
+		}
+		final CompressedRowSparseDoubleMatrix2D l = lower.toCompressedRow();
+		pointers = l.getPointers();
+		indices = l.getIndices();
+		values = l.getValues();
+
+		for (int i = 0; i < n; i++) {
+			final int start = pointers[i];
+			final int diag = pointers[i + 1] - 1;
+			if (diag < start || indices[diag] != i) {
+				throw new IllegalStateException("Matrix is not symmetric positive definite.");
+			}
+			for (int pos = start; pos < diag; pos++) {
+				final int k = indices[pos];
+				// L(i,k) = (A(i,k) - sum_j<k L(i,j)*L(k,j)) / L(k,k)
+				double sum = values[pos];
+				int p = start;
+				int q = pointers[k];
+				final int kDiag = pointers[k + 1] - 1;
+				while (p < pos && q < kDiag) {
+					if (indices[p] == indices[q]) {
+						sum -= values[p++] * values[q++];
+					} else if (indices[p] < indices[q]) {
+						p++;
+					} else {
+						q++;
+					}
+				}
+				values[pos] = sum / values[kDiag];
+			}
+			double d = values[diag];
+			for (int pos = start; pos < diag; pos++) {
+				d -= values[pos] * values[pos];
+			}
+			if (!(d > 0.0)) {
+				throw new IllegalStateException("Matrix is not symmetric positive definite.");
+			}
+			values[diag] = Math.sqrt(d);
+		}
+	}
+
+	public void apply(double[] r, double[] z) {
+		// solve L*y = r
+		for (int i = 0; i < n; i++) {
+			final int diag = pointers[i + 1] - 1;
+			double sum = r[i];
+			for (int pos = pointers[i]; pos < diag; pos++) {
+				sum -= values[pos] * z[indices[pos]];
+			}
+			z[i] = sum / values[diag];
+		}
+		// solve L'*z = y, scattering each solved entry into the rows above
+		for (int i = n - 1; i >= 0; i--) {
+			final int diag = pointers[i + 1] - 1;
+			final double zi = z[i] / values[diag];
+			z[i] = zi;
+			for (int pos = pointers[i]; pos < diag; pos++) {
+				z[indices[pos]] -= values[pos] * zi;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Solve;
+
+/**
+ * Iterative solvers for large sparse square systems, which are used by
+ * {@link Solve}, {@link org.ujmp.core.doublematrix.calculation.general.decomposition.SolveSPD}
+ * and {@link org.ujmp.core.doublematrix.calculation.general.decomposition.SolveSymm}
+ * instead of a dense decomposition when the matrix is sparse and has at least
+ * {@link #SPARSETHRESHOLD} rows.
+ */
+public final class IterativeSolve {
+
+	public static int SPARSETHRESHOLD = 1000;
+
+	private IterativeSolve() {
+	}
+
+	/**
+	 * BiCGSTAB with Jacobi preconditioner, GMRES if BiCGSTAB breaks down
+	 */
+	public static final Solve<Matrix> GENERAL = new Solve<Matrix>() {
+		public final Matrix calc(Matrix a, Matrix b) {
+			final Preconditioner jacobi = new JacobiPreconditioner(a);
+			try {
+				return new BiCGSTAB(jacobi).solve(a, b);
+			} catch (RuntimeException e) {
+				return new GMRES(jacobi).solve(a, b);
+			}
+		}
+	};
+
+	/**
+	 * Conjugate gradient with incomplete Cholesky preconditioner, Jacobi
+	 * preconditioner if the incomplete factorization breaks down
+	 */
+	public static final Solve<Matrix> SPD = new Solve<Matrix>() {
+		public final Matrix calc(Matrix a, Matrix b) {
+			Preconditioner preconditioner;
+			try {
+				preconditioner = new IncompleteCholeskyPreconditioner(a);
+			} catch (IllegalStateException e) {
+				preconditioner = new JacobiPreconditioner(a);
+			}
+			return new ConjugateGradient(preconditioner).solve(a, b);
+		}
+	};
+
+	/**
+	 * Returns true if the iterative solvers should be used for this matrix
+	 */
+	public static boolean isSuitable(Matrix a) {
+		return a.isSparse() && a.isSquare() && a.getDimensionCount() == 2
+				&& a.getRowCount() >= SPARSETHRESHOLD;
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Jacobi preconditioner M = diag(A). It costs one division per entry and helps
+ * when the rows of A are scaled very differently.
+ */
+public class JacobiPreconditioner implements Preconditioner {
+
+	private final double[] inverseDiagonal;
+
+	public JacobiPreconditioner(Matrix matrix) {
+		final int n = MathUtil.longToInt(Math.min(matrix.getRowCount(), matrix.getColumnCount()));
+		inverseDiagonal = new double[n];
+		for (int i = 0; i < n; i++) {
+			final double d = matrix.getAsDouble(i, i);
+			// rows without diagonal entry are not scaled
+			inverseDiagonal[i] = d == 0.0 ? 1.0 : 1.0 / d;
+		}
+	}
+
+	public void apply(double[] r, double[] z) {
+		for (int i = 0; i < inverseDiagonal.length; i++) {
+			z[i] = r[i] * inverseDiagonal[i];
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+/**
+ * Implicitly restarted Lanczos method for k eigenvalues and eigenvectors of a
+ * symmetric matrix. This is the Arnoldi method for symmetric matrices, where
+ * the projected matrix is tridiagonal and all eigenvalues and eigenvectors are
+ * real. The basis is still orthogonalised against all previous vectors, since
+ * the three-term recurrence alone loses orthogonality as soon as the first
+ * eigenvalues converge. The symmetry of A is not checked.
+ * <P>
+ * The result consists of the n-by-k matrix V of orthonormal eigenvectors and
+ * the k-by-k diagonal matrix D of eigenvalues, which are ordered according to
+ * {@link Arnoldi.Which}, starting with the most wanted one.
+ */
+public class Lanczos extends Arnoldi {
+
+	public static final Lanczos INSTANCE = new Lanczos();
+
+	public Lanczos() {
+		super();
+	}
+
+	public Lanczos(Which which) {
+		super(which);
+	}
+
+	public Lanczos(Which which, double tolerance, int maxRestarts) {
+		super(which, tolerance, maxRestarts);
+	}
+
+	public Lanczos(Which which, double tolerance, int maxRestarts, long seed) {
+		super(which, tolerance, maxRestarts, seed);
+	}
+
+	@Override
+	protected final boolean isSymmetric() {
+		return true;
+	}
+
+}
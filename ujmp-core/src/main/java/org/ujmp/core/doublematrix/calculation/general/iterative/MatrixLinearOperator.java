@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.iterative;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.SparseDoubleMatrix2DBuilder;
+import org.ujmp.core.doublematrix.impl.SparseMultiply;
+import org.ujmp.core.doublematrix.stub.AbstractCompressedSparseDoubleMatrix2D;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Matrix-vector products with a Matrix. Sparse matrices which are not stored
+ * in compressed row format are converted to compressed rows once,
+ * so that every product uses the multithreaded kernel of SparseMultiply.
+ * Dense matrices backed by an array are multiplied in parallel blocks of
+ * rows.
+ */
+public class MatrixLinearOperator implements LinearOperator {
+
+	/**
+	 * Minimum number of multiply-adds to run a dense product in parallel
+	 */
+	private static final long PARALLELTHRESHOLD = 1 << 15;
+
+	private final Matrix matrix;
+
+	private final int rows;
+
+	private final int columns;
+
+	public MatrixLinearOperator(Matrix matrix) {
+		if (matrix.isSparse() && !isCompressedRow(matrix)) {
+			this.matrix = new SparseDoubleMatrix2DBuilder(matrix).toCompressedRow();
+		} else {
+			this.matrix = matrix;
+		}
+		this.rows = MathUtil.longToInt(matrix.getRowCount());
+		this.columns = MathUtil.longToInt(matrix.getColumnCount());
+	}
+
+	/**
+	 * Returns the matrix used for the products, which is the compressed copy
+	 * for sparse matrices.
+	 */
+	public Matrix getMatrix() {
+		return matrix;
+	}
+
+	public int getRowCount() {
+		return rows;
+	}
+
+	public int getColumnCount() {
+		return columns;
+	}
+
+	public void multiply(final double[] x, final double[] y) {
+		if (matrix instanceof AbstractCompressedSparseDoubleMatrix2D) {
+			SparseMultiply.multiply((AbstractCompressedSparseDoubleMatrix2D) matrix, x, y);
+		} else if (matrix instanceof HasColumnMajorDoubleArray1D) {
+			final double[] a = ((HasColumnMajorDoubleArray1D) matrix)
+					.getColumnMajorDoubleArray1D();
+			new PForRange(getThreadCount(), 0, rows - 1) {
+				public void step(int first, int last) {
+					for (int i = first; i <= last; i++) {
+						y[i] = 0.0;
+					}
+					for (int j = 0; j < columns; j++) {
+						final double xj = x[j];
+						if (xj != 0.0) {
+							final int offset = j * rows;
+							for (int i = first; i <= last; i++) {
+								y[i] += a[offset + i] * xj;
+							}
+						}
+					}
+				}
+			};
+		} else if (matrix instanceof HasRowMajorDoubleArray2D) {
+			final double[][] a = ((HasRowMajorDoubleArray2D) matrix).getRowMajorDoubleArray2D();
+			new PForRange(getThreadCount(), 0, rows - 1) {
+				public void step(int first, int last) {
+					for (int i = first; i <= last; i++) {
+						final double[] row = a[i];
+						double sum = 0.0;
+						for (int j = 0; j < columns; j++) {
+							sum += row[j] * x[j];
+						}
+						y[i] = sum;
+					}
+				}
+			};
+		} else {
+			// linked or computed matrices are read entry by entry
+			new PForRange(getThreadCount(), 0, rows - 1) {
+				public void step(int first, int last) {
+					for (int i = first; i <= last; i++) {
+						double sum = 0.0;
+						for (int j = 0; j < columns; j++) {
+							sum += matrix.getAsDouble(i, j) * x[j];
+						}
+						y[i] = sum;
+					}
+				}
+			};
+		}
+	}
+
+	private static boolean isCompressedRow(Matrix matrix) {
+		return matrix instanceof AbstractCompressedSparseDoubleMatrix2D
+				&& ((AbstractCompressedSparseDoubleMatrix2D) matrix).isRowMajor();
+	}
+
+	private int getThreadCount() {
+		if ((long) rows * columns < PARALLELTHRESHOLD) {
+			return 1;
+		} else {
+			return UJMPSettings.getInstance().getNumberOfThreads();
+		}
+	}
+
+}
@@ -0,0 +1,659 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.misc;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.CompressedColumnSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.SparseDoubleMatrix2DBuilder;
+import org.ujmp.core.doublematrix.impl.SparseFeatureVector;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.VerifyUtil;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Cosine similarity or Minkowski distance between all pairs of rows of a
+ * matrix. The rows are processed in tiles of {@link #BLOCKSIZE} x
+ * {@link #BLOCKSIZE} pairs, which are distributed over the available threads:
+ * <ul>
+ * <li>Cosine similarity and Euclidean distance of dense rows are derived from
+ * the tiles of the Gram matrix X*X', which are computed with the regular matrix
+ * multiplication, and the precomputed row norms.</li>
+ * <li>Other Minkowski distances and the pairwise treatment of missing values
+ * use tiled loops over the row-major data.</li>
+ * <li>Sparse rows are converted to compressed rows and columns once. For each
+ * row, only the rows sharing a non-zero column are visited through the
+ * columns, all other pairs follow from the row norms.</li>
+ * </ul>
+ * {@link #calc(Matrix)} returns the full n-by-n matrix.
+ * {@link #topK(Matrix, int, boolean)} only keeps the k most similar or nearest
+ * rows for each row, so the memory needed is O(n*k) plus one tile per thread.
+ */
+public class AllPairsSimilarity {
+
+	public enum Measure {
+		COSINE, MINKOWSKI
+	};
+
+	/**
+	 * Rows and columns per tile of dense matrices
+	 */
+	public static int BLOCKSIZE = 128;
+
+	/**
+	 * Rows per tile of sparse matrices, the tiles span all columns
+	 */
+	private static final int SPARSEBLOCKSIZE = 4;
+
+	private final Measure measure;
+
+	private final double p;
+
+	private final boolean ignoreNaN;
+
+	public AllPairsSimilarity(Measure measure, double p, boolean ignoreNaN) {
+		if (measure == Measure.MINKOWSKI && !(p > 0.0)) {
+			throw new IllegalArgumentException("p must be positive");
+		}
+		this.measure = measure;
+		this.p = p;
+		this.ignoreNaN = ignoreNaN;
+	}
+
+	public static AllPairsSimilarity cosine(boolean ignoreNaN) {
+		return new AllPairsSimilarity(Measure.COSINE, 2.0, ignoreNaN);
+	}
+
+	public static AllPairsSimilarity minkowski(double p, boolean ignoreNaN) {
+		return new AllPairsSimilarity(Measure.MINKOWSKI, p, ignoreNaN);
+	}
+
+	public final Measure getMeasure() {
+		return measure;
+	}
+
+	/**
+	 * Returns true if small values are better, i.e. the measure is a distance
+	 */
+	public final boolean isDistance() {
+		return measure == Measure.MINKOWSKI;
+	}
+
+	/**
+	 * Calculates the n-by-n matrix for all pairs of the n rows.
+	 */
+	public Matrix calc(Matrix source) {
+		final Kernel kernel = createKernel(source);
+		final int n = kernel.n;
+		final double[] result = new double[MathUtil.longToInt((long) n * n)];
+		run(kernel, new TileConsumer() {
+			public void rowsDone(int r0, int rows) {
+			}
+
+			public void accept(int r0, int rows, int c0, int cols, double[] tile) {
+				for (int i = 0; i < rows; i++) {
+					final int offset = i * cols;
+					for (int j = 0; j < cols; j++) {
+						result[(c0 + j) * n + r0 + i] = tile[offset + j];
+					}
+				}
+			}
+		});
+		return new DefaultDenseDoubleMatrix2D(result, n, n);
+	}
+
+	/**
+	 * Finds the k most similar or nearest rows for each row.
+	 * 
+	 * @param excludeSelf
+	 *            if true, a row is not its own neighbour
+	 * @return an n-by-k matrix with the indices of the neighbours and an
+	 *         n-by-k matrix with their similarities or distances, ordered from
+	 *         the best to the worst. Missing neighbours, which occur if k is
+	 *         larger than the number of rows, have index -1 and value NaN.
+	 */
+	public Matrix[] topK(Matrix source, final int k, final boolean excludeSelf) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be positive");
+		}
+		final Kernel kernel = createKernel(source);
+		final int n = kernel.n;
+		final double[] indices = new double[MathUtil.longToInt((long) n * k)];
+		final double[] values = new double[indices.length];
+		final double sign = isDistance() ? -1.0 : 1.0;
+		run(kernel, new TileConsumer() {
+			// only the rows of the blocks in progress have a heap
+			private final TopK[] heaps = new TopK[n];
+
+			public void accept(int r0, int rows, int c0, int cols, double[] tile) {
+				if (c0 == 0) {
+					for (int i = 0; i < rows; i++) {
+						heaps[r0 + i] = new TopK(k);
+					}
+				}
+				for (int i = 0; i < rows; i++) {
+					final TopK heap = heaps[r0 + i];
+					final int offset = i * cols;
+					final int row = r0 + i;
+					for (int j = 0; j < cols; j++) {
+						final double value = tile[offset + j];
+						if (!Double.isNaN(value) && !(excludeSelf && c0 + j == row)) {
+							heap.offer(c0 + j, sign * value);
+						}
+					}
+				}
+			}
+
+			public void rowsDone(int r0, int rows) {
+				for (int i = 0; i < rows; i++) {
+					final TopK heap = heaps[r0 + i];
+					heaps[r0 + i] = null;
+					heap.sort();
+					for (int j = 0; j < k; j++) {
+						final int pos = j * n + r0 + i;
+						if (j < heap.size) {
+							indices[pos] = heap.index[j];
+							values[pos] = sign * heap.key[j];
+						} else {
+							indices[pos] = -1;
+							values[pos] = Double.NaN;
+						}
+					}
+				}
+			}
+		});
+		return new Matrix[] { new DefaultDenseDoubleMatrix2D(indices, n, k),
+				new DefaultDenseDoubleMatrix2D(values, n, k) };
+	}
+
+	/**
+	 * Combines feature vectors with the same dictionary into a sparse matrix
+	 * with one row per vector, which can be passed to {@link #calc(Matrix)}
+	 * and {@link #topK(Matrix, int, boolean)}.
+	 */
+	public static Matrix toRows(List<SparseFeatureVector> vectors) {
+		int columns = 0;
+		for (SparseFeatureVector v : vectors) {
+			columns = Math.max(columns, MathUtil.longToInt(v.getRowCount()));
+		}
+		final SparseDoubleMatrix2DBuilder builder = new SparseDoubleMatrix2DBuilder(
+				vectors.size(), columns);
+		for (int r = 0; r < vectors.size(); r++) {
+			final SparseFeatureVector v = vectors.get(r);
+			for (long[] c : v.availableCoordinates()) {
+				builder.add(r, (int) c[Matrix.ROW], v.getAsDouble(c));
+			}
+		}
+		return builder.toCompressedRow();
+	}
+
+	/**
+	 * Runs the kernel over all tiles. Each thread processes a range of row
+	 * blocks and passes the tiles of a row block to the consumer in the order
+	 * of the columns. The consumer is called concurrently for different row
+	 * blocks.
+	 */
+	private void run(final Kernel kernel, final TileConsumer consumer) {
+		final int n = kernel.n;
+		final int rowBlock = kernel.getRowBlockSize();
+		final int columnBlock = kernel.getColumnBlockSize();
+		final int blocks = (n + rowBlock - 1) / rowBlock;
+		final int threads = (long) n * n * kernel.d < (1 << 16) ? 1 : UJMPSettings
+				.getInstance().getNumberOfThreads();
+		new PForRange(threads, 0, blocks - 1) {
+			public void step(int first, int last) {
+				final Kernel.Worker worker = kernel.newWorker();
+				final double[] tile = new double[rowBlock * columnBlock];
+				for (int block = first; block <= last; block++) {
+					final int r0 = block * rowBlock;
+					final int rows = Math.min(rowBlock, n - r0);
+					for (int c0 = 0; c0 < n; c0 += columnBlock) {
+						final int cols = Math.min(columnBlock, n - c0);
+						worker.compute(r0, rows, c0, cols, tile);
+						consumer.accept(r0, rows, c0, cols, tile);
+					}
+					consumer.rowsDone(r0, rows);
+				}
+			}
+		};
+	}
+
+	private Kernel createKernel(Matrix source) {
+		VerifyUtil.verify2D(source);
+		final boolean pairwise = ignoreNaN && source.containsMissingValues();
+		final boolean gram = measure == Measure.COSINE || p == 2.0;
+		if (source.isSparse() && !pairwise) {
+			return new SparseKernel(source);
+		} else if (gram && !pairwise) {
+			return new GramKernel(source);
+		} else {
+			return new LoopKernel(source);
+		}
+	}
+
+	/**
+	 * Receives the tiles of a row block in the order of the columns, followed
+	 * by a call of rowsDone
+	 */
+	private interface TileConsumer {
+
+		public void accept(int r0, int rows, int c0, int cols, double[] tile);
+
+		public void rowsDone(int r0, int rows);
+
+	}
+
+	/**
+	 * Computes the final values of a tile into a row-major array
+	 */
+	private abstract class Kernel {
+
+		protected final int n;
+
+		protected final int d;
+
+		protected Kernel(Matrix source) {
+			this.n = MathUtil.longToInt(source.getRowCount());
+			this.d = MathUtil.longToInt(source.getColumnCount());
+		}
+
+		public int getRowBlockSize() {
+			return BLOCKSIZE;
+		}
+
+		public int getColumnBlockSize() {
+			return BLOCKSIZE;
+		}
+
+		public abstract Worker newWorker();
+
+		abstract class Worker {
+			public abstract void compute(int r0, int rows, int c0, int cols, double[] tile);
+		}
+	}
+
+	/**
+	 * Returns the matrix as row-major array
+	 */
+	static double[] toRowMajor(Matrix source) {
+		final int n = MathUtil.longToInt(source.getRowCount());
+		final int d = MathUtil.longToInt(source.getColumnCount());
+		final double[] x = new double[MathUtil.longToInt((long) n * d)];
+		if (source instanceof HasColumnMajorDoubleArray1D) {
+			final double[] a = ((HasColumnMajorDoubleArray1D) source)
+					.getColumnMajorDoubleArray1D();
+			for (int f = 0; f < d; f++) {
+				for (int i = 0; i < n; i++) {
+					x[i * d + f] = a[f * n + i];
+				}
+			}
+		} else {
+			for (int i = 0; i < n; i++) {
+				for (int f = 0; f < d; f++) {
+					x[i * d + f] = source.getAsDouble(i, f);
+				}
+			}
+		}
+		return x;
+	}
+
+	/**
+	 * Cosine similarity and Euclidean distance from tiles of X*X'
+	 */
+	private final class GramKernel extends Kernel {
+
+		private final double[] x;
+
+		private final double[] norms;
+
+		public GramKernel(Matrix source) {
+			super(source);
+			x = toRowMajor(source);
+			norms = new double[n];
+			for (int i = 0; i < n; i++) {
+				double sum = 0.0;
+				for (int f = 0; f < d; f++) {
+					sum += x[i * d + f] * x[i * d + f];
+				}
+				norms[i] = sum;
+			}
+		}
+
+		public Worker newWorker() {
+			return new Worker() {
+				private int cachedRow = -1;
+
+				private DefaultDenseDoubleMatrix2D a = null;
+
+				public void compute(int r0, int rows, int c0, int cols, double[] tile) {
+					if (cachedRow != r0 || a.getRowCount() != rows) {
+						// column-major rows-by-d block of X
+						final double[] block = new double[rows * d];
+						for (int i = 0; i < rows; i++) {
+							final int offset = (r0 + i) * d;
+							for (int f = 0; f < d; f++) {
+								block[f * rows + i] = x[offset + f];
+							}
+						}
+						a = new DefaultDenseDoubleMatrix2D(block, rows, d);
+						cachedRow = r0;
+					}
+					// the row-major rows of X are the columns of X'
+					final DefaultDenseDoubleMatrix2D b = new DefaultDenseDoubleMatrix2D(
+							Arrays.copyOfRange(x, c0 * d, (c0 + cols) * d), d, cols);
+					final DefaultDenseDoubleMatrix2D c = new DefaultDenseDoubleMatrix2D(rows, cols);
+					Matrix.mtimes.calc(a, b, c);
+					final double[] dots = c.getColumnMajorDoubleArray1D();
+					for (int i = 0; i < rows; i++) {
+						for (int j = 0; j < cols; j++) {
+							tile[i * cols + j] = finish(r0 + i, c0 + j, dots[j * rows + i],
+									norms[r0 + i], norms[c0 + j]);
+						}
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Final value from the dot product and the squared norms of two rows
+	 */
+	private double finish(int row, int column, double dot, double sq1, double sq2) {
+		if (measure == Measure.COSINE) {
+			return dot / (Math.sqrt(sq1) * Math.sqrt(sq2));
+		} else if (row == column) {
+			return 0.0;
+		} else {
+			return Math.sqrt(Math.max(0.0, sq1 + sq2 - 2.0 * dot));
+		}
+	}
+
+	/**
+	 * Calculates the similarity or distance between two vectors, which are
+	 * stored from the given offsets in the arrays
+	 */
+	public final double calc(double[] x, int offset1, double[] y, int offset2, int length) {
+		if (measure == Measure.COSINE) {
+			return cosine(x, offset1, y, offset2, length);
+		} else {
+			return minkowski(x, offset1, y, offset2, length);
+		}
+	}
+
+	private double cosine(double[] x, int offset1, double[] y, int offset2, int length) {
+		double ab = 0.0;
+		double aa = 0.0;
+		double bb = 0.0;
+		for (int f = 0; f < length; f++) {
+			final double a = x[offset1 + f];
+			final double b = y[offset2 + f];
+			if (!ignoreNaN || (!MathUtil.isNaNOrInfinite(a) && !MathUtil.isNaNOrInfinite(b))) {
+				ab += a * b;
+				aa += a * a;
+				bb += b * b;
+			}
+		}
+		return ab / (Math.sqrt(aa) * Math.sqrt(bb));
+	}
+
+	private double minkowski(double[] x, int offset1, double[] y, int offset2, int length) {
+		double sum = 0.0;
+		if (p == 1.0) {
+			for (int f = 0; f < length; f++) {
+				final double v = Math.abs(x[offset1 + f] - y[offset2 + f]);
+				if (!ignoreNaN || !MathUtil.isNaNOrInfinite(v)) {
+					sum += v;
+				}
+			}
+			return sum;
+		}
+		for (int f = 0; f < length; f++) {
+			final double v = Math.pow(Math.abs(x[offset1 + f] - y[offset2 + f]), p);
+			if (!ignoreNaN || !MathUtil.isNaNOrInfinite(v)) {
+				sum += v;
+			}
+		}
+		return Math.pow(sum, 1 / p);
+	}
+
+	/**
+	 * Pairwise loops for any Minkowski distance and missing values
+	 */
+	private final class LoopKernel extends Kernel {
+
+		private final double[] x;
+
+		public LoopKernel(Matrix source) {
+			super(source);
+			x = toRowMajor(source);
+		}
+
+		public Worker newWorker() {
+			return new Worker() {
+				public void compute(int r0, int rows, int c0, int cols, double[] tile) {
+					for (int i = 0; i < rows; i++) {
+						final int offset1 = (r0 + i) * d;
+						for (int j = 0; j < cols; j++) {
+							tile[i * cols + j] = AllPairsSimilarity.this.calc(x, offset1, x,
+									(c0 + j) * d, d);
+						}
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Sparse rows, visiting only pairs which share a non-zero column
+	 */
+	private final class SparseKernel extends Kernel {
+
+		private final int[] rowPointers;
+
+		private final int[] rowIndices;
+
+		private final double[] rowValues;
+
+		private final int[] columnPointers;
+
+		private final int[] columnIndices;
+
+		private final double[] columnValues;
+
+		/**
+		 * Squared norms, or sums of |x|^p for Minkowski distances
+		 */
+		private final double[] norms;
+
+		public SparseKernel(Matrix source) {
+			super(source);
+			final CompressedRowSparseDoubleMatrix2D csr;
+			if (source instanceof CompressedRowSparseDoubleMatrix2D) {
+				csr = (CompressedRowSparseDoubleMatrix2D) source;
+			} else {
+				csr = new SparseDoubleMatrix2DBuilder(source).toCompressedRow();
+			}
+			final CompressedColumnSparseDoubleMatrix2D csc = csr.toCompressedColumn();
+			rowPointers = csr.getPointers();
+			rowIndices = csr.getIndices();
+			rowValues = csr.getValues();
+			columnPointers = csc.getPointers();
+			columnIndices = csc.getIndices();
+			columnValues = csc.getValues();
+			norms = new double[n];
+			for (int i = 0; i < n; i++) {
+				double sum = 0.0;
+				for (int pos = rowPointers[i]; pos < rowPointers[i + 1]; pos++) {
+					sum += power(rowValues[pos]);
+				}
+				norms[i] = sum;
+			}
+		}
+
+		private double power(double v) {
+			if (measure == Measure.COSINE || p == 2.0) {
+				return v * v;
+			} else if (p == 1.0) {
+				return Math.abs(v);
+			} else {
+				return Math.pow(Math.abs(v), p);
+			}
+		}
+
+		public int getRowBlockSize() {
+			return SPARSEBLOCKSIZE;
+		}
+
+		public int getColumnBlockSize() {
+			return Math.max(1, n);
+		}
+
+		public Worker newWorker() {
+			return new Worker() {
+				public void compute(int r0, int rows, int c0, int cols, double[] tile) {
+					final boolean gram = measure == Measure.COSINE || p == 2.0;
+					for (int i = 0; i < rows; i++) {
+						final int row = r0 + i;
+						final int offset = i * cols - c0;
+						Arrays.fill(tile, i * cols, (i + 1) * cols, 0.0);
+						// dot products or the correction of the norms for
+						// columns which are non-zero in both rows
+						for (int pos = rowPointers[row]; pos < rowPointers[row + 1]; pos++) {
+							final int f = rowIndices[pos];
+							final double a = rowValues[pos];
+							for (int q = columnPointers[f]; q < columnPointers[f + 1]; q++) {
+								final int j = columnIndices[q];
+								if (j >= c0 && j < c0 + cols) {
+									final double b = columnValues[q];
+									if (gram) {
+										tile[offset + j] += a * b;
+									} else {
+										tile[offset + j] += power(a) + power(b) - power(a - b);
+									}
+								}
+							}
+						}
+						for (int j = c0; j < c0 + cols; j++) {
+							final double value = tile[offset + j];
+							if (gram) {
+								tile[offset + j] = finish(row, j, value, norms[row], norms[j]);
+							} else {
+								final double sum = Math.max(0.0, norms[row] + norms[j] - value);
+								tile[offset + j] = row == j ? 0.0 : (p == 1.0 ? sum : Math.pow(
+										sum, 1 / p));
+							}
+						}
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Bounded min-heap of the k largest keys. Of equal keys, the smaller
+	 * indices are kept, so the result does not depend on the order of offer().
+	 */
+	static final class TopK {
+
+		final int[] index;
+
+		final double[] key;
+
+		int size = 0;
+
+		public TopK(int k) {
+			index = new int[k];
+			key = new double[k];
+		}
+
+		public void offer(int i, double value) {
+			if (size < key.length) {
+				int pos = size++;
+				while (pos > 0) {
+					final int parent = (pos - 1) >>> 1;
+					if (!isWorse(value, i, key[parent], index[parent])) {
+						break;
+					}
+					key[pos] = key[parent];
+					index[pos] = index[parent];
+					pos = parent;
+				}
+				key[pos] = value;
+				index[pos] = i;
+			} else if (size > 0 && isWorse(key[0], index[0], value, i)) {
+				siftDown(i, value, size);
+			}
+		}
+
+		/**
+		 * Returns true if the first entry ranks below the second one
+		 */
+		private static boolean isWorse(double key1, int index1, double key2, int index2) {
+			return key1 < key2 || (key1 == key2 && index1 > index2);
+		}
+
+		private void siftDown(int i, double value, int size) {
+			int pos = 0;
+			while (true) {
+				int child = 2 * pos + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size
+						&& isWorse(key[child + 1], index[child + 1], key[child], index[child])) {
+					child++;
+				}
+				if (!isWorse(key[child], index[child], value, i)) {
+					break;
+				}
+				key[pos] = key[child];
+				index[pos] = index[child];
+				pos = child;
+			}
+			key[pos] = value;
+			index[pos] = i;
+		}
+
+		/**
+		 * Sorts the entries by decreasing key, ties by increasing index
+		 */
+		public void sort() {
+			for (int end = size - 1; end > 0; end--) {
+				// move the smallest key to the end
+				final int i = index[end];
+				final double value = key[end];
+				index[end] = index[0];
+				key[end] = key[0];
+				siftDown(i, value, end);
+			}
+		}
+	}
+
+}
@@ -65,6 +65,14 @@ public class CosineSimilarity extends AbstractDoubleCalculation {
 		return aiSum / (Math.sqrt(a2Sum) * Math.sqrt(b2Sum));
 	}
 
+	public Matrix calcNew() {
+		final Matrix result = AllPairsSimilarity.cosine(ignoreNaN).calc(getSource());
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 	public long[] getSize() {
 		return size;
 	}
@@ -46,6 +46,14 @@ public class MinkowskiDistance extends AbstractDoubleCalculation {
 		return m1.minkowskiDistanceTo(m2, p, ignoreNaN);
 	}
 
+	public Matrix calcNew() {
+		final Matrix result = AllPairsSimilarity.minkowski(p, ignoreNaN).calc(getSource());
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 	public long[] getSize() {
 		return size;
 	}
@@ -0,0 +1,438 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.misc;
+
+import java.util.BitSet;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Approximate nearest neighbour index over the rows of a matrix. Each tree of
+ * the forest splits the rows recursively with random hyperplanes, which are
+ * placed between two randomly chosen rows, until at most leafSize rows remain.
+ * A query descends all trees at once, preferring the branches whose
+ * hyperplanes are furthest from the query, and collects rows from the leaves
+ * until searchK candidates have been found. Only the candidates are compared
+ * with the measure of the index, so the result is exact for the candidates.
+ * <P>
+ * More trees and a larger searchK increase the recall, fewer trees reduce the
+ * memory and the time to build the index. The trees are built in parallel,
+ * each with its own random generator, so the index for a given seed does not
+ * depend on the number of threads.
+ * <P>
+ * Missing values are replaced with the column means to choose the branches,
+ * the measure itself decides how they are treated when comparing rows.
+ */
+public class RandomProjectionForest {
+
+	public static final int DEFAULT_TREES = 10;
+
+	public static final int DEFAULT_LEAFSIZE = 32;
+
+	/**
+	 * Decides which rows may be returned by a query
+	 */
+	public interface Filter {
+		public boolean accept(int row);
+	}
+
+	private final AllPairsSimilarity measure;
+
+	private final int n;
+
+	private final int d;
+
+	/**
+	 * Rows of the source in row-major order
+	 */
+	private final double[] x;
+
+	/**
+	 * Rows with missing values replaced by the column means
+	 */
+	private final double[] filled;
+
+	private final double[] means;
+
+	private final Node[] roots;
+
+	public RandomProjectionForest(Matrix source, AllPairsSimilarity measure) {
+		this(source, measure, DEFAULT_TREES, DEFAULT_LEAFSIZE, MathUtil.getRandom().nextLong());
+	}
+
+	public RandomProjectionForest(Matrix source, AllPairsSimilarity measure, int trees,
+			int leafSize, final long seed) {
+		if (trees < 1) {
+			throw new IllegalArgumentException("number of trees must be positive");
+		}
+		if (leafSize < 1) {
+			throw new IllegalArgumentException("leaf size must be positive");
+		}
+		this.measure = measure;
+		this.n = MathUtil.longToInt(source.getRowCount());
+		this.d = MathUtil.longToInt(source.getColumnCount());
+		this.x = AllPairsSimilarity.toRowMajor(source);
+		this.means = new double[d];
+		this.filled = fill();
+		this.roots = new Node[trees];
+
+		final int maxLeafSize = leafSize;
+		new PFor(getThreadCount(), 0, trees - 1) {
+			public void step(int tree) {
+				final Random random = new Random(seed + tree * 0x9E3779B97F4A7C15L);
+				final int[] rows = new int[n];
+				for (int i = 0; i < n; i++) {
+					rows[i] = i;
+				}
+				roots[tree] = build(rows, 0, n, maxLeafSize, random);
+			}
+		};
+	}
+
+	public final int getTreeCount() {
+		return roots.length;
+	}
+
+	public final AllPairsSimilarity getMeasure() {
+		return measure;
+	}
+
+	/**
+	 * Finds approximately the k most similar or nearest rows for each row of
+	 * the index.
+	 * 
+	 * @param searchK
+	 *            number of candidates to compare, or 0 for k times the number
+	 *            of trees
+	 * @return the indices and the similarities or distances in the format of
+	 *         {@link AllPairsSimilarity#topK(Matrix, int, boolean)}
+	 */
+	public Matrix[] topK(final int k, final int searchK, final boolean excludeSelf) {
+		return query(new RowSource() {
+			public int getRowCount() {
+				return n;
+			}
+
+			public void getRow(int row, double[] buffer) {
+				System.arraycopy(x, row * d, buffer, 0, d);
+			}
+
+			public Filter getFilter(final int row) {
+				return excludeSelf ? new Filter() {
+					public boolean accept(int candidate) {
+						return candidate != row;
+					}
+				} : null;
+			}
+		}, k, searchK);
+	}
+
+	/**
+	 * Finds approximately the k most similar or nearest rows of the index for
+	 * each row of the queries.
+	 */
+	public Matrix[] topK(final Matrix queries, int k, int searchK) {
+		if (queries.getColumnCount() != d) {
+			throw new IllegalArgumentException("queries must have " + d + " columns");
+		}
+		final double[] q = AllPairsSimilarity.toRowMajor(queries);
+		return query(new RowSource() {
+			public int getRowCount() {
+				return MathUtil.longToInt(queries.getRowCount());
+			}
+
+			public void getRow(int row, double[] buffer) {
+				System.arraycopy(q, row * d, buffer, 0, d);
+			}
+
+			public Filter getFilter(int row) {
+				return null;
+			}
+		}, k, searchK);
+	}
+
+	/**
+	 * Finds approximately the k most similar or nearest rows to a vector.
+	 * 
+	 * @param filter
+	 *            rows which are not accepted are skipped and do not count as
+	 *            candidates, may be null
+	 * @param indices
+	 *            receives the indices ordered from the best to the worst
+	 * @param values
+	 *            receives the similarities or distances, may be null
+	 * @return the number of rows found, which is less than k only if fewer
+	 *         rows are accepted by the filter
+	 */
+	public int query(double[] vector, int k, int searchK, Filter filter, int[] indices,
+			double[] values) {
+		if (vector.length != d) {
+			throw new IllegalArgumentException("vector must have " + d + " entries");
+		}
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be positive");
+		}
+		if (searchK <= 0) {
+			searchK = k * roots.length;
+		}
+		searchK = Math.max(searchK, k);
+
+		final double[] point = new double[d];
+		for (int f = 0; f < d; f++) {
+			point[f] = MathUtil.isNaNOrInfinite(vector[f]) ? means[f] : vector[f];
+		}
+		if (measure.getMeasure() == AllPairsSimilarity.Measure.COSINE) {
+			normalize(point, 0);
+		}
+
+		final double sign = measure.isDistance() ? -1.0 : 1.0;
+		final AllPairsSimilarity.TopK best = new AllPairsSimilarity.TopK(k);
+		final BitSet visited = new BitSet(n);
+		final PriorityQueue<Branch> queue = new PriorityQueue<Branch>();
+		for (Node root : roots) {
+			queue.add(new Branch(root, Double.POSITIVE_INFINITY));
+		}
+		int candidates = 0;
+		while (candidates < searchK && !queue.isEmpty()) {
+			final Branch branch = queue.poll();
+			final Node node = branch.node;
+			if (node.rows != null) {
+				for (int row : node.rows) {
+					if (!visited.get(row)) {
+						visited.set(row);
+						if (filter == null || filter.accept(row)) {
+							final double value = measure.calc(vector, 0, x, row * d, d);
+							if (!Double.isNaN(value)) {
+								best.offer(row, sign * value);
+							}
+							candidates++;
+						}
+					}
+				}
+			} else {
+				final double margin = node.margin(point);
+				queue.add(new Branch(node.right, Math.min(branch.priority, margin)));
+				queue.add(new Branch(node.left, Math.min(branch.priority, -margin)));
+			}
+		}
+
+		best.sort();
+		for (int i = 0; i < best.size; i++) {
+			indices[i] = best.index[i];
+			if (values != null) {
+				values[i] = sign * best.key[i];
+			}
+		}
+		return best.size;
+	}
+
+	/**
+	 * Finds approximately the k most similar or nearest rows to a row of the
+	 * index, see {@link #query(double[], int, int, Filter, int[], double[])}.
+	 */
+	public int query(int row, int k, int searchK, Filter filter, int[] indices, double[] values) {
+		final double[] vector = new double[d];
+		System.arraycopy(x, row * d, vector, 0, d);
+		return query(vector, k, searchK, filter, indices, values);
+	}
+
+	private Matrix[] query(final RowSource source, final int k, final int searchK) {
+		final int rows = source.getRowCount();
+		final double[] indices = new double[rows * k];
+		final double[] values = new double[rows * k];
+		new PFor(getThreadCount(), 0, rows - 1) {
+			public void step(int row) {
+				final double[] vector = new double[d];
+				final int[] found = new int[k];
+				final double[] foundValues = new double[k];
+				source.getRow(row, vector);
+				final int count = query(vector, k, searchK, source.getFilter(row), found,
+						foundValues);
+				for (int j = 0; j < k; j++) {
+					indices[j * rows + row] = j < count ? found[j] : -1;
+					values[j * rows + row] = j < count ? foundValues[j] : Double.NaN;
+				}
+			}
+		};
+		return new Matrix[] { new DefaultDenseDoubleMatrix2D(indices, rows, k),
+				new DefaultDenseDoubleMatrix2D(values, rows, k) };
+	}
+
+	private double[] fill() {
+		final int[] counts = new int[d];
+		for (int i = 0; i < n; i++) {
+			for (int f = 0; f < d; f++) {
+				final double v = x[i * d + f];
+				if (!MathUtil.isNaNOrInfinite(v)) {
+					means[f] += v;
+					counts[f]++;
+				}
+			}
+		}
+		for (int f = 0; f < d; f++) {
+			means[f] = counts[f] == 0 ? 0.0 : means[f] / counts[f];
+		}
+		final double[] filled = new double[n * d];
+		for (int i = 0; i < n * d; i++) {
+			filled[i] = MathUtil.isNaNOrInfinite(x[i]) ? means[i % d] : x[i];
+		}
+		if (measure.getMeasure() == AllPairsSimilarity.Measure.COSINE) {
+			// split by angle instead of position
+			for (int i = 0; i < n; i++) {
+				normalize(filled, i * d);
+			}
+		}
+		return filled;
+	}
+
+	private void normalize(double[] values, int offset) {
+		double sum = 0.0;
+		for (int f = 0; f < d; f++) {
+			sum += values[offset + f] * values[offset + f];
+		}
+		final double norm = Math.sqrt(sum);
+		if (norm > 0.0) {
+			for (int f = 0; f < d; f++) {
+				values[offset + f] /= norm;
+			}
+		}
+	}
+
+	/**
+	 * Splits rows[first..last-1] recursively, reordering the array in place
+	 */
+	private Node build(int[] rows, int first, int last, int leafSize, Random random) {
+		final int count = last - first;
+		if (count <= leafSize) {
+			final Node leaf = new Node();
+			leaf.rows = new int[count];
+			System.arraycopy(rows, first, leaf.rows, 0, count);
+			return leaf;
+		}
+
+		final int a = rows[first + random.nextInt(count)];
+		int b = rows[first + random.nextInt(count - 1)];
+		if (b == a) {
+			b = rows[last - 1];
+		}
+		final Node node = new Node();
+		node.normal = new double[d];
+		double offset = 0.0;
+		for (int f = 0; f < d; f++) {
+			final double va = filled[a * d + f];
+			final double vb = filled[b * d + f];
+			node.normal[f] = va - vb;
+			offset += (va - vb) * (va + vb) / 2.0;
+		}
+		node.offset = offset;
+
+		// partition: rows with a positive margin go to the right
+		int split = first;
+		for (int i = first; i < last; i++) {
+			if (node.margin(filled, rows[i] * d) <= 0.0) {
+				final int tmp = rows[split];
+				rows[split++] = rows[i];
+				rows[i] = tmp;
+			}
+		}
+		if (split == first || split == last) {
+			// identical rows, split at random to keep the tree balanced
+			for (int i = last - 1; i > first; i--) {
+				final int j = first + random.nextInt(i - first + 1);
+				final int tmp = rows[i];
+				rows[i] = rows[j];
+				rows[j] = tmp;
+			}
+			split = first + count / 2;
+			node.normal = new double[d];
+			node.offset = random.nextBoolean() ? Double.MIN_VALUE : -Double.MIN_VALUE;
+		}
+		node.left = build(rows, first, split, leafSize, random);
+		node.right = build(rows, split, last, leafSize, random);
+		return node;
+	}
+
+	private static int getThreadCount() {
+		return UJMPSettings.getInstance().getNumberOfThreads();
+	}
+
+	private interface RowSource {
+		public int getRowCount();
+
+		public void getRow(int row, double[] buffer);
+
+		public Filter getFilter(int row);
+	}
+
+	private final class Node {
+
+		private double[] normal;
+
+		private double offset;
+
+		private Node left;
+
+		private Node right;
+
+		/**
+		 * The rows of a leaf, null for inner nodes
+		 */
+		private int[] rows;
+
+		public double margin(double[] point) {
+			return margin(point, 0);
+		}
+
+		public double margin(double[] values, int offset) {
+			double sum = -this.offset;
+			for (int f = 0; f < d; f++) {
+				sum += normal[f] * values[offset + f];
+			}
+			return sum;
+		}
+	}
+
+	private static final class Branch implements Comparable<Branch> {
+
+		private final Node node;
+
+		private final double priority;
+
+		public Branch(Node node, double priority) {
+			this.node = node;
+			this.priority = priority;
+		}
+
+		public int compareTo(Branch o) {
+			return Double.compare(o.priority, priority);
+		}
+	}
+
+}
@@ -25,6 +25,7 @@ package org.ujmp.core.doublematrix.calculation.general.missingvalues;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.general.statistical.SparseAggregation;
 import org.ujmp.core.util.MathUtil;
 
 public class CountMissing extends AbstractDoubleCalculation {
@@ -34,6 +35,22 @@ public class CountMissing extends AbstractDoubleCalculation {
 		super(dimension, matrix);
 	}
 
+	public Matrix calcNew() {
+		if (!SparseAggregation.isSupported(getSource(), getDimension())) {
+			return super.calcNew();
+		}
+		// implicit zeros are never missing
+		final SparseAggregation aggregation = new SparseAggregation(getSource(), getDimension()) {
+			protected void aggregate(int index, int position, double value) {
+				if (MathUtil.isNaNOrInfinite(value)) {
+					results[index]++;
+				}
+			}
+		};
+		aggregation.run();
+		return aggregation.toMatrix();
+	}
+
 	public double getDouble(long... coordinates) {
 		double sum = 0;
 		switch (getDimension()) {
@@ -23,205 +23,376 @@
 
 package org.ujmp.core.doublematrix.calculation.general.missingvalues;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.Arrays;
 
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.BlockedDecomposition;
+import org.ujmp.core.doublematrix.calculation.general.iterative.ConvergenceMonitor;
 import org.ujmp.core.doublematrix.calculation.general.missingvalues.Impute.ImputationMethod;
+import org.ujmp.core.doublematrix.calculation.general.statistical.CovarianceAccumulator;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
 import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.UJMPSettings;
-
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Imputes missing values by regressing every column with missing values on all
+ * other columns, starting from the row means. In every iteration the
+ * predictions are blended into the current guess with a weight of 1 - decay
+ * until the change per missing value, measured by the monitor, is small
+ * enough.
+ * <P>
+ * The regression of column c on the others including a bias follows from the
+ * inverse of the Gram matrix G of the centred columns and the bias, restricted
+ * to the rows where c is known: b = -inv(G)(:,c) / inv(G)(c,c). G is computed
+ * and factorized once per iteration. For columns with few missing values, the
+ * rows with missing values are removed from the factor with rank-one Cholesky
+ * downdates. Otherwise, their outer products are subtracted from G with a
+ * matrix multiplication and the result is factorized again. A small ridge
+ * keeps G positive definite if columns are collinear. The columns are
+ * processed in parallel on the shared thread pool.
+ */
 public class ImputeEM extends AbstractDoubleCalculation {
 	private static final long serialVersionUID = -1272010036598212696L;
 
-	private Matrix bestGuess = null;
+	public static final double DEFAULT_DELTA = 1e-6;
 
-	private Matrix imputed = null;
+	/**
+	 * Ridge relative to the mean of the diagonal of the Gram matrix
+	 */
+	private static final double RIDGE = 1e-10;
+
+	private Matrix bestGuess = null;
 
-	private double delta = 1e-6;
+	private double[] imputed = null;
 
 	private final double decay = 0.66;
 
-	private File tempFile;
+	private transient ConvergenceMonitor monitor;
 
-	public ImputeEM(Matrix matrix) throws IOException {
+	public ImputeEM(Matrix matrix) {
 		this(matrix, null);
 	}
 
-	public ImputeEM(Matrix matrix, Matrix firstGuess) throws IOException {
-		this(matrix, firstGuess, 1e-6, File.createTempFile(
-				"ujmp-impute-em-" + System.currentTimeMillis(), ".csv"));
+	public ImputeEM(Matrix matrix, Matrix firstGuess) {
+		this(matrix, firstGuess, DEFAULT_DELTA);
 	}
 
-	public ImputeEM(Matrix matrix, Matrix firstGuess, double delta, File tempFile) {
+	public ImputeEM(Matrix matrix, Matrix firstGuess, double delta) {
+		this(matrix, firstGuess, new ConvergenceMonitor(delta,
+				ConvergenceMonitor.DEFAULT_MAXITERATIONS));
+	}
+
+	/**
+	 * @param monitor
+	 *            receives the root of the summed squared changes of the
+	 *            missing values divided by their number after each iteration
+	 *            and decides when to stop. Override
+	 *            {@link ConvergenceMonitor#iterationDone(int, double)} to
+	 *            report the progress.
+	 */
+	public ImputeEM(Matrix matrix, Matrix firstGuess, ConvergenceMonitor monitor) {
 		super(matrix);
 		this.bestGuess = firstGuess;
-		this.delta = delta;
-		this.tempFile = tempFile;
+		this.monitor = monitor;
 	}
 
-	public double getDouble(long... coordinates) {
-		if (imputed == null) {
-			createMatrix();
-		}
+	public final ConvergenceMonitor getMonitor() {
+		return monitor;
+	}
+
+	public synchronized double getDouble(long... coordinates) {
 		double v = getSource().getAsDouble(coordinates);
 		if (MathUtil.isNaNOrInfinite(v)) {
-			return imputed.getAsDouble(coordinates);
+			if (imputed == null) {
+				createMatrix();
+			}
+			final long rows = getSource().getRowCount();
+			return imputed[MathUtil.longToInt(coordinates[COLUMN] * rows + coordinates[ROW])];
 		} else {
 			return v;
 		}
 	}
 
-	private void createMatrix() {
-		try {
-			ExecutorService executor = Executors.newFixedThreadPool(UJMPSettings.getInstance()
-					.getNumberOfThreads());
-
-			Matrix x = getSource();
-
-			double valueCount = x.getValueCount();
-			long missingCount = (long) x.countMissing(Ret.NEW, Matrix.ALL).getEuklideanValue();
-			double percent = ((int) Math.round((missingCount * 1000.0 / valueCount))) / 10.0;
-			System.out.println("missing values: " + missingCount + " (" + percent + "%)");
-			System.out.println("============================================");
-
-			if (bestGuess == null) {
-				bestGuess = getSource().impute(Ret.NEW, ImputationMethod.RowMean);
-			}
-
-			int run = 0;
-			double d;
-			do {
-				System.out.println("Iteration " + run++);
-
-				List<Future<Long>> futures = new ArrayList<Future<Long>>();
-
-				imputed = Matrix.Factory.zeros(x.getSize());
-
-				long t0 = System.currentTimeMillis();
+	public synchronized Matrix calcNew() {
+		if (imputed == null) {
+			createMatrix();
+		}
+		final Matrix result = new DefaultDenseDoubleMatrix2D(imputed.clone(),
+				MathUtil.longToInt(getSource().getRowCount()), MathUtil.longToInt(getSource()
+						.getColumnCount()));
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
 
-				for (long c = 0; c < x.getColumnCount(); c++) {
-					if (containsMissingValues(c)) {
-						futures.add(executor.submit(new PredictColumn(c)));
-					}
-				}
+	private void createMatrix() {
+		final Matrix source = getSource();
+		final int n = MathUtil.longToInt(source.getRowCount());
+		final int d = MathUtil.longToInt(source.getColumnCount());
 
-				for (Future<Long> f : futures) {
-					Long completedCols = f.get();
-					long elapsedTime = System.currentTimeMillis() - t0;
-					long remainingCols = x.getColumnCount() - completedCols;
-					double colsPerMillisecond = (double) (completedCols + 1) / (double) elapsedTime;
-					long remainingTime = (long) (remainingCols / colsPerMillisecond / 1000.0);
-					System.out.println((completedCols * 1000 / x.getColumnCount() / 10.0)
-							+ "% completed (" + remainingTime + " seconds remaining)");
+		if (bestGuess == null) {
+			bestGuess = source.impute(Ret.NEW, ImputationMethod.RowMean);
+		}
+		final double[] x = BlockedDecomposition.toColumnMajorArray(bestGuess);
+
+		// rows with missing values for each column
+		final int[][] missing = new int[d][];
+		long missingCount = 0;
+		final int[] buffer = new int[n];
+		for (int c = 0; c < d; c++) {
+			int count = 0;
+			for (int r = 0; r < n; r++) {
+				if (MathUtil.isNaNOrInfinite(source.getAsDouble(r, c))) {
+					buffer[count++] = r;
+				} else {
+					x[c * n + r] = source.getAsDouble(r, c);
 				}
+			}
+			missing[c] = Arrays.copyOf(buffer, count);
+			missingCount += count;
+		}
 
-				Matrix newBestGuess = bestGuess.times(decay).plus(imputed.times(1 - decay));
-
-				for (int r = 0; r < getSource().getRowCount(); r++) {
-					for (int c = 0; c < getSource().getColumnCount(); c++) {
-						double value = getSource().getAsDouble(r, c);
-						if (!MathUtil.isNaNOrInfinite(value)) {
-							newBestGuess.setAsDouble(value, r, c);
+		if (monitor == null) {
+			monitor = new ConvergenceMonitor(DEFAULT_DELTA, ConvergenceMonitor.DEFAULT_MAXITERATIONS);
+		}
+		if (missingCount > 0 && !monitor.start(1.0, Double.MAX_VALUE)) {
+			final double[][] predicted = new double[d][];
+			for (int iteration = 1;; iteration++) {
+				final Regression regression = new Regression(x, n, d);
+				new PFor(UJMPSettings.getInstance().getNumberOfThreads(), 0, d - 1) {
+					public void step(int c) {
+						if (missing[c].length > 0) {
+							predicted[c] = regression.predict(c, missing[c]);
 						}
 					}
+				};
+
+				double sum = 0.0;
+				for (int c = 0; c < d; c++) {
+					final int offset = c * n;
+					for (int i = 0; i < missing[c].length; i++) {
+						final int pos = offset + missing[c][i];
+						final double value = decay * x[pos] + (1 - decay) * predicted[c][i];
+						sum += (value - x[pos]) * (value - x[pos]);
+						x[pos] = value;
+					}
 				}
 
-				d = newBestGuess.euklideanDistanceTo(bestGuess, true) / missingCount;
-				System.out.println("delta: " + d);
-				System.out.println("============================================");
-
-				bestGuess = newBestGuess;
-				bestGuess.exportTo().file(tempFile).asDenseCSV();
-
-			} while (delta < d);
-
-			executor.shutdown();
-
-			imputed = bestGuess;
+				if (monitor.isFinished(iteration, Math.sqrt(sum) / missingCount)) {
+					break;
+				}
+			}
+		}
 
-			if (imputed.containsMissingValues()) {
+		for (double v : x) {
+			if (MathUtil.isNaNOrInfinite(v)) {
 				throw new RuntimeException("Matrix has still missing values after imputation");
 			}
-
-		} catch (Exception e) {
-			throw new RuntimeException(e);
 		}
+		imputed = x;
 	}
 
-	private boolean containsMissingValues(long c) {
-		for (int r = 0; r < getSource().getRowCount(); r++) {
-			if (MathUtil.isNaNOrInfinite(getSource().getAsDouble(r, c))) {
-				return true;
+	/**
+	 * Regressions of the columns of the current guess on all other columns
+	 */
+	private static final class Regression {
+
+		private final double[] x;
+
+		private final int n;
+
+		private final int d;
+
+		/**
+		 * Size of the Gram matrix including the bias
+		 */
+		private final int size;
+
+		private final double[] mean;
+
+		/**
+		 * Gram matrix of the centred columns and the bias, column-major
+		 */
+		private final double[] gram;
+
+		private final double ridge;
+
+		/**
+		 * Cholesky factor of the Gram matrix plus ridge over all rows
+		 */
+		private final double[] factor;
+
+		public Regression(double[] x, int n, int d) {
+			this.x = x;
+			this.n = n;
+			this.d = d;
+			this.size = d + 1;
+
+			final CovarianceAccumulator accumulator = CovarianceAccumulator
+					.accumulate(new DefaultDenseDoubleMatrix2D(x, n, d));
+			final Matrix mean = accumulator.getMean();
+			final Matrix covariance = accumulator.getCovariance(false);
+			this.mean = new double[d];
+			this.gram = new double[size * size];
+			double trace = n;
+			for (int j = 0; j < d; j++) {
+				this.mean[j] = mean.getAsDouble(0, j);
+				for (int i = 0; i < d; i++) {
+					gram[j * size + i] = n * covariance.getAsDouble(i, j);
+				}
+				trace += gram[j * size + j];
 			}
+			// the centred columns sum to zero
+			gram[size * size - 1] = n;
+			this.ridge = Math.max(RIDGE * trace / size, Double.MIN_NORMAL);
+			this.factor = factorize(gram.clone());
 		}
-		return false;
-	}
 
-	class PredictColumn implements Callable<Long> {
-
-		long column = 0;
-
-		public PredictColumn(long column) {
-			this.column = column;
-		}
+		/**
+		 * Predicts the values of column c in the given rows from the other
+		 * columns, using the remaining rows for training
+		 */
+		public double[] predict(int c, int[] rows) {
+			double[] l = null;
+			if (rows.length <= size / 3) {
+				l = factor.clone();
+				final double[] v = new double[size];
+				for (int r : rows) {
+					if (!downdate(l, centred(r, v))) {
+						l = null;
+						break;
+					}
+				}
+			}
+			if (l == null) {
+				l = factorize(trainingGram(rows));
+			}
 
-		public Long call() throws Exception {
-			Matrix newColumn = replaceInColumn(getSource(), bestGuess, column);
-			synchronized (imputed) {
-				for (int r = 0; r < newColumn.getRowCount(); r++) {
-					imputed.setAsDouble(newColumn.getAsDouble(r, 0), r, column);
+			// the regression coefficients are proportional to inv(G)(:,c)
+			final double[] e = new double[size];
+			e[c] = 1.0;
+			final double[] p = BlockedDecomposition.cholSolve(l, size, e, 1);
+			final double[] result = new double[rows.length];
+			for (int i = 0; i < rows.length; i++) {
+				final int r = rows[i];
+				double sum = -p[d];
+				for (int j = 0; j < d; j++) {
+					if (j != c) {
+						sum -= p[j] * (x[j * n + r] - mean[j]);
+					}
 				}
+				result[i] = mean[c] + sum / p[c];
 			}
-			return column;
+			return result;
 		}
 
-	}
-
-	private static Matrix replaceInColumn(Matrix original, Matrix firstGuess, long column) {
+		private double[] centred(int r, double[] v) {
+			for (int j = 0; j < d; j++) {
+				v[j] = x[j * n + r] - mean[j];
+			}
+			v[d] = 1.0;
+			return v;
+		}
 
-		Matrix x = firstGuess.deleteColumns(Ret.NEW, column);
-		Matrix y = original.selectColumns(Ret.NEW, column);
+		/**
+		 * Gram matrix of all rows except the given ones
+		 */
+		private double[] trainingGram(int[] excluded) {
+			final boolean subtract = excluded.length <= n - excluded.length;
+			final int[] rows;
+			if (subtract) {
+				rows = excluded;
+			} else {
+				rows = new int[n - excluded.length];
+				int count = 0;
+				int next = 0;
+				for (int r = 0; r < n; r++) {
+					if (next < excluded.length && excluded[next] == r) {
+						next++;
+					} else {
+						rows[count++] = r;
+					}
+				}
+			}
 
-		List<Long> missingRows = new ArrayList<Long>();
-		for (long i = y.getRowCount(); --i >= 0;) {
-			double v = y.getAsDouble(i, 0);
-			if (MathUtil.isNaNOrInfinite(v)) {
-				missingRows.add(i);
+			// V' is stored with one row per column, which is V in row-major
+			final int m = rows.length;
+			final double[] vt = new double[size * m];
+			final double[] v = new double[m * size];
+			final double[] row = new double[size];
+			for (int i = 0; i < m; i++) {
+				centred(rows[i], row);
+				for (int j = 0; j < size; j++) {
+					vt[i * size + j] = row[j];
+					v[j * m + i] = row[j];
+				}
 			}
+			final DefaultDenseDoubleMatrix2D product = new DefaultDenseDoubleMatrix2D(size, size);
+			Matrix.mtimes.calc(new DefaultDenseDoubleMatrix2D(vt, size, m),
+					new DefaultDenseDoubleMatrix2D(v, m, size), product);
+			final double[] outer = product.getColumnMajorDoubleArray1D();
+
+			final double[] result = subtract ? gram.clone() : new double[size * size];
+			final double sign = subtract ? -1.0 : 1.0;
+			for (int i = 0; i < result.length; i++) {
+				result[i] += sign * outer[i];
+			}
+			return result;
 		}
 
-		if (missingRows.isEmpty()) {
-			return y;
+		/**
+		 * Cholesky factor of a symmetric matrix plus the ridge. The ridge is
+		 * increased until the matrix is positive definite.
+		 */
+		private double[] factorize(double[] a) {
+			// the lower triangle is mirrored, chol() expects exact symmetry
+			for (int j = 0; j < size; j++) {
+				for (int i = j + 1; i < size; i++) {
+					a[i * size + j] = a[j * size + i];
+				}
+			}
+			for (double r = ridge;; r *= 10.0) {
+				final double[] l = a.clone();
+				for (int i = 0; i < size; i++) {
+					l[i * size + i] += r;
+				}
+				if (BlockedDecomposition.chol(l, size)) {
+					return l;
+				} else if (MathUtil.isNaNOrInfinite(r)) {
+					throw new RuntimeException("cannot factorize Gram matrix");
+				}
+			}
 		}
 
-		Matrix xdel = x.deleteRows(Ret.NEW, missingRows);
-		DenseDoubleMatrix2D bias1 = DenseDoubleMatrix2D.Factory.ones(xdel.getRowCount(), 1);
-		Matrix xtrain = Matrix.Factory.horCat(xdel, bias1);
-		Matrix ytrain = y.deleteRows(Ret.NEW, missingRows);
-
-		Matrix xinv = xtrain.pinv();
-		Matrix b = xinv.mtimes(ytrain);
-		DenseDoubleMatrix2D bias2 = DenseDoubleMatrix2D.Factory.ones(x.getRowCount(), 1);
-		Matrix yPredicted = Matrix.Factory.horCat(x, bias2).mtimes(b);
-
-		// set non-missing values back to original values
-		for (int row = 0; row < y.getRowCount(); row++) {
-			double v = y.getAsDouble(row, 0);
-			if (!Double.isNaN(v)) {
-				yPredicted.setAsDouble(v, row, 0);
+		/**
+		 * Replaces the Cholesky factor L of A with the factor of A - v*v'. v
+		 * is overwritten.
+		 * 
+		 * @return false if A - v*v' is not positive definite
+		 */
+		private boolean downdate(double[] l, double[] v) {
+			for (int k = 0; k < size; k++) {
+				final int kOffset = k * size;
+				final double lkk = l[kOffset + k];
+				final double r2 = lkk * lkk - v[k] * v[k];
+				if (!(r2 > 0.0)) {
+					return false;
+				}
+				final double r = Math.sqrt(r2);
+				final double cos = r / lkk;
+				final double sin = v[k] / lkk;
+				l[kOffset + k] = r;
+				for (int i = k + 1; i < size; i++) {
+					final double lik = (l[kOffset + i] - sin * v[i]) / cos;
+					l[kOffset + i] = lik;
+					v[i] = cos * v[i] - sin * lik;
+				}
 			}
+			return true;
 		}
-
-		return yPredicted;
 	}
 
 }
@@ -23,91 +23,110 @@
 
 package org.ujmp.core.doublematrix.calculation.general.missingvalues;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.doublematrix.calculation.general.misc.AllPairsSimilarity;
+import org.ujmp.core.doublematrix.calculation.general.misc.RandomProjectionForest;
 import org.ujmp.core.util.MathUtil;
-import org.ujmp.core.util.Sortable;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
 
+/**
+ * Replaces missing values with the mean of the k nearest rows which contain a
+ * value in that column. The distance is the Euclidean distance over the columns
+ * where both rows have values. The neighbours are searched with a
+ * {@link RandomProjectionForest}, the optional parameters after k are the
+ * number of trees, the number of candidates to compare (0 for the default) and
+ * the seed of the forest. The search is approximate, with the default seed the
+ * result is the same in every run.
+ */
 public class ImputeKNN extends AbstractDoubleCalculation {
 	private static final long serialVersionUID = -4923873199518001578L;
 
-	private Matrix distanceMatrix = null;
+	public static final long DEFAULT_SEED = 0;
+
+	private transient RandomProjectionForest index = null;
 
 	private int k = 1;
 
+	private int trees = RandomProjectionForest.DEFAULT_TREES;
+
+	private int searchK = 0;
+
+	private long seed = DEFAULT_SEED;
+
 	public ImputeKNN(Matrix matrix, Object... parameters) {
 		super(matrix);
-		if (parameters.length != 0) {
+		if (parameters.length > 0) {
 			k = MathUtil.getInt(parameters[0]);
 		}
-	}
-
-	private List<Integer> getCandidates(long... coordinates) {
-		List<Integer> candidates = new ArrayList<Integer>();
-		for (int r = 0; r < getSource().getRowCount(); r++) {
-			if (coordinates[ROW] == r) {
-				continue;
-			}
-			if (!MathUtil.isNaNOrInfinite(getSource().getAsDouble(r, coordinates[COLUMN]))) {
-				candidates.add(r);
-			}
+		if (parameters.length > 1) {
+			trees = MathUtil.getInt(parameters[1]);
+		}
+		if (parameters.length > 2) {
+			searchK = MathUtil.getInt(parameters[2]);
+		}
+		if (parameters.length > 3) {
+			seed = MathUtil.getLong(parameters[3]);
 		}
-		return candidates;
 	}
 
-	private Matrix getDistanceMatrix() {
-		Matrix distanceMatrix = Matrix.Factory.zeros(getSource().getRowCount(), getSource()
-				.getRowCount());
-		for (int r = 0; r < getSource().getRowCount(); r++) {
-			for (int c = 0; c < getSource().getRowCount(); c++) {
-				if (r != c) {
-					Matrix m1 = getSource().selectRows(Ret.LINK, r);
-					Matrix m2 = getSource().selectRows(Ret.LINK, c);
-					double dist = m1.euklideanDistanceTo(m2, true);
-					distanceMatrix.setAsDouble(dist, r, c);
-				}
-			}
+	private synchronized RandomProjectionForest getIndex() {
+		if (index == null) {
+			index = new RandomProjectionForest(getSource(),
+					AllPairsSimilarity.minkowski(2, true), trees,
+					RandomProjectionForest.DEFAULT_LEAFSIZE, seed);
 		}
-		return distanceMatrix;
+		return index;
 	}
 
-	private List<Sortable<Double, Matrix>> getSortedNeighbors(long... coordinates) {
-		List<Sortable<Double, Matrix>> neighbors = new ArrayList<Sortable<Double, Matrix>>();
-		List<Integer> candidates = getCandidates(coordinates);
-
-		for (int candidateRow : candidates) {
-			double dist = distanceMatrix.getAsDouble(coordinates[ROW], candidateRow);
-			Matrix candidate = getSource().selectRows(Ret.LINK, candidateRow);
-			neighbors.add(new Sortable<Double, Matrix>(dist, candidate));
+	private double impute(final int row, final int column, int[] neighbors) {
+		final Matrix source = getSource();
+		final int count = getIndex().query(row, k, searchK,
+				new RandomProjectionForest.Filter() {
+					public boolean accept(int candidate) {
+						return candidate != row
+								&& !MathUtil.isNaNOrInfinite(source.getAsDouble(candidate, column));
+					}
+				}, neighbors, null);
+		double sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += source.getAsDouble(neighbors[i], column);
 		}
-
-		Collections.sort(neighbors);
-		return neighbors;
+		return sum / count;
 	}
 
 	public double getDouble(long... coordinates) {
-		if (distanceMatrix == null) {
-			distanceMatrix = getDistanceMatrix();
-		}
 		double value = getSource().getAsDouble(coordinates);
 		if (MathUtil.isNaNOrInfinite(value)) {
-			List<Sortable<Double, Matrix>> sortedNeighbors = getSortedNeighbors(coordinates);
-			double sum = 0;
-			int count = 0;
-			for (Sortable<Double, Matrix> s : sortedNeighbors) {
-				sum += s.getObject().getAsDouble(0, coordinates[COLUMN]);
-				if (++count == k) {
-					break;
-				}
-			}
-			return sum / count;
+			return impute(MathUtil.longToInt(coordinates[ROW]),
+					MathUtil.longToInt(coordinates[COLUMN]), new int[k]);
 		} else {
 			return value;
 		}
 	}
 
+	public Matrix calcNew() {
+		final Matrix source = getSource();
+		final int rows = MathUtil.longToInt(source.getRowCount());
+		final int cols = MathUtil.longToInt(source.getColumnCount());
+		final DenseDoubleMatrix2D result = DoubleMatrix2D.Factory.zeros(rows, cols);
+		new PFor(UJMPSettings.getInstance().getNumberOfThreads(), 0, rows - 1) {
+			public void step(int r) {
+				final int[] neighbors = new int[k];
+				for (int c = 0; c < cols; c++) {
+					final double value = source.getAsDouble(r, c);
+					result.setDouble(MathUtil.isNaNOrInfinite(value) ? impute(r, c, neighbors)
+							: value, r, c);
+				}
+			}
+		};
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 }
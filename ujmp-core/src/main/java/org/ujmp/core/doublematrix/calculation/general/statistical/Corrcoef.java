@@ -108,4 +108,25 @@ public class Corrcoef extends AbstractDoubleCalculation {
 		return new long[] { getSource().getColumnCount(), getSource().getColumnCount() };
 	}
 
+	/**
+	 * Calculates all entries at once from the Gram matrix of the centred
+	 * source, which is read in a single pass. Only if missing values have to be
+	 * ignored pairwise, each entry is calculated separately.
+	 */
+	public Matrix calcNew() {
+		if (ignoreNaN && getSource().containsMissingValues()) {
+			return super.calcNew();
+		}
+		final Matrix result = CovarianceAccumulator.accumulate(getSource()).getCorrelation();
+		if (ignoreNaN) {
+			for (int i = 0; i < result.getRowCount(); i++) {
+				result.setAsDouble(1.0, i, i);
+			}
+		}
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 }
@@ -104,7 +104,21 @@ public class Cov extends AbstractDoubleCalculation {
 		return size;
 	}
 
+	/**
+	 * Calculates all entries at once from the Gram matrix of the centred
+	 * source, which is read in a single pass. Only if missing values have to be
+	 * ignored pairwise, each entry is calculated separately.
+	 */
 	public Matrix calcNew() {
+		if (!ignoreNaN || !getSource().containsMissingValues()) {
+			final Matrix result = CovarianceAccumulator.accumulate(getSource()).getCovariance(
+					besselsCorrection);
+			if (getMetaData() != null) {
+				result.setMetaData(getMetaData().clone());
+			}
+			return result;
+		}
+
 		final int count = MathUtil.longToInt(getSize()[ROW]);
 
 		final Matrix result = DoubleMatrix2D.Factory.zeros(count, count);
@@ -0,0 +1,290 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.statistical;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+
+/**
+ * Accumulates the column means and the sums of squared deviations of a matrix
+ * in a single pass over its rows, from which the covariance and correlation
+ * matrices are derived. Rows can be added one at a time with Welford's update
+ * or in batches. A batch is centred at its own mean and its Gram matrix is
+ * computed with a matrix multiplication, then it is merged into the totals
+ * with the pairwise update of Chan, Golub and LeVeque. The same update merges
+ * two accumulators, so that separate threads can each process a part of the
+ * rows.
+ * <P>
+ * Since every row is read only once and never stored, the rows can come from
+ * matrices which are too large for memory or are read from a file. An
+ * accumulator is not thread-safe.
+ */
+public class CovarianceAccumulator {
+
+	/**
+	 * Number of rows which are centred and multiplied together
+	 */
+	public static final int BATCHSIZE = 1024;
+
+	/**
+	 * Minimum number of rows per thread in {@link #accumulate(Matrix)}
+	 */
+	private static final int ROWSPERTHREAD = 4 * BATCHSIZE;
+
+	private final int columns;
+
+	private long count = 0;
+
+	private final double[] mean;
+
+	/**
+	 * Sums of the products of the deviations from the mean, column-major
+	 */
+	private final double[] m2;
+
+	public CovarianceAccumulator(int columns) {
+		if (columns < 0) {
+			throw new IllegalArgumentException("number of columns must not be negative");
+		}
+		this.columns = columns;
+		this.mean = new double[columns];
+		this.m2 = new double[columns * columns];
+	}
+
+	/**
+	 * Calculates the accumulator for all rows of a matrix. Large matrices are
+	 * split into contiguous ranges of rows which are processed in parallel.
+	 */
+	public static CovarianceAccumulator accumulate(final Matrix source) {
+		final long rows = source.getRowCount();
+		final int columns = MathUtil.longToInt(source.getColumnCount());
+		final int threads = (int) Math.max(1,
+				Math.min(UJMPSettings.getInstance().getNumberOfThreads(), rows / ROWSPERTHREAD));
+		final CovarianceAccumulator[] parts = new CovarianceAccumulator[threads];
+		new PFor(threads, 0, threads - 1) {
+			public void step(int i) {
+				parts[i] = new CovarianceAccumulator(columns);
+				parts[i].add(source, rows * i / threads, rows * (i + 1) / threads);
+			}
+		};
+		for (int i = 1; i < threads; i++) {
+			parts[0].merge(parts[i]);
+		}
+		return parts[0];
+	}
+
+	public final int getColumnCount() {
+		return columns;
+	}
+
+	public final long getCount() {
+		return count;
+	}
+
+	/**
+	 * Adds a single row with Welford's update.
+	 */
+	public void add(double... row) {
+		if (row.length != columns) {
+			throw new IllegalArgumentException("row must have " + columns + " columns");
+		}
+		count++;
+		final double[] delta = new double[columns];
+		for (int j = 0; j < columns; j++) {
+			delta[j] = row[j] - mean[j];
+			mean[j] += delta[j] / count;
+		}
+		// M2 += (x - old mean) * (x - new mean)'
+		for (int j = 0; j < columns; j++) {
+			final double d = row[j] - mean[j];
+			final int offset = j * columns;
+			for (int i = 0; i < columns; i++) {
+				m2[offset + i] += delta[i] * d;
+			}
+		}
+	}
+
+	/**
+	 * Adds all rows of a matrix.
+	 */
+	public void add(Matrix rows) {
+		add(rows, 0, rows.getRowCount());
+	}
+
+	/**
+	 * Adds the rows from first (inclusive) to last (exclusive) of a matrix in
+	 * batches of {@link #BATCHSIZE} rows.
+	 */
+	public void add(Matrix source, long first, long last) {
+		if (source.getColumnCount() != columns) {
+			throw new IllegalArgumentException("matrix must have " + columns + " columns");
+		}
+		final long sourceRows = source.getRowCount();
+		double[] array = null;
+		if (source instanceof HasColumnMajorDoubleArray1D) {
+			array = ((HasColumnMajorDoubleArray1D) source).getColumnMajorDoubleArray1D();
+		}
+		for (long start = first; start < last; start += BATCHSIZE) {
+			final int b = (int) Math.min(BATCHSIZE, last - start);
+			final double[] x = new double[b * columns];
+			if (array != null) {
+				for (int j = 0; j < columns; j++) {
+					System.arraycopy(array, (int) (j * sourceRows + start), x, j * b, b);
+				}
+			} else {
+				for (int j = 0; j < columns; j++) {
+					final int offset = j * b;
+					for (int i = 0; i < b; i++) {
+						x[offset + i] = source.getAsDouble(start + i, j);
+					}
+				}
+			}
+			addBatch(x, b);
+		}
+	}
+
+	/**
+	 * Adds a batch of b rows which are stored in column-major order. The array
+	 * is overwritten.
+	 */
+	public void addBatch(double[] x, int b) {
+		if (b == 0) {
+			return;
+		}
+		if (x.length < b * columns) {
+			throw new IllegalArgumentException("array must contain " + b + " rows");
+		}
+		final double[] batchMean = new double[columns];
+		for (int j = 0; j < columns; j++) {
+			final int offset = j * b;
+			double sum = 0.0;
+			for (int i = 0; i < b; i++) {
+				sum += x[offset + i];
+			}
+			final double mj = sum / b;
+			batchMean[j] = mj;
+			for (int i = 0; i < b; i++) {
+				x[offset + i] -= mj;
+			}
+		}
+
+		// Gram matrix X'*X of the centred batch
+		final double[] xt = new double[columns * b];
+		for (int j = 0; j < columns; j++) {
+			final int offset = j * b;
+			for (int i = 0; i < b; i++) {
+				xt[i * columns + j] = x[offset + i];
+			}
+		}
+		final DefaultDenseDoubleMatrix2D gram = new DefaultDenseDoubleMatrix2D(columns, columns);
+		Matrix.mtimes.calc(new DefaultDenseDoubleMatrix2D(xt, columns, b),
+				new DefaultDenseDoubleMatrix2D(x, b, columns), gram);
+		merge(b, batchMean, gram.getColumnMajorDoubleArray1D());
+	}
+
+	/**
+	 * Adds the rows of another accumulator.
+	 */
+	public void merge(CovarianceAccumulator other) {
+		if (other.columns != columns) {
+			throw new IllegalArgumentException("accumulators must have the same number of columns");
+		}
+		merge(other.count, other.mean, other.m2);
+	}
+
+	private void merge(long otherCount, double[] otherMean, double[] otherM2) {
+		if (otherCount == 0) {
+			return;
+		}
+		final long total = count + otherCount;
+		final double factor = (double) count * otherCount / total;
+		final double[] delta = new double[columns];
+		for (int j = 0; j < columns; j++) {
+			delta[j] = otherMean[j] - mean[j];
+			mean[j] += delta[j] * otherCount / total;
+		}
+		// M2 = M2a + M2b + delta * delta' * na * nb / n
+		for (int j = 0; j < columns; j++) {
+			final int offset = j * columns;
+			final double dj = delta[j] * factor;
+			for (int i = 0; i < columns; i++) {
+				m2[offset + i] += otherM2[offset + i] + delta[i] * dj;
+			}
+		}
+		count = total;
+	}
+
+	/**
+	 * Returns the column means as 1-by-n matrix.
+	 */
+	public Matrix getMean() {
+		final double[] result = new double[columns];
+		for (int j = 0; j < columns; j++) {
+			result[j] = count == 0 ? Double.NaN : mean[j];
+		}
+		return new DefaultDenseDoubleMatrix2D(result, 1, columns);
+	}
+
+	/**
+	 * Returns the covariance matrix, divided by N-1 if besselsCorrection is
+	 * true and by N otherwise.
+	 */
+	public Matrix getCovariance(boolean besselsCorrection) {
+		final double div = besselsCorrection ? count - 1 : count;
+		final double[] result = new double[columns * columns];
+		for (int j = 0; j < columns; j++) {
+			final int offset = j * columns;
+			for (int i = 0; i < columns; i++) {
+				// symmetric in exact arithmetic, the average removes rounding
+				result[offset + i] = count == 0 ? Double.NaN
+						: (m2[offset + i] + m2[i * columns + j]) / (2.0 * div);
+			}
+		}
+		return new DefaultDenseDoubleMatrix2D(result, columns, columns);
+	}
+
+	/**
+	 * Returns the matrix of Pearson correlation coefficients.
+	 */
+	public Matrix getCorrelation() {
+		final double[] sd = new double[columns];
+		for (int j = 0; j < columns; j++) {
+			sd[j] = Math.sqrt(m2[j * columns + j]);
+		}
+		final double[] result = new double[columns * columns];
+		for (int j = 0; j < columns; j++) {
+			final int offset = j * columns;
+			for (int i = 0; i < columns; i++) {
+				result[offset + i] = count == 0 ? Double.NaN
+						: (m2[offset + i] + m2[i * columns + j]) / (2.0 * sd[i] * sd[j]);
+			}
+		}
+		return new DefaultDenseDoubleMatrix2D(result, columns, columns);
+	}
+
+}
@@ -23,8 +23,12 @@
 
 package org.ujmp.core.doublematrix.calculation.general.statistical;
 
+import java.util.Arrays;
+
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
+import org.ujmp.core.util.MathUtil;
 
 public class IndexOfMax extends AbstractDoubleCalculation {
 	private static final long serialVersionUID = 2656643557116576004L;
@@ -33,6 +37,41 @@ public class IndexOfMax extends AbstractDoubleCalculation {
 		super(dimension, matrix);
 	}
 
+	public Matrix calcNew() {
+		if (getDimension() == ALL || !SparseAggregation.isSupported(getSource(), getDimension())) {
+			return super.calcNew();
+		}
+		// like getDouble(), the largest index wins if there are equal values
+		final double[] best = new double[MathUtil.longToInt(getDimension() == ROW ? getSource()
+				.getColumnCount() : getSource().getRowCount())];
+		Arrays.fill(best, -Double.MAX_VALUE);
+		final SparseAggregation aggregation = new SparseAggregation(getSource(), getDimension()) {
+			{
+				Arrays.fill(results, -1);
+			}
+
+			protected void aggregate(int index, int position, double value) {
+				if (value > best[index]
+						|| (value == best[index] && results[index] >= 0 && position > results[index])) {
+					best[index] = value;
+					results[index] = position;
+				}
+			}
+		};
+		aggregation.run();
+		for (int i = 0; i < best.length; i++) {
+			// if zero is the best value, the last zero is the result
+			if (aggregation.getImplicitZeroCount(i) > 0 && 0.0 >= best[i]) {
+				aggregation.results[i] = aggregation.getLastZeroPosition(i);
+			}
+		}
+		final DenseDoubleMatrix2D result = aggregation.toMatrix();
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 	public double getDouble(long... coordinates) {
 		double max = -Double.MAX_VALUE;
 		long index = -1;
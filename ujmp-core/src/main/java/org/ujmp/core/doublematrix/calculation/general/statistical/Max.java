@@ -23,7 +23,11 @@
 
 package org.ujmp.core.doublematrix.calculation.general.statistical;
 
+import java.util.Arrays;
+
+import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
 import org.ujmp.core.mapmatrix.DefaultMapMatrix;
 import org.ujmp.core.mapmatrix.MapMatrix;
@@ -47,6 +51,36 @@ public class Max extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (!SparseAggregation.isSupported(getSource(), getDimension())) {
+			return super.calcNew();
+		}
+		final SparseAggregation aggregation = new SparseAggregation(getSource(), getDimension()) {
+			{
+				Arrays.fill(results, -Double.MAX_VALUE);
+			}
+
+			protected void aggregate(int index, int position, double value) {
+				if (value > results[index]) {
+					results[index] = value;
+				}
+			}
+		};
+		aggregation.run();
+		for (int i = 0; i < aggregation.results.length; i++) {
+			if (aggregation.getImplicitZeroCount(i) > 0 && aggregation.results[i] < 0.0) {
+				aggregation.results[i] = 0.0;
+			} else if (aggregation.results[i] == -Double.MAX_VALUE) {
+				aggregation.results[i] = Double.NaN;
+			}
+		}
+		final DenseDoubleMatrix2D result = aggregation.toMatrix();
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 	public double getDouble(long... coordinates) {
 		double max = -Double.MAX_VALUE;
 		switch (getDimension()) {
@@ -99,8 +133,13 @@ public class Max extends AbstractDoubleCalculation {
 	public static double calc(Matrix m) {
 		double max = -Double.MAX_VALUE;
 		double v = 0.0;
+		long count = 0;
 		for (long[] c : m.availableCoordinates()) {
 			max = (v = m.getAsDouble(c)) > max ? v : max;
+			count++;
+		}
+		if (m.isSparse() && count < Coordinates.product(m.getSize()) && max < 0.0) {
+			max = 0.0;
 		}
 		max = max == -Double.MAX_VALUE ? Double.NaN : max;
 		return max;
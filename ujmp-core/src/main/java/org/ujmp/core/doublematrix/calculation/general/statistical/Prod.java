@@ -23,7 +23,10 @@
 
 package org.ujmp.core.doublematrix.calculation.general.statistical;
 
+import java.util.Arrays;
+
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
 import org.ujmp.core.mapmatrix.DefaultMapMatrix;
 import org.ujmp.core.mapmatrix.MapMatrix;
@@ -51,6 +54,35 @@ public class Prod extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (!SparseAggregation.isSupported(getSource(), getDimension())) {
+			return super.calcNew();
+		}
+		final boolean ignoreNaN = this.ignoreNaN;
+		final SparseAggregation aggregation = new SparseAggregation(getSource(), getDimension()) {
+			{
+				Arrays.fill(results, 1.0);
+			}
+
+			protected void aggregate(int index, int position, double value) {
+				if (!ignoreNaN || !MathUtil.isNaNOrInfinite(value)) {
+					results[index] *= value;
+				}
+			}
+		};
+		aggregation.run();
+		for (int i = 0; i < aggregation.results.length; i++) {
+			if (aggregation.getImplicitZeroCount(i) > 0) {
+				aggregation.results[i] *= 0.0;
+			}
+		}
+		final DenseDoubleMatrix2D result = aggregation.toMatrix();
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 	public double getDouble(long... coordinates) {
 		double prod = 1;
 
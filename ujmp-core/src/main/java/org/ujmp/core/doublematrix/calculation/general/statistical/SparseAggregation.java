@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.calculation.general.statistical;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Aggregates the stored entries of a sparse matrix along ROW, COLUMN or ALL.
+ * Subclasses combine the values into {@link #results} in
+ * {@link #aggregate(int, int, double)}, this class counts the visited entries
+ * of every row or column, so that the implicit zeros can be taken into account
+ * afterwards without visiting them.
+ */
+public abstract class SparseAggregation implements DoubleMatrix2DVisitor {
+
+	private final int dimension;
+
+	private final long length;
+
+	private final long[] counts;
+
+	private final DoubleMatrix2D source;
+
+	/**
+	 * One result per column for ROW, per row for COLUMN or a single one for
+	 * ALL, initially zero
+	 */
+	protected final double[] results;
+
+	public SparseAggregation(Matrix source, int dimension) {
+		this.source = (DoubleMatrix2D) source;
+		this.dimension = dimension;
+		final long rows = source.getRowCount();
+		final long cols = source.getColumnCount();
+		switch (dimension) {
+		case Calculation.ROW:
+			length = rows;
+			counts = new long[MathUtil.longToInt(cols)];
+			break;
+		case Calculation.COLUMN:
+			length = cols;
+			counts = new long[MathUtil.longToInt(rows)];
+			break;
+		default:
+			length = rows * cols;
+			counts = new long[1];
+		}
+		results = new double[counts.length];
+	}
+
+	/**
+	 * Visits all stored entries of the source.
+	 */
+	public final void run() {
+		source.forEachAvailableDouble(this);
+	}
+
+	/**
+	 * @return true if the source is a sparse 2D matrix and the dimension is
+	 *         ROW, COLUMN or ALL
+	 */
+	public static boolean isSupported(Matrix source, int dimension) {
+		return source.isSparse() && source instanceof DoubleMatrix2D
+				&& source.getDimensionCount() == 2
+				&& (dimension == Calculation.ROW || dimension == Calculation.COLUMN
+						|| dimension == Calculation.ALL);
+	}
+
+	public final void visit(int row, int column, double value) {
+		final int index;
+		final int position;
+		switch (dimension) {
+		case Calculation.ROW:
+			index = column;
+			position = row;
+			break;
+		case Calculation.COLUMN:
+			index = row;
+			position = column;
+			break;
+		default:
+			index = 0;
+			position = -1;
+		}
+		counts[index]++;
+		aggregate(index, position, value);
+	}
+
+	/**
+	 * Combines a stored entry with the result at <code>index</code>.
+	 *
+	 * @param position
+	 *            row or column of the entry along the aggregated dimension, -1
+	 *            for ALL
+	 */
+	protected abstract void aggregate(int index, int position, double value);
+
+	/**
+	 * @return number of entries which are aggregated into every result
+	 */
+	public final long getLength() {
+		return length;
+	}
+
+	/**
+	 * @return number of entries aggregated into the result at
+	 *         <code>index</code> which are not stored
+	 */
+	public final long getImplicitZeroCount(int index) {
+		return length - counts[index];
+	}
+
+	/**
+	 * Finds the last zero in a row or column by scanning backwards from its
+	 * end, which is fast if the row or column is sparse. Only supported for
+	 * ROW and COLUMN.
+	 *
+	 * @return the largest row for ROW or column for COLUMN, in which the
+	 *         source is zero at the result with <code>index</code>, or -1
+	 */
+	public final int getLastZeroPosition(int index) {
+		for (int position = MathUtil.longToInt(length) - 1; position != -1; position--) {
+			final double value = dimension == Calculation.ROW ? source.getDouble(position, index)
+					: source.getDouble(index, position);
+			if (value == 0.0) {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return a dense row vector for ROW, a column vector for COLUMN or a
+	 *         scalar for ALL, which contains the results
+	 */
+	public final DenseDoubleMatrix2D toMatrix() {
+		final DenseDoubleMatrix2D result = dimension == Calculation.COLUMN ? DoubleMatrix2D.Factory
+				.zeros(results.length, 1) : DoubleMatrix2D.Factory.zeros(1, results.length);
+		for (int i = 0; i < results.length; i++) {
+			result.setDouble(results[i], dimension == Calculation.COLUMN ? i : 0,
+					dimension == Calculation.COLUMN ? 0 : i);
+		}
+		return result;
+	}
+
+}
@@ -24,6 +24,9 @@
 package org.ujmp.core.doublematrix.calculation.general.statistical;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
 import org.ujmp.core.mapmatrix.DefaultMapMatrix;
 import org.ujmp.core.mapmatrix.MapMatrix;
@@ -55,6 +58,32 @@ public class Sum extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (!(getSource() instanceof DoubleMatrix2D) || getSource().getDimensionCount() != 2
+				|| (getDimension() != ROW && getDimension() != COLUMN && getDimension() != ALL)) {
+			return super.calcNew();
+		}
+		final DenseDoubleMatrix2D result = DoubleMatrix2D.Factory.zeros(getSize()[ROW],
+				getSize()[COLUMN]);
+		final double[] sums = new double[(int) Math.max(result.getRowCount(),
+				result.getColumnCount())];
+		final int dimension = getDimension();
+		final boolean ignoreNaN = this.ignoreNaN;
+		((DoubleMatrix2D) getSource()).forEachAvailableDouble(new DoubleMatrix2DVisitor() {
+			public void visit(int row, int column, double value) {
+				final int index = dimension == ROW ? column : dimension == COLUMN ? row : 0;
+				sums[index] += ignoreNaN ? MathUtil.ignoreNaN(value) : value;
+			}
+		});
+		for (int i = 0; i < sums.length; i++) {
+			result.setDouble(sums[i], dimension == COLUMN ? i : 0, dimension == ROW ? i : 0);
+		}
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 	public double getDouble(long... coordinates) {
 		double sum = 0;
 
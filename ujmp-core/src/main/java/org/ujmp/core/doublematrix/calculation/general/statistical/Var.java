@@ -24,6 +24,7 @@
 package org.ujmp.core.doublematrix.calculation.general.statistical;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.doublematrix.calculation.AbstractDoubleCalculation;
 import org.ujmp.core.mapmatrix.DefaultMapMatrix;
 import org.ujmp.core.mapmatrix.MapMatrix;
@@ -56,6 +57,45 @@ public class Var extends AbstractDoubleCalculation {
 		}
 	}
 
+	public Matrix calcNew() {
+		if (!SparseAggregation.isSupported(getSource(), getDimension())) {
+			return super.calcNew();
+		}
+		if (mean == null) {
+			mean = new Mean(getDimension(), ignoreNaN, getSource()).calcNew();
+		}
+		final boolean column = getDimension() == COLUMN;
+		final double[] means = new double[MathUtil.longToInt(column ? mean.getRowCount() : mean
+				.getColumnCount())];
+		for (int i = 0; i < means.length; i++) {
+			means[i] = mean.getAsDouble(column ? i : 0, column ? 0 : i);
+		}
+		final double[] missing = new double[means.length];
+		final SparseAggregation aggregation = new SparseAggregation(getSource(), getDimension()) {
+			protected void aggregate(int index, int position, double value) {
+				if (ignoreNaN && MathUtil.isNaNOrInfinite(value)) {
+					missing[index]++;
+				} else {
+					results[index] += (value - means[index]) * (value - means[index]);
+				}
+			}
+		};
+		aggregation.run();
+		for (int i = 0; i < means.length; i++) {
+			// every implicit zero deviates from the mean by -mean
+			aggregation.results[i] += aggregation.getImplicitZeroCount(i) * means[i] * means[i];
+			double count = aggregation.getLength() - missing[i];
+			count = besselsCorrection ? count - 1 : count;
+			count = count == 0 ? 1 : count;
+			aggregation.results[i] /= count;
+		}
+		final DenseDoubleMatrix2D result = aggregation.toMatrix();
+		if (getMetaData() != null) {
+			result.setMetaData(getMetaData().clone());
+		}
+		return result;
+	}
+
 	public double getDouble(long... coordinates) {
 		if (mean == null) {
 			mean = new Mean(getDimension(), ignoreNaN, getSource()).calcNew();
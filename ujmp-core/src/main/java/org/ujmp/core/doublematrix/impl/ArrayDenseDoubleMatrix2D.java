@@ -24,6 +24,8 @@
 package org.ujmp.core.doublematrix.impl;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
 import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrix2D;
 import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
 
@@ -43,6 +45,13 @@ public class ArrayDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 					values[r][c] = v[r][c];
 				}
 			}
+		} else if (m instanceof DoubleMatrix2D && m.getDimensionCount() == 2) {
+			values = new double[(int) m.getRowCount()][(int) m.getColumnCount()];
+			((DoubleMatrix2D) m).forEachAvailableDouble(new DoubleMatrix2DVisitor() {
+				public void visit(int row, int column, double value) {
+					values[row][column] = value;
+				}
+			});
 		} else {
 			values = new double[(int) m.getRowCount()][(int) m.getColumnCount()];
 			for (long[] c : m.allCoordinates()) {
@@ -113,6 +122,16 @@ public class ArrayDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 		return false;
 	}
 
+	public final void forEachDouble(DoubleMatrix2DVisitor visitor) {
+		final double[][] values = this.values;
+		for (int r = 0; r < values.length; r++) {
+			final double[] row = values[r];
+			for (int c = 0; c < row.length; c++) {
+				visitor.visit(r, c, row[c]);
+			}
+		}
+	}
+
 	public double[][] getRowMajorDoubleArray2D() {
 		return values;
 	}
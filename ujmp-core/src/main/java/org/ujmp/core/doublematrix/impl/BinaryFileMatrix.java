@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ujmp.core.Coordinates;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrix2D;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.io.BinaryMatrixReader;
+import org.ujmp.core.util.io.BinaryMatrixWriter;
+
+/**
+ * Read only matrix which is linked to a file in the binary UJMP format written
+ * by {@link BinaryMatrixWriter}. Tiles are loaded when they are accessed, the
+ * most recently used tiles are kept in memory, by default at least one row of
+ * tiles.
+ */
+public class BinaryFileMatrix extends AbstractDenseDoubleMatrix2D implements Closeable {
+	private static final long serialVersionUID = -3650962524404364581L;
+
+	private final BinaryMatrixReader reader;
+
+	private final long tileRows;
+
+	private final long tileColumns;
+
+	private final Map<Long, double[]> tiles;
+
+	public BinaryFileMatrix(File file) throws IOException {
+		this(new BinaryMatrixReader(file));
+	}
+
+	public BinaryFileMatrix(BinaryMatrixReader reader) {
+		this(reader, (int) Math.min(1024, (reader.getColumnCount()
+				+ reader.getTileColumnCount() - 1)
+				/ reader.getTileColumnCount() + 1));
+	}
+
+	/**
+	 * @param cacheSize
+	 *            maximum number of tiles in memory
+	 */
+	public BinaryFileMatrix(BinaryMatrixReader reader, final int cacheSize) {
+		super(reader.getRowCount(), reader.getColumnCount());
+		this.reader = reader;
+		this.tileRows = reader.getTileRowCount();
+		this.tileColumns = reader.getTileColumnCount();
+		this.tiles = new LinkedHashMap<Long, double[]>(16, 0.75f, true) {
+			private static final long serialVersionUID = 3527207914466466112L;
+
+			protected boolean removeEldestEntry(Map.Entry<Long, double[]> eldest) {
+				return size() > cacheSize;
+			}
+		};
+		if (reader.getLabel() != null) {
+			setLabel(reader.getLabel());
+		}
+		for (long r = 0; r < getRowCount(); r++) {
+			if (reader.getRowLabel(r) != null) {
+				setRowLabel(r, reader.getRowLabel(r));
+			}
+		}
+		for (long c = 0; c < getColumnCount(); c++) {
+			if (reader.getColumnLabel(c) != null) {
+				setColumnLabel(c, reader.getColumnLabel(c));
+			}
+		}
+	}
+
+	private double[] getTile(long row, long column) {
+		final Long key = (row / tileRows) * ((getColumnCount() + tileColumns - 1) / tileColumns)
+				+ column / tileColumns;
+		synchronized (tiles) {
+			final double[] tile = tiles.get(key);
+			if (tile != null) {
+				return tile;
+			}
+		}
+		try {
+			final double[] tile = reader.readTile(row, column);
+			synchronized (tiles) {
+				tiles.put(key, tile);
+			}
+			return tile;
+		} catch (IOException e) {
+			throw new RuntimeException("could not read tile", e);
+		}
+	}
+
+	private int getTileHeight(long row) {
+		return (int) Math.min(tileRows, getRowCount() - row + row % tileRows);
+	}
+
+	public double getDouble(long row, long column) {
+		if (row < 0 || column < 0 || row >= getRowCount() || column >= getColumnCount()) {
+			throw new RuntimeException("no such coordinates: " + Coordinates.toString(row, column));
+		}
+		final double[] tile = getTile(row, column);
+		return tile[(int) ((column % tileColumns) * getTileHeight(row) + row % tileRows)];
+	}
+
+	public double getDouble(int row, int column) {
+		return getDouble((long) row, (long) column);
+	}
+
+	public void setDouble(double value, long row, long column) {
+		throw new RuntimeException("matrix is read only");
+	}
+
+	public void setDouble(double value, int row, int column) {
+		throw new RuntimeException("matrix is read only");
+	}
+
+	/**
+	 * Visits the values tile by tile, so that every tile is read only once.
+	 */
+	public void forEachDouble(DoubleMatrix2DVisitor visitor) {
+		final int rows = MathUtil.longToInt(getRowCount());
+		final int cols = MathUtil.longToInt(getColumnCount());
+		for (int r0 = 0; r0 < rows; r0 += tileRows) {
+			final int height = getTileHeight(r0);
+			for (int c0 = 0; c0 < cols; c0 += tileColumns) {
+				final double[] tile = getTile(r0, c0);
+				final int width = (int) Math.min(tileColumns, cols - c0);
+				for (int c = 0; c < width; c++) {
+					for (int r = 0; r < height; r++) {
+						visitor.visit(r0 + r, c0 + c, tile[c * height + r]);
+					}
+				}
+			}
+		}
+	}
+
+	public BinaryMatrixReader getReader() {
+		return reader;
+	}
+
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -272,6 +272,33 @@ public class BlockDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 		}
 	}
 
+	/**
+	 * Adds a row-major block of data to the block holding the specified row
+	 * and column. Only the first rows*columns values of newData are used, and
+	 * they are transposed if this matrix is column-major.
+	 */
+	protected void addBlockData(final int row, final int column, final double[] newData,
+			final int rows, final int columns) {
+		final double[] block;
+		synchronized (data) {
+			block = getBlockData(row, column);
+		}
+		final boolean rowMajor = layout.blockOrder == BlockOrder.ROWMAJOR;
+		synchronized (block) {
+			if (rowMajor) {
+				for (int i = rows * columns; --i >= 0;) {
+					block[i] += newData[i];
+				}
+			} else {
+				for (int r = rows; --r >= 0;) {
+					for (int c = columns; --c >= 0;) {
+						block[c * rows + r] += newData[r * columns + c];
+					}
+				}
+			}
+		}
+	}
+
 	protected void addBlockData(final int row, final int column, final double[] newData) {
 		int blockNumber = layout.getBlockNumber(row, column);
 
@@ -347,6 +374,20 @@ public class BlockDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 		return data[blockNumber];
 	}
 
+	/**
+	 * Get block holding the specified row and column without creating it.
+	 * 
+	 * @param row
+	 *            - in matrix
+	 * @param column
+	 *            - in matrix
+	 * @return double[] block where the given row,column is held, or null if
+	 *         the block contains only zeros.
+	 */
+	final double[] getExistingBlockData(int row, int column) {
+		return data[layout.getBlockNumber(row, column)];
+	}
+
 	/**
 	 * @return {@link BlockMatrixLayout} of this matrix.
 	 */
@@ -476,7 +517,7 @@ public class BlockDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D implem
 				}
 			}
 		} else {
-			new PFor(0, result.data.length) {
+			new PFor(0, result.data.length - 1) {
 				public void step(int i) {
 					double[] block = result.data[i];
 					if (block == null) {
@@ -141,8 +141,15 @@ public final class BlockMatrixLayout implements Serializable {
 	}
 
 	final double[] toColMajorBlock(double[] block, final int rowStart, int colStart) {
+		return toColMajorBlock(block, rowStart, colStart, new double[block.length]);
+	}
 
-		final double[] targetBlock = new double[block.length];
+	/**
+	 * Transposes a row-major block into a given buffer, which must be at
+	 * least as large as the block.
+	 */
+	final double[] toColMajorBlock(final double[] block, final int rowStart, final int colStart,
+			final double[] targetBlock) {
 		final int lrows = getRowsInBlock(rowStart);
 		final int lcols = getColumnsInBlock(colStart);
 
@@ -175,8 +182,15 @@ public final class BlockMatrixLayout implements Serializable {
 	}
 
 	final double[] toRowMajorBlock(final double[] block, final int rowStart, int colStart) {
+		return toRowMajorBlock(block, rowStart, colStart, new double[block.length]);
+	}
 
-		final double[] targetBlock = new double[block.length];
+	/**
+	 * Transposes a column-major block into a given buffer, which must be at
+	 * least as large as the block.
+	 */
+	final double[] toRowMajorBlock(final double[] block, final int rowStart, final int colStart,
+			final double[] targetBlock) {
 		final int lrows = getRowsInBlock(rowStart);
 		final int lcols = getColumnsInBlock(colStart);
 
@@ -24,8 +24,11 @@ package org.ujmp.core.doublematrix.impl;
 
 import static org.ujmp.core.util.VerifyUtil.verifyTrue;
 
+import java.util.Arrays;
 import java.util.concurrent.Callable;
 
+import org.ujmp.core.doublematrix.impl.BlockMatrixLayout.BlockOrder;
+
 /**
  * Multiply blocks of A and B in the specified range(fromM->toM, fromN->toN,
  * fromK->toK), <br>
@@ -43,6 +46,9 @@ import java.util.concurrent.Callable;
  */
 public class BlockMultiply implements Callable<Void> {
 
+	/** Buffers for blocks of A, B and C, one set per worker thread. */
+	private static final ThreadLocal<double[][]> ARENA = new ThreadLocal<double[][]>();
+
 	/** Length of one side of a block of data. */
 	private final int blockStripeSize;
 
@@ -103,13 +109,28 @@ public class BlockMultiply implements Callable<Void> {
 	/**
 	 * Multiply blocks of two matrices A,B and add to C.
 	 * <p>
-	 * Blocks of Matrix B are transformed to column-major layout (if not
-	 * already) to facilitate multiplication.<br>
-	 * (If matrices have been created optimally, B should already be
-	 * column-major)
+	 * Blocks of A which are not row-major and blocks of B which are not
+	 * column-major are transposed into buffers of the current thread. (If
+	 * matrices have been created optimally, no transposition is necessary.)
+	 * <p>
+	 * If this task covers the complete inner dimension N and C is row-major,
+	 * no other task writes to the same blocks of C and the products are
+	 * accumulated directly in C. Otherwise, they are accumulated in a buffer of
+	 * the current thread and added to C afterwards. Empty blocks of A and B
+	 * are skipped. Apart from blocks of C which did not exist before, no
+	 * memory is allocated.
 	 */
 	protected final void multiply() {
 		final int step = blockStripeSize, blockSize = blockStripeSize * blockStripeSize;
+		final double[][] arena = getArena(blockSize);
+		final double[] aBuffer = arena[0];
+		final double[] bBuffer = arena[1];
+		final double[] cBuffer = arena[2];
+
+		final boolean aRowMajor = matrixA.layout.blockOrder == BlockOrder.ROWMAJOR;
+		final boolean bColumnMajor = matrixB.layout.blockOrder == BlockOrder.COLUMNMAJOR;
+		final boolean inPlace = matrixC.layout.blockOrder == BlockOrder.ROWMAJOR && fromN == 0
+				&& toN == matrixA.getColumnCount();
 
 		for (int m = fromM; m < toM; m += step) {
 			final int aRows = matrixA.layout.getRowsInBlock(m);
@@ -117,33 +138,58 @@ public class BlockMultiply implements Callable<Void> {
 			for (int k = fromK; k < toK; k += step) {
 				final int bCols = matrixB.layout.getColumnsInBlock(k);
 
-				final double[] cBlock = new double[aRows * bCols];
+				final double[] cBlock;
+				if (inPlace) {
+					cBlock = matrixC.getBlockData(m, k);
+				} else {
+					cBlock = cBuffer;
+					Arrays.fill(cBlock, 0, aRows * bCols, 0.0d);
+				}
 
 				for (int n = fromN; n < toN; n += step) {
-
-					// ensure a and b are in optimal block order before
-					// multiplication
-					final double[] aBlock = matrixA.layout.toRowMajorBlock(matrixA, m, n);
-					final double[] bBlock = matrixB.layout.toColMajorBlock(matrixB, n, k);
+					double[] aBlock = matrixA.getExistingBlockData(m, n);
+					double[] bBlock = matrixB.getExistingBlockData(n, k);
 
 					if (aBlock != null && bBlock != null) {
-						if (aBlock.length == blockSize && bBlock.length == blockSize) {
+						// ensure a and b are in optimal block order
+						if (!aRowMajor) {
+							aBlock = matrixA.layout.toRowMajorBlock(aBlock, m, n, aBuffer);
+						}
+						if (!bColumnMajor) {
+							bBlock = matrixB.layout.toColMajorBlock(bBlock, n, k, bBuffer);
+						}
+
+						final int aCols = matrixA.layout.getColumnsInBlock(n);
+						if (aRows == step && aCols == step && bCols == step) {
 							multiplyAxB(aBlock, bBlock, cBlock, step);
 						} else {
-							int aCols = aBlock.length / aRows;
-							int bRows = bBlock.length / bCols;
-							verifyTrue(aCols == bRows, "aCols!=bRows");
 							multiplyRowMajorTimesColumnMajorBlocks(aBlock, bBlock, cBlock, aRows,
 									aCols, bCols);
 						}
 					}
 				}
 
-				matrixC.addBlockData(m, k, cBlock);
+				if (!inPlace) {
+					matrixC.addBlockData(m, k, cBlock, aRows, bCols);
+				}
 			}
 		}
 	}
 
+	/**
+	 * Returns the buffers of the current thread for blocks of A, B and C,
+	 * each of them large enough for one block.
+	 */
+	private static double[][] getArena(final int blockSize) {
+		double[][] arena = ARENA.get();
+		if (arena == null || arena[0].length < blockSize) {
+			arena = new double[][] { new double[blockSize], new double[blockSize],
+					new double[blockSize] };
+			ARENA.set(arena);
+		}
+		return arena;
+	}
+
 	/**
 	 * Multiply row-major block (a) x column-major block (b), and add to block
 	 * c.
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import java.util.Arrays;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Mtimes;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.stub.AbstractCompressedSparseDoubleMatrix2D;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Sparse matrix in compressed column format (CSC). Multiplication with
+ * dense or compressed sparse matrices is done by {@link SparseMultiply}.
+ */
+public class CompressedColumnSparseDoubleMatrix2D extends AbstractCompressedSparseDoubleMatrix2D {
+	private static final long serialVersionUID = 5187366312902748163L;
+
+	public CompressedColumnSparseDoubleMatrix2D(int rows, int columns) {
+		super(false, rows, columns);
+	}
+
+	public CompressedColumnSparseDoubleMatrix2D(long rows, long columns) {
+		this(MathUtil.longToInt(rows), MathUtil.longToInt(columns));
+	}
+
+	/**
+	 * Creates a matrix which uses the given arrays for storage, they are not
+	 * copied. The row indices of each column have to be sorted.
+	 */
+	public CompressedColumnSparseDoubleMatrix2D(int rows, int columns, int[] columnPointers,
+			int[] rowIndices, double[] values) {
+		super(false, rows, columns, columnPointers, rowIndices, values);
+	}
+
+	public CompressedColumnSparseDoubleMatrix2D(Matrix m) {
+		this(new SparseDoubleMatrix2DBuilder(m).toCompressedColumn());
+		if (m.getMetaData() != null) {
+			setMetaData(m.getMetaData().clone());
+		}
+	}
+
+	private CompressedColumnSparseDoubleMatrix2D(CompressedColumnSparseDoubleMatrix2D m) {
+		this((int) m.getRowCount(), (int) m.getColumnCount(), m.getPointers(), m.getIndices(),
+				m.getValues());
+	}
+
+	/**
+	 * @return a copy of this matrix in compressed row format
+	 */
+	public CompressedRowSparseDoubleMatrix2D toCompressedRow() {
+		final int count = getNonZeroCount();
+		final int[] pointers = new int[getMinorCount() + 1];
+		final int[] indices = new int[count];
+		final double[] values = new double[count];
+		transpose(getMajorCount(), getMinorCount(), getPointers(), getIndices(), getValues(),
+				pointers, indices, values);
+		return new CompressedRowSparseDoubleMatrix2D((int) getRowCount(), (int) getColumnCount(),
+				pointers, indices, values);
+	}
+
+	public Matrix transpose() {
+		final int count = getNonZeroCount();
+		return new CompressedRowSparseDoubleMatrix2D((int) getColumnCount(), (int) getRowCount(),
+				getPointers().clone(), Arrays.copyOf(getIndices(), count), Arrays.copyOf(
+						getValues(), count));
+	}
+
+	public Matrix clone() {
+		final int count = getNonZeroCount();
+		final Matrix m = new CompressedColumnSparseDoubleMatrix2D((int) getRowCount(),
+				(int) getColumnCount(), getPointers().clone(), Arrays.copyOf(getIndices(), count),
+				Arrays.copyOf(getValues(), count));
+		if (getMetaData() != null) {
+			m.setMetaData(getMetaData().clone());
+		}
+		return m;
+	}
+
+	public Matrix mtimes(Matrix m2) {
+		if (m2 instanceof AbstractCompressedSparseDoubleMatrix2D) {
+			return SparseMultiply.multiply(this, (AbstractCompressedSparseDoubleMatrix2D) m2);
+		} else if (m2.isSparse()) {
+			return SparseMultiply.multiply(this,
+					new SparseDoubleMatrix2DBuilder(m2).toCompressedRow());
+		} else if (m2 instanceof DenseDoubleMatrix2D) {
+			final DenseDoubleMatrix2D result = DenseDoubleMatrix2D.Factory.zeros(getRowCount(),
+					m2.getColumnCount());
+			SparseMultiply.multiply(this, (DenseDoubleMatrix2D) m2, result);
+			return result;
+		} else {
+			final Matrix result = DenseDoubleMatrix2D.Factory.zeros(getRowCount(),
+					m2.getColumnCount());
+			Mtimes.SPARSEMATRIX1.calc(this, m2, result);
+			return result;
+		}
+	}
+
+}
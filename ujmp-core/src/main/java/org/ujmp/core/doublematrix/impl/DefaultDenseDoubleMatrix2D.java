@@ -24,6 +24,8 @@
 package org.ujmp.core.doublematrix.impl;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
 import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrix2D;
 import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
 import org.ujmp.core.util.MathUtil;
@@ -45,6 +47,13 @@ public class DefaultDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D impl
 			double[] v = ((DefaultDenseDoubleMatrix2D) m).values;
 			this.values = new double[v.length];
 			System.arraycopy(v, 0, this.values, 0, v.length);
+		} else if (m instanceof DoubleMatrix2D && m.getDimensionCount() == 2) {
+			this.values = new double[rows * cols];
+			((DoubleMatrix2D) m).forEachAvailableDouble(new DoubleMatrix2DVisitor() {
+				public void visit(int row, int column, double value) {
+					values[column * rows + row] = value;
+				}
+			});
 		} else {
 			this.values = new double[rows * cols];
 			for (long[] c : m.allCoordinates()) {
@@ -122,6 +131,16 @@ public class DefaultDenseDoubleMatrix2D extends AbstractDenseDoubleMatrix2D impl
 		return m;
 	}
 
+	public final void forEachDouble(DoubleMatrix2DVisitor visitor) {
+		final double[] values = this.values;
+		final int rows = this.rows;
+		for (int c = 0, i = 0; c < cols; c++) {
+			for (int r = 0; r < rows; r++, i++) {
+				visitor.visit(r, c, values[i]);
+			}
+		}
+	}
+
 	public final double[] getColumnMajorDoubleArray1D() {
 		return values;
 	}
@@ -23,38 +23,233 @@
 
 package org.ujmp.core.doublematrix.impl;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.ujmp.core.Coordinates;
 import org.ujmp.core.Matrix;
-import org.ujmp.core.doublematrix.SparseDoubleMatrix;
-import org.ujmp.core.enums.ValueType;
-import org.ujmp.core.genericmatrix.impl.DefaultSparseGenericMatrix;
-import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix;
+import org.ujmp.core.util.LongDoubleHashMap;
+
+/**
+ * Sparse double matrix with any number of dimensions. The coordinates of each
+ * non-zero entry are linearised in row-major order into a single
+ * <code>long</code> which is the key of a {@link LongDoubleHashMap}, so no
+ * objects are created per entry. The number of cells of the matrix must
+ * therefore not exceed <code>Long.MAX_VALUE</code>.
+ */
+public class DefaultSparseDoubleMatrix extends AbstractSparseDoubleMatrix {
+	private static final long serialVersionUID = 2704955182880586893L;
 
-public class DefaultSparseDoubleMatrix extends DefaultSparseGenericMatrix<Double> implements
-		SparseDoubleMatrix {
-	private static final long serialVersionUID = -1168427818140098524L;
+	private LongDoubleHashMap values;
+
+	private long[] strides;
+
+	private int maximumNumberOfEntries = -1;
 
 	public DefaultSparseDoubleMatrix(Matrix m) {
-		super(m);
+		this(m, -1);
 	}
 
 	public DefaultSparseDoubleMatrix(Matrix m, int maximumNumberOfEntries) {
-		super(m, maximumNumberOfEntries);
+		super(m.getSize());
+		this.maximumNumberOfEntries = maximumNumberOfEntries;
+		this.size = Coordinates.copyOf(m.getSize());
+		this.strides = strides(size);
+		if (m instanceof DefaultSparseDoubleMatrix && maximumNumberOfEntries <= 0) {
+			this.values = new LongDoubleHashMap(((DefaultSparseDoubleMatrix) m).values);
+		} else {
+			this.values = new LongDoubleHashMap();
+			for (long[] c : m.availableCoordinates()) {
+				setDouble(m.getAsDouble(c), c);
+			}
+		}
+		if (m.getMetaData() != null) {
+			setMetaData(m.getMetaData().clone());
+		}
 	}
 
 	public DefaultSparseDoubleMatrix(long... size) {
 		super(size);
+		this.size = Coordinates.copyOf(size);
+		this.strides = strides(this.size);
+		this.values = new LongDoubleHashMap();
 	}
 
-	public final ValueType getValueType() {
-		return ValueType.DOUBLE;
+	public void setSize(long... size) {
+		final long[] newSize = Coordinates.copyOf(size);
+		final long[] newStrides = strides(newSize);
+		final LongDoubleHashMap newValues = new LongDoubleHashMap(values.size());
+		final long[] c = new long[this.size.length];
+		for (int slot = values.nextSlot(0); slot >= 0; slot = values.nextSlot(slot + 1)) {
+			decode(values.getKeyAt(slot), c);
+			if (c.length == newSize.length && Coordinates.isSmallerThan(c, newSize)) {
+				newValues.put(encode(c, newSize, newStrides), values.getValueAt(slot));
+			}
+		}
+		this.size = newSize;
+		this.strides = newStrides;
+		this.values = newValues;
+	}
+
+	/**
+	 * Prepares the matrix for the given number of non-zero entries, so that
+	 * they can be added without rehashing.
+	 */
+	public void ensureCapacity(int numberOfEntries) {
+		values.ensureCapacity(numberOfEntries);
 	}
 
 	public double getDouble(long... coordinates) {
-		return MathUtil.getDouble(getObject(coordinates));
+		final long key = encode(coordinates, size, strides);
+		return key < 0 ? 0.0 : values.get(key);
 	}
 
 	public void setDouble(double value, long... coordinates) {
-		setObject(value, coordinates);
+		final long key = encode(coordinates, size, strides);
+		if (key >= 0) {
+			set(key, value);
+		}
+	}
+
+	public double getDouble(long row, long column) {
+		if (size.length != 2) {
+			return getDouble(new long[] { row, column });
+		}
+		if (row < 0 || column < 0 || row >= size[ROW] || column >= size[COLUMN]) {
+			return 0.0;
+		}
+		return values.get(row * size[COLUMN] + column);
+	}
+
+	public void setDouble(double value, long row, long column) {
+		if (size.length != 2) {
+			setDouble(value, new long[] { row, column });
+		} else if (row >= 0 && column >= 0 && row < size[ROW] && column < size[COLUMN]) {
+			set(row * size[COLUMN] + column, value);
+		}
+	}
+
+	public double getDouble(int row, int column) {
+		return getDouble((long) row, (long) column);
+	}
+
+	public void setDouble(double value, int row, int column) {
+		setDouble(value, (long) row, (long) column);
+	}
+
+	private final void set(long key, double value) {
+		if (value == 0.0) {
+			values.remove(key);
+		} else {
+			while (maximumNumberOfEntries > 0 && values.size() > maximumNumberOfEntries) {
+				values.remove(values.getKeyAt(values.nextSlot(0)));
+			}
+			values.put(key, value);
+		}
+	}
+
+	public long getValueCount() {
+		return values.size();
+	}
+
+	public Iterable<long[]> availableCoordinates() {
+		return new Iterable<long[]>() {
+			public Iterator<long[]> iterator() {
+				return new AvailableCoordinateIterator(values.keys());
+			}
+		};
+	}
+
+	public void forEachAvailableDouble(DoubleMatrix2DVisitor visitor) {
+		if (size.length != 2) {
+			super.forEachAvailableDouble(visitor);
+			return;
+		}
+		final LongDoubleHashMap values = this.values;
+		final long columns = size[COLUMN];
+		for (int slot = values.nextSlot(0); slot >= 0; slot = values.nextSlot(slot + 1)) {
+			final long key = values.getKeyAt(slot);
+			final long row = key / columns;
+			visitor.visit((int) row, (int) (key - row * columns), values.getValueAt(slot));
+		}
+	}
+
+	public boolean containsCoordinates(long... coordinates) {
+		final long key = encode(coordinates, size, strides);
+		return key >= 0 && values.containsKey(key);
+	}
+
+	public final void clear() {
+		values.clear();
+	}
+
+	private final void decode(long key, long[] coordinates) {
+		for (int i = 0; i < coordinates.length; i++) {
+			coordinates[i] = key / strides[i];
+			key -= coordinates[i] * strides[i];
+		}
+	}
+
+	private static final long encode(long[] coordinates, long[] size, long[] strides) {
+		if (coordinates.length != size.length) {
+			return -1;
+		}
+		long key = 0;
+		for (int i = coordinates.length - 1; i != -1; i--) {
+			final long c = coordinates[i];
+			if (c < 0 || c >= size[i]) {
+				return -1;
+			}
+			key += c * strides[i];
+		}
+		return key;
+	}
+
+	private static final long[] strides(long[] size) {
+		final long[] strides = new long[size.length];
+		long stride = 1;
+		for (int i = size.length - 1; i != -1; i--) {
+			strides[i] = stride;
+			if (size[i] > 1) {
+				if (stride > Long.MAX_VALUE / size[i]) {
+					throw new IllegalArgumentException("sparse matrix of size "
+							+ Coordinates.toString(size) + " has more than Long.MAX_VALUE cells");
+				}
+				stride *= size[i];
+			}
+		}
+		return strides;
+	}
+
+	class AvailableCoordinateIterator implements Iterator<long[]> {
+
+		private final long[] keys;
+
+		private int pos = 0;
+
+		public AvailableCoordinateIterator(long[] keys) {
+			this.keys = keys;
+		}
+
+		public boolean hasNext() {
+			return pos < keys.length;
+		}
+
+		public long[] next() {
+			if (pos >= keys.length) {
+				throw new NoSuchElementException();
+			}
+			final long[] coordinates = new long[size.length];
+			decode(keys[pos++], coordinates);
+			return coordinates;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
 	}
 
 }
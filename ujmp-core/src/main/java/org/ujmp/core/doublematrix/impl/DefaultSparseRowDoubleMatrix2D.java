@@ -29,6 +29,7 @@ import java.util.Map;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
 import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix2D;
 import org.ujmp.core.util.DefaultSparseDoubleVector1D;
 
@@ -70,6 +71,17 @@ public class DefaultSparseRowDoubleMatrix2D extends AbstractSparseDoubleMatrix2D
 		return getDouble(coordinates) != 0.0;
 	}
 
+	public void forEachAvailableDouble(final DoubleMatrix2DVisitor visitor) {
+		for (Map.Entry<Long, DefaultSparseDoubleVector1D> entry : rows.entrySet()) {
+			final int row = (int) entry.getKey().longValue();
+			entry.getValue().forEachAvailableDouble(new DoubleMatrix2DVisitor() {
+				public void visit(int r, int column, double value) {
+					visitor.visit(row, column, value);
+				}
+			});
+		}
+	}
+
 	public void setDouble(double o, long row, long column) {
 		DefaultSparseDoubleVector1D m = rows.get(row);
 		if (m == null) {
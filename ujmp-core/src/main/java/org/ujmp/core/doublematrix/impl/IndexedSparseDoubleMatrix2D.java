@@ -24,6 +24,7 @@
 package org.ujmp.core.doublematrix.impl;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
 import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix2D;
 
 public class IndexedSparseDoubleMatrix2D extends AbstractSparseDoubleMatrix2D {
@@ -144,6 +145,13 @@ public class IndexedSparseDoubleMatrix2D extends AbstractSparseDoubleMatrix2D {
 		return getDouble(coordinates) == 0.0;
 	}
 
+	public void forEachAvailableDouble(DoubleMatrix2DVisitor visitor) {
+		for (int i = 0; i < entryCount; i++) {
+			visitor.visit((int) data[i * 3], (int) data[i * 3 + 1],
+					Double.longBitsToDouble(data[i * 3 + 2]));
+		}
+	}
+
 	public Iterable<long[]> availableCoordinates() {
 		throw new RuntimeException("not implemented");
 	}
@@ -0,0 +1,451 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel.MapMode;
+
+import org.ujmp.core.Coordinates;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.doublematrix.stub.AbstractDenseDoubleMatrix2D;
+import org.ujmp.core.interfaces.Erasable;
+import org.ujmp.core.mapmatrix.MapMatrix;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.io.WeakMappedByteBuffer;
+
+/**
+ * Dense matrix in a file with a layout similar to {@link DenseFileMatrix}: the
+ * values are stored row by row, starting at an offset, in one of the data
+ * types defined there. The file is memory-mapped in buffers of a fixed size,
+ * which are mapped when they are used and can be released by the garbage
+ * collector. All values are accessed at absolute positions of the buffers, so
+ * that any number of threads can read at the same time without a lock.
+ * <p>
+ * The data types ending with LITTLEENDIAN are stored in little endian byte
+ * order, all others in big endian byte order, as written by
+ * {@link RandomAccessFile}. CHAR takes one byte, BOOLEAN one bit per value.
+ * Note that {@link DenseFileMatrix} stores the LITTLEENDIAN types in big
+ * endian byte order, so files with these types cannot be exchanged between
+ * the two classes; all other types are compatible.
+ * <p>
+ * {@link #getRow(long, long, double[], int, int)},
+ * {@link #getColumn(long, long, double[], int, int)} and
+ * {@link #getBlock(long, long, int, int, double[])} read many values into an
+ * array at once.
+ */
+public class MappedDenseFileMatrix extends AbstractDenseDoubleMatrix2D implements Erasable,
+		Closeable {
+	private static final long serialVersionUID = 3160377437164011473L;
+
+	public static final int DEFAULTBUFFERSIZE = WeakMappedByteBuffer.DEFAULTBUFFERSIZE;
+
+	private final File file;
+
+	private final long offset;
+
+	private final int dataType;
+
+	private final boolean readOnly;
+
+	private final int bufferSize;
+
+	/**
+	 * 0 for BOOLEAN
+	 */
+	private final int bytesPerValue;
+
+	private transient RandomAccessFile randomAccessFile = null;
+
+	private transient volatile WeakMappedByteBuffer[] buffers = null;
+
+	public MappedDenseFileMatrix(long rows, long columns) throws IOException {
+		this(null, rows, columns);
+	}
+
+	public MappedDenseFileMatrix(Matrix m) throws IOException {
+		this(m.getRowCount(), m.getColumnCount());
+		if (m instanceof DoubleMatrix2D) {
+			((DoubleMatrix2D) m).forEachAvailableDouble(new DoubleMatrix2DVisitor() {
+				public void visit(int row, int column, double value) {
+					setDouble(value, row, column);
+				}
+			});
+		} else {
+			for (long[] c : m.availableCoordinates()) {
+				setDouble(m.getAsDouble(c), c[ROW], c[COLUMN]);
+			}
+		}
+		MapMatrix<String, Object> a = m.getMetaData();
+		if (a != null) {
+			setMetaData(a.clone());
+		}
+	}
+
+	public MappedDenseFileMatrix(File file, long rows, long columns) throws IOException {
+		this(file, 0, DenseFileMatrix.DOUBLE, false, rows, columns);
+	}
+
+	public MappedDenseFileMatrix(File file, int dataType, long rows, long columns)
+			throws IOException {
+		this(file, 0, dataType, false, rows, columns);
+	}
+
+	public MappedDenseFileMatrix(File file, long offset, int dataType, boolean readOnly,
+			long rows, long columns) throws IOException {
+		this(DEFAULTBUFFERSIZE, file, offset, dataType, readOnly, rows, columns);
+	}
+
+	/**
+	 * @param bufferSize
+	 *            number of bytes which are mapped at once, rounded down to a
+	 *            multiple of 8 so that no value spans two buffers
+	 */
+	public MappedDenseFileMatrix(int bufferSize, File file, long offset, int dataType,
+			boolean readOnly, long rows, long columns) throws IOException {
+		super(rows, columns);
+		if (file == null) {
+			file = File.createTempFile("mappedDenseFileMatrix", ".dat");
+			file.deleteOnExit();
+		}
+		if (bufferSize < 8) {
+			throw new IllegalArgumentException("buffer size must be at least 8 bytes");
+		}
+		this.file = file;
+		this.offset = offset;
+		this.dataType = dataType;
+		this.readOnly = readOnly;
+		this.bufferSize = bufferSize - bufferSize % 8;
+		this.bytesPerValue = getBytesPerValue(dataType);
+		open();
+	}
+
+	private static int getBytesPerValue(int dataType) {
+		switch (dataType) {
+		case DenseFileMatrix.BYTE:
+		case DenseFileMatrix.CHAR:
+		case DenseFileMatrix.UNSIGNEDBYTE:
+			return 1;
+		case DenseFileMatrix.SHORT:
+		case DenseFileMatrix.UNSIGNEDSHORT:
+		case DenseFileMatrix.SHORTLITTLEENDIAN:
+			return 2;
+		case DenseFileMatrix.INT:
+		case DenseFileMatrix.INTLITTLEENDIAN:
+		case DenseFileMatrix.FLOAT:
+			return 4;
+		case DenseFileMatrix.LONG:
+		case DenseFileMatrix.LONGLITTLEENDIAN:
+		case DenseFileMatrix.DOUBLE:
+			return 8;
+		case DenseFileMatrix.BOOLEAN:
+			return 0;
+		default:
+			throw new IllegalArgumentException("unknown data type: " + dataType);
+		}
+	}
+
+	private static ByteOrder getByteOrder(int dataType) {
+		switch (dataType) {
+		case DenseFileMatrix.SHORTLITTLEENDIAN:
+		case DenseFileMatrix.INTLITTLEENDIAN:
+		case DenseFileMatrix.LONGLITTLEENDIAN:
+			return ByteOrder.LITTLE_ENDIAN;
+		default:
+			return ByteOrder.BIG_ENDIAN;
+		}
+	}
+
+	/**
+	 * @return number of bytes of the matrix in the file, without the offset
+	 */
+	public long getFileLength() {
+		final long count = getRowCount() * getColumnCount();
+		return bytesPerValue == 0 ? (count + 7) / 8 : count * bytesPerValue;
+	}
+
+	private synchronized WeakMappedByteBuffer[] open() throws IOException {
+		if (buffers == null) {
+			if (readOnly) {
+				randomAccessFile = new RandomAccessFile(file, "r");
+				if (randomAccessFile.length() < offset + getFileLength()) {
+					randomAccessFile.close();
+					throw new IOException("file is too short: " + file);
+				}
+			} else {
+				randomAccessFile = new RandomAccessFile(file, "rw");
+				if (randomAccessFile.length() < offset + getFileLength()) {
+					randomAccessFile.setLength(offset + getFileLength());
+				}
+			}
+			buffers = WeakMappedByteBuffer.create(randomAccessFile, readOnly ? MapMode.READ_ONLY
+					: MapMode.READ_WRITE, getByteOrder(dataType), offset, getFileLength(),
+					bufferSize);
+		}
+		return buffers;
+	}
+
+	private WeakMappedByteBuffer[] getBuffers() {
+		final WeakMappedByteBuffer[] buffers = this.buffers;
+		if (buffers != null) {
+			return buffers;
+		}
+		try {
+			return open();
+		} catch (IOException e) {
+			throw new RuntimeException("could not open file", e);
+		}
+	}
+
+	private long getIndex(long row, long column) {
+		if (row < 0 || column < 0 || row >= getRowCount() || column >= getColumnCount()) {
+			throw new RuntimeException("no such coordinates: " + Coordinates.toString(row, column));
+		}
+		return row * getColumnCount() + column;
+	}
+
+	public double getDouble(long row, long column) {
+		return read(getBuffers(), getIndex(row, column));
+	}
+
+	public double getDouble(int row, int column) {
+		return read(getBuffers(), getIndex(row, column));
+	}
+
+	public void setDouble(double value, long row, long column) {
+		write(getIndex(row, column), value);
+	}
+
+	public void setDouble(double value, int row, int column) {
+		write(getIndex(row, column), value);
+	}
+
+	private double read(WeakMappedByteBuffer[] buffers, long index) {
+		if (bytesPerValue == 0) {
+			final long pos = index >>> 3;
+			final byte b = buffers[(int) (pos / bufferSize)].get((int) (pos % bufferSize));
+			return (b >> (index & 7)) & 1;
+		}
+		final long pos = index * bytesPerValue;
+		return read(buffers[(int) (pos / bufferSize)].getOrCreateByteBuffer(),
+				(int) (pos % bufferSize));
+	}
+
+	private double read(ByteBuffer buffer, int position) {
+		switch (dataType) {
+		case DenseFileMatrix.DOUBLE:
+			return buffer.getDouble(position);
+		case DenseFileMatrix.FLOAT:
+			return buffer.getFloat(position);
+		case DenseFileMatrix.BYTE:
+		case DenseFileMatrix.CHAR:
+			return buffer.get(position);
+		case DenseFileMatrix.UNSIGNEDBYTE:
+			return buffer.get(position) & 0xff;
+		case DenseFileMatrix.SHORT:
+		case DenseFileMatrix.SHORTLITTLEENDIAN:
+			return buffer.getShort(position);
+		case DenseFileMatrix.UNSIGNEDSHORT:
+			return buffer.getShort(position) & 0xffff;
+		case DenseFileMatrix.INT:
+		case DenseFileMatrix.INTLITTLEENDIAN:
+			return buffer.getInt(position);
+		default:
+			return buffer.getLong(position);
+		}
+	}
+
+	private void write(long index, double value) {
+		if (readOnly) {
+			throw new RuntimeException("matrix is read only");
+		}
+		final WeakMappedByteBuffer[] buffers = getBuffers();
+		if (bytesPerValue == 0) {
+			final long pos = index >>> 3;
+			final WeakMappedByteBuffer buffer = buffers[(int) (pos / bufferSize)];
+			final int position = (int) (pos % bufferSize);
+			final int mask = 1 << (index & 7);
+			// the other bits of the byte may be written at the same time
+			synchronized (buffer) {
+				final byte b = buffer.get(position);
+				buffer.put(position, (byte) (value != 0.0 ? b | mask : b & ~mask));
+			}
+			return;
+		}
+		final long pos = index * bytesPerValue;
+		final ByteBuffer buffer = buffers[(int) (pos / bufferSize)].getOrCreateByteBuffer();
+		final int position = (int) (pos % bufferSize);
+		switch (dataType) {
+		case DenseFileMatrix.DOUBLE:
+			buffer.putDouble(position, value);
+			break;
+		case DenseFileMatrix.FLOAT:
+			buffer.putFloat(position, (float) value);
+			break;
+		case DenseFileMatrix.BYTE:
+		case DenseFileMatrix.CHAR:
+		case DenseFileMatrix.UNSIGNEDBYTE:
+			buffer.put(position, (byte) value);
+			break;
+		case DenseFileMatrix.SHORT:
+		case DenseFileMatrix.SHORTLITTLEENDIAN:
+		case DenseFileMatrix.UNSIGNEDSHORT:
+			buffer.putShort(position, (short) value);
+			break;
+		case DenseFileMatrix.INT:
+		case DenseFileMatrix.INTLITTLEENDIAN:
+			buffer.putInt(position, (int) value);
+			break;
+		default:
+			buffer.putLong(position, (long) value);
+		}
+	}
+
+	/**
+	 * Reads <code>length</code> consecutive values of the file, starting at
+	 * value <code>index</code>, into <code>target</code>.
+	 */
+	private void read(long index, int length, double[] target, int targetOffset, int stride) {
+		final WeakMappedByteBuffer[] buffers = getBuffers();
+		if (bytesPerValue == 0) {
+			for (int i = 0; i < length; i++) {
+				target[targetOffset + i * stride] = read(buffers, index + i);
+			}
+			return;
+		}
+		final int valuesPerBuffer = bufferSize / bytesPerValue;
+		int done = 0;
+		while (done < length) {
+			final long pos = (index + done) * bytesPerValue;
+			final int first = (int) (pos % bufferSize) / bytesPerValue;
+			final int count = Math.min(length - done, valuesPerBuffer - first);
+			final WeakMappedByteBuffer mapped = buffers[(int) (pos / bufferSize)];
+			if (dataType == DenseFileMatrix.DOUBLE && stride == 1) {
+				// a view has its own position, the mapped buffer is shared
+				final ByteBuffer view = mapped.duplicate();
+				view.position(first * bytesPerValue);
+				view.asDoubleBuffer().get(target, targetOffset + done, count);
+			} else {
+				final ByteBuffer buffer = mapped.getOrCreateByteBuffer();
+				for (int i = 0; i < count; i++) {
+					target[targetOffset + (done + i) * stride] = read(buffer, (first + i)
+							* bytesPerValue);
+				}
+			}
+			done += count;
+		}
+	}
+
+	/**
+	 * Reads <code>length</code> values of a row, starting at
+	 * <code>column</code>, into <code>target</code>, starting at
+	 * <code>targetOffset</code>.
+	 */
+	public void getRow(long row, long column, double[] target, int targetOffset, int length) {
+		if (length > 0) {
+			getIndex(row, column + length - 1);
+			read(getIndex(row, column), length, target, targetOffset, 1);
+		}
+	}
+
+	/**
+	 * Reads <code>length</code> values of a column, starting at
+	 * <code>row</code>, into <code>target</code>, starting at
+	 * <code>targetOffset</code>.
+	 */
+	public void getColumn(long row, long column, double[] target, int targetOffset, int length) {
+		if (length > 0) {
+			getIndex(row + length - 1, column);
+			final WeakMappedByteBuffer[] buffers = getBuffers();
+			final long columns = getColumnCount();
+			long index = getIndex(row, column);
+			for (int i = 0; i < length; i++) {
+				target[targetOffset + i] = read(buffers, index);
+				index += columns;
+			}
+		}
+	}
+
+	/**
+	 * Reads a block of <code>rows</code> x <code>columns</code> values,
+	 * starting at <code>row</code> and <code>column</code>, into
+	 * <code>target</code> in column-major order, as used by
+	 * {@link DefaultDenseDoubleMatrix2D}.
+	 */
+	public void getBlock(long row, long column, int rows, int columns, double[] target) {
+		if (rows > 0 && columns > 0) {
+			getIndex(row + rows - 1, column + columns - 1);
+			for (int r = 0; r < rows; r++) {
+				read(getIndex(row + r, column), columns, target, r, rows);
+			}
+		}
+	}
+
+	public void forEachDouble(DoubleMatrix2DVisitor visitor) {
+		final int rows = MathUtil.longToInt(getRowCount());
+		final int cols = MathUtil.longToInt(getColumnCount());
+		final double[] values = new double[cols];
+		for (int r = 0; r < rows; r++) {
+			getRow(r, 0, values, 0, cols);
+			for (int c = 0; c < cols; c++) {
+				visitor.visit(r, c, values[c]);
+			}
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public int getDataType() {
+		return dataType;
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * Closes the file. It is opened again when the matrix is used.
+	 */
+	public synchronized void close() throws IOException {
+		buffers = null;
+		if (randomAccessFile != null) {
+			randomAccessFile.close();
+			randomAccessFile = null;
+		}
+	}
+
+	public void erase() throws IOException {
+		close();
+		file.delete();
+	}
+
+}
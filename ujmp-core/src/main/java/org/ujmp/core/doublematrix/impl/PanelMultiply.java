@@ -0,0 +1,364 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.ujmp.core.util.VerifyUtil.verifyTrue;
+
+import java.util.Arrays;
+
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Cache-blocked matrix multiplication on column-major double arrays,
+ * computing
+ * <p>
+ * <code>C = alpha * op(A) x op(B) + beta * C</code>
+ * <p>
+ * where op(X) is X or its transpose. The result is divided into tiles of
+ * {@link #MC} x {@link #NC} which are computed in parallel. For every step of
+ * {@link #KC} along the inner dimension, a panel of A is packed into row
+ * slivers of height {@link #MR} and a panel of B into column slivers of width
+ * {@link #NR}. The packed panels are kept in thread-local buffers and sized to
+ * stay in the L2 and L3 cache, while a micro-kernel keeps a tile of
+ * {@link #MR} x {@link #NR} values of C in registers.
+ * <p>
+ * All arrays are addressed with an offset and a leading dimension, so the
+ * method can also be applied to sub-matrices.
+ */
+public class PanelMultiply {
+
+	/** Rows of the register tile computed by the micro-kernel. */
+	public static final int MR = 4;
+
+	/** Columns of the register tile computed by the micro-kernel. */
+	public static final int NR = 4;
+
+	/** Depth of the packed panels along the inner dimension. */
+	public static final int KC = 256;
+
+	/** Rows of a packed panel of A, must be a multiple of {@link #MR}. */
+	public static final int MC = 128;
+
+	/** Columns of a packed panel of B, must be a multiple of {@link #NR}. */
+	public static final int NC = 256;
+
+	/** Minimum size of every dimension for which packing pays off. */
+	public static int THRESHOLD = 16;
+
+	private static final ThreadLocal<double[]> packedA = new ThreadLocal<double[]>();
+
+	private static final ThreadLocal<double[]> packedB = new ThreadLocal<double[]>();
+
+	public static final boolean isSuitable(final int m, final int k, final int n) {
+		return m >= THRESHOLD && k >= THRESHOLD && n >= THRESHOLD;
+	}
+
+	/**
+	 * Multiplies two column-major matrices without offsets: C = A x B
+	 * 
+	 * @param a
+	 *            matrix A with m rows and k columns
+	 * @param m
+	 *            number of rows of A and C
+	 * @param k
+	 *            number of columns of A and rows of B
+	 * @param b
+	 *            matrix B with k rows and n columns
+	 * @param n
+	 *            number of columns of B and C
+	 * @param c
+	 *            result matrix C with m rows and n columns
+	 */
+	public static final void multiply(final double[] a, final int m, final int k,
+			final double[] b, final int n, final double[] c) {
+		gemm(false, false, m, n, k, 1.0, a, 0, m, b, 0, k, 0.0, c, 0, m);
+	}
+
+	public static final void gemm(final boolean transA, final boolean transB, final int m,
+			final int n, final int k, final double alpha, final double[] a, final int aOffset,
+			final int lda, final double[] b, final int bOffset, final int ldb, final double beta,
+			final double[] c, final int cOffset, final int ldc) {
+		gemm(UJMPSettings.getInstance().getNumberOfThreads(), transA, transB, m, n, k, alpha, a,
+				aOffset, lda, b, bOffset, ldb, beta, c, cOffset, ldc);
+	}
+
+	/**
+	 * General matrix multiplication: C = alpha * op(A) x op(B) + beta * C
+	 * 
+	 * @param threads
+	 *            maximum number of threads to use
+	 * @param transA
+	 *            use the transpose of A
+	 * @param transB
+	 *            use the transpose of B
+	 * @param m
+	 *            number of rows of op(A) and C
+	 * @param n
+	 *            number of columns of op(B) and C
+	 * @param k
+	 *            number of columns of op(A) and rows of op(B)
+	 * @param alpha
+	 *            factor for the product
+	 * @param a
+	 *            column-major values of A
+	 * @param aOffset
+	 *            index of the first element of A
+	 * @param lda
+	 *            distance between two columns of A
+	 * @param b
+	 *            column-major values of B
+	 * @param bOffset
+	 *            index of the first element of B
+	 * @param ldb
+	 *            distance between two columns of B
+	 * @param beta
+	 *            factor for the previous content of C, which is ignored if
+	 *            beta is 0
+	 * @param c
+	 *            column-major values of C
+	 * @param cOffset
+	 *            index of the first element of C
+	 * @param ldc
+	 *            distance between two columns of C
+	 */
+	public static final void gemm(final int threads, final boolean transA, final boolean transB,
+			final int m, final int n, final int k, final double alpha, final double[] a,
+			final int aOffset, final int lda, final double[] b, final int bOffset, final int ldb,
+			final double beta, final double[] c, final int cOffset, final int ldc) {
+		verifyTrue(m >= 0 && n >= 0 && k >= 0, "negative matrix size");
+		verifyTrue(ldc >= Math.max(1, m), "ldc too small");
+		verifyTrue(lda >= Math.max(1, transA ? k : m), "lda too small");
+		verifyTrue(ldb >= Math.max(1, transB ? n : k), "ldb too small");
+		if (m == 0 || n == 0) {
+			return;
+		}
+
+		final int tileRows = (m + MC - 1) / MC;
+		final int tileColumns = (n + NC - 1) / NC;
+
+		new PForRange(threads, 1, 0, tileRows * tileColumns - 1) {
+			@Override
+			public void step(int first, int last) {
+				for (int t = first; t <= last; t++) {
+					final int ic = (t % tileRows) * MC;
+					final int jc = (t / tileRows) * NC;
+					multiplyTile(transA, transB, ic, Math.min(MC, m - ic), jc,
+							Math.min(NC, n - jc), k, alpha, a, aOffset, lda, b, bOffset, ldb,
+							beta, c, cOffset, ldc);
+				}
+			}
+		};
+	}
+
+	private static final void multiplyTile(final boolean transA, final boolean transB,
+			final int ic, final int mc, final int jc, final int nc, final int k,
+			final double alpha, final double[] a, final int aOffset, final int lda,
+			final double[] b, final int bOffset, final int ldb, final double beta,
+			final double[] c, final int cOffset, final int ldc) {
+		// apply beta to the tile of C once, the panels are added afterwards
+		for (int j = 0; j < nc; j++) {
+			final int col = cOffset + ic + (jc + j) * ldc;
+			if (beta == 0.0) {
+				Arrays.fill(c, col, col + mc, 0.0);
+			} else if (beta != 1.0) {
+				for (int i = col; i < col + mc; i++) {
+					c[i] *= beta;
+				}
+			}
+		}
+		if (k == 0 || alpha == 0.0) {
+			return;
+		}
+
+		final double[] ap = getBuffer(packedA, MC * KC);
+		final double[] bp = getBuffer(packedB, NC * KC);
+		final double[] edge = new double[MR * NR];
+
+		for (int pc = 0; pc < k; pc += KC) {
+			final int kc = Math.min(KC, k - pc);
+			packA(transA, a, aOffset, lda, ic, mc, pc, kc, ap);
+			packB(transB, b, bOffset, ldb, pc, kc, jc, nc, bp);
+
+			for (int jr = 0; jr < nc; jr += NR) {
+				final int nr = Math.min(NR, nc - jr);
+				final int bIndex = jr * kc;
+				for (int ir = 0; ir < mc; ir += MR) {
+					final int mr = Math.min(MR, mc - ir);
+					final int cIndex = cOffset + ic + ir + (jc + jr) * ldc;
+					if (mr == MR && nr == NR) {
+						kernel(kc, alpha, ap, ir * kc, bp, bIndex, c, cIndex, ldc);
+					} else {
+						Arrays.fill(edge, 0.0);
+						kernel(kc, alpha, ap, ir * kc, bp, bIndex, edge, 0, MR);
+						for (int j = 0; j < nr; j++) {
+							for (int i = 0; i < mr; i++) {
+								c[cIndex + i + j * ldc] += edge[i + j * MR];
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packs rows [ic, ic+mc) and columns [pc, pc+kc) of op(A) into slivers of
+	 * {@link #MR} rows. Within a sliver, the values are stored column by
+	 * column. The last sliver is padded with zeros.
+	 */
+	private static final void packA(final boolean transA, final double[] a, final int aOffset,
+			final int lda, final int ic, final int mc, final int pc, final int kc,
+			final double[] ap) {
+		int index = 0;
+		for (int ir = 0; ir < mc; ir += MR) {
+			final int mr = Math.min(MR, mc - ir);
+			for (int p = 0; p < kc; p++) {
+				if (transA) {
+					int pos = aOffset + pc + p + (ic + ir) * lda;
+					for (int i = 0; i < mr; i++) {
+						ap[index++] = a[pos];
+						pos += lda;
+					}
+				} else {
+					int pos = aOffset + ic + ir + (pc + p) * lda;
+					for (int i = 0; i < mr; i++) {
+						ap[index++] = a[pos++];
+					}
+				}
+				for (int i = mr; i < MR; i++) {
+					ap[index++] = 0.0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Packs rows [pc, pc+kc) and columns [jc, jc+nc) of op(B) into slivers of
+	 * {@link #NR} columns. Within a sliver, the values are stored row by row.
+	 * The last sliver is padded with zeros.
+	 */
+	private static final void packB(final boolean transB, final double[] b, final int bOffset,
+			final int ldb, final int pc, final int kc, final int jc, final int nc,
+			final double[] bp) {
+		int index = 0;
+		for (int jr = 0; jr < nc; jr += NR) {
+			final int nr = Math.min(NR, nc - jr);
+			for (int p = 0; p < kc; p++) {
+				if (transB) {
+					int pos = bOffset + jc + jr + (pc + p) * ldb;
+					for (int j = 0; j < nr; j++) {
+						bp[index++] = b[pos++];
+					}
+				} else {
+					int pos = bOffset + pc + p + (jc + jr) * ldb;
+					for (int j = 0; j < nr; j++) {
+						bp[index++] = b[pos];
+						pos += ldb;
+					}
+				}
+				for (int j = nr; j < NR; j++) {
+					bp[index++] = 0.0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds alpha times the product of a packed sliver of A and a packed sliver
+	 * of B to a tile of {@link #MR} x {@link #NR} values of C. The 16
+	 * accumulators are local variables so that the JIT can keep them in
+	 * registers.
+	 */
+	private static final void kernel(final int kc, final double alpha, final double[] ap,
+			int aIndex, final double[] bp, int bIndex, final double[] c, final int cIndex,
+			final int ldc) {
+		double c00 = 0.0, c10 = 0.0, c20 = 0.0, c30 = 0.0;
+		double c01 = 0.0, c11 = 0.0, c21 = 0.0, c31 = 0.0;
+		double c02 = 0.0, c12 = 0.0, c22 = 0.0, c32 = 0.0;
+		double c03 = 0.0, c13 = 0.0, c23 = 0.0, c33 = 0.0;
+
+		for (int p = kc; --p != -1;) {
+			final double a0 = ap[aIndex];
+			final double a1 = ap[aIndex + 1];
+			final double a2 = ap[aIndex + 2];
+			final double a3 = ap[aIndex + 3];
+			aIndex += MR;
+
+			double b = bp[bIndex];
+			c00 += a0 * b;
+			c10 += a1 * b;
+			c20 += a2 * b;
+			c30 += a3 * b;
+			b = bp[bIndex + 1];
+			c01 += a0 * b;
+			c11 += a1 * b;
+			c21 += a2 * b;
+			c31 += a3 * b;
+			b = bp[bIndex + 2];
+			c02 += a0 * b;
+			c12 += a1 * b;
+			c22 += a2 * b;
+			c32 += a3 * b;
+			b = bp[bIndex + 3];
+			c03 += a0 * b;
+			c13 += a1 * b;
+			c23 += a2 * b;
+			c33 += a3 * b;
+			bIndex += NR;
+		}
+
+		int index = cIndex;
+		c[index] += alpha * c00;
+		c[index + 1] += alpha * c10;
+		c[index + 2] += alpha * c20;
+		c[index + 3] += alpha * c30;
+		index += ldc;
+		c[index] += alpha * c01;
+		c[index + 1] += alpha * c11;
+		c[index + 2] += alpha * c21;
+		c[index + 3] += alpha * c31;
+		index += ldc;
+		c[index] += alpha * c02;
+		c[index + 1] += alpha * c12;
+		c[index + 2] += alpha * c22;
+		c[index + 3] += alpha * c32;
+		index += ldc;
+		c[index] += alpha * c03;
+		c[index + 1] += alpha * c13;
+		c[index + 2] += alpha * c23;
+		c[index + 3] += alpha * c33;
+	}
+
+	private static final double[] getBuffer(final ThreadLocal<double[]> buffers, final int size) {
+		double[] buffer = buffers.get();
+		if (buffer == null || buffer.length < size) {
+			buffer = new double[size];
+			buffers.set(buffer);
+		}
+		return buffer;
+	}
+
+}
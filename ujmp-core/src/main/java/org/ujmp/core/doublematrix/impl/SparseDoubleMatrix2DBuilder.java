@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import java.util.Arrays;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.VerifyUtil;
+
+/**
+ * Collects the entries of a sparse matrix as (row, column, value) triplets in
+ * any order and converts them into compressed row or compressed column format
+ * in linear time. Values for the same coordinates are added up, zeros are not
+ * stored.
+ */
+public class SparseDoubleMatrix2DBuilder {
+
+	private static final int INITIALCAPACITY = 16;
+
+	private final int rows;
+
+	private final int columns;
+
+	private int[] rowIndices;
+
+	private int[] columnIndices;
+
+	private double[] values;
+
+	private int count = 0;
+
+	public SparseDoubleMatrix2DBuilder(int rows, int columns) {
+		this(rows, columns, INITIALCAPACITY);
+	}
+
+	public SparseDoubleMatrix2DBuilder(int rows, int columns, int capacity) {
+		this.rows = rows;
+		this.columns = columns;
+		capacity = Math.max(1, capacity);
+		this.rowIndices = new int[capacity];
+		this.columnIndices = new int[capacity];
+		this.values = new double[capacity];
+	}
+
+	/**
+	 * Creates a builder which contains all non-zero entries of the matrix.
+	 */
+	public SparseDoubleMatrix2DBuilder(Matrix m) {
+		this(MathUtil.longToInt(m.getRowCount()), MathUtil.longToInt(m.getColumnCount()));
+		VerifyUtil.verify2D(m);
+		if (m instanceof DoubleMatrix2D) {
+			((DoubleMatrix2D) m).forEachAvailableDouble(new DoubleMatrix2DVisitor() {
+				public void visit(int row, int column, double value) {
+					if (value != 0.0) {
+						add(row, column, value);
+					}
+				}
+			});
+		} else {
+			for (long[] c : m.availableCoordinates()) {
+				final double value = m.getAsDouble(c);
+				if (value != 0.0) {
+					add((int) c[Matrix.ROW], (int) c[Matrix.COLUMN], value);
+				}
+			}
+		}
+	}
+
+	public SparseDoubleMatrix2DBuilder add(int row, int column, double value) {
+		if (row < 0 || row >= rows || column < 0 || column >= columns) {
+			throw new IndexOutOfBoundsException("coordinates out of range: " + row + ","
+					+ column);
+		}
+		if (count == values.length) {
+			final int capacity = count + (count >> 1) + 1;
+			rowIndices = Arrays.copyOf(rowIndices, capacity);
+			columnIndices = Arrays.copyOf(columnIndices, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		rowIndices[count] = row;
+		columnIndices[count] = column;
+		values[count] = value;
+		count++;
+		return this;
+	}
+
+	/**
+	 * @return number of triplets added so far, including duplicates
+	 */
+	public int getEntryCount() {
+		return count;
+	}
+
+	public int getRowCount() {
+		return rows;
+	}
+
+	public int getColumnCount() {
+		return columns;
+	}
+
+	public CompressedRowSparseDoubleMatrix2D toCompressedRow() {
+		final int[] pointers = new int[rows + 1];
+		final int[] indices = new int[count];
+		final double[] values = new double[count];
+		compress(rows, columns, rowIndices, columnIndices, pointers, indices, values);
+		final int nonZeros = pointers[rows];
+		return new CompressedRowSparseDoubleMatrix2D(rows, columns, pointers, Arrays.copyOf(
+				indices, nonZeros), Arrays.copyOf(values, nonZeros));
+	}
+
+	public CompressedColumnSparseDoubleMatrix2D toCompressedColumn() {
+		final int[] pointers = new int[columns + 1];
+		final int[] indices = new int[count];
+		final double[] values = new double[count];
+		compress(columns, rows, columnIndices, rowIndices, pointers, indices, values);
+		final int nonZeros = pointers[columns];
+		return new CompressedColumnSparseDoubleMatrix2D(rows, columns, pointers, Arrays.copyOf(
+				indices, nonZeros), Arrays.copyOf(values, nonZeros));
+	}
+
+	/**
+	 * Sorts the triplets by major and minor index with two counting sorts,
+	 * then adds up duplicates and removes zeros.
+	 */
+	private void compress(final int majorCount, final int minorCount, final int[] major,
+			final int[] minor, final int[] pointers, final int[] indices, final double[] result) {
+		// stable sort by minor index
+		final int[] minorStart = new int[minorCount + 1];
+		for (int e = 0; e < count; e++) {
+			minorStart[minor[e] + 1]++;
+		}
+		for (int i = 0; i < minorCount; i++) {
+			minorStart[i + 1] += minorStart[i];
+		}
+		final int[] byMinor = new int[count];
+		for (int e = 0; e < count; e++) {
+			byMinor[minorStart[minor[e]]++] = e;
+		}
+
+		// stable sort by major index
+		final int[] majorStart = new int[majorCount + 1];
+		for (int e = 0; e < count; e++) {
+			majorStart[major[e] + 1]++;
+		}
+		for (int i = 0; i < majorCount; i++) {
+			majorStart[i + 1] += majorStart[i];
+		}
+		final int[] next = Arrays.copyOf(majorStart, majorCount);
+		final int[] order = new int[count];
+		for (int q = 0; q < count; q++) {
+			final int e = byMinor[q];
+			order[next[major[e]]++] = e;
+		}
+
+		// add up duplicates and remove zeros
+		int pos = 0;
+		for (int m = 0; m < majorCount; m++) {
+			final int start = pos;
+			for (int q = majorStart[m]; q < majorStart[m + 1]; q++) {
+				final int e = order[q];
+				if (pos > start && indices[pos - 1] == minor[e]) {
+					result[pos - 1] += values[e];
+				} else {
+					indices[pos] = minor[e];
+					result[pos] = values[e];
+					pos++;
+				}
+			}
+			int w = start;
+			for (int r = start; r < pos; r++) {
+				if (result[r] != 0.0) {
+					indices[w] = indices[r];
+					result[w] = result[r];
+					w++;
+				}
+			}
+			pos = w;
+			pointers[m + 1] = pos;
+		}
+	}
+
+}
@@ -23,6 +23,9 @@
 
 package org.ujmp.core.doublematrix.impl;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.ujmp.core.collections.Dictionary;
 import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix2D;
 import org.ujmp.core.mapmatrix.DefaultMapMatrix;
@@ -41,9 +44,12 @@ public class SparseFeatureVector extends AbstractSparseDoubleMatrix2D {
 		this.dictionary = dictionary;
 	}
 
-	// TODO: improve
 	public final Iterable<long[]> availableCoordinates() {
-		return allCoordinates();
+		final List<long[]> coordinates = new ArrayList<long[]>(values.size());
+		for (String featureName : values.keySet()) {
+			coordinates.add(new long[] { dictionary.indexOf(featureName), 0 });
+		}
+		return coordinates;
 	}
 
 	public double getDouble(long row, long column) {
@@ -0,0 +1,393 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import java.util.Arrays;
+
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.stub.AbstractCompressedSparseDoubleMatrix2D;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.VerifyUtil;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Multiplication kernels for matrices in compressed row (CSR) or compressed
+ * column (CSC) format:
+ * <ul>
+ * <li>SpMV: sparse matrix x vector</li>
+ * <li>SpMM: sparse matrix x dense matrix and dense matrix x sparse matrix</li>
+ * <li>SpGEMM: sparse matrix x sparse matrix, using Gustavson's row-wise
+ * algorithm with a dense accumulator</li>
+ * </ul>
+ * Every thread computes its own rows or columns of the result, so no
+ * synchronization is needed. Dense matrices with a column-major array are
+ * accessed directly.
+ */
+public class SparseMultiply {
+
+	/**
+	 * Minimum number of multiplications for which multiple threads are used.
+	 */
+	public static int THRESHOLD = 1 << 15;
+
+	private static final int getThreadCount(final long work) {
+		return work < THRESHOLD ? 1 : UJMPSettings.getInstance().getNumberOfThreads();
+	}
+
+	private static final void verifySizes(final long m1Rows, final long m1Columns,
+			final long m2Rows, final long m2Columns, final long resultRows,
+			final long resultColumns) {
+		VerifyUtil.verifyEquals(m1Columns, m2Rows, "matrices have wrong sizes");
+		VerifyUtil.verifyEquals(m1Rows, resultRows, "matrices have wrong sizes");
+		VerifyUtil.verifyEquals(m2Columns, resultColumns, "matrices have wrong sizes");
+	}
+
+	/**
+	 * Sparse matrix x vector: y = A x
+	 */
+	public static final void multiply(final AbstractCompressedSparseDoubleMatrix2D a,
+			final double[] x, final double[] y) {
+		verifySizes(a.getRowCount(), a.getColumnCount(), x.length, 1, y.length, 1);
+		final int[] pointers = a.getPointers();
+		final int[] indices = a.getIndices();
+		final double[] values = a.getValues();
+		if (a.isRowMajor()) {
+			new PForRange(getThreadCount(a.getNonZeroCount()), 0, y.length - 1) {
+				public void step(int first, int last) {
+					for (int i = first; i <= last; i++) {
+						double sum = 0.0;
+						final int end = pointers[i + 1];
+						for (int pos = pointers[i]; pos < end; pos++) {
+							sum += values[pos] * x[indices[pos]];
+						}
+						y[i] = sum;
+					}
+				}
+			};
+		} else {
+			// columns scatter into all of y, which is done in one thread
+			Arrays.fill(y, 0.0);
+			for (int j = 0; j < x.length; j++) {
+				final double xj = x[j];
+				if (xj != 0.0) {
+					final int end = pointers[j + 1];
+					for (int pos = pointers[j]; pos < end; pos++) {
+						y[indices[pos]] += values[pos] * xj;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sparse matrix x dense matrix: C = A x B
+	 */
+	public static final void multiply(final AbstractCompressedSparseDoubleMatrix2D a,
+			final DenseDoubleMatrix2D b, final DenseDoubleMatrix2D c) {
+		verifySizes(a.getRowCount(), a.getColumnCount(), b.getRowCount(), b.getColumnCount(),
+				c.getRowCount(), c.getColumnCount());
+		final int m = (int) a.getRowCount();
+		final int k = (int) a.getColumnCount();
+		final int n = (int) b.getColumnCount();
+		final int[] pointers = a.getPointers();
+		final int[] indices = a.getIndices();
+		final double[] values = a.getValues();
+		final int threads = getThreadCount((long) a.getNonZeroCount() * n);
+
+		if (b instanceof HasColumnMajorDoubleArray1D && c instanceof HasColumnMajorDoubleArray1D) {
+			final double[] barr = ((HasColumnMajorDoubleArray1D) b).getColumnMajorDoubleArray1D();
+			final double[] carr = ((HasColumnMajorDoubleArray1D) c).getColumnMajorDoubleArray1D();
+			if (a.isRowMajor()) {
+				new PForRange(threads, 0, m - 1) {
+					public void step(int first, int last) {
+						for (int j = 0; j < n; j++) {
+							final int boffset = j * k;
+							final int coffset = j * m;
+							for (int i = first; i <= last; i++) {
+								double sum = 0.0;
+								final int end = pointers[i + 1];
+								for (int pos = pointers[i]; pos < end; pos++) {
+									sum += values[pos] * barr[boffset + indices[pos]];
+								}
+								carr[coffset + i] = sum;
+							}
+						}
+					}
+				};
+			} else {
+				new PForRange(threads, 0, n - 1) {
+					public void step(int first, int last) {
+						for (int j = first; j <= last; j++) {
+							final int boffset = j * k;
+							final int coffset = j * m;
+							Arrays.fill(carr, coffset, coffset + m, 0.0);
+							for (int l = 0; l < k; l++) {
+								final double blj = barr[boffset + l];
+								if (blj != 0.0) {
+									final int end = pointers[l + 1];
+									for (int pos = pointers[l]; pos < end; pos++) {
+										carr[coffset + indices[pos]] += values[pos] * blj;
+									}
+								}
+							}
+						}
+					}
+				};
+			}
+		} else if (a.isRowMajor()) {
+			new PForRange(threads, 0, m - 1) {
+				public void step(int first, int last) {
+					final double[] row = new double[n];
+					for (int i = first; i <= last; i++) {
+						Arrays.fill(row, 0.0);
+						final int end = pointers[i + 1];
+						for (int pos = pointers[i]; pos < end; pos++) {
+							final double ail = values[pos];
+							final int l = indices[pos];
+							for (int j = 0; j < n; j++) {
+								row[j] += ail * b.getDouble(l, j);
+							}
+						}
+						for (int j = 0; j < n; j++) {
+							c.setDouble(row[j], i, j);
+						}
+					}
+				}
+			};
+		} else {
+			new PForRange(threads, 0, n - 1) {
+				public void step(int first, int last) {
+					final double[] column = new double[m];
+					for (int j = first; j <= last; j++) {
+						Arrays.fill(column, 0.0);
+						for (int l = 0; l < k; l++) {
+							final double blj = b.getDouble(l, j);
+							if (blj != 0.0) {
+								final int end = pointers[l + 1];
+								for (int pos = pointers[l]; pos < end; pos++) {
+									column[indices[pos]] += values[pos] * blj;
+								}
+							}
+						}
+						for (int i = 0; i < m; i++) {
+							c.setDouble(column[i], i, j);
+						}
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Dense matrix x sparse matrix: C = A x B
+	 */
+	public static final void multiply(final DenseDoubleMatrix2D a,
+			final AbstractCompressedSparseDoubleMatrix2D b, final DenseDoubleMatrix2D c) {
+		verifySizes(a.getRowCount(), a.getColumnCount(), b.getRowCount(), b.getColumnCount(),
+				c.getRowCount(), c.getColumnCount());
+		final int m = (int) a.getRowCount();
+		final int k = (int) a.getColumnCount();
+		final int n = (int) b.getColumnCount();
+		final int[] pointers = b.getPointers();
+		final int[] indices = b.getIndices();
+		final double[] values = b.getValues();
+		final int threads = getThreadCount((long) b.getNonZeroCount() * m);
+
+		if (b.isRowMajor()) {
+			new PForRange(threads, 0, m - 1) {
+				public void step(int first, int last) {
+					final double[] row = new double[n];
+					for (int i = first; i <= last; i++) {
+						Arrays.fill(row, 0.0);
+						for (int l = 0; l < k; l++) {
+							final double ail = a.getDouble(i, l);
+							if (ail != 0.0) {
+								final int end = pointers[l + 1];
+								for (int pos = pointers[l]; pos < end; pos++) {
+									row[indices[pos]] += ail * values[pos];
+								}
+							}
+						}
+						for (int j = 0; j < n; j++) {
+							c.setDouble(row[j], i, j);
+						}
+					}
+				}
+			};
+		} else if (a instanceof HasColumnMajorDoubleArray1D
+				&& c instanceof HasColumnMajorDoubleArray1D) {
+			final double[] aarr = ((HasColumnMajorDoubleArray1D) a).getColumnMajorDoubleArray1D();
+			final double[] carr = ((HasColumnMajorDoubleArray1D) c).getColumnMajorDoubleArray1D();
+			new PForRange(threads, 0, n - 1) {
+				public void step(int first, int last) {
+					for (int j = first; j <= last; j++) {
+						final int coffset = j * m;
+						Arrays.fill(carr, coffset, coffset + m, 0.0);
+						final int end = pointers[j + 1];
+						for (int pos = pointers[j]; pos < end; pos++) {
+							final double blj = values[pos];
+							final int aoffset = indices[pos] * m;
+							for (int i = 0; i < m; i++) {
+								carr[coffset + i] += aarr[aoffset + i] * blj;
+							}
+						}
+					}
+				}
+			};
+		} else {
+			new PForRange(threads, 0, n - 1) {
+				public void step(int first, int last) {
+					final double[] column = new double[m];
+					for (int j = first; j <= last; j++) {
+						Arrays.fill(column, 0.0);
+						final int end = pointers[j + 1];
+						for (int pos = pointers[j]; pos < end; pos++) {
+							final double blj = values[pos];
+							final int l = indices[pos];
+							for (int i = 0; i < m; i++) {
+								column[i] += a.getDouble(i, l) * blj;
+							}
+						}
+						for (int i = 0; i < m; i++) {
+							c.setDouble(column[i], i, j);
+						}
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Sparse matrix x sparse matrix: C = A x B. The result is in compressed
+	 * column format if both matrices are, otherwise in compressed row format.
+	 */
+	public static final AbstractCompressedSparseDoubleMatrix2D multiply(
+			final AbstractCompressedSparseDoubleMatrix2D a,
+			final AbstractCompressedSparseDoubleMatrix2D b) {
+		VerifyUtil.verifyEquals(a.getColumnCount(), b.getRowCount(), "matrices have wrong sizes");
+		final int rows = (int) a.getRowCount();
+		final int columns = (int) b.getColumnCount();
+		if (!a.isRowMajor() && !b.isRowMajor()) {
+			// CSC arrays of A and B are the CSR arrays of A' and B', and
+			// B' x A' = (A x B)' in CSR is A x B in CSC
+			final CompressedRowSparseDoubleMatrix2D transposed = gustavson(columns, rows,
+					b.getPointers(), b.getIndices(), b.getValues(), a.getPointers(),
+					a.getIndices(), a.getValues());
+			return new CompressedColumnSparseDoubleMatrix2D(rows, columns,
+					transposed.getPointers(), transposed.getIndices(), transposed.getValues());
+		} else {
+			final AbstractCompressedSparseDoubleMatrix2D csrA = a.isRowMajor() ? a
+					: ((CompressedColumnSparseDoubleMatrix2D) a).toCompressedRow();
+			final AbstractCompressedSparseDoubleMatrix2D csrB = b.isRowMajor() ? b
+					: ((CompressedColumnSparseDoubleMatrix2D) b).toCompressedRow();
+			return gustavson(rows, columns, csrA.getPointers(), csrA.getIndices(),
+					csrA.getValues(), csrB.getPointers(), csrB.getIndices(), csrB.getValues());
+		}
+	}
+
+	/**
+	 * Multiplies two matrices in CSR format. The rows of the result are
+	 * divided into blocks which are computed independently, each with its own
+	 * dense accumulator, and concatenated afterwards.
+	 */
+	private static final CompressedRowSparseDoubleMatrix2D gustavson(final int m, final int n, final int[] ap,
+			final int[] ai, final double[] av, final int[] bp, final int[] bi, final double[] bv) {
+		final int threads = getThreadCount((long) ap[m] + bp[bp.length - 1]);
+		final int blocks = threads > 1 ? Math.max(1,
+				Math.min(m, threads * PForRange.CHUNKSPERTHREAD)) : 1;
+		final int[] rowCounts = new int[m + 1];
+		final int[][] blockIndices = new int[blocks][];
+		final double[][] blockValues = new double[blocks][];
+		final int[] blockCounts = new int[blocks];
+
+		new PFor(threads, 0, blocks - 1) {
+			public void step(int block) {
+				final int first = (int) ((long) m * block / blocks);
+				final int last = (int) ((long) m * (block + 1) / blocks);
+				final double[] accumulator = new double[n];
+				final int[] marker = new int[n];
+				Arrays.fill(marker, -1);
+				final int[] touched = new int[n];
+				int[] indices = new int[16];
+				double[] values = new double[16];
+				int count = 0;
+				for (int i = first; i < last; i++) {
+					int touchedCount = 0;
+					final int aend = ap[i + 1];
+					for (int apos = ap[i]; apos < aend; apos++) {
+						final double ail = av[apos];
+						final int l = ai[apos];
+						final int bend = bp[l + 1];
+						for (int bpos = bp[l]; bpos < bend; bpos++) {
+							final int j = bi[bpos];
+							if (marker[j] != i) {
+								marker[j] = i;
+								touched[touchedCount++] = j;
+								accumulator[j] = ail * bv[bpos];
+							} else {
+								accumulator[j] += ail * bv[bpos];
+							}
+						}
+					}
+					Arrays.sort(touched, 0, touchedCount);
+					if (count + touchedCount > indices.length) {
+						final int capacity = Math.max(count + touchedCount,
+								indices.length + (indices.length >> 1));
+						indices = Arrays.copyOf(indices, capacity);
+						values = Arrays.copyOf(values, capacity);
+					}
+					final int start = count;
+					for (int t = 0; t < touchedCount; t++) {
+						final int j = touched[t];
+						final double value = accumulator[j];
+						if (value != 0.0) {
+							indices[count] = j;
+							values[count] = value;
+							count++;
+						}
+					}
+					rowCounts[i + 1] = count - start;
+				}
+				blockIndices[block] = indices;
+				blockValues[block] = values;
+				blockCounts[block] = count;
+			}
+		};
+
+		for (int i = 0; i < m; i++) {
+			rowCounts[i + 1] += rowCounts[i];
+		}
+		final int[] indices = new int[rowCounts[m]];
+		final double[] values = new double[rowCounts[m]];
+		for (int block = 0, offset = 0; block < blocks; block++) {
+			System.arraycopy(blockIndices[block], 0, indices, offset, blockCounts[block]);
+			System.arraycopy(blockValues[block], 0, values, offset, blockCounts[block]);
+			offset += blockCounts[block];
+		}
+		return new CompressedRowSparseDoubleMatrix2D(m, n, rowCounts, indices, values);
+	}
+
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.stub;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.ujmp.core.Coordinates;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.VerifyUtil;
+
+/**
+ * Base class for sparse matrices in compressed row (CSR) or compressed column
+ * (CSC) format. The entries of major index <code>i</code> (the row for CSR,
+ * the column for CSC) are stored at the positions
+ * <code>pointers[i]</code> to <code>pointers[i+1]-1</code> of
+ * <code>indices</code> and <code>values</code>, sorted by their minor index.
+ * Reading is fast, inserting a new entry has to move all entries behind it, so
+ * large matrices should be created with a
+ * {@link org.ujmp.core.doublematrix.impl.SparseDoubleMatrix2DBuilder}.
+ */
+public abstract class AbstractCompressedSparseDoubleMatrix2D extends AbstractSparseDoubleMatrix2D {
+	private static final long serialVersionUID = -3398227146414427839L;
+
+	private static final int INITIALCAPACITY = 16;
+
+	private static final double GROWFACTOR = 1.5;
+
+	private final boolean rowMajor;
+
+	private final int majorCount;
+
+	private final int minorCount;
+
+	private int[] pointers;
+
+	private int[] indices;
+
+	private double[] values;
+
+	public AbstractCompressedSparseDoubleMatrix2D(boolean rowMajor, int rows, int columns) {
+		this(rowMajor, rows, columns, new int[(rowMajor ? rows : columns) + 1],
+				new int[INITIALCAPACITY], new double[INITIALCAPACITY]);
+	}
+
+	/**
+	 * Creates a matrix which uses the given arrays for storage, they are not
+	 * copied.
+	 */
+	public AbstractCompressedSparseDoubleMatrix2D(boolean rowMajor, int rows, int columns,
+			int[] pointers, int[] indices, double[] values) {
+		super(rows, columns);
+		this.rowMajor = rowMajor;
+		this.majorCount = rowMajor ? rows : columns;
+		this.minorCount = rowMajor ? columns : rows;
+		VerifyUtil.verifyEquals(pointers.length, majorCount + 1, "pointers have wrong length");
+		VerifyUtil.verifyTrue(indices.length >= pointers[majorCount]
+				&& values.length >= pointers[majorCount], "arrays are too short");
+		this.pointers = pointers;
+		this.indices = indices;
+		this.values = values;
+	}
+
+	/**
+	 * @return true for compressed row storage, false for compressed column
+	 *         storage
+	 */
+	public final boolean isRowMajor() {
+		return rowMajor;
+	}
+
+	/**
+	 * @return number of rows for compressed row storage, number of columns for
+	 *         compressed column storage
+	 */
+	public final int getMajorCount() {
+		return majorCount;
+	}
+
+	/**
+	 * @return number of columns for compressed row storage, number of rows for
+	 *         compressed column storage
+	 */
+	public final int getMinorCount() {
+		return minorCount;
+	}
+
+	/**
+	 * @return number of stored entries
+	 */
+	public final int getNonZeroCount() {
+		return pointers[majorCount];
+	}
+
+	/**
+	 * @return the backing array of start positions, with one entry more than
+	 *         the major dimension
+	 */
+	public final int[] getPointers() {
+		return pointers;
+	}
+
+	/**
+	 * @return the backing array of minor indices, which may be longer than the
+	 *         number of stored entries
+	 */
+	public final int[] getIndices() {
+		return indices;
+	}
+
+	/**
+	 * @return the backing array of values, which may be longer than the number
+	 *         of stored entries
+	 */
+	public final double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Replaces the content of this matrix with the given arrays, which are not
+	 * copied.
+	 */
+	public final void setCompressedArrays(int[] pointers, int[] indices, double[] values) {
+		VerifyUtil.verifyEquals(pointers.length, majorCount + 1, "pointers have wrong length");
+		VerifyUtil.verifyTrue(indices.length >= pointers[majorCount]
+				&& values.length >= pointers[majorCount], "arrays are too short");
+		this.pointers = pointers;
+		this.indices = indices;
+		this.values = values;
+	}
+
+	public final double getDouble(long row, long column) {
+		return getDouble(MathUtil.longToInt(row), MathUtil.longToInt(column));
+	}
+
+	public final double getDouble(int row, int column) {
+		final int major = rowMajor ? row : column;
+		final int minor = rowMajor ? column : row;
+		final int pos = Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+		return pos < 0 ? 0.0 : values[pos];
+	}
+
+	public final void setDouble(double value, long row, long column) {
+		setDouble(value, MathUtil.longToInt(row), MathUtil.longToInt(column));
+	}
+
+	public final void setDouble(double value, int row, int column) {
+		final int major = rowMajor ? row : column;
+		final int minor = rowMajor ? column : row;
+		if (major < 0 || major >= majorCount || minor < 0 || minor >= minorCount) {
+			throw new IndexOutOfBoundsException("coordinates out of range: " + row + "," + column);
+		}
+		int pos = Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+		final int count = pointers[majorCount];
+		if (pos >= 0) {
+			if (value != 0.0) {
+				values[pos] = value;
+			} else {
+				System.arraycopy(indices, pos + 1, indices, pos, count - pos - 1);
+				System.arraycopy(values, pos + 1, values, pos, count - pos - 1);
+				for (int i = major + 1; i <= majorCount; i++) {
+					pointers[i]--;
+				}
+			}
+		} else if (value != 0.0) {
+			pos = -pos - 1;
+			if (count == indices.length) {
+				final int capacity = Math.max(INITIALCAPACITY, (int) (count * GROWFACTOR));
+				indices = Arrays.copyOf(indices, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+			System.arraycopy(indices, pos, indices, pos + 1, count - pos);
+			System.arraycopy(values, pos, values, pos + 1, count - pos);
+			indices[pos] = minor;
+			values[pos] = value;
+			for (int i = major + 1; i <= majorCount; i++) {
+				pointers[i]++;
+			}
+		}
+	}
+
+	public final boolean containsCoordinates(long... coordinates) {
+		return Coordinates.isSmallerThan(coordinates, getSize()) && getDouble(coordinates) != 0.0;
+	}
+
+	public final void clear() {
+		Arrays.fill(pointers, 0);
+	}
+
+	public final void forEachAvailableDouble(DoubleMatrix2DVisitor visitor) {
+		final int[] pointers = this.pointers;
+		final int[] indices = this.indices;
+		final double[] values = this.values;
+		for (int major = 0; major < majorCount; major++) {
+			final int end = pointers[major + 1];
+			for (int pos = pointers[major]; pos < end; pos++) {
+				if (rowMajor) {
+					visitor.visit(major, indices[pos], values[pos]);
+				} else {
+					visitor.visit(indices[pos], major, values[pos]);
+				}
+			}
+		}
+	}
+
+	public final Iterable<long[]> availableCoordinates() {
+		return new Iterable<long[]>() {
+
+			public Iterator<long[]> iterator() {
+				return new Iterator<long[]>() {
+
+					private final long[] cursor = new long[2];
+
+					private int major = 0;
+
+					private int pos = 0;
+
+					public boolean hasNext() {
+						return pos < pointers[majorCount];
+					}
+
+					public long[] next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						while (pointers[major + 1] <= pos) {
+							major++;
+						}
+						cursor[rowMajor ? ROW : COLUMN] = major;
+						cursor[rowMajor ? COLUMN : ROW] = indices[pos++];
+						return cursor;
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Converts compressed arrays into the opposite orientation, i.e. from CSR
+	 * to CSC or from CSC to CSR. The minor indices of the result are sorted.
+	 * <code>newPointers</code> must have a length of
+	 * <code>minorCount + 1</code> and be filled with zeros,
+	 * <code>newIndices</code> and <code>newValues</code> must have room for
+	 * all entries.
+	 */
+	protected static final void transpose(final int majorCount, final int minorCount,
+			final int[] pointers, final int[] indices, final double[] values,
+			final int[] newPointers, final int[] newIndices, final double[] newValues) {
+		final int count = pointers[majorCount];
+		for (int pos = 0; pos < count; pos++) {
+			newPointers[indices[pos] + 1]++;
+		}
+		for (int i = 0; i < minorCount; i++) {
+			newPointers[i + 1] += newPointers[i];
+		}
+		final int[] next = Arrays.copyOf(newPointers, minorCount);
+		for (int major = 0; major < majorCount; major++) {
+			final int end = pointers[major + 1];
+			for (int pos = pointers[major]; pos < end; pos++) {
+				final int target = next[indices[pos]]++;
+				newIndices[target] = major;
+				newValues[target] = values[pos];
+			}
+		}
+	}
+
+}
@@ -37,6 +37,7 @@ import org.ujmp.core.calculation.TimesMatrix;
 import org.ujmp.core.calculation.TimesScalar;
 import org.ujmp.core.calculation.Transpose;
 import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
 import org.ujmp.core.doublematrix.calculation.entrywise.creators.Zeros;
 
 public abstract class AbstractDenseDoubleMatrix2D extends AbstractDoubleMatrix2D implements
@@ -185,6 +186,10 @@ public abstract class AbstractDenseDoubleMatrix2D extends AbstractDoubleMatrix2D
 		return allCoordinates();
 	}
 
+	public final void forEachAvailableDouble(DoubleMatrix2DVisitor visitor) {
+		forEachDouble(visitor);
+	}
+
 	public final void clear() {
 		new Zeros(this).calc(Ret.ORIG);
 	}
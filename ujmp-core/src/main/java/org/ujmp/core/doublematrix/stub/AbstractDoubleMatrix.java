@@ -24,8 +24,10 @@
 package org.ujmp.core.doublematrix.stub;
 
 import org.ujmp.core.doublematrix.DoubleMatrix;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
 import org.ujmp.core.enums.ValueType;
 import org.ujmp.core.numbermatrix.stub.AbstractNumberMatrix;
+import org.ujmp.core.util.MathUtil;
 
 public abstract class AbstractDoubleMatrix extends AbstractNumberMatrix<Double> implements
 		DoubleMatrix {
@@ -63,4 +65,20 @@ public abstract class AbstractDoubleMatrix extends AbstractNumberMatrix<Double>
 		setAsDouble(value, coordinates);
 	}
 
+	public void forEachDouble(DoubleMatrix2DVisitor visitor) {
+		final int rows = MathUtil.longToInt(getRowCount());
+		final int cols = MathUtil.longToInt(getColumnCount());
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				visitor.visit(r, c, getDouble(r, c));
+			}
+		}
+	}
+
+	public void forEachAvailableDouble(DoubleMatrix2DVisitor visitor) {
+		for (long[] c : availableCoordinates()) {
+			visitor.visit((int) c[ROW], (int) c[COLUMN], getDouble(c[ROW], c[COLUMN]));
+		}
+	}
+
 }
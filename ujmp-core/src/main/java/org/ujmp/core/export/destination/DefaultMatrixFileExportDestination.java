@@ -25,6 +25,7 @@ package org.ujmp.core.export.destination;
 
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 
@@ -35,6 +36,7 @@ import org.ujmp.core.export.exporter.DefaultMatrixWriterLatexExporter;
 import org.ujmp.core.export.exporter.DefaultMatrixWriterMatlabScriptExporter;
 import org.ujmp.core.export.exporter.DefaultMatrixWriterRScriptExporter;
 import org.ujmp.core.export.exporter.DefaultMatrixWriterSQLExporter;
+import org.ujmp.core.util.io.BinaryMatrixWriter;
 
 public class DefaultMatrixFileExportDestination extends AbstractMatrixFileExportDestination {
 
@@ -103,4 +105,14 @@ public class DefaultMatrixFileExportDestination extends AbstractMatrixFileExport
 
 	}
 
+	public void asBinary() throws IOException {
+		asBinary(BinaryMatrixWriter.DEFAULTTILESIZE, BinaryMatrixWriter.DEFAULTTILESIZE,
+				BinaryMatrixWriter.DEFAULTCOMPRESSIONLEVEL);
+	}
+
+	public void asBinary(int tileRows, int tileColumns, int compressionLevel) throws IOException {
+		BinaryMatrixWriter.write(getMatrix(), new FileOutputStream(getFile()), tileRows,
+				tileColumns, compressionLevel);
+	}
+
 }
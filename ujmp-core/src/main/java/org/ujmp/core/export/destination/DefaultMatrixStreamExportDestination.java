@@ -35,6 +35,7 @@ import org.ujmp.core.export.exporter.DefaultMatrixWriterLatexExporter;
 import org.ujmp.core.export.exporter.DefaultMatrixWriterMatlabScriptExporter;
 import org.ujmp.core.export.exporter.DefaultMatrixWriterRScriptExporter;
 import org.ujmp.core.export.exporter.DefaultMatrixWriterSQLExporter;
+import org.ujmp.core.util.io.BinaryMatrixWriter;
 
 public class DefaultMatrixStreamExportDestination extends AbstractMatrixStreamExportDestination {
 
@@ -93,4 +94,14 @@ public class DefaultMatrixStreamExportDestination extends AbstractMatrixStreamEx
 		outputStreamWriter.close();
 	}
 
+	public void asBinary() throws IOException {
+		asBinary(BinaryMatrixWriter.DEFAULTTILESIZE, BinaryMatrixWriter.DEFAULTTILESIZE,
+				BinaryMatrixWriter.DEFAULTCOMPRESSIONLEVEL);
+	}
+
+	public void asBinary(int tileRows, int tileColumns, int compressionLevel) throws IOException {
+		BinaryMatrixWriter.write(getMatrix(), getOutputStream(), tileRows, tileColumns,
+				compressionLevel);
+	}
+
 }
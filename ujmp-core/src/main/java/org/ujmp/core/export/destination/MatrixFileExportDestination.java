@@ -23,6 +23,7 @@
 
 package org.ujmp.core.export.destination;
 
+import org.ujmp.core.export.format.MatrixBinaryExportFormat;
 import org.ujmp.core.export.format.MatrixDenseCSVExportFormat;
 import org.ujmp.core.export.format.MatrixLatexExportFormat;
 import org.ujmp.core.export.format.MatrixMatlabScriptExportFormat;
@@ -34,6 +35,6 @@ import org.ujmp.core.export.format.MatrixXLSExportFormat;
 public interface MatrixFileExportDestination extends MatrixExportDestination,
 		MatrixDenseCSVExportFormat, MatrixSQLExportFormat, MatrixMatlabScriptExportFormat,
 		MatrixRScriptExportFormat, MatrixLatexExportFormat, MatrixXLSExportFormat,
-		MatrixPLTExportFormat {
+		MatrixPLTExportFormat, MatrixBinaryExportFormat {
 
 }
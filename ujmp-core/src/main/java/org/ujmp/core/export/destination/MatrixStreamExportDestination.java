@@ -23,6 +23,7 @@
 
 package org.ujmp.core.export.destination;
 
+import org.ujmp.core.export.format.MatrixBinaryExportFormat;
 import org.ujmp.core.export.format.MatrixDenseCSVExportFormat;
 import org.ujmp.core.export.format.MatrixLatexExportFormat;
 import org.ujmp.core.export.format.MatrixMatlabScriptExportFormat;
@@ -31,6 +32,6 @@ import org.ujmp.core.export.format.MatrixSQLExportFormat;
 
 public interface MatrixStreamExportDestination extends MatrixDenseCSVExportFormat,
 		MatrixSQLExportFormat, MatrixMatlabScriptExportFormat, MatrixRScriptExportFormat,
-		MatrixLatexExportFormat, MatrixExportDestination {
+		MatrixLatexExportFormat, MatrixBinaryExportFormat, MatrixExportDestination {
 
 }
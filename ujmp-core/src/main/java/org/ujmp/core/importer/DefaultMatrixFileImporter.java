@@ -30,6 +30,7 @@ import java.lang.reflect.Method;
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
 import org.ujmp.core.importer.format.MatrixBMPImportFormat;
+import org.ujmp.core.importer.format.MatrixBinaryImportFormat;
 import org.ujmp.core.importer.format.MatrixDenseCSVImportFormat;
 import org.ujmp.core.importer.format.MatrixGIFImportFormat;
 import org.ujmp.core.importer.format.MatrixJPGImportFormat;
@@ -38,10 +39,12 @@ import org.ujmp.core.importer.format.MatrixPNGImportFormat;
 import org.ujmp.core.importer.format.MatrixTIFFImportFormat;
 import org.ujmp.core.intmatrix.impl.ImageMatrix;
 import org.ujmp.core.stringmatrix.impl.DenseCSVStringMatrix2D;
+import org.ujmp.core.util.io.BinaryMatrixReader;
 
 public class DefaultMatrixFileImporter extends AbstractMatrixFileImporter implements
 		MatrixJPGImportFormat, MatrixPNGImportFormat, MatrixBMPImportFormat, MatrixGIFImportFormat,
-		MatrixTIFFImportFormat, MatrixDenseCSVImportFormat, MatrixPDFImportFormat {
+		MatrixTIFFImportFormat, MatrixDenseCSVImportFormat, MatrixPDFImportFormat,
+		MatrixBinaryImportFormat {
 
 	public DefaultMatrixFileImporter(Matrix matrix, File file) {
 		super(matrix, file);
@@ -126,4 +129,36 @@ public class DefaultMatrixFileImporter extends AbstractMatrixFileImporter implem
 			throw new IOException("could not import PDF", e);
 		}
 	}
+
+	public Matrix asBinary() throws IOException {
+		final BinaryMatrixReader reader = new BinaryMatrixReader(getFile());
+		final Matrix tmp;
+		try {
+			tmp = reader.read();
+		} finally {
+			reader.close();
+		}
+		if (getTargetMatrix() == null) {
+			return tmp;
+		} else {
+			getTargetMatrix().setContent(Ret.ORIG, tmp, 0, 0);
+			return getTargetMatrix();
+		}
+	}
+
+	public Matrix asBinary(long row, long column, int rows, int columns) throws IOException {
+		final BinaryMatrixReader reader = new BinaryMatrixReader(getFile());
+		final Matrix tmp;
+		try {
+			tmp = reader.read(row, column, rows, columns);
+		} finally {
+			reader.close();
+		}
+		if (getTargetMatrix() == null) {
+			return tmp;
+		} else {
+			getTargetMatrix().setContent(Ret.ORIG, tmp, 0, 0);
+			return getTargetMatrix();
+		}
+	}
 }
@@ -23,12 +23,18 @@
 
 package org.ujmp.core.importer.source;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.intmatrix.impl.ImageMatrix;
 import org.ujmp.core.stringmatrix.impl.DenseCSVStringMatrix2D;
+import org.ujmp.core.util.io.DenseCSVParser;
+import org.ujmp.core.util.io.MemoryByteBufferConcatenation;
+import org.ujmp.core.util.io.SparseCSVReader;
 
 public class DefaultMatrixByteArrayImportSource extends AbstractMatrixByteArrayImportSource {
 
@@ -54,6 +60,45 @@ public class DefaultMatrixByteArrayImportSource extends AbstractMatrixByteArrayI
 		}
 	}
 
+	public Matrix asDenseDoubleCSV() throws IOException {
+		return asDenseDoubleCSV('\0');
+	}
+
+	public Matrix asDenseDoubleCSV(char columnSeparator) throws IOException {
+		return asDenseDoubleCSV(columnSeparator, '\0');
+	}
+
+	public Matrix asDenseDoubleCSV(char columnSeparator, char enclosingCharacter)
+			throws IOException {
+		DenseCSVParser parser = new DenseCSVParser(new MemoryByteBufferConcatenation(
+				ByteBuffer.wrap(getByteArray())), columnSeparator, enclosingCharacter);
+		if (getTargetMatrix() instanceof DenseDoubleMatrix2D) {
+			// dense targets can be filled from several threads
+			parser.parse((DenseDoubleMatrix2D) getTargetMatrix());
+			return getTargetMatrix();
+		} else if (getTargetMatrix() != null) {
+			getTargetMatrix().setContent(Ret.ORIG, parser.parse(), 0, 0);
+			return getTargetMatrix();
+		} else {
+			return parser.parse();
+		}
+	}
+
+	public Matrix asSparseCSV() throws IOException {
+		return asSparseCSV('\0');
+	}
+
+	public Matrix asSparseCSV(char columnSeparator) throws IOException {
+		Matrix m = new SparseCSVReader(new ByteArrayInputStream(getByteArray()), columnSeparator)
+				.read();
+		if (getTargetMatrix() != null) {
+			getTargetMatrix().setContent(Ret.ORIG, m, 0, 0);
+			return getTargetMatrix();
+		} else {
+			return m;
+		}
+	}
+
 	public Matrix asPDF() {
 		// TODO Auto-generated method stub
 		return null;
@@ -23,13 +23,18 @@
 
 package org.ujmp.core.importer.source;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.importer.DefaultMatrixFileImporter;
 import org.ujmp.core.stringmatrix.impl.DenseCSVStringMatrix2D;
+import org.ujmp.core.util.io.DenseCSVParser;
+import org.ujmp.core.util.io.SparseCSVReader;
 
 public class DefaultMatrixFileImportSource extends AbstractMatrixFileImportSource {
 
@@ -65,6 +70,15 @@ public class DefaultMatrixFileImportSource extends AbstractMatrixFileImportSourc
 		return new DefaultMatrixFileImporter(getTargetMatrix(), getFile()).asPNG();
 	}
 
+	public Matrix asBinary() throws IOException {
+		return new DefaultMatrixFileImporter(getTargetMatrix(), getFile()).asBinary();
+	}
+
+	public Matrix asBinary(long row, long column, int rows, int columns) throws IOException {
+		return new DefaultMatrixFileImporter(getTargetMatrix(), getFile()).asBinary(row, column,
+				rows, columns);
+	}
+
 	public Matrix asDenseCSV() throws IOException {
 		return asDenseCSV('\0');
 	}
@@ -83,4 +97,47 @@ public class DefaultMatrixFileImportSource extends AbstractMatrixFileImportSourc
 		}
 	}
 
+	public Matrix asDenseDoubleCSV() throws IOException {
+		return asDenseDoubleCSV('\0');
+	}
+
+	public Matrix asDenseDoubleCSV(char columnSeparator) throws IOException {
+		return asDenseDoubleCSV(columnSeparator, '\0');
+	}
+
+	public Matrix asDenseDoubleCSV(char columnSeparator, char enclosingCharacter)
+			throws IOException {
+		DenseCSVParser parser = new DenseCSVParser(getFile(), columnSeparator, enclosingCharacter);
+		if (getTargetMatrix() instanceof DenseDoubleMatrix2D) {
+			// dense targets can be filled from several threads
+			parser.parse((DenseDoubleMatrix2D) getTargetMatrix());
+			return getTargetMatrix();
+		} else if (getTargetMatrix() != null) {
+			getTargetMatrix().setContent(Ret.ORIG, parser.parse(), 0, 0);
+			return getTargetMatrix();
+		} else {
+			return parser.parse();
+		}
+	}
+
+	public Matrix asSparseCSV() throws IOException {
+		return asSparseCSV('\0');
+	}
+
+	public Matrix asSparseCSV(char columnSeparator) throws IOException {
+		FileInputStream fis = new FileInputStream(getFile());
+		final Matrix m;
+		try {
+			m = new SparseCSVReader(new BufferedInputStream(fis), columnSeparator).read();
+		} finally {
+			fis.close();
+		}
+		if (getTargetMatrix() != null) {
+			getTargetMatrix().setContent(Ret.ORIG, m, 0, 0);
+			return getTargetMatrix();
+		} else {
+			return m;
+		}
+	}
+
 }
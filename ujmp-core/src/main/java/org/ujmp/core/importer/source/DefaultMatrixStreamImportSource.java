@@ -27,11 +27,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 
 import org.ujmp.core.Matrix;
 import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.intmatrix.impl.ImageMatrix;
 import org.ujmp.core.stringmatrix.impl.DenseCSVStringMatrix2D;
+import org.ujmp.core.util.CompressionUtil;
+import org.ujmp.core.util.io.BinaryMatrixReader;
+import org.ujmp.core.util.io.DenseCSVParser;
+import org.ujmp.core.util.io.MemoryByteBufferConcatenation;
+import org.ujmp.core.util.io.SparseCSVReader;
 
 public class DefaultMatrixStreamImportSource extends AbstractMatrixStreamImportSource {
 
@@ -65,6 +72,46 @@ public class DefaultMatrixStreamImportSource extends AbstractMatrixStreamImportS
 		}
 	}
 
+	public Matrix asDenseDoubleCSV() throws IOException {
+		return asDenseDoubleCSV('\0');
+	}
+
+	public Matrix asDenseDoubleCSV(char columnSeparator) throws IOException {
+		return asDenseDoubleCSV(columnSeparator, '\0');
+	}
+
+	public Matrix asDenseDoubleCSV(char columnSeparator, char enclosingCharacter)
+			throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		CompressionUtil.copy(getStream(), bos);
+		DenseCSVParser parser = new DenseCSVParser(new MemoryByteBufferConcatenation(
+				ByteBuffer.wrap(bos.toByteArray())), columnSeparator, enclosingCharacter);
+		if (getTargetMatrix() instanceof DenseDoubleMatrix2D) {
+			// dense targets can be filled from several threads
+			parser.parse((DenseDoubleMatrix2D) getTargetMatrix());
+			return getTargetMatrix();
+		} else if (getTargetMatrix() != null) {
+			getTargetMatrix().setContent(Ret.ORIG, parser.parse(), 0, 0);
+			return getTargetMatrix();
+		} else {
+			return parser.parse();
+		}
+	}
+
+	public Matrix asSparseCSV() throws IOException {
+		return asSparseCSV('\0');
+	}
+
+	public Matrix asSparseCSV(char columnSeparator) throws IOException {
+		Matrix m = new SparseCSVReader(getStream(), columnSeparator).read();
+		if (getTargetMatrix() != null) {
+			getTargetMatrix().setContent(Ret.ORIG, m, 0, 0);
+			return getTargetMatrix();
+		} else {
+			return m;
+		}
+	}
+
 	public Matrix asPDF() throws IOException {
 		try {
 			Class<?> c = Class.forName("org.ujmp.pdfbox.ImportMatrixPDF");
@@ -96,4 +143,18 @@ public class DefaultMatrixStreamImportSource extends AbstractMatrixStreamImportS
 		return new ImageMatrix(getStream());
 	}
 
+	public Matrix asBinary() throws IOException {
+		return asBinary(0, 0, -1, -1);
+	}
+
+	public Matrix asBinary(long row, long column, int rows, int columns) throws IOException {
+		Matrix m = BinaryMatrixReader.read(getStream(), row, column, rows, columns);
+		if (getTargetMatrix() != null) {
+			getTargetMatrix().setContent(Ret.ORIG, m, 0, 0);
+			return getTargetMatrix();
+		} else {
+			return m;
+		}
+	}
+
 }
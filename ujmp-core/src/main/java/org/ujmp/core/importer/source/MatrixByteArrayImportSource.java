@@ -25,15 +25,18 @@ package org.ujmp.core.importer.source;
 
 import org.ujmp.core.importer.format.MatrixBMPImportFormat;
 import org.ujmp.core.importer.format.MatrixDenseCSVImportFormat;
+import org.ujmp.core.importer.format.MatrixDenseDoubleCSVImportFormat;
 import org.ujmp.core.importer.format.MatrixGIFImportFormat;
 import org.ujmp.core.importer.format.MatrixJPGImportFormat;
 import org.ujmp.core.importer.format.MatrixPDFImportFormat;
 import org.ujmp.core.importer.format.MatrixPNGImportFormat;
+import org.ujmp.core.importer.format.MatrixSparseCSVImportFormat;
 import org.ujmp.core.importer.format.MatrixTIFFImportFormat;
 
 public interface MatrixByteArrayImportSource extends MatrixImportSource, MatrixDenseCSVImportFormat,
 		MatrixPDFImportFormat, MatrixJPGImportFormat, MatrixGIFImportFormat, MatrixBMPImportFormat,
-		MatrixPNGImportFormat, MatrixTIFFImportFormat {
+		MatrixPNGImportFormat, MatrixTIFFImportFormat, MatrixDenseDoubleCSVImportFormat,
+		MatrixSparseCSVImportFormat {
 
 	public byte[] getByteArray();
 }
@@ -24,15 +24,19 @@
 package org.ujmp.core.importer.source;
 
 import org.ujmp.core.importer.format.MatrixBMPImportFormat;
+import org.ujmp.core.importer.format.MatrixBinaryImportFormat;
 import org.ujmp.core.importer.format.MatrixDenseCSVImportFormat;
+import org.ujmp.core.importer.format.MatrixDenseDoubleCSVImportFormat;
 import org.ujmp.core.importer.format.MatrixGIFImportFormat;
 import org.ujmp.core.importer.format.MatrixJPGImportFormat;
 import org.ujmp.core.importer.format.MatrixPDFImportFormat;
 import org.ujmp.core.importer.format.MatrixPNGImportFormat;
+import org.ujmp.core.importer.format.MatrixSparseCSVImportFormat;
 import org.ujmp.core.importer.format.MatrixTIFFImportFormat;
 
 public interface MatrixFileImportSource extends MatrixImportSource, MatrixDenseCSVImportFormat,
 		MatrixPDFImportFormat, MatrixJPGImportFormat, MatrixGIFImportFormat, MatrixBMPImportFormat,
-		MatrixPNGImportFormat, MatrixTIFFImportFormat {
+		MatrixPNGImportFormat, MatrixTIFFImportFormat, MatrixBinaryImportFormat,
+		MatrixDenseDoubleCSVImportFormat, MatrixSparseCSVImportFormat {
 
 }
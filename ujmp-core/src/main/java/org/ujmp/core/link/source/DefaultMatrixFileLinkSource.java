@@ -27,7 +27,9 @@ import java.io.File;
 import java.io.IOException;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.BinaryFileMatrix;
 import org.ujmp.core.stringmatrix.impl.DenseCSVStringMatrix2D;
+import org.ujmp.core.util.io.DenseCSVParser;
 
 public class DefaultMatrixFileLinkSource extends AbstractMatrixFileLinkSource {
 
@@ -39,6 +41,10 @@ public class DefaultMatrixFileLinkSource extends AbstractMatrixFileLinkSource {
 		super(file);
 	}
 
+	public Matrix asBinary() throws IOException {
+		return new BinaryFileMatrix(getFile());
+	}
+
 	public Matrix asDenseCSV() throws IOException {
 		return asDenseCSV('\0');
 	}
@@ -47,8 +53,14 @@ public class DefaultMatrixFileLinkSource extends AbstractMatrixFileLinkSource {
 		return asDenseCSV(columnSeparator, '\0');
 	}
 
+	/**
+	 * Links the file without reading it into memory. The positions of the
+	 * rows are kept in an index file next to it, see
+	 * {@link DenseCSVParser#getIndexFile(File)}.
+	 */
 	public Matrix asDenseCSV(char columnSeparator, char enclosingCharacter) throws IOException {
-		Matrix m = new DenseCSVStringMatrix2D(columnSeparator, enclosingCharacter, getFile());
+		Matrix m = new DenseCSVStringMatrix2D(new DenseCSVParser(getFile(), columnSeparator,
+				enclosingCharacter, DenseCSVParser.getIndexFile(getFile())));
 		return m;
 	}
 
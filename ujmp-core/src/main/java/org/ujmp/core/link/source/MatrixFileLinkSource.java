@@ -23,8 +23,10 @@
 
 package org.ujmp.core.link.source;
 
+import org.ujmp.core.link.format.MatrixBinaryLinkFormat;
 import org.ujmp.core.link.format.MatrixDenseCSVLinkFormat;
 
-public interface MatrixFileLinkSource extends MatrixLinkSource, MatrixDenseCSVLinkFormat {
+public interface MatrixFileLinkSource extends MatrixLinkSource, MatrixDenseCSVLinkFormat,
+		MatrixBinaryLinkFormat {
 
 }
@@ -29,12 +29,13 @@ import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.util.List;
 
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
 import org.ujmp.core.stringmatrix.stub.AbstractDenseStringMatrix2D;
-import org.ujmp.core.util.LongArrayList;
 import org.ujmp.core.util.MathUtil;
 import org.ujmp.core.util.StringUtil;
 import org.ujmp.core.util.io.AbstractByteBufferConcatenation;
 import org.ujmp.core.util.io.ByteBufferConcatenation;
+import org.ujmp.core.util.io.DenseCSVParser;
 import org.ujmp.core.util.io.MemoryByteBufferConcatenation;
 import org.ujmp.core.util.io.WeakMappedByteBuffer;
 import org.ujmp.core.util.io.WeakMappedByteBufferConcatenation;
@@ -45,10 +46,7 @@ public class DenseCSVStringMatrix2D extends AbstractDenseStringMatrix2D {
 	public static final int DEFAULTBUFFERSIZE = AbstractByteBufferConcatenation.DEFAULTBUFFERSIZE;
 
 	private final ByteBufferConcatenation byteBufferConcatenation;
-	private char columnSeparator;
-	private char enclosingCharacter;
-
-	private final LongArrayList rowIndexList = new LongArrayList(4096);
+	private final DenseCSVParser parser;
 
 	private long rowCacheId = -1;
 	private List<String> rowCache = null;
@@ -78,16 +76,26 @@ public class DenseCSVStringMatrix2D extends AbstractDenseStringMatrix2D {
 			final WeakMappedByteBuffer... byteBuffers) {
 		super(0, 0);
 		this.byteBufferConcatenation = new WeakMappedByteBufferConcatenation(byteBuffers);
-		this.columnSeparator = columnSeparator;
-		this.enclosingCharacter = enclosingCharacter;
+		this.parser = new DenseCSVParser(byteBufferConcatenation, columnSeparator,
+				enclosingCharacter);
 	}
 
 	public DenseCSVStringMatrix2D(final char columnSeparator, final char enclosingCharacter,
 			final ByteBuffer... byteBuffers) {
 		super(0, 0);
 		this.byteBufferConcatenation = new MemoryByteBufferConcatenation(byteBuffers);
-		this.columnSeparator = columnSeparator;
-		this.enclosingCharacter = enclosingCharacter;
+		this.parser = new DenseCSVParser(byteBufferConcatenation, columnSeparator,
+				enclosingCharacter);
+	}
+
+	/**
+	 * Creates a matrix for the text of the parser, e.g. a parser which uses
+	 * an index file.
+	 */
+	public DenseCSVStringMatrix2D(final DenseCSVParser parser) {
+		super(0, 0);
+		this.byteBufferConcatenation = parser.getByteBufferConcatenation();
+		this.parser = parser;
 	}
 
 	public DenseCSVStringMatrix2D(ByteBuffer... byteBuffers) {
@@ -134,7 +142,7 @@ public class DenseCSVStringMatrix2D extends AbstractDenseStringMatrix2D {
 	}
 
 	public char getColumnSeparator() {
-		return columnSeparator;
+		return parser.getColumnSeparator();
 	}
 
 	public synchronized String getString(long row, long column) {
@@ -148,21 +156,16 @@ public class DenseCSVStringMatrix2D extends AbstractDenseStringMatrix2D {
 			}
 		}
 
-		final long rowPos1 = rowIndexList.get(MathUtil.longToInt(row));
-		final long rowPos2;
-		if (row == size[ROW] - 1) {
-			rowPos2 = byteBufferConcatenation.getLength();
-		} else {
-			rowPos2 = rowIndexList.get(MathUtil.longToInt(row + 1));
-		}
+		final long rowPos1 = parser.getRowStart(row);
+		final long rowPos2 = parser.getRowEnd(row);
 		final int length = MathUtil.longToInt(rowPos2 - rowPos1);
 		final byte[] buffer = new byte[length];
 
 		byteBufferConcatenation.getBytes(buffer, rowPos1, length);
 
 		rowCacheId = row;
-		rowCache = StringUtil.split(new String(buffer, 0, length), columnSeparator,
-				enclosingCharacter);
+		rowCache = StringUtil.split(new String(buffer, 0, length), parser.getColumnSeparator(),
+				parser.getEnclosingCharacter());
 		if (column < rowCache.size()) {
 			return rowCache.get(MathUtil.longToInt(column));
 		} else {
@@ -182,144 +185,20 @@ public class DenseCSVStringMatrix2D extends AbstractDenseStringMatrix2D {
 		if (size[ROW] == 0) {
 			synchronized (this) {
 				if (size[ROW] == 0) {
-					long rows = 0;
-
-					long minTabCount = Long.MAX_VALUE;
-					long minCommaCount = Long.MAX_VALUE;
-					long minSemicolonCount = Long.MAX_VALUE;
-					long minSpaceCount = Long.MAX_VALUE;
-					long minSepCount = Long.MAX_VALUE;
-					long maxTabCount = 0;
-					long maxCommaCount = 0;
-					long maxSemicolonCount = 0;
-					long maxSpaceCount = 0;
-					long maxSepCount = 0;
-					long tabCount = 0;
-					long commaCount = 0;
-					long semicolonCount = 0;
-					long spaceCount = 0;
-					long sepCount = 0;
-
-					boolean active = true;
-
-					final byte[] buffer = new byte[DEFAULTBUFFERSIZE];
-
-					rowIndexList.add(0l);
-
-					for (long pos = 0; pos < byteBufferConcatenation.getLength(); pos += buffer.length) {
-						final long remaining = byteBufferConcatenation.getLength() - pos;
-						final int lengthToRead = MathUtil.longToInt(Math.min(remaining,
-								buffer.length));
-						byteBufferConcatenation.getBytes(buffer, pos, lengthToRead);
-						for (int i = 0; i < lengthToRead; i++) {
-							if (buffer[i] == enclosingCharacter) {
-								active = !active;
-							} else if (active) {
-								if (buffer[i] == columnSeparator) {
-									sepCount++;
-								} else {
-									switch (buffer[i]) {
-									case '\\':
-										i++; // skip masked character
-										break;
-									case '\n':
-										maxTabCount = Math.max(maxTabCount, tabCount);
-										minTabCount = Math.min(minTabCount, tabCount);
-										maxCommaCount = Math.max(maxCommaCount, commaCount);
-										minCommaCount = Math.min(minCommaCount, commaCount);
-										maxSemicolonCount = Math.max(maxSemicolonCount,
-												semicolonCount);
-										minSemicolonCount = Math.min(minSemicolonCount,
-												semicolonCount);
-										maxSpaceCount = Math.max(maxSpaceCount, spaceCount);
-										minSpaceCount = Math.min(minSpaceCount, spaceCount);
-										maxSepCount = Math.max(maxSepCount, sepCount);
-										minSepCount = Math.min(minSepCount, sepCount);
-										tabCount = 0;
-										commaCount = 0;
-										semicolonCount = 0;
-										spaceCount = 0;
-										sepCount = 0;
-										rowIndexList.add(pos + i + 1);
-										rows++;
-										break;
-									case '\t':
-										tabCount++;
-										break;
-									case ';':
-										semicolonCount++;
-										break;
-									case ',':
-										commaCount++;
-										break;
-									case ' ':
-										spaceCount++;
-										break;
-									default:
-										break;
-									}
-								}
-							}
-						}
-					}
-
-					if (byteBufferConcatenation.getByte(byteBufferConcatenation.getLength() - 1) != '\n') {
-						rows++;
-					}
-
-					if (sepCount > 0 || tabCount > 0 || commaCount > 0 || semicolonCount > 0
-							|| spaceCount > 0) {
-						maxTabCount = Math.max(maxTabCount, tabCount);
-						minTabCount = Math.min(minTabCount, tabCount);
-						maxCommaCount = Math.max(maxCommaCount, commaCount);
-						minCommaCount = Math.min(minCommaCount, commaCount);
-						maxSemicolonCount = Math.max(maxSemicolonCount, semicolonCount);
-						minSemicolonCount = Math.min(minSemicolonCount, semicolonCount);
-						maxSpaceCount = Math.max(maxSpaceCount, spaceCount);
-						minSpaceCount = Math.min(minSpaceCount, spaceCount);
-						maxSepCount = Math.max(maxSepCount, sepCount);
-						minSepCount = Math.min(minSepCount, sepCount);
-					}
-
-					if (columnSeparator == '\0') {
-						if (tabCount > 0) {
-							columnSeparator = '\t';
-						} else if (minSemicolonCount == maxSemicolonCount && minSemicolonCount > 0) {
-							columnSeparator = ';';
-						} else if (minCommaCount == maxCommaCount && minCommaCount > 0) {
-							columnSeparator = ',';
-						} else if (minSpaceCount == maxSpaceCount && minSpaceCount > 0) {
-							columnSeparator = ' ';
-						} else {
-							columnSeparator = '\t';
-						}
-						if (columnSeparator == '\t') {
-							size[ROW] = rows;
-							size[COLUMN] = maxTabCount + 1;
-						} else if (columnSeparator == ',') {
-							size[ROW] = rows;
-							size[COLUMN] = maxCommaCount + 1;
-						} else if (columnSeparator == ';') {
-							size[ROW] = rows;
-							size[COLUMN] = maxSemicolonCount + 1;
-						} else if (columnSeparator == ' ') {
-							size[ROW] = rows;
-							size[COLUMN] = maxSpaceCount + 1;
-						} else {
-							size[ROW] = rows;
-							size[COLUMN] = maxSepCount + 1;
-						}
-					} else {
-						size[ROW] = rows;
-						size[COLUMN] = maxSepCount + 1;
-					}
-
+					size[COLUMN] = parser.getColumnCount();
+					size[ROW] = parser.getRowCount();
 				}
 			}
-			System.out.println(size[ROW] + " rows, " + size[COLUMN] + " columns");
 		}
 	}
 
+	/**
+	 * Parses all values as numbers, in parallel and without creating Strings.
+	 */
+	public DenseDoubleMatrix2D parseDoubleMatrix() {
+		return parser.parse();
+	}
+
 	public long[] getSize() {
 		countRowsAndColumns();
 		return size;
@@ -82,6 +82,32 @@ public abstract class CompressionUtil {
 		return bos.toByteArray();
 	}
 
+	/**
+	 * Decompresses data created by {@link #zipCompress(byte[], int)} directly
+	 * into <code>output</code>, which must have the uncompressed size.
+	 */
+	public static void zipDecompress(byte[] input, byte[] output) throws IOException {
+		Inflater inflator = new Inflater();
+		inflator.setInput(input);
+		try {
+			int length = 0;
+			while (length < output.length) {
+				int count = inflator.inflate(output, length, output.length - length);
+				if (count == 0) {
+					break;
+				}
+				length += count;
+			}
+			if (length != output.length) {
+				throw new IOException("bad zip data, expected " + output.length + " bytes");
+			}
+		} catch (DataFormatException t) {
+			throw new IOException("bad zip data", t);
+		} finally {
+			inflator.end();
+		}
+	}
+
 	public static byte[] gzipCompress(byte[] input) {
 		ByteArrayOutputStream bos = new ByteArrayOutputStream();
 		try {
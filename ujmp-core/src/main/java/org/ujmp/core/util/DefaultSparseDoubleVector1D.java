@@ -27,6 +27,7 @@ import java.util.Arrays;
 import java.util.Iterator;
 
 import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
 import org.ujmp.core.doublematrix.stub.AbstractSparseDoubleMatrix2D;
 
 public class DefaultSparseDoubleVector1D extends AbstractSparseDoubleMatrix2D {
@@ -197,6 +198,20 @@ public class DefaultSparseDoubleVector1D extends AbstractSparseDoubleMatrix2D {
 		return new NonZeroIterable(indices, valueCount);
 	}
 
+	public void forEachAvailableDouble(DoubleMatrix2DVisitor visitor) {
+		final long[] indices = this.indices;
+		final double[] values = this.values;
+		if (transposed) {
+			for (int i = 0; i < valueCount; i++) {
+				visitor.visit(0, (int) indices[i], values[i]);
+			}
+		} else {
+			for (int i = 0; i < valueCount; i++) {
+				visitor.visit((int) indices[i], 0, values[i]);
+			}
+		}
+	}
+
 }
 
 class NonZeroIterable implements Iterable<long[]> {
@@ -0,0 +1,423 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Hash map from non-negative <code>long</code> keys to <code>double</code>
+ * values without boxing. Keys and values are stored in two parallel arrays
+ * using open addressing with linear probing, so an entry costs 16 bytes
+ * divided by the load factor instead of the key object, the boxed value and
+ * the entry object of a <code>java.util.HashMap</code>. Removed entries are
+ * not marked with tombstones, the following entries of the probe sequence
+ * are shifted back instead.
+ * <p>
+ * The table grows by a factor of two as soon as more than
+ * <code>maxLoadFactor</code> of the slots are used. If
+ * <code>minLoadFactor</code> is larger than zero, it shrinks again when the
+ * number of entries falls below that fraction. Use
+ * {@link #ensureCapacity(int)} or {@link #putAll(long[], double[], int)} to
+ * avoid rehashing when the number of entries is known in advance and
+ * {@link #trimToSize()} to release memory afterwards.
+ * <p>
+ * The slots can be traversed with {@link #nextSlot(int)},
+ * {@link #getKeyAt(int)} and {@link #getValueAt(int)}. Entries must not be
+ * added or removed during such a traversal.
+ */
+public class LongDoubleHashMap implements Serializable {
+	private static final long serialVersionUID = 6410617423306014327L;
+
+	public static final long FREE = -1;
+
+	public static final int DEFAULT_CAPACITY = 16;
+
+	public static final float DEFAULT_MAX_LOAD_FACTOR = 0.75f;
+
+	public static final float DEFAULT_MIN_LOAD_FACTOR = 0.0f;
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private static final long PHI = 0x9E3779B97F4A7C15L;
+
+	private final float maxLoadFactor;
+
+	private final float minLoadFactor;
+
+	private final int minCapacity;
+
+	private long[] keys;
+
+	private double[] values;
+
+	private int size;
+
+	private int mask;
+
+	private int shift;
+
+	private int growThreshold;
+
+	private int shrinkThreshold;
+
+	public LongDoubleHashMap() {
+		this(DEFAULT_CAPACITY, DEFAULT_MAX_LOAD_FACTOR, DEFAULT_MIN_LOAD_FACTOR);
+	}
+
+	public LongDoubleHashMap(int expectedSize) {
+		this(expectedSize, DEFAULT_MAX_LOAD_FACTOR, DEFAULT_MIN_LOAD_FACTOR);
+	}
+
+	public LongDoubleHashMap(int expectedSize, float maxLoadFactor, float minLoadFactor) {
+		if (expectedSize < 0) {
+			throw new IllegalArgumentException("expected size must not be negative: "
+					+ expectedSize);
+		}
+		if (!(maxLoadFactor > 0.0f && maxLoadFactor < 1.0f)) {
+			throw new IllegalArgumentException("max load factor must be between 0 and 1: "
+					+ maxLoadFactor);
+		}
+		if (!(minLoadFactor >= 0.0f && minLoadFactor < maxLoadFactor / 2.0f)) {
+			throw new IllegalArgumentException(
+					"min load factor must be between 0 and half the max load factor: "
+							+ minLoadFactor);
+		}
+		this.maxLoadFactor = maxLoadFactor;
+		this.minLoadFactor = minLoadFactor;
+		this.minCapacity = capacityFor(expectedSize);
+		allocate(minCapacity);
+	}
+
+	public LongDoubleHashMap(LongDoubleHashMap source) {
+		this.maxLoadFactor = source.maxLoadFactor;
+		this.minLoadFactor = source.minLoadFactor;
+		this.minCapacity = source.minCapacity;
+		this.keys = Arrays.copyOf(source.keys, source.keys.length);
+		this.values = Arrays.copyOf(source.values, source.values.length);
+		this.size = source.size;
+		this.mask = source.mask;
+		this.shift = source.shift;
+		this.growThreshold = source.growThreshold;
+		this.shrinkThreshold = source.shrinkThreshold;
+	}
+
+	public final int size() {
+		return size;
+	}
+
+	public final boolean isEmpty() {
+		return size == 0;
+	}
+
+	public final int capacity() {
+		return keys.length;
+	}
+
+	public final double get(long key) {
+		return get(key, 0.0);
+	}
+
+	public final double get(long key, double defaultValue) {
+		if (key < 0) {
+			return defaultValue;
+		}
+		final long[] keys = this.keys;
+		final int mask = this.mask;
+		for (int slot = slot(key);; slot = (slot + 1) & mask) {
+			final long k = keys[slot];
+			if (k == key) {
+				return values[slot];
+			} else if (k == FREE) {
+				return defaultValue;
+			}
+		}
+	}
+
+	public final boolean containsKey(long key) {
+		return key >= 0 && indexOf(key) >= 0;
+	}
+
+	/**
+	 * Stores a value and returns the previous value of this key or 0.0 if the
+	 * key was not contained in the map.
+	 */
+	public final double put(long key, double value) {
+		checkKey(key);
+		int slot = findSlot(key);
+		if (keys[slot] == key) {
+			final double old = values[slot];
+			values[slot] = value;
+			return old;
+		}
+		if (size >= growThreshold) {
+			rehash(keys.length << 1);
+			slot = findSlot(key);
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		return 0.0;
+	}
+
+	/**
+	 * Adds a value to the value stored for a key, which is treated as 0.0 if
+	 * the key does not exist, and returns the new value.
+	 */
+	public final double add(long key, double value) {
+		checkKey(key);
+		int slot = findSlot(key);
+		if (keys[slot] == key) {
+			return values[slot] += value;
+		}
+		if (size >= growThreshold) {
+			rehash(keys.length << 1);
+			slot = findSlot(key);
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		return value;
+	}
+
+	/**
+	 * Stores the first <code>count</code> entries of the given arrays. The
+	 * table is resized at most once beforehand. Later entries overwrite earlier
+	 * ones with the same key.
+	 */
+	public final void putAll(long[] keys, double[] values, int count) {
+		if (count > keys.length || count > values.length) {
+			throw new IllegalArgumentException("count exceeds the length of the arrays");
+		}
+		ensureCapacity(size + count);
+		for (int i = 0; i < count; i++) {
+			final long key = keys[i];
+			checkKey(key);
+			final int slot = findSlot(key);
+			if (this.keys[slot] != key) {
+				this.keys[slot] = key;
+				size++;
+			}
+			this.values[slot] = values[i];
+		}
+	}
+
+	public final void putAll(LongDoubleHashMap map) {
+		ensureCapacity(size + map.size);
+		final long[] otherKeys = map.keys;
+		final double[] otherValues = map.values;
+		for (int i = 0; i < otherKeys.length; i++) {
+			final long key = otherKeys[i];
+			if (key != FREE) {
+				final int slot = findSlot(key);
+				if (keys[slot] != key) {
+					keys[slot] = key;
+					size++;
+				}
+				values[slot] = otherValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Removes a key and returns its value or 0.0 if the key was not contained
+	 * in the map.
+	 */
+	public final double remove(long key) {
+		if (key < 0) {
+			return 0.0;
+		}
+		final int slot = indexOf(key);
+		if (slot < 0) {
+			return 0.0;
+		}
+		final double old = values[slot];
+		removeAt(slot);
+		if (size < shrinkThreshold) {
+			rehash(keys.length >>> 1);
+		}
+		return old;
+	}
+
+	public final void clear() {
+		if (keys.length > minCapacity) {
+			allocate(minCapacity);
+		} else {
+			Arrays.fill(keys, FREE);
+		}
+		size = 0;
+	}
+
+	/**
+	 * Resizes the table so that it can hold the given number of entries
+	 * without rehashing.
+	 */
+	public final void ensureCapacity(int expectedSize) {
+		final int capacity = capacityFor(expectedSize);
+		if (capacity > keys.length) {
+			rehash(capacity);
+		}
+	}
+
+	/**
+	 * Shrinks the table to the smallest capacity that holds the current
+	 * entries within the maximum load factor.
+	 */
+	public final void trimToSize() {
+		final int capacity = Math.max(capacityFor(size), 2);
+		if (capacity < keys.length) {
+			rehash(capacity);
+		}
+	}
+
+	/**
+	 * Returns the first used slot at or after the given one or -1 if there is
+	 * none.
+	 */
+	public final int nextSlot(int slot) {
+		final long[] keys = this.keys;
+		for (int i = slot; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public final long getKeyAt(int slot) {
+		return keys[slot];
+	}
+
+	public final double getValueAt(int slot) {
+		return values[slot];
+	}
+
+	public final long[] keys() {
+		final long[] result = new long[size];
+		int j = 0;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != FREE) {
+				result[j++] = keys[i];
+			}
+		}
+		return result;
+	}
+
+	private final int slot(long key) {
+		return (int) ((key * PHI) >>> shift);
+	}
+
+	private final int indexOf(long key) {
+		final long[] keys = this.keys;
+		for (int slot = slot(key);; slot = (slot + 1) & mask) {
+			final long k = keys[slot];
+			if (k == key) {
+				return slot;
+			} else if (k == FREE) {
+				return -1;
+			}
+		}
+	}
+
+	private final int findSlot(long key) {
+		final long[] keys = this.keys;
+		int slot = slot(key);
+		while (keys[slot] != key && keys[slot] != FREE) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private final void removeAt(int slot) {
+		final long[] keys = this.keys;
+		final double[] values = this.values;
+		int gap = slot;
+		for (int i = (slot + 1) & mask; keys[i] != FREE; i = (i + 1) & mask) {
+			// the entry may move into the gap if the gap lies between its home
+			// slot and its current slot
+			final int home = slot(keys[i]);
+			if (((i - home) & mask) >= ((i - gap) & mask)) {
+				keys[gap] = keys[i];
+				values[gap] = values[i];
+				gap = i;
+			}
+		}
+		keys[gap] = FREE;
+		values[gap] = 0.0;
+		size--;
+	}
+
+	private final void rehash(int capacity) {
+		if (capacity > MAXIMUM_CAPACITY) {
+			throw new IllegalStateException("hash map cannot hold more than "
+					+ (int) (MAXIMUM_CAPACITY * maxLoadFactor) + " entries");
+		}
+		final long[] oldKeys = keys;
+		final double[] oldValues = values;
+		allocate(capacity);
+		final long[] keys = this.keys;
+		final double[] values = this.values;
+		for (int i = 0; i < oldKeys.length; i++) {
+			final long key = oldKeys[i];
+			if (key != FREE) {
+				int slot = slot(key);
+				while (keys[slot] != FREE) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private final void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, FREE);
+		values = new double[capacity];
+		mask = capacity - 1;
+		shift = 64 - Integer.numberOfTrailingZeros(capacity);
+		growThreshold = Math.min((int) (capacity * maxLoadFactor), capacity - 1);
+		shrinkThreshold = capacity > minCapacity ? (int) (capacity * minLoadFactor) : 0;
+	}
+
+	private final int capacityFor(int expectedSize) {
+		final long needed = (long) Math.ceil(expectedSize / (double) maxLoadFactor) + 1;
+		if (needed > MAXIMUM_CAPACITY) {
+			throw new IllegalArgumentException("hash map cannot hold " + expectedSize
+					+ " entries");
+		}
+		int capacity = 2;
+		while (capacity < needed) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	private static final void checkKey(long key) {
+		if (key < 0) {
+			throw new IllegalArgumentException("keys must not be negative: " + key);
+		}
+	}
+
+}
@@ -1043,6 +1043,75 @@ public abstract class MathUtil {
 		return mu + sigma * val;
 	}
 
+	/**
+	 * Quantile of Student's t-distribution with <code>df</code> degrees of
+	 * freedom, using Hill's approximation (CACM algorithm 396). The degrees of
+	 * freedom do not have to be integer, as required for Welch's t-test.
+	 *
+	 * @param p
+	 *            lower tail probability
+	 * @param df
+	 *            degrees of freedom
+	 * @return t such that P(T &lt;= t) = p
+	 */
+	public static double tinv(double p, double df) {
+		if (MathUtil.isNaNOrInfinite(p) || p < 0 || p > 1 || !(df > 0)) {
+			return Double.NaN;
+		}
+
+		if (p == 1) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		if (p == 0) {
+			return Double.NEGATIVE_INFINITY;
+		}
+
+		if (p == 0.5) {
+			return 0.0;
+		}
+
+		if (Double.isInfinite(df)) {
+			return norminv(p, 0.0, 1.0);
+		}
+
+		// two-tailed probability
+		double p2 = 2.0 * Math.min(p, 1.0 - p);
+		double t;
+
+		if (df == 1.0) {
+			double a = p2 * Math.PI / 2.0;
+			t = Math.cos(a) / Math.sin(a);
+		} else if (df == 2.0) {
+			t = Math.sqrt(2.0 / (p2 * (2.0 - p2)) - 2.0);
+		} else {
+			double a = 1.0 / (df - 0.5);
+			double b = 48.0 / (a * a);
+			double c = ((20700.0 * a / b - 98.0) * a - 16.0) * a + 96.36;
+			double d = ((94.5 / (b + c) - 3.0) / b + 1.0) * Math.sqrt(a * Math.PI / 2.0) * df;
+			double x = d * p2;
+			double y = Math.pow(x, 2.0 / df);
+			if (y > 0.05 + a) {
+				x = norminv(0.5 * p2, 0.0, 1.0);
+				y = x * x;
+				if (df < 5.0) {
+					c += 0.3 * (df - 4.5) * (x + 0.6);
+				}
+				c = (((0.05 * d * x - 5.0) * x - 7.0) * x - 2.0) * x + b + c;
+				y = (((((0.4 * y + 6.3) * y + 36.0) * y + 94.5) / c - y - 3.0) / b + 1.0) * x;
+				y = a * y * y;
+				y = y > 0.002 ? Math.exp(y) - 1.0 : 0.5 * y * y + y;
+			} else {
+				y = ((1.0 / (((df + 6.0) / (df * y) - 0.089 * d - 0.822) * (df + 2.0) * 3.0) + 0.5 / (df + 4.0))
+						* y - 1.0)
+						* (df + 1.0) / (df + 2.0) + 1.0 / y;
+			}
+			t = Math.sqrt(df * y);
+		}
+
+		return p < 0.5 ? -t : t;
+	}
+
 	public static double f1Measure(double tp, double fp, double fn) {
 		double precision = precision(tp, fp);
 		double recall = recall(tp, fn);
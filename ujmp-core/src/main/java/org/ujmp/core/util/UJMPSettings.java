@@ -23,6 +23,7 @@
 
 package org.ujmp.core.util;
 
+import java.io.File;
 import java.math.MathContext;
 import java.util.Locale;
 
@@ -34,6 +35,9 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 	private static final Object lock = new Object();
 
 	public static final String USEBLOCKMATRIXMULTIPLY = "UseBlockMatrixMultiply";
+	public static final String USEPANELMATRIXMULTIPLY = "UsePanelMatrixMultiply";
+	public static final String USEMTIMESCALIBRATION = "UseMtimesCalibration";
+	public static final String MTIMESPROFILE = "MtimesProfile";
 	public static final String USEMULTITHREADEDRANDOM = "UseMultThreadedRandom";
 	public static final String DEFAULTBLOCKSIZE = "DefaultBlockSize";
 	public static final String MATHCONTEXT = "MathContext";
@@ -61,6 +65,9 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 		put(MATHCONTEXT, MathContext.DECIMAL128);
 		put(USEMULTITHREADEDRANDOM, true);
 		put(USEBLOCKMATRIXMULTIPLY, false);
+		put(USEPANELMATRIXMULTIPLY, true);
+		put(USEMTIMESCALIBRATION, false);
+		put(MTIMESPROFILE, getTempDir() + File.separator + "ujmp-mtimes-profile.properties");
 		put(DEFAULTTOLERANCE, 1.0e-12);
 
 		put(USEJBLAS, true);
@@ -214,6 +221,31 @@ public class UJMPSettings extends DefaultMapMatrix<String, Object> {
 		put(USEBLOCKMATRIXMULTIPLY, useBlockMatrix);
 	}
 
+	public boolean isUsePanelMatrixMultiply() {
+		return MathUtil.getBoolean(get(USEPANELMATRIXMULTIPLY));
+	}
+
+	public void setUsePanelMatrixMultiply(boolean usePanelMatrixMultiply) {
+		put(USEPANELMATRIXMULTIPLY, usePanelMatrixMultiply);
+	}
+
+	public boolean isUseMtimesCalibration() {
+		return MathUtil.getBoolean(get(USEMTIMESCALIBRATION));
+	}
+
+	public void setUseMtimesCalibration(boolean useMtimesCalibration) {
+		put(USEMTIMESCALIBRATION, useMtimesCalibration);
+	}
+
+	public File getMtimesProfile() {
+		Object file = get(MTIMESPROFILE);
+		return file == null ? null : new File(StringUtil.getString(file));
+	}
+
+	public void setMtimesProfile(File file) {
+		put(MTIMESPROFILE, file == null ? null : file.getAbsolutePath());
+	}
+
 	public boolean isUseMultiThreadedRandom() {
 		return MathUtil.getBoolean(USEMULTITHREADEDRANDOM);
 	}
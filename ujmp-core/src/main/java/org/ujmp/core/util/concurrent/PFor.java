@@ -23,12 +23,13 @@
 
 package org.ujmp.core.util.concurrent;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
-
 import org.ujmp.core.util.UJMPSettings;
 
+/**
+ * Parallel loop over the indices [first, last], calling step() once for
+ * every index. This is a thin adapter around {@link PForRange}, which
+ * distributes the indices over the {@link UJMPForkJoinPool} by work stealing.
+ */
 public abstract class PFor {
 
 	private final Object[] objects;
@@ -40,30 +41,14 @@ public abstract class PFor {
 	public PFor(final int threads, final int first, final int last, final Object... objects) {
 		this.objects = objects;
 
-		if (threads < 2) {
-			for (int i = first; i <= last; i++) {
-				step(i);
-			}
-		} else {
-			final ThreadPoolExecutor es = UJMPThreadPoolExecutor.getInstance(threads);
-
-			final Future<?>[] list = new Future[threads];
-			final double stepsize = (double) (last + 1 - first) / threads;
-
-			for (int i = 0; i < threads; i++) {
-				int starti = (int) Math.ceil(first + i * stepsize);
-				int endi = (int) Math.ceil(first + (i + 1) * stepsize);
-				list[i] = es.submit(new StepCallable(starti, endi));
-			}
-
-			for (Future<?> f : list) {
-				try {
-					f.get();
-				} catch (Exception e) {
-					e.printStackTrace();
+		new PForRange(threads, 0, first, last) {
+			@Override
+			public void step(int first, int last) {
+				for (int i = first; i <= last; i++) {
+					PFor.this.step(i);
 				}
 			}
-		}
+		};
 	}
 
 	public PFor(final int first, final int last) {
@@ -80,22 +65,4 @@ public abstract class PFor {
 		return objects[i];
 	}
 
-	class StepCallable implements Callable<Object> {
-		private final int first;
-		private final int last;
-
-		public StepCallable(final int first, final int last) {
-			this.first = first;
-			this.last = last;
-		}
-
-		public final Void call() throws Exception {
-			for (int i = first; i < last; i++) {
-				step(i);
-			}
-			return null;
-		}
-
-	}
-
 }
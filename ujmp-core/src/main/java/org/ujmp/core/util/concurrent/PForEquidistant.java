@@ -23,12 +23,15 @@
 
 package org.ujmp.core.util.concurrent;
 
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
-import java.util.concurrent.ThreadPoolExecutor;
-
 import org.ujmp.core.util.UJMPSettings;
 
+/**
+ * Parallel loop over the indices [first, last], calling step() once for
+ * every index. It used to assign every n-th index to the same thread to
+ * balance loops with increasing cost per index. Work stealing in
+ * {@link PForRange} balances such loops as well, so this class is now a thin
+ * adapter that only uses a finer grain size.
+ */
 public abstract class PForEquidistant {
 
 	private final Object[] objects;
@@ -37,27 +40,15 @@ public abstract class PForEquidistant {
 			final Object... objects) {
 		this.objects = objects;
 
-		if (threads < 2) {
-			for (int i = first; i <= last; i++) {
-				step(i);
-			}
-		} else {
-			final ThreadPoolExecutor es = UJMPThreadPoolExecutor.getInstance(threads);
-
-			final Future<?>[] list = new Future[threads];
-
-			for (int i = 0; i < threads; i++) {
-				list[i] = es.submit(new StepCallable(first + i, last, threads));
-			}
-
-			for (Future<?> f : list) {
-				try {
-					f.get();
-				} catch (Exception e) {
-					e.printStackTrace();
+		new PForRange(threads, PForRange.getDefaultGrainSize(threads * 2, last - first + 1),
+				first, last) {
+			@Override
+			public void step(int first, int last) {
+				for (int i = first; i <= last; i++) {
+					PForEquidistant.this.step(i);
 				}
 			}
-		}
+		};
 	}
 
 	public PForEquidistant(final int first, final int last, final Object... objects) {
@@ -70,28 +61,4 @@ public abstract class PForEquidistant {
 		return objects[i];
 	}
 
-	class StepCallable implements Callable<Object> {
-		private final int first;
-		private final int last;
-		private final int stepsize;
-
-		public StepCallable(final int first, final int last, final int stepsize) {
-			this.first = first;
-			this.last = last;
-			this.stepsize = stepsize;
-		}
-
-		public final Void call() throws Exception {
-			try {
-				for (int i = first; i <= last; i += stepsize) {
-					step(i);
-				}
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
-			return null;
-		}
-
-	}
-
 }
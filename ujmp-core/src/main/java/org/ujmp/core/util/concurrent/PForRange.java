@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util.concurrent;
+
+import java.util.concurrent.RecursiveAction;
+
+import org.ujmp.core.util.UJMPSettings;
+
+/**
+ * Parallel loop over the index range [first, last] on the
+ * {@link UJMPForkJoinPool}. The range is split lazily: a worker only forks off
+ * the upper half of its range while other workers are running out of work,
+ * otherwise it keeps processing chunks of grainSize indices itself. Idle
+ * workers steal the forked halves, so skewed workloads (sparse rows,
+ * triangular loops) are balanced automatically. Nested loops started from
+ * within step() run in the pool of the enclosing loop instead of blocking a
+ * worker thread.
+ * <p>
+ * Like {@link PFor}, the loop is executed in the constructor. Exceptions
+ * thrown in step() are propagated to the caller.
+ */
+public abstract class PForRange {
+
+	/**
+	 * Number of queued tasks above which a worker stops splitting its range.
+	 */
+	public static final int MAXSURPLUS = 3;
+
+	/**
+	 * Number of chunks per thread used for the default grain size.
+	 */
+	public static final int CHUNKSPERTHREAD = 8;
+
+	public PForRange(final int first, final int last) {
+		this(UJMPSettings.getInstance().getNumberOfThreads(), 0, first, last);
+	}
+
+	public PForRange(final int threads, final int first, final int last) {
+		this(threads, 0, first, last);
+	}
+
+	/**
+	 * Executes the loop
+	 * 
+	 * @param threads
+	 *            maximum number of threads to use, the loop is executed in
+	 *            the current thread if less than 2
+	 * @param grainSize
+	 *            minimum number of indices per call to step(), the default
+	 *            grain size is used if less than 1
+	 * @param first
+	 *            first index, inclusive
+	 * @param last
+	 *            last index, inclusive
+	 */
+	public PForRange(final int threads, final int grainSize, final int first, final int last) {
+		if (last < first) {
+			return;
+		}
+		final int count = last - first + 1;
+		final int grain = grainSize > 0 ? grainSize : getDefaultGrainSize(threads, count);
+		if (threads < 2 || count <= grain) {
+			step(first, last);
+		} else {
+			final RangeTask task = new RangeTask(this, first, last, grain, null);
+			if (UJMPForkJoinPool.isWorkerThread()) {
+				task.invoke();
+			} else {
+				UJMPForkJoinPool.getInstance(threads).invoke(task);
+			}
+		}
+	}
+
+	/**
+	 * Processes a part of the index range.
+	 * 
+	 * @param first
+	 *            first index, inclusive
+	 * @param last
+	 *            last index, inclusive
+	 */
+	public abstract void step(final int first, final int last);
+
+	public static final int getDefaultGrainSize(final int threads, final int count) {
+		return Math.max(1, count / (Math.max(1, threads) * CHUNKSPERTHREAD));
+	}
+
+	static final class RangeTask extends RecursiveAction {
+		private static final long serialVersionUID = 3416846542394946386L;
+
+		private final PForRange loop;
+
+		private final int first;
+
+		private final int last;
+
+		private final int grain;
+
+		private final RangeTask next;
+
+		public RangeTask(final PForRange loop, final int first, final int last, final int grain,
+				final RangeTask next) {
+			this.loop = loop;
+			this.first = first;
+			this.last = last;
+			this.grain = grain;
+			this.next = next;
+		}
+
+		protected final void compute() {
+			int lo = first;
+			int hi = last;
+			RangeTask forked = null;
+			while (hi - lo >= grain) {
+				if (getSurplusQueuedTaskCount() > MAXSURPLUS) {
+					// enough work queued for others, process one chunk here
+					final int end = lo + grain - 1;
+					loop.step(lo, end);
+					lo = end + 1;
+				} else {
+					final int mid = (lo + hi) >>> 1;
+					forked = new RangeTask(loop, mid + 1, hi, grain, forked);
+					forked.fork();
+					hi = mid;
+				}
+			}
+			loop.step(lo, hi);
+			// join in reverse order of forking, executes unstolen tasks locally
+			while (forked != null) {
+				forked.join();
+				forked = forked.next;
+			}
+		}
+	}
+
+}
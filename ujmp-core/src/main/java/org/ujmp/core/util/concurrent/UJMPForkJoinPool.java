@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+
+package org.ujmp.core.util.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.ujmp.core.util.UJMPSettings;
+
+/**
+ * Work-stealing pool shared by all parallel loops in UJMP. There is one pool
+ * per level of parallelism, so different thread counts do not interfere with
+ * each other. Tasks submitted from inside a worker thread of any of these
+ * pools are executed in the pool of the caller, which prevents deadlocks and
+ * oversubscription for nested parallel loops.
+ */
+public class UJMPForkJoinPool extends ForkJoinPool {
+
+	private static final Map<Integer, UJMPForkJoinPool> pools = new HashMap<Integer, UJMPForkJoinPool>();
+
+	public UJMPForkJoinPool(final String name, final int parallelism) {
+		super(parallelism, new UJMPForkJoinWorkerThreadFactory(name), null, false);
+	}
+
+	public static final UJMPForkJoinPool getInstance() {
+		return getInstance(UJMPSettings.getInstance().getNumberOfThreads());
+	}
+
+	public static final UJMPForkJoinPool getInstance(final int parallelism) {
+		final int p = Math.max(1, parallelism);
+		synchronized (pools) {
+			UJMPForkJoinPool pool = pools.get(p);
+			if (pool == null) {
+				pool = new UJMPForkJoinPool("ForkJoin" + p, p);
+				pools.put(p, pool);
+			}
+			return pool;
+		}
+	}
+
+	/**
+	 * Returns true if the current thread is a worker of one of the UJMP
+	 * fork/join pools, i.e. if we are already inside a parallel loop.
+	 * 
+	 * @return true if called from a worker thread
+	 */
+	public static final boolean isWorkerThread() {
+		final Thread t = Thread.currentThread();
+		return t instanceof ForkJoinWorkerThread
+				&& ((ForkJoinWorkerThread) t).getPool() instanceof UJMPForkJoinPool;
+	}
+
+	static class UJMPForkJoinWorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+
+		private final String name;
+
+		private int count = 0;
+
+		public UJMPForkJoinWorkerThreadFactory(final String name) {
+			this.name = name;
+		}
+
+		public synchronized ForkJoinWorkerThread newThread(final ForkJoinPool pool) {
+			final ForkJoinWorkerThread t = new ForkJoinWorkerThread(pool) {
+			};
+			t.setName("UJMP-" + name + "-" + count++);
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+}
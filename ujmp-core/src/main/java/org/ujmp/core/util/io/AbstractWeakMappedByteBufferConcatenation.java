@@ -23,6 +23,8 @@
 
 package org.ujmp.core.util.io;
 
+import java.nio.ByteBuffer;
+
 public abstract class AbstractWeakMappedByteBufferConcatenation extends
 		AbstractByteBufferConcatenation {
 
@@ -107,10 +109,11 @@ public abstract class AbstractWeakMappedByteBufferConcatenation extends
 		while (remaining > 0) {
 			final int byteCount = Math.min((int) (byteBuffers[byteBufferId].capacity() - offset),
 					remaining);
-			synchronized (byteBuffers[byteBufferId]) {
-				byteBuffers[byteBufferId].position((int) offset);
-				byteBuffers[byteBufferId].get(bytes, pos, byteCount);
-			}
+			// a view has its own position, so that readers do not block
+			// each other
+			final ByteBuffer view = byteBuffers[byteBufferId].duplicate();
+			view.position((int) offset);
+			view.get(bytes, pos, byteCount);
 			remaining -= byteCount;
 			pos += byteCount;
 			byteBufferId++;
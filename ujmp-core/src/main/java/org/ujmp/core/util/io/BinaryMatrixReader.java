@@ -0,0 +1,447 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.util.CompressionUtil;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Reads matrices written by {@link BinaryMatrixWriter}. The reader uses the
+ * index in the footer to read only the tiles which are needed, so that parts
+ * of a large file can be loaded quickly. Tiles are read at absolute positions
+ * of the file, which allows several threads to use the same reader.
+ * {@link #read(InputStream, long, long, int, int)} reads a stream from start to
+ * end instead, and skips the tiles which are not needed.
+ */
+public class BinaryMatrixReader implements Closeable {
+
+	private final Header header;
+
+	private final RandomAccessFile randomAccessFile;
+
+	private final FileChannel channel;
+
+	private final long[] offsets;
+
+	private final int[] lengths;
+
+	private final byte[] codecs;
+
+	private final String[] rowLabels;
+
+	public BinaryMatrixReader(File file) throws IOException {
+		randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			channel = randomAccessFile.getChannel();
+			header = new Header(randomAccessFile);
+
+			final long trailer = randomAccessFile.length() - 8 - BinaryMatrixWriter.MAGIC.length
+					- 1;
+			if (trailer < randomAccessFile.getFilePointer()) {
+				throw new IOException("file is too short: " + file);
+			}
+			randomAccessFile.seek(trailer);
+			final long footer = randomAccessFile.readLong();
+			checkMagic(randomAccessFile);
+			randomAccessFile.seek(footer);
+
+			final int tileCount = header.getTileCount();
+			offsets = new long[tileCount];
+			lengths = new int[tileCount];
+			codecs = new byte[tileCount];
+			final ByteBuffer index = ByteBuffer.allocate(tileCount * 13);
+			randomAccessFile.readFully(index.array());
+			for (int i = 0; i < tileCount; i++) {
+				offsets[i] = index.getLong();
+				lengths[i] = index.getInt();
+				codecs[i] = index.get();
+			}
+			rowLabels = readLabels(randomAccessFile);
+		} catch (IOException e) {
+			randomAccessFile.close();
+			throw e;
+		}
+	}
+
+	public long getRowCount() {
+		return header.rows;
+	}
+
+	public long getColumnCount() {
+		return header.columns;
+	}
+
+	public ValueType getValueType() {
+		return header.valueType;
+	}
+
+	public int getTileRowCount() {
+		return header.tileRows;
+	}
+
+	public int getTileColumnCount() {
+		return header.tileColumns;
+	}
+
+	public String getLabel() {
+		return header.label;
+	}
+
+	public String getRowLabel(long row) {
+		return rowLabels == null ? null : rowLabels[MathUtil.longToInt(row)];
+	}
+
+	public String getColumnLabel(long column) {
+		return header.columnLabels == null ? null : header.columnLabels[MathUtil
+				.longToInt(column)];
+	}
+
+	/**
+	 * Reads the tile which contains the given row and column.
+	 *
+	 * @return the values of the tile in column-major order, its first row is a
+	 *         multiple of {@link #getTileRowCount()}, its first column a
+	 *         multiple of {@link #getTileColumnCount()}
+	 */
+	public double[] readTile(long row, long column) throws IOException {
+		final int tile = header.getTile(row / header.tileRows, column / header.tileColumns);
+		final byte[] data = new byte[lengths[tile]];
+		final ByteBuffer buffer = ByteBuffer.wrap(data);
+		long position = offsets[tile] + 5;
+		while (buffer.hasRemaining()) {
+			final int count = channel.read(buffer, position);
+			if (count < 0) {
+				throw new EOFException("file ends inside of tile " + tile);
+			}
+			position += count;
+		}
+		return header.decode(codecs[tile], data, header.getTileSize(row, column));
+	}
+
+	/**
+	 * Reads the whole matrix with its labels.
+	 */
+	public DenseDoubleMatrix2D read() throws IOException {
+		return read(0, 0, MathUtil.longToInt(header.rows), MathUtil.longToInt(header.columns));
+	}
+
+	/**
+	 * Reads a block of the matrix with its labels, only the tiles which
+	 * overlap with the block are read from the file.
+	 */
+	public DenseDoubleMatrix2D read(long row, long column, int rows, int columns)
+			throws IOException {
+		header.checkBlock(row, column, rows, columns);
+		final double[] values = new double[MathUtil.longToInt((long) rows * columns)];
+		if (rows > 0 && columns > 0) {
+			final long firstRow = row - row % header.tileRows;
+			final long firstColumn = column - column % header.tileColumns;
+			for (long r = firstRow; r < row + rows; r += header.tileRows) {
+				for (long c = firstColumn; c < column + columns; c += header.tileColumns) {
+					header.copy(r, c, readTile(r, c), row, column, rows, columns, values);
+				}
+			}
+		}
+		return header.createMatrix(values, row, column, rows, columns, rowLabels);
+	}
+
+	public void close() throws IOException {
+		randomAccessFile.close();
+	}
+
+	/**
+	 * Reads a whole matrix from a stream and closes it.
+	 */
+	public static DenseDoubleMatrix2D read(InputStream inputStream) throws IOException {
+		return read(inputStream, 0, 0, -1, -1);
+	}
+
+	/**
+	 * Reads a block of a matrix from a stream and closes it. The stream is
+	 * read from start to end, tiles outside of the block are skipped without
+	 * decompressing them.
+	 *
+	 * @param rows
+	 *            number of rows to read, -1 for all
+	 * @param columns
+	 *            number of columns to read, -1 for all
+	 */
+	public static DenseDoubleMatrix2D read(InputStream inputStream, long row, long column,
+			int rows, int columns) throws IOException {
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+		try {
+			final Header header = new Header(in);
+			if (rows < 0) {
+				rows = MathUtil.longToInt(header.rows - row);
+			}
+			if (columns < 0) {
+				columns = MathUtil.longToInt(header.columns - column);
+			}
+			header.checkBlock(row, column, rows, columns);
+			final double[] values = new double[MathUtil.longToInt((long) rows * columns)];
+			for (long r = 0; r < header.rows; r += header.tileRows) {
+				for (long c = 0; c < header.columns; c += header.tileColumns) {
+					final byte codec = in.readByte();
+					final int length = in.readInt();
+					if (r + header.tileRows > row && r < row + rows
+							&& c + header.tileColumns > column && c < column + columns) {
+						final byte[] data = new byte[length];
+						in.readFully(data);
+						header.copy(r, c, header.decode(codec, data, header.getTileSize(r, c)),
+								row, column, rows, columns, values);
+					} else {
+						skipFully(in, length);
+					}
+				}
+			}
+			skipFully(in, header.getTileCount() * 13L);
+			final String[] rowLabels = readLabels(in);
+			return header.createMatrix(values, row, column, rows, columns, rowLabels);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void skipFully(InputStream in, long count) throws IOException {
+		while (count > 0) {
+			final long skipped = in.skip(count);
+			if (skipped > 0) {
+				count -= skipped;
+			} else if (in.read() < 0) {
+				throw new EOFException();
+			} else {
+				count--;
+			}
+		}
+	}
+
+	private static void checkMagic(DataInput in) throws IOException {
+		final byte[] magic = new byte[BinaryMatrixWriter.MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(magic, BinaryMatrixWriter.MAGIC)) {
+			throw new IOException("not a binary UJMP matrix");
+		}
+		final byte version = in.readByte();
+		if (version != BinaryMatrixWriter.VERSION) {
+			throw new IOException("unsupported version: " + version);
+		}
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		final int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, "UTF-8");
+	}
+
+	private static String[] readLabels(DataInput in) throws IOException {
+		final int count = in.readInt();
+		if (count == 0) {
+			return null;
+		}
+		final String[] labels = new String[count];
+		for (int i = 0; i < count; i++) {
+			labels[i] = readString(in);
+		}
+		return labels;
+	}
+
+	private static final class Header {
+
+		private final ValueType valueType;
+
+		private final int bytesPerValue;
+
+		private final long rows;
+
+		private final long columns;
+
+		private final int tileRows;
+
+		private final int tileColumns;
+
+		private final String label;
+
+		private final String[] columnLabels;
+
+		private Header(DataInput in) throws IOException {
+			checkMagic(in);
+			valueType = ValueType.valueOf(in.readUTF());
+			bytesPerValue = BinaryMatrixWriter.getBytesPerValue(valueType);
+			rows = in.readLong();
+			columns = in.readLong();
+			tileRows = in.readInt();
+			tileColumns = in.readInt();
+			label = readString(in);
+			columnLabels = readLabels(in);
+		}
+
+		private int getTileCount() {
+			return MathUtil.longToInt(((rows + tileRows - 1) / tileRows)
+					* ((columns + tileColumns - 1) / tileColumns));
+		}
+
+		private int getTile(long tileRow, long tileColumn) {
+			return MathUtil.longToInt(tileRow * ((columns + tileColumns - 1) / tileColumns)
+					+ tileColumn);
+		}
+
+		/**
+		 * @return number of values of the tile which contains the given row
+		 *         and column
+		 */
+		private int getTileSize(long row, long column) {
+			return getTileHeight(row) * getTileWidth(column);
+		}
+
+		private int getTileHeight(long row) {
+			final long first = row - row % tileRows;
+			return (int) Math.min(tileRows, rows - first);
+		}
+
+		private int getTileWidth(long column) {
+			final long first = column - column % tileColumns;
+			return (int) Math.min(tileColumns, columns - first);
+		}
+
+		private void checkBlock(long row, long column, int rows, int columns) {
+			if (row < 0 || column < 0 || rows < 0 || columns < 0 || row + rows > this.rows
+					|| column + columns > this.columns) {
+				throw new IllegalArgumentException("block is outside of the matrix");
+			}
+		}
+
+		private double[] decode(byte codec, byte[] data, int size) throws IOException {
+			final byte[] bytes;
+			if (codec == BinaryMatrixWriter.DEFLATE) {
+				bytes = new byte[size * bytesPerValue];
+				CompressionUtil.zipDecompress(data, bytes);
+			} else if (codec == BinaryMatrixWriter.RAW) {
+				if (data.length != size * bytesPerValue) {
+					throw new IOException("tile has wrong size");
+				}
+				bytes = data;
+			} else {
+				throw new IOException("unknown codec: " + codec);
+			}
+			final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			final double[] values = new double[size];
+			switch (valueType) {
+			case BOOLEAN:
+			case BYTE:
+				for (int i = 0; i < size; i++) {
+					values[i] = bytes[i];
+				}
+				break;
+			case SHORT:
+				for (int i = 0; i < size; i++) {
+					values[i] = buffer.getShort(i * 2);
+				}
+				break;
+			case INT:
+				for (int i = 0; i < size; i++) {
+					values[i] = buffer.getInt(i * 4);
+				}
+				break;
+			case LONG:
+				for (int i = 0; i < size; i++) {
+					values[i] = buffer.getLong(i * 8);
+				}
+				break;
+			case FLOAT:
+				for (int i = 0; i < size; i++) {
+					values[i] = buffer.getFloat(i * 4);
+				}
+				break;
+			default:
+				buffer.asDoubleBuffer().get(values);
+			}
+			return values;
+		}
+
+		/**
+		 * Copies the part of a tile starting at <code>tileRow</code> and
+		 * <code>tileColumn</code> which overlaps with a block into the
+		 * column-major values of the block.
+		 */
+		private void copy(long tileRow, long tileColumn, double[] tile, long row, long column,
+				int rows, int columns, double[] values) {
+			final int height = getTileHeight(tileRow);
+			final int width = getTileWidth(tileColumn);
+			final long firstRow = Math.max(tileRow, row);
+			final long lastRow = Math.min(tileRow + height, row + rows);
+			final long firstColumn = Math.max(tileColumn, column);
+			final long lastColumn = Math.min(tileColumn + width, column + columns);
+			for (long c = firstColumn; c < lastColumn; c++) {
+				System.arraycopy(tile, (int) ((c - tileColumn) * height + firstRow - tileRow),
+						values, (int) ((c - column) * rows + firstRow - row),
+						(int) (lastRow - firstRow));
+			}
+		}
+
+		private DenseDoubleMatrix2D createMatrix(double[] values, long row, long column, int rows,
+				int columns, String[] rowLabels) {
+			final DenseDoubleMatrix2D matrix = new DefaultDenseDoubleMatrix2D(values, rows,
+					columns);
+			if (label != null) {
+				matrix.setLabel(label);
+			}
+			if (rowLabels != null) {
+				for (int r = 0; r < rows; r++) {
+					if (rowLabels[(int) (row + r)] != null) {
+						matrix.setRowLabel(r, rowLabels[(int) (row + r)]);
+					}
+				}
+			}
+			if (columnLabels != null) {
+				for (int c = 0; c < columns; c++) {
+					if (columnLabels[(int) (column + c)] != null) {
+						matrix.setColumnLabel(c, columnLabels[(int) (column + c)]);
+					}
+				}
+			}
+			return matrix;
+		}
+	}
+
+}
@@ -0,0 +1,376 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.ujmp.core.Matrix;
+import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.util.CompressionUtil;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Writes a 2D matrix in the binary UJMP format to a stream, one row after the
+ * other, so that the matrix never has to be in memory completely. The matrix
+ * is split into tiles of a fixed size, which are compressed independently and
+ * can be read separately with {@link BinaryMatrixReader}. A tile with one
+ * column stores the matrix column by column. All numbers are big endian:
+ *
+ * <pre>
+ * header:  magic, version, value type, rows, columns, tile rows, tile columns,
+ *          label, column labels
+ * tiles:   row by row of tiles: codec, stored length, values in column-major order
+ * footer:  offset, stored length and codec of every tile, row labels
+ * trailer: offset of the footer, magic, version
+ * </pre>
+ *
+ * The values of a band of tiles are kept in memory until its last row has
+ * been written. Row labels are written to the footer, because they are only
+ * known when the rows are written.
+ */
+public class BinaryMatrixWriter implements Closeable {
+
+	public static final byte[] MAGIC = { 'U', 'J', 'M', 'P', 'B', 'I', 'N' };
+
+	public static final byte VERSION = 1;
+
+	public static final byte RAW = 0;
+
+	public static final byte DEFLATE = 1;
+
+	public static final int DEFAULTTILESIZE = 256;
+
+	public static final int DEFAULTCOMPRESSIONLEVEL = Deflater.BEST_SPEED;
+
+	private final DataOutputStream out;
+
+	private final ValueType valueType;
+
+	private final int bytesPerValue;
+
+	private final long rows;
+
+	private final long columns;
+
+	private final int tileRows;
+
+	private final int tileColumns;
+
+	private final int compressionLevel;
+
+	private final byte[][] band;
+
+	private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+
+	private final DataOutputStream index = new DataOutputStream(indexBytes);
+
+	private List<String> rowLabels = null;
+
+	private long position;
+
+	private long row = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * @param valueType
+	 *            type of the stored values, see
+	 *            {@link #getStoredValueType(ValueType)}
+	 * @param compressionLevel
+	 *            deflate level of the tiles, {@link Deflater#NO_COMPRESSION}
+	 *            stores them uncompressed
+	 * @param columnLabels
+	 *            one label per column or null
+	 */
+	public BinaryMatrixWriter(OutputStream outputStream, ValueType valueType, long rows,
+			long columns, int tileRows, int tileColumns, int compressionLevel, String label,
+			String[] columnLabels) throws IOException {
+		if (rows < 0 || columns < 0) {
+			throw new IllegalArgumentException("size must not be negative");
+		}
+		if (tileRows < 1 || tileColumns < 1) {
+			throw new IllegalArgumentException("tile size must be positive");
+		}
+		if (columnLabels != null && columnLabels.length != columns) {
+			throw new IllegalArgumentException("need one label per column");
+		}
+		this.valueType = getStoredValueType(valueType);
+		this.bytesPerValue = getBytesPerValue(this.valueType);
+		this.rows = rows;
+		this.columns = columns;
+		this.tileRows = (int) Math.min(tileRows, Math.max(rows, 1));
+		this.tileColumns = (int) Math.min(tileColumns, Math.max(columns, 1));
+		this.compressionLevel = compressionLevel;
+		this.band = new byte[MathUtil.longToInt((columns + this.tileColumns - 1)
+				/ this.tileColumns)][];
+		this.out = new DataOutputStream(outputStream);
+
+		final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+		final DataOutputStream header = new DataOutputStream(headerBytes);
+		header.write(MAGIC);
+		header.writeByte(VERSION);
+		header.writeUTF(this.valueType.name());
+		header.writeLong(rows);
+		header.writeLong(columns);
+		header.writeInt(this.tileRows);
+		header.writeInt(this.tileColumns);
+		writeString(header, label);
+		header.writeInt(columnLabels == null ? 0 : columnLabels.length);
+		if (columnLabels != null) {
+			for (String columnLabel : columnLabels) {
+				writeString(header, columnLabel);
+			}
+		}
+		header.close();
+		headerBytes.writeTo(out);
+		position = headerBytes.size();
+	}
+
+	/**
+	 * Writes the next row.
+	 */
+	public void writeRow(double[] values) throws IOException {
+		writeRow(values, null);
+	}
+
+	/**
+	 * Writes the next row with a label, which may be null.
+	 */
+	public void writeRow(double[] values, String label) throws IOException {
+		if (closed) {
+			throw new IOException("writer is closed");
+		}
+		if (row >= rows) {
+			throw new IOException("all " + rows + " rows have been written");
+		}
+		if (values.length != columns) {
+			throw new IllegalArgumentException("row must have " + columns + " values");
+		}
+		if (label != null && rowLabels == null) {
+			rowLabels = new ArrayList<String>();
+		}
+		if (rowLabels != null) {
+			while (rowLabels.size() < row) {
+				rowLabels.add(null);
+			}
+			rowLabels.add(label);
+		}
+
+		final long bandStart = row - row % tileRows;
+		final int height = (int) Math.min(tileRows, rows - bandStart);
+		final int rowInTile = (int) (row - bandStart);
+		for (int t = 0; t < band.length; t++) {
+			final int firstColumn = t * tileColumns;
+			final int width = (int) Math.min(tileColumns, columns - firstColumn);
+			if (band[t] == null) {
+				band[t] = new byte[tileRows * tileColumns * bytesPerValue];
+			}
+			final ByteBuffer buffer = ByteBuffer.wrap(band[t]);
+			for (int c = 0; c < width; c++) {
+				encode(buffer, (c * height + rowInTile) * bytesPerValue, values[firstColumn + c]);
+			}
+		}
+		row++;
+		if (rowInTile == height - 1) {
+			writeBand(height);
+		}
+	}
+
+	private void encode(ByteBuffer buffer, int position, double value) {
+		switch (valueType) {
+		case BOOLEAN:
+			buffer.put(position, value != 0.0 ? (byte) 1 : (byte) 0);
+			break;
+		case BYTE:
+			buffer.put(position, (byte) value);
+			break;
+		case SHORT:
+			buffer.putShort(position, (short) value);
+			break;
+		case INT:
+			buffer.putInt(position, (int) value);
+			break;
+		case LONG:
+			buffer.putLong(position, (long) value);
+			break;
+		case FLOAT:
+			buffer.putFloat(position, (float) value);
+			break;
+		default:
+			buffer.putDouble(position, value);
+		}
+	}
+
+	private void writeBand(int height) throws IOException {
+		for (int t = 0; t < band.length; t++) {
+			final int width = (int) Math.min(tileColumns, columns - (long) t * tileColumns);
+			final int length = height * width * bytesPerValue;
+			final byte[] raw = length == band[t].length ? band[t] : Arrays.copyOf(band[t], length);
+			byte codec = RAW;
+			byte[] data = raw;
+			if (compressionLevel != Deflater.NO_COMPRESSION) {
+				final byte[] compressed = CompressionUtil.zipCompress(raw, compressionLevel);
+				if (compressed.length < raw.length) {
+					codec = DEFLATE;
+					data = compressed;
+				}
+			}
+			out.writeByte(codec);
+			out.writeInt(data.length);
+			out.write(data);
+			index.writeLong(position);
+			index.writeInt(data.length);
+			index.writeByte(codec);
+			position += 5 + data.length;
+		}
+	}
+
+	/**
+	 * Writes the footer and closes the stream.
+	 *
+	 * @throws IOException
+	 *             if not all rows have been written
+	 */
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (row != rows) {
+			out.close();
+			throw new IOException("only " + row + " of " + rows + " rows have been written");
+		}
+		final long footer = position;
+		index.close();
+		indexBytes.writeTo(out);
+		if (rowLabels == null) {
+			out.writeInt(0);
+		} else {
+			out.writeInt(MathUtil.longToInt(rows));
+			for (long r = 0; r < rows; r++) {
+				writeString(out, r < rowLabels.size() ? rowLabels.get((int) r) : null);
+			}
+		}
+		out.writeLong(footer);
+		out.write(MAGIC);
+		out.writeByte(VERSION);
+		out.close();
+	}
+
+	/**
+	 * Writes a 2D matrix with its labels and closes the stream.
+	 */
+	public static void write(Matrix matrix, OutputStream outputStream, int tileRows,
+			int tileColumns, int compressionLevel) throws IOException {
+		if (matrix.getDimensionCount() != 2) {
+			throw new RuntimeException("This function is only supported for 2D matrices");
+		}
+		final long rows = matrix.getRowCount();
+		final int columns = MathUtil.longToInt(matrix.getColumnCount());
+		String[] columnLabels = null;
+		for (int c = 0; c < columns; c++) {
+			final String columnLabel = matrix.getColumnLabel(c);
+			if (columnLabel != null) {
+				if (columnLabels == null) {
+					columnLabels = new String[columns];
+				}
+				columnLabels[c] = columnLabel;
+			}
+		}
+		final BinaryMatrixWriter writer = new BinaryMatrixWriter(new BufferedOutputStream(
+				outputStream), matrix.getValueType(), rows, columns, tileRows, tileColumns,
+				compressionLevel, matrix.getLabel(), columnLabels);
+		final double[] values = new double[columns];
+		for (long r = 0; r < rows; r++) {
+			for (int c = 0; c < columns; c++) {
+				values[c] = matrix.getAsDouble(r, c);
+			}
+			writer.writeRow(values, matrix.getRowLabel(r));
+		}
+		writer.close();
+	}
+
+	/**
+	 * @return the value type in which values of <code>valueType</code> are
+	 *         stored: the numeric types are kept, all others are stored as
+	 *         DOUBLE
+	 */
+	public static ValueType getStoredValueType(ValueType valueType) {
+		if (valueType == null) {
+			return ValueType.DOUBLE;
+		}
+		switch (valueType) {
+		case BOOLEAN:
+		case BYTE:
+		case SHORT:
+		case INT:
+		case LONG:
+		case FLOAT:
+		case DOUBLE:
+			return valueType;
+		default:
+			return ValueType.DOUBLE;
+		}
+	}
+
+	static int getBytesPerValue(ValueType valueType) {
+		switch (valueType) {
+		case BOOLEAN:
+		case BYTE:
+			return 1;
+		case SHORT:
+			return 2;
+		case INT:
+		case FLOAT:
+			return 4;
+		case LONG:
+		case DOUBLE:
+			return 8;
+		default:
+			throw new IllegalArgumentException("value type cannot be stored: " + valueType);
+		}
+	}
+
+	static void writeString(DataOutput out, String s) throws IOException {
+		if (s == null) {
+			out.writeInt(-1);
+		} else {
+			final byte[] bytes = s.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+}
@@ -0,0 +1,794 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.util.LongArrayList;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+import org.ujmp.core.util.concurrent.PFor;
+import org.ujmp.core.util.concurrent.PForRange;
+
+/**
+ * Splits delimited text into rows and columns and parses numbers directly
+ * from the bytes. The text is scanned for line breaks in parallel chunks,
+ * which also determines the number of columns and, if no column separator is
+ * given, the separator: a tab if there is one, otherwise a semicolon, comma
+ * or space if every row contains the same number of them. Text between
+ * enclosing characters and characters masked with a backslash never break a
+ * row or a column.
+ * <p>
+ * {@link #parse()} converts all rows in parallel without creating a String
+ * for every value. Values which cannot be parsed are NaN, missing values at
+ * the end of a row are 0, as in {@link MathUtil#getDouble(Object)}.
+ * <p>
+ * The positions of the rows can be kept in an index file, so that a large
+ * file which is linked again does not have to be scanned again. The index
+ * belongs to the size and the modification time of the file. If the file has
+ * grown and its previous end is unchanged, only the appended bytes are
+ * scanned and the index is updated.
+ */
+public class DenseCSVParser {
+
+	/**
+	 * Minimum number of bytes scanned by one thread
+	 */
+	public static final int MINCHUNKSIZE = 1048576;
+
+	private static final int BLOCKSIZE = 1048576;
+
+	private static final int TAB = 0;
+
+	private static final int COMMA = 1;
+
+	private static final int SEMICOLON = 2;
+
+	private static final int SPACE = 3;
+
+	private static final int SEPARATOR = 4;
+
+	private static final double[] POWERSOFTEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+			1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private static final long MAXEXACTMANTISSA = 1l << 53;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Suffix of the index file, see {@link #getIndexFile(File)}
+	 */
+	public static final String INDEXFILESUFFIX = ".idx";
+
+	private static final byte[] INDEXMAGIC = { 'U', 'J', 'M', 'P', 'C', 'S', 'V' };
+
+	private static final byte INDEXVERSION = 1;
+
+	private static final int INDEXCHECKSIZE = 4096;
+
+	private final ByteBufferConcatenation byteBufferConcatenation;
+
+	private final char enclosingCharacter;
+
+	private char columnSeparator;
+
+	private final File indexFile;
+
+	private final long lastModified;
+
+	private volatile boolean scanned = false;
+
+	// state of the scan, which is stored in the index file
+
+	private final LongArrayList rowIndexList = new LongArrayList(4096);
+
+	private final long[] min = new long[5];
+
+	private final long[] max = new long[5];
+
+	private final long[] counts = new long[5];
+
+	private boolean active = true;
+
+	private boolean skip = false;
+
+	private long scannedLength = 0;
+
+	private long rowCount = 0;
+
+	private long columnCount = 0;
+
+	public DenseCSVParser(ByteBufferConcatenation byteBufferConcatenation, char columnSeparator,
+			char enclosingCharacter) {
+		this(byteBufferConcatenation, columnSeparator, enclosingCharacter, null, null);
+	}
+
+	public DenseCSVParser(File file, char columnSeparator, char enclosingCharacter)
+			throws IOException {
+		this(file, columnSeparator, enclosingCharacter, null);
+	}
+
+	/**
+	 * @param indexFile
+	 *            file in which the row index is kept between two uses of the
+	 *            same file, see {@link #getIndexFile(File)}, or null
+	 */
+	public DenseCSVParser(File file, char columnSeparator, char enclosingCharacter,
+			File indexFile) throws IOException {
+		this(new WeakMappedByteBufferConcatenation(WeakMappedByteBuffer
+				.create(new RandomAccessFile(file, "r"))), columnSeparator, enclosingCharacter,
+				file, indexFile);
+	}
+
+	private DenseCSVParser(ByteBufferConcatenation byteBufferConcatenation, char columnSeparator,
+			char enclosingCharacter, File file, File indexFile) {
+		this.byteBufferConcatenation = byteBufferConcatenation;
+		this.columnSeparator = columnSeparator;
+		this.enclosingCharacter = enclosingCharacter;
+		this.indexFile = indexFile;
+		this.lastModified = file == null ? 0 : file.lastModified();
+		rowIndexList.add(0l);
+		Arrays.fill(min, Long.MAX_VALUE);
+	}
+
+	/**
+	 * @return the default index file of a CSV file, which is stored next to
+	 *         it
+	 */
+	public static File getIndexFile(File file) {
+		return new File(file.getPath() + INDEXFILESUFFIX);
+	}
+
+	/**
+	 * Finds the rows and columns, only the first call scans the text. If
+	 * there is an index file which belongs to the same file, only the bytes
+	 * which have been appended since the index was written are scanned.
+	 */
+	public void scan() {
+		if (!scanned) {
+			synchronized (this) {
+				if (!scanned) {
+					final long length = byteBufferConcatenation.getLength();
+					if (indexFile != null) {
+						readIndex(length);
+					}
+					if (scannedLength < length) {
+						scanChunks(scannedLength, length);
+						if (indexFile != null) {
+							writeIndex();
+						}
+					}
+					finishScan();
+					scanned = true;
+				}
+			}
+		}
+	}
+
+	private void scanChunks(final long from, final long to) {
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		final int chunkCount = (int) Math.max(1,
+				Math.min(threads * PForRange.CHUNKSPERTHREAD, (to - from) / MINCHUNKSIZE));
+		final Chunk[] chunks = new Chunk[chunkCount];
+
+		// assume that no chunk starts inside of enclosing characters
+		new PFor(0, chunkCount - 1) {
+			@Override
+			public void step(int i) {
+				chunks[i] = scan(from + (to - from) * i / chunkCount, from + (to - from) * (i + 1)
+						/ chunkCount, true, false);
+			}
+		};
+
+		for (int i = 0; i < chunkCount; i++) {
+			Chunk chunk = chunks[i];
+			if (chunk.startActive != active || chunk.startSkip != skip) {
+				// the assumption was wrong, scan again with the correct state
+				chunk = scan(chunk.start, chunk.end, active, skip);
+			}
+			add(counts, chunk.head);
+			if (!chunk.rowIndexList.isEmpty()) {
+				update(min, max, counts);
+				for (int j = 0; j < 5; j++) {
+					min[j] = Math.min(min[j], chunk.min[j]);
+					max[j] = Math.max(max[j], chunk.max[j]);
+				}
+				System.arraycopy(chunk.tail, 0, counts, 0, 5);
+				for (int j = 0; j < chunk.rowIndexList.size(); j++) {
+					rowIndexList.add(chunk.rowIndexList.get(j));
+				}
+			}
+			active = chunk.endActive;
+			skip = chunk.endSkip;
+		}
+		scannedLength = to;
+	}
+
+	private void finishScan() {
+		final long length = scannedLength;
+		final long[] min = this.min.clone();
+		final long[] max = this.max.clone();
+		long rows = rowIndexList.size() - 1;
+		if (length > 0 && byteBufferConcatenation.getByte(length - 1) != '\n') {
+			rows++;
+		}
+		if (counts[TAB] > 0 || counts[COMMA] > 0 || counts[SEMICOLON] > 0 || counts[SPACE] > 0
+				|| counts[SEPARATOR] > 0) {
+			update(min, max, counts);
+		}
+
+		if (columnSeparator == '\0') {
+			if (max[TAB] > 0) {
+				columnSeparator = '\t';
+			} else if (min[SEMICOLON] == max[SEMICOLON] && min[SEMICOLON] > 0) {
+				columnSeparator = ';';
+			} else if (min[COMMA] == max[COMMA] && min[COMMA] > 0) {
+				columnSeparator = ',';
+			} else if (min[SPACE] == max[SPACE] && min[SPACE] > 0) {
+				columnSeparator = ' ';
+			} else {
+				columnSeparator = '\t';
+			}
+			switch (columnSeparator) {
+			case ';':
+				columnCount = max[SEMICOLON] + 1;
+				break;
+			case ',':
+				columnCount = max[COMMA] + 1;
+				break;
+			case ' ':
+				columnCount = max[SPACE] + 1;
+				break;
+			default:
+				columnCount = max[TAB] + 1;
+			}
+		} else {
+			columnCount = max[SEPARATOR] + 1;
+		}
+		rowCount = rows;
+		if (rows == 0) {
+			columnCount = 0;
+		}
+	}
+
+	/**
+	 * Restores the state of a previous scan from the index file, if it
+	 * belongs to the same file or to a shorter version of it, to which bytes
+	 * have been appended. The index is ignored if it cannot be read.
+	 */
+	private void readIndex(long length) {
+		if (!indexFile.isFile()) {
+			return;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			final byte[] magic = new byte[INDEXMAGIC.length];
+			in.readFully(magic);
+			if (!Arrays.equals(magic, INDEXMAGIC) || in.readByte() != INDEXVERSION) {
+				return;
+			}
+			final long indexLength = in.readLong();
+			final long indexLastModified = in.readLong();
+			if (in.readChar() != columnSeparator || in.readChar() != enclosingCharacter) {
+				return;
+			}
+			if (indexLength > length
+					|| (indexLength == length && indexLastModified != lastModified)) {
+				return;
+			}
+			// compare the last bytes to make sure that the file has only
+			// been appended to
+			final int endLength = in.readInt();
+			if (endLength < 0 || endLength > indexLength) {
+				return;
+			}
+			final byte[] end = new byte[endLength];
+			in.readFully(end);
+			final byte[] current = new byte[end.length];
+			byteBufferConcatenation.getBytes(current, indexLength - end.length, end.length);
+			if (!Arrays.equals(end, current)) {
+				return;
+			}
+			final boolean active = in.readBoolean();
+			final boolean skip = in.readBoolean();
+			final long[] min = new long[5];
+			final long[] max = new long[5];
+			final long[] counts = new long[5];
+			for (int j = 0; j < 5; j++) {
+				min[j] = in.readLong();
+				max[j] = in.readLong();
+				counts[j] = in.readLong();
+			}
+			final long rows = in.readLong();
+			if (rows < 0 || rows > indexLength) {
+				return;
+			}
+			final LongArrayList rowIndexList = new LongArrayList(MathUtil.longToInt(rows + 1));
+			long position = 0;
+			rowIndexList.add(position);
+			for (long r = 0; r < rows; r++) {
+				position += readVarLong(in);
+				rowIndexList.add(position);
+			}
+			if (position > indexLength) {
+				return;
+			}
+
+			this.rowIndexList.clear();
+			for (int r = 0; r < rowIndexList.size(); r++) {
+				this.rowIndexList.add(rowIndexList.get(r));
+			}
+			System.arraycopy(min, 0, this.min, 0, 5);
+			System.arraycopy(max, 0, this.max, 0, 5);
+			System.arraycopy(counts, 0, this.counts, 0, 5);
+			this.active = active;
+			this.skip = skip;
+			this.scannedLength = indexLength;
+		} catch (IOException e) {
+			// the file has to be scanned again
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the state of the scan to the index file. A temporary file is
+	 * renamed afterwards, so that a partially written index is never read.
+	 * Errors are ignored, the index is only used to save time.
+	 */
+	private void writeIndex() {
+		final File tempFile = new File(indexFile.getPath() + ".tmp");
+		try {
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+					new FileOutputStream(tempFile)));
+			try {
+				out.write(INDEXMAGIC);
+				out.writeByte(INDEXVERSION);
+				out.writeLong(scannedLength);
+				out.writeLong(lastModified);
+				out.writeChar(columnSeparator);
+				out.writeChar(enclosingCharacter);
+				final byte[] end = new byte[(int) Math.min(INDEXCHECKSIZE, scannedLength)];
+				byteBufferConcatenation.getBytes(end, scannedLength - end.length, end.length);
+				out.writeInt(end.length);
+				out.write(end);
+				out.writeBoolean(active);
+				out.writeBoolean(skip);
+				for (int j = 0; j < 5; j++) {
+					out.writeLong(min[j]);
+					out.writeLong(max[j]);
+					out.writeLong(counts[j]);
+				}
+				out.writeLong(rowIndexList.size() - 1);
+				for (int r = 1; r < rowIndexList.size(); r++) {
+					writeVarLong(out, rowIndexList.get(r) - rowIndexList.get(r - 1));
+				}
+			} finally {
+				out.close();
+			}
+			indexFile.delete();
+			if (!tempFile.renameTo(indexFile)) {
+				tempFile.delete();
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+		}
+	}
+
+	/**
+	 * Writes a non-negative number with seven bits per byte, row lengths
+	 * mostly need one or two bytes.
+	 */
+	private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7fl) != 0) {
+			out.writeByte((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarLong(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte b = in.readByte();
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("invalid index file");
+	}
+
+	private static void add(long[] counts, long[] values) {
+		for (int j = 0; j < 5; j++) {
+			counts[j] += values[j];
+		}
+	}
+
+	private static void update(long[] min, long[] max, long[] counts) {
+		for (int j = 0; j < 5; j++) {
+			min[j] = Math.min(min[j], counts[j]);
+			max[j] = Math.max(max[j], counts[j]);
+		}
+	}
+
+	/**
+	 * Scans the bytes from <code>start</code> to <code>end</code>.
+	 *
+	 * @param active
+	 *            false if the chunk starts inside of enclosing characters
+	 * @param skip
+	 *            true if the first byte is masked by a backslash
+	 */
+	private Chunk scan(long start, long end, boolean active, boolean skip) {
+		final Chunk chunk = new Chunk(start, end, active, skip);
+		final byte[] buffer = new byte[(int) Math.min(BLOCKSIZE, Math.max(1, end - start))];
+		long[] counts = chunk.head;
+		Arrays.fill(chunk.min, Long.MAX_VALUE);
+		for (long pos = start; pos < end; pos += buffer.length) {
+			final int length = (int) Math.min(buffer.length, end - pos);
+			byteBufferConcatenation.getBytes(buffer, pos, length);
+			for (int i = 0; i < length; i++) {
+				final byte b = buffer[i];
+				if (skip) {
+					skip = false;
+				} else if (b == enclosingCharacter) {
+					active = !active;
+				} else if (active) {
+					if (b == columnSeparator) {
+						counts[SEPARATOR]++;
+					} else {
+						switch (b) {
+						case '\\':
+							skip = true;
+							break;
+						case '\n':
+							if (!chunk.rowIndexList.isEmpty()) {
+								update(chunk.min, chunk.max, counts);
+							}
+							Arrays.fill(chunk.tail, 0);
+							counts = chunk.tail;
+							chunk.rowIndexList.add(pos + i + 1);
+							break;
+						case '\t':
+							counts[TAB]++;
+							break;
+						case ';':
+							counts[SEMICOLON]++;
+							break;
+						case ',':
+							counts[COMMA]++;
+							break;
+						case ' ':
+							counts[SPACE]++;
+							break;
+						default:
+							break;
+						}
+					}
+				}
+			}
+		}
+		chunk.endActive = active;
+		chunk.endSkip = skip;
+		return chunk;
+	}
+
+	public long getRowCount() {
+		scan();
+		return rowCount;
+	}
+
+	public long getColumnCount() {
+		scan();
+		return columnCount;
+	}
+
+	/**
+	 * @return the column separator, which is detected during the scan if it
+	 *         was not given
+	 */
+	public char getColumnSeparator() {
+		scan();
+		return columnSeparator;
+	}
+
+	public ByteBufferConcatenation getByteBufferConcatenation() {
+		return byteBufferConcatenation;
+	}
+
+	public char getEnclosingCharacter() {
+		return enclosingCharacter;
+	}
+
+	/**
+	 * @return position of the first byte of a row
+	 */
+	public long getRowStart(long row) {
+		scan();
+		return rowIndexList.get(MathUtil.longToInt(row));
+	}
+
+	/**
+	 * @return position after the last byte of a row, including the line break
+	 */
+	public long getRowEnd(long row) {
+		scan();
+		return row + 1 < rowIndexList.size() ? rowIndexList.get(MathUtil.longToInt(row + 1))
+				: byteBufferConcatenation.getLength();
+	}
+
+	/**
+	 * Parses all values into a new matrix.
+	 */
+	public DenseDoubleMatrix2D parse() {
+		final int rows = MathUtil.longToInt(getRowCount());
+		final int columns = MathUtil.longToInt(getColumnCount());
+		final double[] values = new double[MathUtil.longToInt((long) rows * columns)];
+		parse(values, null);
+		return new DefaultDenseDoubleMatrix2D(values, rows, columns);
+	}
+
+	/**
+	 * Parses all values into an existing matrix, e.g. a file matrix, which
+	 * must be at least as large as the text. Dense targets are written from
+	 * several threads at the same time, all other targets from the calling
+	 * thread only, since sparse matrices are not thread-safe.
+	 */
+	public void parse(DoubleMatrix2D target) {
+		if (target.getRowCount() < getRowCount() || target.getColumnCount() < getColumnCount()) {
+			throw new IllegalArgumentException("target matrix is too small");
+		}
+		parse(null, target);
+	}
+
+	private void parse(final double[] values, final DoubleMatrix2D target) {
+		final int rows = MathUtil.longToInt(getRowCount());
+		final int columns = MathUtil.longToInt(getColumnCount());
+		final int threads = target == null || target instanceof DenseDoubleMatrix2D ? UJMPSettings
+				.getInstance().getNumberOfThreads() : 1;
+		new PForRange(threads, 0, rows - 1) {
+			@Override
+			public void step(int first, int last) {
+				final double[] row = new double[columns];
+				byte[] buffer = new byte[0];
+				int r = first;
+				while (r <= last) {
+					// read as many rows as fit into one block, but at least one
+					final long start = getRowStart(r);
+					int end = r + 1;
+					while (end <= last && getRowEnd(end) - start <= BLOCKSIZE) {
+						end++;
+					}
+					final int length = MathUtil.longToInt(getRowEnd(end - 1) - start);
+					if (buffer.length < length) {
+						buffer = new byte[Math.max(length, BLOCKSIZE)];
+					}
+					byteBufferConcatenation.getBytes(buffer, start, length);
+					for (; r < end; r++) {
+						Arrays.fill(row, 0.0);
+						parseRow(buffer, (int) (getRowStart(r) - start),
+								(int) (getRowEnd(r) - start), row);
+						if (values != null) {
+							for (int c = 0; c < columns; c++) {
+								values[c * rows + r] = row[c];
+							}
+						} else {
+							for (int c = 0; c < columns; c++) {
+								target.setDouble(row[c], r, c);
+							}
+						}
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Splits a row like {@link org.ujmp.core.util.StringUtil#split(String, char, char)}
+	 * and parses the values.
+	 */
+	private void parseRow(byte[] buffer, int from, int to, double[] row) {
+		if (to > from && buffer[to - 1] == '\n') {
+			to--;
+			if (to > from && buffer[to - 1] == '\r') {
+				to--;
+			}
+		}
+		boolean active = true;
+		int start = from;
+		int column = 0;
+		for (int i = from; i < to; i++) {
+			final byte b = buffer[i];
+			if (b == enclosingCharacter) {
+				active = !active;
+			} else if (active) {
+				if (b == '\\') {
+					i++;
+				} else if (b == columnSeparator) {
+					if (column < row.length) {
+						row[column++] = parseField(buffer, start, i);
+					}
+					start = i + 1;
+				}
+			}
+		}
+		if (column < row.length) {
+			row[column] = parseField(buffer, start, to);
+		}
+	}
+
+	private double parseField(byte[] buffer, int start, int end) {
+		if (end - start > 1 && buffer[start] == enclosingCharacter
+				&& buffer[end - 1] == enclosingCharacter) {
+			start++;
+			end--;
+		}
+		final double value = parseDouble(buffer, start, end);
+		if (Double.isNaN(value)) {
+			// not a plain decimal number, e.g. true, false or NaN
+			return MathUtil.getDouble(new String(buffer, start, end - start, UTF8));
+		}
+		return value;
+	}
+
+	/**
+	 * Parses a decimal number with at most 15 significant digits and an
+	 * exponent of at most 22, which can be converted exactly with one
+	 * multiplication or division.
+	 *
+	 * @return the number or NaN if the fast path cannot be used
+	 */
+	public static double parseDouble(byte[] buffer, int start, int end) {
+		while (start < end && (buffer[start] & 0xff) <= ' ') {
+			start++;
+		}
+		while (end > start && (buffer[end - 1] & 0xff) <= ' ') {
+			end--;
+		}
+		int i = start;
+		boolean negative = false;
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = buffer[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int exponent = 0;
+		int digits = 0;
+		boolean dot = false;
+		for (; i < end; i++) {
+			final byte b = buffer[i];
+			if (b >= '0' && b <= '9') {
+				digits++;
+				if (mantissa >= MAXEXACTMANTISSA / 10) {
+					return Double.NaN;
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				if (dot) {
+					exponent--;
+				}
+			} else if (b == '.' && !dot) {
+				dot = true;
+			} else {
+				break;
+			}
+		}
+		if (digits == 0) {
+			return Double.NaN;
+		}
+		if (i < end) {
+			if (buffer[i] != 'e' && buffer[i] != 'E') {
+				return Double.NaN;
+			}
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+				negativeExponent = buffer[i] == '-';
+				i++;
+			}
+			if (i == end || end - i > 3) {
+				return Double.NaN;
+			}
+			int e = 0;
+			for (; i < end; i++) {
+				if (buffer[i] < '0' || buffer[i] > '9') {
+					return Double.NaN;
+				}
+				e = e * 10 + (buffer[i] - '0');
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		if (exponent < -22 || exponent > 22) {
+			return Double.NaN;
+		}
+		final double value = exponent < 0 ? mantissa / POWERSOFTEN[-exponent] : mantissa
+				* POWERSOFTEN[exponent];
+		return negative ? -value : value;
+	}
+
+	private static final class Chunk {
+
+		private final long start;
+
+		private final long end;
+
+		private final boolean startActive;
+
+		private final boolean startSkip;
+
+		private boolean endActive;
+
+		private boolean endSkip;
+
+		/**
+		 * positions after the line breaks in this chunk
+		 */
+		private final LongArrayList rowIndexList = new LongArrayList();
+
+		/**
+		 * counts before the first line break
+		 */
+		private final long[] head = new long[5];
+
+		/**
+		 * counts after the last line break
+		 */
+		private final long[] tail = new long[5];
+
+		/**
+		 * minimum and maximum counts of the rows between the first and the
+		 * last line break
+		 */
+		private final long[] min = new long[5];
+
+		private final long[] max = new long[5];
+
+		private Chunk(long start, long end, boolean startActive, boolean startSkip) {
+			this.start = start;
+			this.end = end;
+			this.startActive = startActive;
+			this.startSkip = startSkip;
+		}
+	}
+
+}
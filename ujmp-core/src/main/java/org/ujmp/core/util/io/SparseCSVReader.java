@@ -0,0 +1,457 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.util.MathUtil;
+
+/**
+ * Reads a sparse matrix from delimited text with one entry per line: row,
+ * column and value. The text is parsed in a single pass directly from the
+ * bytes into primitive arrays, without creating a String for every value.
+ * When the buffer is full, its entries are sorted and written to a temporary
+ * file. At the end, all sorted runs are merged into a matrix in compressed
+ * row format.
+ * <p>
+ * Like {@link org.ujmp.core.io.ImportMatrixSPARSECSV}, the size of the matrix
+ * is given by the largest row and column index, and lines which do not
+ * consist of three fields are skipped. If the same coordinates appear more
+ * than once, the last value is used, as if the values were set one after the
+ * other. Zeros are not stored.
+ */
+public class SparseCSVReader {
+
+	/**
+	 * Default number of entries which are kept in memory before they are
+	 * written to a temporary file
+	 */
+	public static final int DEFAULTMAXENTRIESINMEMORY = 1 << 21;
+
+	private static final int READBUFFERSIZE = 65536;
+
+	private static final int INITIALCAPACITY = 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final InputStream inputStream;
+
+	private final char columnSeparator;
+
+	private final int maxEntriesInMemory;
+
+	private final List<File> runFiles = new ArrayList<File>();
+
+	private final List<Integer> runSizes = new ArrayList<Integer>();
+
+	// row in the upper, column in the lower 32 bits
+	private long[] keys;
+
+	private double[] values;
+
+	private int count = 0;
+
+	private long maxRow = 0;
+
+	private long maxColumn = 0;
+
+	private long line = 0;
+
+	private final int[] fieldStarts = new int[3];
+
+	private final int[] fieldEnds = new int[3];
+
+	/**
+	 * @param columnSeparator
+	 *            separator of the fields, '\0' accepts a comma, semicolon or
+	 *            tab
+	 */
+	public SparseCSVReader(InputStream inputStream, char columnSeparator) {
+		this(inputStream, columnSeparator, DEFAULTMAXENTRIESINMEMORY);
+	}
+
+	/**
+	 * @param maxEntriesInMemory
+	 *            number of entries after which the buffer is sorted and
+	 *            written to a temporary file
+	 */
+	public SparseCSVReader(InputStream inputStream, char columnSeparator, int maxEntriesInMemory) {
+		if (maxEntriesInMemory < 1) {
+			throw new IllegalArgumentException("maxEntriesInMemory must be positive");
+		}
+		this.inputStream = inputStream;
+		this.columnSeparator = columnSeparator;
+		this.maxEntriesInMemory = maxEntriesInMemory;
+		this.keys = new long[Math.min(INITIALCAPACITY, maxEntriesInMemory)];
+		this.values = new double[keys.length];
+	}
+
+	/**
+	 * Reads all entries, the stream is not closed.
+	 */
+	public CompressedRowSparseDoubleMatrix2D read() throws IOException {
+		try {
+			byte[] buffer = new byte[READBUFFERSIZE];
+			int length = 0;
+			int read;
+			while ((read = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+				int start = 0;
+				for (int i = length; i < length + read; i++) {
+					if (buffer[i] == '\n') {
+						parseLine(buffer, start, i);
+						start = i + 1;
+					}
+				}
+				length += read;
+				if (start > 0) {
+					System.arraycopy(buffer, start, buffer, 0, length - start);
+					length -= start;
+				} else if (length == buffer.length) {
+					// a line which is longer than the buffer
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+			}
+			if (length > 0) {
+				parseLine(buffer, 0, length);
+			}
+			sort();
+			return merge();
+		} finally {
+			for (File file : runFiles) {
+				file.delete();
+			}
+		}
+	}
+
+	private boolean isSeparator(byte b) {
+		if (columnSeparator == '\0') {
+			return b == ',' || b == ';' || b == '\t';
+		} else {
+			return b == columnSeparator;
+		}
+	}
+
+	private void parseLine(byte[] buffer, int start, int end) throws IOException {
+		line++;
+		if (end > start && buffer[end - 1] == '\r') {
+			end--;
+		}
+		// empty fields at the end are ignored, like in String.split()
+		while (end > start && isSeparator(buffer[end - 1])) {
+			end--;
+		}
+		if (end == start) {
+			return;
+		}
+		int fields = 0;
+		int fieldStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i == end || isSeparator(buffer[i])) {
+				if (fields == 3) {
+					return;
+				}
+				fieldStarts[fields] = fieldStart;
+				fieldEnds[fields] = i;
+				fields++;
+				fieldStart = i + 1;
+			}
+		}
+		if (fields != 3) {
+			return;
+		}
+		final long row = parseIndex(buffer, fieldStarts[0], fieldEnds[0]);
+		final long column = parseIndex(buffer, fieldStarts[1], fieldEnds[1]);
+		double value = DenseCSVParser.parseDouble(buffer, fieldStarts[2], fieldEnds[2]);
+		if (Double.isNaN(value)) {
+			// not a plain decimal number
+			value = MathUtil.getDouble(new String(buffer, fieldStarts[2], fieldEnds[2]
+					- fieldStarts[2], UTF8).trim());
+		}
+		maxRow = Math.max(maxRow, row);
+		maxColumn = Math.max(maxColumn, column);
+		if (count == keys.length) {
+			if (count >= maxEntriesInMemory) {
+				spill();
+			} else {
+				final int capacity = (int) Math.min(maxEntriesInMemory, 2l * count);
+				keys = Arrays.copyOf(keys, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+		}
+		keys[count] = row << 32 | column;
+		values[count] = value;
+		count++;
+	}
+
+	private long parseIndex(byte[] buffer, int start, int end) throws IOException {
+		while (start < end && (buffer[start] & 0xff) <= ' ') {
+			start++;
+		}
+		while (end > start && (buffer[end - 1] & 0xff) <= ' ') {
+			end--;
+		}
+		if (start == end) {
+			throw new IOException("missing index in line " + line);
+		}
+		long index = 0;
+		for (int i = start; i < end; i++) {
+			final byte b = buffer[i];
+			if (b < '0' || b > '9') {
+				throw new IOException("invalid index in line " + line + ": "
+						+ new String(buffer, start, end - start, UTF8));
+			}
+			index = index * 10 + (b - '0');
+			if (index >= Integer.MAX_VALUE) {
+				throw new IOException("index too large in line " + line);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Sorts the entries in the buffer by row and column and keeps only the
+	 * last value for the same coordinates.
+	 */
+	private void sort() {
+		final long[] keyBuffer = new long[count];
+		final double[] valueBuffer = new double[count];
+		long[] sourceKeys = keys;
+		double[] sourceValues = values;
+		long[] targetKeys = keyBuffer;
+		double[] targetValues = valueBuffer;
+		final int[] offsets = new int[65537];
+		// stable radix sort with 16 bits per pass
+		for (int shift = 0; shift < 64; shift += 16) {
+			Arrays.fill(offsets, 0);
+			for (int i = 0; i < count; i++) {
+				offsets[(int) ((sourceKeys[i] >>> shift) & 0xffff) + 1]++;
+			}
+			if (count == 0 || offsets[(int) ((sourceKeys[0] >>> shift) & 0xffff) + 1] == count) {
+				// all entries have the same digit
+				continue;
+			}
+			for (int d = 0; d < 65536; d++) {
+				offsets[d + 1] += offsets[d];
+			}
+			for (int i = 0; i < count; i++) {
+				final int pos = offsets[(int) ((sourceKeys[i] >>> shift) & 0xffff)]++;
+				targetKeys[pos] = sourceKeys[i];
+				targetValues[pos] = sourceValues[i];
+			}
+			final long[] tempKeys = sourceKeys;
+			sourceKeys = targetKeys;
+			targetKeys = tempKeys;
+			final double[] tempValues = sourceValues;
+			sourceValues = targetValues;
+			targetValues = tempValues;
+		}
+
+		int w = 0;
+		for (int i = 0; i < count; i++) {
+			if (i + 1 < count && sourceKeys[i + 1] == sourceKeys[i]) {
+				continue;
+			}
+			keys[w] = sourceKeys[i];
+			values[w] = sourceValues[i];
+			w++;
+		}
+		count = w;
+	}
+
+	private void spill() throws IOException {
+		sort();
+		final File file = File.createTempFile("ujmp", ".sparsecsv");
+		file.deleteOnExit();
+		runFiles.add(file);
+		runSizes.add(count);
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), READBUFFERSIZE));
+		try {
+			for (int i = 0; i < count; i++) {
+				out.writeLong(keys[i]);
+				out.writeDouble(values[i]);
+			}
+		} finally {
+			out.close();
+		}
+		count = 0;
+	}
+
+	/**
+	 * Merges the sorted runs in the files and in memory into a matrix. For
+	 * the same coordinates, the value from the latest run is used.
+	 */
+	private CompressedRowSparseDoubleMatrix2D merge() throws IOException {
+		final int rows = MathUtil.longToInt(maxRow + 1);
+		final int columns = MathUtil.longToInt(maxColumn + 1);
+		final PriorityQueue<Run> queue = new PriorityQueue<Run>(runFiles.size() + 1,
+				new Comparator<Run>() {
+					public int compare(Run r1, Run r2) {
+						if (r1.key != r2.key) {
+							return r1.key < r2.key ? -1 : 1;
+						}
+						return r2.index - r1.index;
+					}
+				});
+		final List<Run> runs = new ArrayList<Run>();
+		try {
+			long capacity = count;
+			for (int i = 0; i < runFiles.size(); i++) {
+				runs.add(new FileRun(i, runFiles.get(i), runSizes.get(i)));
+				capacity += runSizes.get(i);
+			}
+			runs.add(new MemoryRun(runFiles.size()));
+			for (Run run : runs) {
+				if (run.next()) {
+					queue.add(run);
+				}
+			}
+
+			final int[] rowPointers = new int[rows + 1];
+			int[] columnIndices = new int[(int) Math.min(capacity, Integer.MAX_VALUE - 8)];
+			double[] result = new double[columnIndices.length];
+			int nonZeros = 0;
+			while (!queue.isEmpty()) {
+				final Run run = queue.poll();
+				final long key = run.key;
+				final double value = run.value;
+				if (run.next()) {
+					queue.add(run);
+				}
+				// older values for the same coordinates
+				while (!queue.isEmpty() && queue.peek().key == key) {
+					final Run older = queue.poll();
+					if (older.next()) {
+						queue.add(older);
+					}
+				}
+				if (value != 0.0) {
+					columnIndices[nonZeros] = (int) key;
+					result[nonZeros] = value;
+					rowPointers[(int) (key >>> 32) + 1]++;
+					nonZeros++;
+				}
+			}
+			for (int r = 0; r < rows; r++) {
+				rowPointers[r + 1] += rowPointers[r];
+			}
+			if (nonZeros < columnIndices.length) {
+				columnIndices = Arrays.copyOf(columnIndices, nonZeros);
+				result = Arrays.copyOf(result, nonZeros);
+			}
+			return new CompressedRowSparseDoubleMatrix2D(rows, columns, rowPointers,
+					columnIndices, result);
+		} finally {
+			for (Run run : runs) {
+				run.close();
+			}
+		}
+	}
+
+	private static abstract class Run {
+
+		private final int index;
+
+		protected long key;
+
+		protected double value;
+
+		protected Run(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * Moves to the next entry.
+		 *
+		 * @return false if there are no more entries
+		 */
+		public abstract boolean next() throws IOException;
+
+		public void close() throws IOException {
+		}
+	}
+
+	private final class MemoryRun extends Run {
+
+		private int position = 0;
+
+		private MemoryRun(int index) {
+			super(index);
+		}
+
+		public boolean next() {
+			if (position == count) {
+				return false;
+			}
+			key = keys[position];
+			value = values[position];
+			position++;
+			return true;
+		}
+	}
+
+	private static final class FileRun extends Run {
+
+		private final DataInputStream in;
+
+		private int remaining;
+
+		private FileRun(int index, File file, int size) throws IOException {
+			super(index);
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file),
+					READBUFFERSIZE));
+			this.remaining = size;
+		}
+
+		public boolean next() throws IOException {
+			if (remaining == 0) {
+				return false;
+			}
+			key = in.readLong();
+			value = in.readDouble();
+			remaining--;
+			return true;
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+}
@@ -28,6 +28,7 @@ import java.io.RandomAccessFile;
 import java.lang.ref.WeakReference;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.CharBuffer;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
@@ -48,32 +49,53 @@ public class WeakMappedByteBuffer {
 	private final MapMode mapMode;
 	private final long pos;
 	private final long size;
+	private final ByteOrder byteOrder;
 
 	public WeakMappedByteBuffer(FileChannel fileChannel, MapMode mapMode, long pos, int size) {
+		this(fileChannel, mapMode, ByteOrder.BIG_ENDIAN, pos, size);
+	}
+
+	public WeakMappedByteBuffer(FileChannel fileChannel, MapMode mapMode, ByteOrder byteOrder,
+			long pos, int size) {
 		this.fileChannel = fileChannel;
 		this.mapMode = mapMode;
+		this.byteOrder = byteOrder;
 		this.pos = pos;
 		this.size = size;
 	}
 
 	public static final WeakMappedByteBuffer[] create(RandomAccessFile randomAccessFile)
 			throws IOException {
-		long fileLength = randomAccessFile.length();
+		return create(randomAccessFile, MapMode.READ_ONLY, ByteOrder.BIG_ENDIAN, 0,
+				randomAccessFile.length(), DEFAULTBUFFERSIZE);
+	}
+
+	/**
+	 * Splits <code>length</code> bytes of the file, starting at
+	 * <code>offset</code>, into buffers of <code>bufferSize</code> bytes. Only
+	 * the last buffer may be smaller. The buffers are mapped when they are
+	 * used.
+	 */
+	public static final WeakMappedByteBuffer[] create(RandomAccessFile randomAccessFile,
+			MapMode mapMode, ByteOrder byteOrder, long offset, long length, int bufferSize)
+			throws IOException {
 		FileChannel fc = randomAccessFile.getChannel();
 
-		MapMode mapMode = MapMode.READ_ONLY;
-
-		final int bufferCount = (int) Math.ceil((double) fileLength / (double) DEFAULTBUFFERSIZE);
+		final int bufferCount = (int) Math.ceil((double) length / (double) bufferSize);
 		final WeakMappedByteBuffer[] buffers = new WeakMappedByteBuffer[bufferCount];
 		int i = 0;
-		for (long filePos = 0; filePos < fileLength; filePos += DEFAULTBUFFERSIZE) {
-			WeakMappedByteBuffer buf = new WeakMappedByteBuffer(fc, mapMode, filePos,
-					MathUtil.longToInt(Math.min(DEFAULTBUFFERSIZE, fileLength - filePos)));
+		for (long filePos = 0; filePos < length; filePos += bufferSize) {
+			WeakMappedByteBuffer buf = new WeakMappedByteBuffer(fc, mapMode, byteOrder, offset
+					+ filePos, MathUtil.longToInt(Math.min(bufferSize, length - filePos)));
 			buffers[i++] = buf;
 		}
 		return buffers;
 	}
 
+	public ByteOrder getByteOrder() {
+		return byteOrder;
+	}
+
 	public ByteBuffer getOrCreateByteBuffer() {
 		try {
 			ByteBuffer byteBuffer = byteBufferReference == null ? null : byteBufferReference.get();
@@ -83,6 +105,7 @@ public class WeakMappedByteBuffer {
 					if (byteBuffer == null || byteBufferReference == null
 							|| byteBufferReference.get() == null) {
 						byteBuffer = fileChannel.map(mapMode, pos, size);
+						byteBuffer.order(byteOrder);
 						byteBufferReference = new WeakReference<ByteBuffer>(byteBuffer);
 					}
 				}
@@ -93,12 +116,20 @@ public class WeakMappedByteBuffer {
 		}
 	}
 
+	/**
+	 * @return a view with its own position, which can be used without
+	 *         synchronization, in the byte order of this buffer
+	 */
 	public ByteBuffer slice() {
-		return getOrCreateByteBuffer().slice();
+		return getOrCreateByteBuffer().slice().order(byteOrder);
 	}
 
+	/**
+	 * @return a view with its own position, which can be used without
+	 *         synchronization, in the byte order of this buffer
+	 */
 	public ByteBuffer duplicate() {
-		return getOrCreateByteBuffer().duplicate();
+		return getOrCreateByteBuffer().duplicate().order(byteOrder);
 	}
 
 	public ByteBuffer asReadOnlyBuffer() {
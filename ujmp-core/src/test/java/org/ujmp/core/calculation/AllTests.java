@@ -29,6 +29,9 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ org.ujmp.core.calculation.string.AllTests.class,
 		TestMissingValueImputation.class, TestSortrows.class, TestGinv.class,
-		TestConcatenation.class, TestMtimes.class })
+		TestConcatenation.class, TestMtimes.class, TestMtimesCalibration.class,
+		TestEntrywise.class, TestRandomizedSVD.class, TestBlockedDecomposition.class,
+		TestIterativeSolvers.class, TestLanczosArnoldi.class, TestCovariance.class, TestAllPairsSimilarity.class,
+		TestRandomProjectionForest.class, TestImputeEM.class, TestSparseCalculations.class })
 public class AllTests {
 }
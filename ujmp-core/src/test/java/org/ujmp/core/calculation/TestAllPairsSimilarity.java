@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.collections.Dictionary;
+import org.ujmp.core.doublematrix.calculation.general.misc.AllPairsSimilarity;
+import org.ujmp.core.doublematrix.impl.SparseFeatureVector;
+import org.ujmp.core.util.MathUtil;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestAllPairsSimilarity {
+
+	private static final double TOLERANCE = 1e-10;
+
+	private final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+
+	@After
+	public void tearDown() {
+		UJMPSettings.getInstance().setNumberOfThreads(threads);
+	}
+
+	private static void assertMatrixEquals(Matrix expected, Matrix actual, double tolerance) {
+		assertEquals(expected.getRowCount(), actual.getRowCount());
+		assertEquals(expected.getColumnCount(), actual.getColumnCount());
+		for (int r = 0; r < expected.getRowCount(); r++) {
+			for (int c = 0; c < expected.getColumnCount(); c++) {
+				final double e = expected.getAsDouble(r, c);
+				assertEquals(e, actual.getAsDouble(r, c), tolerance * Math.max(1.0, Math.abs(e)));
+			}
+		}
+	}
+
+	private static Matrix sparse(int rows, int cols, int valuesPerRow) {
+		final Matrix m = SparseMatrix.Factory.zeros(rows, cols);
+		for (int r = 0; r < rows; r++) {
+			for (int i = 0; i < valuesPerRow; i++) {
+				m.setAsDouble(MathUtil.nextGaussian(), r, MathUtil.nextInteger(cols));
+			}
+		}
+		return m;
+	}
+
+	@Test
+	public void testDense() {
+		// more rows than one tile
+		final Matrix x = DenseMatrix.Factory.randn(150, 7);
+		assertMatrixEquals(x.cosineSimilarity(Ret.LINK, false),
+				x.cosineSimilarity(Ret.NEW, false), TOLERANCE);
+		assertMatrixEquals(x.euklideanDistance(Ret.LINK, false),
+				x.euklideanDistance(Ret.NEW, false), 1e-7);
+		assertMatrixEquals(x.manhattenDistance(Ret.LINK, false),
+				x.manhattenDistance(Ret.NEW, false), TOLERANCE);
+		assertMatrixEquals(x.minkowskiDistance(Ret.LINK, 3, false),
+				x.minkowskiDistance(Ret.NEW, 3, false), TOLERANCE);
+	}
+
+	@Test
+	public void testIgnoreNaN() {
+		final Matrix x = DenseMatrix.Factory.randn(40, 6);
+		x.setAsDouble(Double.NaN, 3, 2);
+		x.setAsDouble(Double.NaN, 17, 5);
+		assertMatrixEquals(x.cosineSimilarity(Ret.LINK, true),
+				x.cosineSimilarity(Ret.NEW, true), TOLERANCE);
+		assertMatrixEquals(x.euklideanDistance(Ret.LINK, true),
+				x.euklideanDistance(Ret.NEW, true), TOLERANCE);
+	}
+
+	@Test
+	public void testSparse() {
+		final Matrix x = sparse(200, 50, 4);
+		final Matrix dense = DenseMatrix.Factory.linkToArray(x.toDoubleArray());
+		assertMatrixEquals(dense.cosineSimilarity(Ret.LINK, false),
+				x.cosineSimilarity(Ret.NEW, false), TOLERANCE);
+		assertMatrixEquals(dense.euklideanDistance(Ret.LINK, false),
+				x.euklideanDistance(Ret.NEW, false), 1e-7);
+		assertMatrixEquals(dense.manhattenDistance(Ret.LINK, false),
+				x.manhattenDistance(Ret.NEW, false), TOLERANCE);
+		assertMatrixEquals(dense.minkowskiDistance(Ret.LINK, 3, false),
+				x.minkowskiDistance(Ret.NEW, 3, false), 1e-7);
+	}
+
+	@Test
+	public void testTopK() {
+		for (Matrix x : new Matrix[] { DenseMatrix.Factory.randn(150, 5), sparse(150, 40, 5) }) {
+			for (AllPairsSimilarity engine : new AllPairsSimilarity[] {
+					AllPairsSimilarity.cosine(false), AllPairsSimilarity.minkowski(1, false) }) {
+				final Matrix all = engine.calc(x);
+				final Matrix[] top = engine.topK(x, 5, true);
+				for (int r = 0; r < x.getRowCount(); r++) {
+					final List<Double> values = new ArrayList<Double>();
+					for (int c = 0; c < x.getRowCount(); c++) {
+						final double v = all.getAsDouble(r, c);
+						if (c != r && !Double.isNaN(v)) {
+							values.add(engine.isDistance() ? v : -v);
+						}
+					}
+					final Double[] sorted = values.toArray(new Double[values.size()]);
+					Arrays.sort(sorted);
+					for (int i = 0; i < 5; i++) {
+						final double expected = engine.isDistance() ? sorted[i] : -sorted[i];
+						final int index = (int) top[0].getAsDouble(r, i);
+						assertTrue(index != r);
+						assertEquals(expected, top[1].getAsDouble(r, i), TOLERANCE);
+						assertEquals(expected, all.getAsDouble(r, index), TOLERANCE);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTopKTies() {
+		// all distances are equal, the smallest indices must be returned in order
+		final Matrix x = DenseMatrix.Factory.ones(20, 3);
+		final Matrix[] top = AllPairsSimilarity.minkowski(1, false).topK(x, 3, true);
+		for (int r = 0; r < 20; r++) {
+			int expected = 0;
+			for (int i = 0; i < 3; i++, expected++) {
+				if (expected == r) {
+					expected++;
+				}
+				assertEquals(expected, top[0].getAsDouble(r, i), 0.0);
+				assertEquals(0.0, top[1].getAsDouble(r, i), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testThreadIndependence() {
+		final Matrix x = DenseMatrix.Factory.randn(1000, 8);
+		final AllPairsSimilarity engine = AllPairsSimilarity.minkowski(2, false);
+		UJMPSettings.getInstance().setNumberOfThreads(1);
+		final Matrix[] top1 = engine.topK(x, 5, true);
+		UJMPSettings.getInstance().setNumberOfThreads(4);
+		final Matrix[] top4 = engine.topK(x, 5, true);
+		assertEquals(0.0, top1[0].minus(top4[0]).normF(), 0.0);
+		assertEquals(0.0, top1[1].minus(top4[1]).normF(), 0.0);
+	}
+
+	@Test
+	public void testTopKMissing() {
+		final Matrix x = DenseMatrix.Factory.randn(3, 4);
+		final Matrix[] top = AllPairsSimilarity.minkowski(2, false).topK(x, 4, false);
+		for (int r = 0; r < 3; r++) {
+			assertEquals(r, top[0].getAsDouble(r, 0), 0.0);
+			assertEquals(0.0, top[1].getAsDouble(r, 0), 0.0);
+			assertEquals(-1, top[0].getAsDouble(r, 3), 0.0);
+			assertTrue(Double.isNaN(top[1].getAsDouble(r, 3)));
+		}
+	}
+
+	@Test
+	public void testTooManyRows() {
+		// 46341 * 46341 does not fit into an int
+		final Matrix x = DenseMatrix.Factory.zeros(46341, 1);
+		try {
+			AllPairsSimilarity.cosine(false).calc(x);
+			fail("result size overflow was not detected");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testSparseFeatureVectors() {
+		final Dictionary dictionary = new Dictionary();
+		final List<SparseFeatureVector> vectors = new ArrayList<SparseFeatureVector>();
+		final String[][] documents = { { "a", "b" }, { "b", "c", "d" }, { "a", "d" } };
+		for (String[] document : documents) {
+			final SparseFeatureVector v = new SparseFeatureVector(dictionary);
+			for (String word : document) {
+				v.setFeatureValue(word, 1.0);
+			}
+			vectors.add(v);
+		}
+		final Matrix rows = AllPairsSimilarity.toRows(vectors);
+		assertEquals(3, rows.getRowCount());
+		assertEquals(4, rows.getColumnCount());
+		final Matrix similarity = AllPairsSimilarity.cosine(false).calc(rows);
+		for (int i = 0; i < 3; i++) {
+			for (int j = 0; j < 3; j++) {
+				assertEquals(vectors.get(i).cosineSimilarityTo(vectors.get(j), false),
+						similarity.getAsDouble(i, j), TOLERANCE);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.BlockedDecomposition;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.Chol;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.LU;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.QR;
+import org.ujmp.core.doublematrix.impl.BlockDenseDoubleMatrix2D;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestBlockedDecomposition {
+
+	private static final double TOLERANCE = 1e-9;
+
+	private final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+
+	private final int blockSize = BlockedDecomposition.BLOCKSIZE;
+
+	@Before
+	public void setUp() {
+		// small panels so that all matrices consist of several blocks
+		BlockedDecomposition.BLOCKSIZE = 16;
+		UJMPSettings.getInstance().setNumberOfThreads(4);
+	}
+
+	@After
+	public void tearDown() {
+		BlockedDecomposition.BLOCKSIZE = blockSize;
+		UJMPSettings.getInstance().setNumberOfThreads(threads);
+	}
+
+	private static Matrix rand(int rows, int cols) {
+		return DenseMatrix.Factory.randn(rows, cols);
+	}
+
+	private static Matrix spd(int n) {
+		Matrix a = rand(n, n);
+		return a.mtimes(a.transpose()).plus(DenseMatrix.Factory.eye(n, n));
+	}
+
+	private static void assertMatrixEquals(Matrix expected, Matrix actual, double tolerance) {
+		assertEquals(expected.getRowCount(), actual.getRowCount());
+		assertEquals(expected.getColumnCount(), actual.getColumnCount());
+		assertEquals(0.0, expected.minus(actual).normF() / Math.max(1.0, expected.normF()),
+				tolerance);
+	}
+
+	@Test
+	public void testLU() {
+		for (int[] size : new int[][] { { 150, 150 }, { 201, 130 }, { 130, 201 }, { 5, 5 } }) {
+			Matrix a = rand(size[0], size[1]);
+			Matrix[] expected = LU.UJMP.calc(a);
+			Matrix[] lu = LU.BLOCKED.calc(a);
+			for (int i = 0; i < 3; i++) {
+				assertMatrixEquals(expected[i], lu[i], TOLERANCE);
+			}
+			assertMatrixEquals(lu[2].mtimes(a), lu[0].mtimes(lu[1]), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testLUSolve() {
+		Matrix a = rand(170, 170);
+		Matrix b = rand(170, 7);
+		Matrix x = LU.BLOCKED.solve(a, b);
+		assertMatrixEquals(b, a.mtimes(x), TOLERANCE);
+		assertMatrixEquals(LU.UJMP.solve(a, b), x, 1e-7);
+	}
+
+	@Test
+	public void testLUSingular() {
+		Matrix a = rand(60, 60);
+		for (int i = 0; i < 60; i++) {
+			a.setAsDouble(0.0, i, 40);
+		}
+		try {
+			LU.BLOCKED.solve(a, rand(60, 1));
+			fail("singular matrix not detected");
+		} catch (RuntimeException e) {
+		}
+	}
+
+	@Test
+	public void testChol() {
+		Matrix a = spd(157);
+		Matrix l = Chol.BLOCKED.calc(a);
+		assertMatrixEquals(Chol.UJMP.calc(a), l, TOLERANCE);
+		assertMatrixEquals(a, l.mtimes(l.transpose()), TOLERANCE);
+		for (int r = 0; r < 157; r++) {
+			for (int c = r + 1; c < 157; c++) {
+				assertEquals(0.0, l.getAsDouble(r, c), 0.0);
+			}
+		}
+		Matrix b = rand(157, 3);
+		assertMatrixEquals(b, a.mtimes(Chol.BLOCKED.solve(a, b)), TOLERANCE);
+	}
+
+	@Test
+	public void testCholNotSPD() {
+		Matrix a = spd(50);
+		a.setAsDouble(-100.0, 30, 30);
+		try {
+			Chol.BLOCKED.solve(a, rand(50, 1));
+			fail("matrix is not positive definite");
+		} catch (RuntimeException e) {
+		}
+	}
+
+	@Test
+	public void testQR() {
+		for (int[] size : new int[][] { { 150, 150 }, { 301, 90 }, { 7, 3 } }) {
+			Matrix a = rand(size[0], size[1]);
+			Matrix[] expected = QR.UJMP.calc(a);
+			Matrix[] qr = QR.BLOCKED.calc(a);
+			assertMatrixEquals(expected[0], qr[0], TOLERANCE);
+			assertMatrixEquals(expected[1], qr[1], TOLERANCE);
+			assertMatrixEquals(a, qr[0].mtimes(qr[1]), TOLERANCE);
+			Matrix identity = DenseMatrix.Factory.eye(size[1], size[1]);
+			assertMatrixEquals(identity, qr[0].transpose().mtimes(qr[0]), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testQRSolve() {
+		Matrix a = rand(240, 70);
+		Matrix b = rand(240, 4);
+		Matrix x = QR.BLOCKED.solve(a, b);
+		assertMatrixEquals(QR.UJMP.solve(a, b), x, 1e-7);
+		// the residual of a least squares solution is orthogonal to A
+		Matrix residual = b.minus(a.mtimes(x));
+		assertTrue(a.transpose().mtimes(residual).normF() < 1e-8);
+	}
+
+	@Test
+	public void testQRZeroColumn() {
+		Matrix a = rand(40, 20);
+		for (int i = 0; i < 40; i++) {
+			a.setAsDouble(0.0, i, 17);
+		}
+		Matrix[] qr = QR.BLOCKED.calc(a);
+		assertMatrixEquals(a, qr[0].mtimes(qr[1]), TOLERANCE);
+	}
+
+	@Test
+	public void testBlockMatrix() {
+		Matrix a = spd(120);
+		BlockDenseDoubleMatrix2D block = new BlockDenseDoubleMatrix2D(a, 32);
+		assertMatrixEquals(Chol.UJMP.calc(a), Chol.BLOCKED.calc(block), TOLERANCE);
+		assertMatrixEquals(LU.UJMP.calc(a)[1], LU.BLOCKED.calc(block)[1], TOLERANCE);
+		assertMatrixEquals(QR.UJMP.calc(a)[1], QR.BLOCKED.calc(block)[1], TOLERANCE);
+	}
+
+}
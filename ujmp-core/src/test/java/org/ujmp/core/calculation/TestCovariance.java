@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.calculation.general.statistical.CovarianceAccumulator;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestCovariance {
+
+	private static final double TOLERANCE = 1e-10;
+
+	/**
+	 * Random data with a large offset and correlated columns
+	 */
+	private static Matrix data(int rows, int cols) {
+		final Matrix x = DenseMatrix.Factory.randn(rows, cols).mtimes(
+				DenseMatrix.Factory.randn(cols, cols));
+		return x.plus(1000.0);
+	}
+
+	private static void assertMatrixEquals(Matrix expected, Matrix actual, double tolerance) {
+		assertEquals(expected.getRowCount(), actual.getRowCount());
+		assertEquals(expected.getColumnCount(), actual.getColumnCount());
+		for (int r = 0; r < expected.getRowCount(); r++) {
+			for (int c = 0; c < expected.getColumnCount(); c++) {
+				final double e = expected.getAsDouble(r, c);
+				assertEquals(e, actual.getAsDouble(r, c), tolerance * Math.max(1.0, Math.abs(e)));
+			}
+		}
+	}
+
+	@Test
+	public void testCov() {
+		final Matrix x = data(300, 12);
+		for (boolean bessel : new boolean[] { true, false }) {
+			final Matrix expected = x.cov(Ret.LINK, false, bessel);
+			assertMatrixEquals(expected, x.cov(Ret.NEW, false, bessel), TOLERANCE);
+			assertMatrixEquals(expected, x.cov(Ret.NEW, true, bessel), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testCorrcoef() {
+		final Matrix x = data(300, 12);
+		final Matrix expected = x.corrcoef(Ret.LINK, false, true);
+		final Matrix actual = x.corrcoef(Ret.NEW, false, true);
+		assertMatrixEquals(expected, actual, TOLERANCE);
+		for (int i = 0; i < 12; i++) {
+			assertEquals(1.0, actual.getAsDouble(i, i), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testMissingValues() {
+		final Matrix x = data(50, 5);
+		x.setAsDouble(Double.NaN, 3, 2);
+		final Matrix ignored = x.cov(Ret.NEW, true, true);
+		assertMatrixEquals(x.cov(Ret.LINK, true, true), ignored, TOLERANCE);
+		assertTrue(Double.isNaN(x.cov(Ret.NEW, false, true).getAsDouble(2, 1)));
+		assertEquals(x.cov(Ret.NEW, false, true).getAsDouble(0, 1), ignored.getAsDouble(0, 1),
+				TOLERANCE * 1000);
+	}
+
+	@Test
+	public void testStreaming() {
+		final Matrix x = data(2500, 7);
+		final CovarianceAccumulator rows = new CovarianceAccumulator(7);
+		for (int r = 0; r < 2500; r++) {
+			rows.add(x.selectRows(Ret.NEW, r).toDoubleArray()[0]);
+		}
+		final CovarianceAccumulator batches = new CovarianceAccumulator(7);
+		batches.add(x);
+		final CovarianceAccumulator merged = new CovarianceAccumulator(7);
+		final CovarianceAccumulator part = new CovarianceAccumulator(7);
+		merged.add(x, 0, 1000);
+		part.add(x, 1000, 2500);
+		merged.merge(part);
+
+		final Matrix expected = x.cov(Ret.LINK, false, true);
+		assertEquals(2500, rows.getCount());
+		assertEquals(2500, merged.getCount());
+		assertMatrixEquals(expected, rows.getCovariance(true), TOLERANCE);
+		assertMatrixEquals(expected, batches.getCovariance(true), TOLERANCE);
+		assertMatrixEquals(expected, merged.getCovariance(true), TOLERANCE);
+		assertMatrixEquals(x.mean(Ret.NEW, Matrix.ROW, false), merged.getMean(), TOLERANCE);
+		assertMatrixEquals(x.corrcoef(Ret.LINK, false, true), merged.getCorrelation(),
+				TOLERANCE);
+	}
+
+	@Test
+	public void testMultiThreaded() {
+		final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(4);
+			final Matrix x = data(20000, 6);
+			final CovarianceAccumulator single = new CovarianceAccumulator(6);
+			single.add(x);
+			assertMatrixEquals(single.getCovariance(false), CovarianceAccumulator.accumulate(x)
+					.getCovariance(false), TOLERANCE);
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+		}
+	}
+
+	@Test
+	public void testEmpty() {
+		final CovarianceAccumulator empty = new CovarianceAccumulator(3);
+		assertEquals(0, empty.getCount());
+		assertTrue(Double.isNaN(empty.getCovariance(true).getAsDouble(0, 0)));
+		assertTrue(Double.isNaN(empty.getMean().getAsDouble(0, 2)));
+	}
+
+}
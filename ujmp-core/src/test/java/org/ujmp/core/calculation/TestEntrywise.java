@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.ArrayDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.BlockDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.interfaces.HasColumnMajorDoubleArray1D;
+import org.ujmp.core.interfaces.HasRowMajorDoubleArray2D;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestEntrywise {
+
+	private static DenseDoubleMatrix2D[] createMatrices(int rows, int cols) {
+		DenseDoubleMatrix2D m1 = new DefaultDenseDoubleMatrix2D(rows, cols);
+		DenseDoubleMatrix2D m2 = new ArrayDenseDoubleMatrix2D(rows, cols);
+		DenseDoubleMatrix2D m3 = new BlockDenseDoubleMatrix2D(rows, cols);
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				double v = Math.sin(r * 31 + c * 7) * 3.0;
+				m1.setDouble(v, r, c);
+				m2.setDouble(v, r, c);
+				m3.setDouble(v, r, c);
+			}
+		}
+		return new DenseDoubleMatrix2D[] { m1, m2, m3 };
+	}
+
+	private enum Function {
+		ABS {
+			double apply(double v) {
+				return Math.abs(v);
+			}
+
+			Matrix calc(Matrix m, Ret ret) {
+				return m.abs(ret);
+			}
+		},
+		EXP {
+			double apply(double v) {
+				return Math.exp(v);
+			}
+
+			Matrix calc(Matrix m, Ret ret) {
+				return m.exp(ret);
+			}
+		},
+		SQRT {
+			double apply(double v) {
+				return Math.sqrt(v);
+			}
+
+			Matrix calc(Matrix m, Ret ret) {
+				return m.sqrt(ret);
+			}
+		},
+		POWER {
+			double apply(double v) {
+				return Math.pow(v, 3.0);
+			}
+
+			Matrix calc(Matrix m, Ret ret) {
+				return m.power(ret, 3.0);
+			}
+		},
+		FLOOR {
+			double apply(double v) {
+				return Math.floor(v);
+			}
+
+			Matrix calc(Matrix m, Ret ret) {
+				return m.floor(ret);
+			}
+		},
+		LOGISTIC {
+			double apply(double v) {
+				return 1.0 / (Math.exp(-v) + 1.0);
+			}
+
+			Matrix calc(Matrix m, Ret ret) {
+				return m.logistic(ret);
+			}
+		};
+
+		abstract double apply(double v);
+
+		abstract Matrix calc(Matrix m, Ret ret);
+	}
+
+	private static void check(Matrix source, Matrix result, Function function) {
+		assertEquals(source.getRowCount(), result.getRowCount());
+		assertEquals(source.getColumnCount(), result.getColumnCount());
+		for (int r = 0; r < source.getRowCount(); r++) {
+			for (int c = 0; c < source.getColumnCount(); c++) {
+				assertEquals(function.name(), function.apply(source.getAsDouble(r, c)),
+						result.getAsDouble(r, c), 0.0);
+			}
+		}
+	}
+
+	private static void testEntrywise(int rows, int cols) {
+		for (Function function : Function.values()) {
+			for (DenseDoubleMatrix2D m : createMatrices(rows, cols)) {
+				Matrix result = function.calc(m, Ret.NEW);
+				check(m, result, function);
+				// the result has the layout of the source, so the array kernel is used
+				if (m instanceof HasRowMajorDoubleArray2D) {
+					assertTrue(result instanceof HasRowMajorDoubleArray2D);
+				} else if (m instanceof HasColumnMajorDoubleArray1D) {
+					assertTrue(result instanceof HasColumnMajorDoubleArray1D);
+				}
+				check(m, function.calc(m, Ret.LINK), function);
+				Matrix copy = m.clone();
+				Matrix orig = function.calc(copy, Ret.ORIG);
+				check(m, orig, function);
+				assertEquals(copy, orig);
+			}
+		}
+	}
+
+	private static void testPlusMinusTimes(int rows, int cols) {
+		for (DenseDoubleMatrix2D m : createMatrices(rows, cols)) {
+			Matrix n = m.transpose(Ret.NEW).transpose(Ret.NEW);
+			Matrix plus = m.plus(n);
+			Matrix minus = m.minus(Ret.NEW, false, m.times(2.0));
+			Matrix times = m.times(-0.5);
+			for (int r = 0; r < rows; r++) {
+				for (int c = 0; c < cols; c++) {
+					double v = m.getDouble(r, c);
+					assertEquals(v + v, plus.getAsDouble(r, c), 0.0);
+					assertEquals(v - 2.0 * v, minus.getAsDouble(r, c), 0.0);
+					assertEquals(v * -0.5, times.getAsDouble(r, c), 0.0);
+				}
+			}
+		}
+	}
+
+	private static void testFused(int rows, int cols) {
+		for (DenseDoubleMatrix2D m : createMatrices(rows, cols)) {
+			m.setDouble(Double.NaN, 0, 0);
+			Matrix link = m.minus(Ret.LINK, true, 1.0).times(Ret.LINK, false, -2.0).abs(Ret.LINK)
+					.divide(Ret.LINK, false, 4.0).plus(Ret.LINK, false, 0.5);
+			Matrix fused = link.power(Ret.NEW, 2.0);
+			Matrix stepwise = m.minus(Ret.NEW, true, 1.0).times(Ret.NEW, false, -2.0).abs(Ret.NEW)
+					.divide(Ret.NEW, false, 4.0).plus(Ret.NEW, false, 0.5).power(Ret.NEW, 2.0);
+			assertEquals(stepwise, fused);
+			assertEquals(stepwise, link.power(Ret.LINK, 2.0));
+			assertEquals(1.0, fused.getAsDouble(0, 0), 0.0);
+			Matrix copy = m.clone();
+			assertEquals(m.exp(Ret.NEW).sqrt(Ret.NEW), copy.exp(Ret.LINK).sqrt(Ret.NEW));
+			assertEquals(m, copy);
+		}
+	}
+
+	@Test
+	public void testEntrywiseSmall() {
+		testEntrywise(7, 5);
+	}
+
+	@Test
+	public void testEntrywiseLargeMultiThreaded() {
+		int threads = UJMPSettings.getInstance().getNumberOfThreads();
+		try {
+			UJMPSettings.getInstance().setNumberOfThreads(4);
+			testEntrywise(300, 301);
+			testPlusMinusTimes(300, 301);
+			testFused(300, 301);
+		} finally {
+			UJMPSettings.getInstance().setNumberOfThreads(threads);
+		}
+	}
+
+	@Test
+	public void testPlusMinusTimesSmall() {
+		testPlusMinusTimes(7, 5);
+	}
+
+	@Test
+	public void testFusedSmall() {
+		testFused(7, 5);
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.calculation.general.iterative.ConvergenceMonitor;
+import org.ujmp.core.doublematrix.calculation.general.missingvalues.Impute.ImputationMethod;
+import org.ujmp.core.doublematrix.calculation.general.missingvalues.ImputeEM;
+
+public class TestImputeEM {
+
+	/**
+	 * Rank 3 data with noise and an offset
+	 */
+	private static Matrix data(int rows, int cols) {
+		return DenseMatrix.Factory.randn(rows, 3).mtimes(DenseMatrix.Factory.randn(3, cols))
+				.plus(DenseMatrix.Factory.randn(rows, cols).times(0.01)).plus(10.0);
+	}
+
+	private static Matrix removeValues(Matrix x, double fraction, int column, double columnFraction) {
+		final Matrix result = x.clone();
+		for (int r = 0; r < x.getRowCount(); r++) {
+			for (int c = 0; c < x.getColumnCount(); c++) {
+				if (Math.random() < (c == column ? columnFraction : fraction)) {
+					result.setAsDouble(Double.NaN, r, c);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * One iteration of the original algorithm with a pseudo inverse per
+	 * column
+	 */
+	private static Matrix reference(Matrix x, Matrix guess) {
+		final Matrix predicted = guess.clone();
+		for (long c = 0; c < x.getColumnCount(); c++) {
+			final List<Long> missingRows = new ArrayList<Long>();
+			for (long r = 0; r < x.getRowCount(); r++) {
+				if (Double.isNaN(x.getAsDouble(r, c))) {
+					missingRows.add(r);
+				}
+			}
+			if (missingRows.isEmpty()) {
+				continue;
+			}
+			final Matrix others = Matrix.Factory.horCat(guess.deleteColumns(Ret.NEW, c),
+					DenseMatrix.Factory.ones(x.getRowCount(), 1));
+			final Matrix b = others.deleteRows(Ret.NEW, missingRows).pinv()
+					.mtimes(x.selectColumns(Ret.NEW, c).deleteRows(Ret.NEW, missingRows));
+			final Matrix y = others.mtimes(b);
+			for (long r : missingRows) {
+				predicted.setAsDouble(0.66 * guess.getAsDouble(r, c) + 0.34 * y.getAsDouble(r, 0),
+						r, c);
+			}
+		}
+		return predicted;
+	}
+
+	@Test
+	public void testOneIteration() {
+		// column 2 has more missing than known values, the others only a few
+		final Matrix x = removeValues(DenseMatrix.Factory.randn(200, 8).mtimes(
+				DenseMatrix.Factory.randn(8, 8)).plus(10.0), 0.01, 2, 0.6);
+		final Matrix guess = x.impute(Ret.NEW, ImputationMethod.RowMean);
+		final Matrix expected = reference(x, guess);
+		final Matrix actual = new ImputeEM(x, null, new ConvergenceMonitor(0.0, 1)).calcNew();
+		for (int r = 0; r < x.getRowCount(); r++) {
+			for (int c = 0; c < x.getColumnCount(); c++) {
+				assertEquals(expected.getAsDouble(r, c), actual.getAsDouble(r, c), 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testConvergence() {
+		final Matrix original = data(300, 10);
+		final Matrix x = removeValues(original, 0.1, 0, 0.1);
+		final int[] calls = new int[1];
+		final ConvergenceMonitor monitor = new ConvergenceMonitor(1e-8, 1000) {
+			protected void iterationDone(int iteration, double residualNorm) {
+				calls[0]++;
+			}
+		};
+		final Matrix imputed = x.impute(Ret.NEW, ImputationMethod.EM);
+		final Matrix imputed2 = new ImputeEM(x, null, monitor).calcNew();
+		assertTrue(monitor.isConverged());
+		assertEquals(monitor.getIterations() + 1, calls[0]);
+
+		double errorEM = 0.0;
+		double errorDefault = 0.0;
+		double errorMean = 0.0;
+		final Matrix mean = x.impute(Ret.NEW, ImputationMethod.ColumnMean);
+		for (int r = 0; r < x.getRowCount(); r++) {
+			for (int c = 0; c < x.getColumnCount(); c++) {
+				final double value = original.getAsDouble(r, c);
+				if (Double.isNaN(x.getAsDouble(r, c))) {
+					errorEM += Math.abs(imputed2.getAsDouble(r, c) - value);
+					errorMean += Math.abs(mean.getAsDouble(r, c) - value);
+					errorDefault += Math.abs(imputed.getAsDouble(r, c) - value);
+				} else {
+					assertEquals(value, imputed2.getAsDouble(r, c), 0.0);
+				}
+			}
+		}
+		assertTrue(errorEM < errorMean / 10);
+		assertTrue(errorDefault < errorMean / 10);
+	}
+
+	@Test
+	public void testEarlyStopping() {
+		final Matrix x = removeValues(data(100, 6), 0.1, 0, 0.1);
+		final ConvergenceMonitor monitor = new ConvergenceMonitor(0.0, 3);
+		new ImputeEM(x, null, monitor).calcNew();
+		assertEquals(3, monitor.getIterations());
+		assertFalse(monitor.isConverged());
+		assertEquals(4, monitor.getResidualHistory().length);
+	}
+
+	@Test
+	public void testCollinearColumns() {
+		final Matrix original = data(100, 5);
+		final Matrix x = Matrix.Factory.horCat(original, original.selectColumns(Ret.NEW, 0));
+		x.setAsDouble(Double.NaN, 3, 5);
+		x.setAsDouble(Double.NaN, 7, 1);
+		final Matrix imputed = new ImputeEM(x).calcNew();
+		assertFalse(imputed.containsMissingValues());
+		assertEquals(original.getAsDouble(3, 0), imputed.getAsDouble(3, 5), 1e-3);
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.doublematrix.calculation.general.iterative.AbstractIterativeSolver;
+import org.ujmp.core.doublematrix.calculation.general.iterative.BiCGSTAB;
+import org.ujmp.core.doublematrix.calculation.general.iterative.ConjugateGradient;
+import org.ujmp.core.doublematrix.calculation.general.iterative.ConvergenceMonitor;
+import org.ujmp.core.doublematrix.calculation.general.iterative.GMRES;
+import org.ujmp.core.doublematrix.calculation.general.iterative.IncompleteCholeskyPreconditioner;
+import org.ujmp.core.doublematrix.calculation.general.iterative.IterativeSolve;
+import org.ujmp.core.doublematrix.calculation.general.iterative.JacobiPreconditioner;
+import org.ujmp.core.doublematrix.calculation.general.iterative.LinearOperator;
+import org.ujmp.core.doublematrix.calculation.general.iterative.MatrixLinearOperator;
+
+public class TestIterativeSolvers {
+
+	private static final double TOLERANCE = 1e-8;
+
+	/**
+	 * Five-point Laplacian on a grid of size x size points, which is symmetric
+	 * positive definite. A convection term makes it unsymmetric.
+	 */
+	private static Matrix laplacian(int size, double convection) {
+		final int n = size * size;
+		final Matrix a = SparseMatrix.Factory.zeros(n, n);
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				final int row = i * size + j;
+				a.setAsDouble(4.0, row, row);
+				if (i > 0) {
+					a.setAsDouble(-1.0 - convection, row, row - size);
+				}
+				if (i < size - 1) {
+					a.setAsDouble(-1.0 + convection, row, row + size);
+				}
+				if (j > 0) {
+					a.setAsDouble(-1.0, row, row - 1);
+				}
+				if (j < size - 1) {
+					a.setAsDouble(-1.0, row, row + 1);
+				}
+			}
+		}
+		return a;
+	}
+
+	private static void assertSolution(Matrix a, Matrix x, Matrix b) {
+		assertEquals(0.0, a.mtimes(x).minus(b).normF() / b.normF(), TOLERANCE);
+	}
+
+	private static void assertSolves(AbstractIterativeSolver solver, Matrix a) {
+		final Matrix b = DenseMatrix.Factory.randn(a.getRowCount(), 2);
+		assertSolution(a, solver.solve(a, b), b);
+	}
+
+	@Test
+	public void testConjugateGradient() {
+		final Matrix a = laplacian(30, 0.0);
+		assertSolves(new ConjugateGradient(), a);
+		assertSolves(new ConjugateGradient(new JacobiPreconditioner(a)), a);
+		assertSolves(new ConjugateGradient(new IncompleteCholeskyPreconditioner(a)), a);
+	}
+
+	@Test
+	public void testBiCGSTAB() {
+		final Matrix a = laplacian(30, 0.4);
+		assertSolves(new BiCGSTAB(), a);
+		assertSolves(new BiCGSTAB(new JacobiPreconditioner(a)), a);
+	}
+
+	@Test
+	public void testGMRES() {
+		final Matrix a = laplacian(30, 0.4);
+		assertSolves(new GMRES(), a);
+		assertSolves(new GMRES(20, new JacobiPreconditioner(a)), a);
+	}
+
+	@Test
+	public void testDenseMatrix() {
+		final Matrix r = DenseMatrix.Factory.randn(50, 50);
+		final Matrix a = r.mtimes(r.transpose()).plus(DenseMatrix.Factory.eye(50, 50).times(50));
+		assertSolves(new ConjugateGradient(), a);
+		assertSolves(new GMRES(), a);
+	}
+
+	@Test
+	public void testIncompleteCholeskyReducesIterations() {
+		final Matrix a = laplacian(40, 0.0);
+		final LinearOperator operator = new MatrixLinearOperator(a);
+		final double[] b = new double[operator.getRowCount()];
+		Arrays.fill(b, 1.0);
+
+		final ConvergenceMonitor plain = new ConvergenceMonitor();
+		assertTrue(new ConjugateGradient().solve(operator, b, new double[b.length], plain));
+		final ConvergenceMonitor preconditioned = new ConvergenceMonitor();
+		assertTrue(new ConjugateGradient(new IncompleteCholeskyPreconditioner(a)).solve(
+				operator, b, new double[b.length], preconditioned));
+		assertTrue(preconditioned.getIterations() < plain.getIterations());
+	}
+
+	@Test
+	public void testConvergenceMonitor() {
+		final Matrix a = laplacian(20, 0.0);
+		final LinearOperator operator = new MatrixLinearOperator(a);
+		final double[] b = new double[operator.getRowCount()];
+		b[0] = 1.0;
+
+		final int[] calls = new int[1];
+		final ConvergenceMonitor monitor = new ConvergenceMonitor(1e-6, 5) {
+			protected void iterationDone(int iteration, double residualNorm) {
+				calls[0]++;
+			}
+		};
+		assertFalse(new ConjugateGradient().solve(operator, b, new double[b.length], monitor));
+		assertFalse(monitor.isConverged());
+		assertEquals(5, monitor.getIterations());
+		assertEquals(6, monitor.getResidualHistory().length);
+		assertEquals(6, calls[0]);
+		assertEquals(1.0, monitor.getResidualHistory()[0], 0.0);
+
+		final ConvergenceMonitor unlimited = new ConvergenceMonitor(1e-6, 1000);
+		assertTrue(new ConjugateGradient().solve(operator, b, new double[b.length], unlimited));
+		assertTrue(unlimited.getResidualNorm() <= 1e-6);
+	}
+
+	@Test
+	public void testMatrixSolve() {
+		final int threshold = IterativeSolve.SPARSETHRESHOLD;
+		try {
+			IterativeSolve.SPARSETHRESHOLD = 100;
+			final Matrix spd = laplacian(20, 0.0);
+			final Matrix general = laplacian(20, 0.3);
+			assertTrue(IterativeSolve.isSuitable(spd));
+			final Matrix b = DenseMatrix.Factory.randn(400, 3);
+			assertSolution(spd, spd.solveSPD(b), b);
+			assertSolution(spd, spd.solveSymm(b), b);
+			assertSolution(general, general.solve(b), b);
+		} finally {
+			IterativeSolve.SPARSETHRESHOLD = threshold;
+		}
+	}
+
+}
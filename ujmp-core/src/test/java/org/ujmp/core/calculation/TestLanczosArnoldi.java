@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.calculation.general.iterative.Arnoldi;
+import org.ujmp.core.doublematrix.calculation.general.iterative.Arnoldi.Which;
+import org.ujmp.core.doublematrix.calculation.general.iterative.Lanczos;
+
+public class TestLanczosArnoldi {
+
+	private static final double TOLERANCE = 1e-7;
+
+	/**
+	 * Five-point Laplacian on a grid of size x (size + 1) points. The grid is
+	 * not square, so that all eigenvalues are distinct.
+	 */
+	private static Matrix laplacian(int size) {
+		final int columns = size + 1;
+		final int n = size * columns;
+		final Matrix a = SparseMatrix.Factory.zeros(n, n);
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < columns; j++) {
+				final int row = i * columns + j;
+				a.setAsDouble(4.0, row, row);
+				if (i > 0) {
+					a.setAsDouble(-1.0, row, row - columns);
+					a.setAsDouble(-1.0, row - columns, row);
+				}
+				if (j > 0) {
+					a.setAsDouble(-1.0, row, row - 1);
+					a.setAsDouble(-1.0, row - 1, row);
+				}
+			}
+		}
+		return a;
+	}
+
+	/**
+	 * Eigenvalues of the Laplacian are 4 - 2cos(pi*p/(size+1)) -
+	 * 2cos(pi*q/(size+2)), returned in ascending order
+	 */
+	private static double[] laplacianEigenvalues(int size) {
+		final double[] values = new double[size * (size + 1)];
+		for (int p = 1; p <= size; p++) {
+			for (int q = 1; q <= size + 1; q++) {
+				values[(p - 1) * (size + 1) + q - 1] = 4.0 - 2.0
+						* Math.cos(Math.PI * p / (size + 1)) - 2.0
+						* Math.cos(Math.PI * q / (size + 2));
+			}
+		}
+		Arrays.sort(values);
+		return values;
+	}
+
+	private static void assertEigenpairs(Matrix a, Matrix[] vd) {
+		final Matrix v = vd[0];
+		final Matrix d = vd[1];
+		assertEquals(a.getRowCount(), v.getRowCount());
+		assertEquals(v.getColumnCount(), d.getRowCount());
+		final Matrix av = a.mtimes(v);
+		assertEquals(0.0, av.minus(v.mtimes(d)).normF() / av.normF(), TOLERANCE);
+	}
+
+	@Test
+	public void testLanczosLargest() {
+		final int size = 30;
+		final Matrix a = laplacian(size);
+		final double[] expected = laplacianEigenvalues(size);
+		final Matrix[] vd = new Lanczos(Which.LARGESTREAL, 1e-10, 1000, 1).calc(a, 5);
+		assertEquals(5, vd[0].getColumnCount());
+		for (int i = 0; i < 5; i++) {
+			assertEquals(expected[expected.length - 1 - i], vd[1].getAsDouble(i, i), TOLERANCE);
+		}
+		assertEigenpairs(a, vd);
+		final Matrix vtv = vd[0].transpose().mtimes(vd[0]);
+		assertEquals(0.0, vtv.minus(DenseMatrix.Factory.eye(5, 5)).normF(), TOLERANCE);
+	}
+
+	@Test
+	public void testLanczosSmallest() {
+		final int size = 12;
+		final Matrix a = laplacian(size);
+		final double[] expected = laplacianEigenvalues(size);
+		final Matrix[] vd = new Lanczos(Which.SMALLESTREAL, 1e-10, 1000, 2).calc(a, 3);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expected[i], vd[1].getAsDouble(i, i), TOLERANCE);
+		}
+		assertEigenpairs(a, vd);
+	}
+
+	@Test
+	public void testEigSymm() {
+		final Matrix r = DenseMatrix.Factory.randn(80, 80);
+		final Matrix a = r.plus(r.transpose());
+		final Matrix[] vd = a.eigSymm(4);
+		final Matrix dense = a.eigSymm()[1];
+		final double[] expected = new double[80];
+		for (int i = 0; i < 80; i++) {
+			expected[i] = Math.abs(dense.getAsDouble(i, i));
+		}
+		Arrays.sort(expected);
+		for (int i = 0; i < 4; i++) {
+			assertEquals(expected[79 - i], Math.abs(vd[1].getAsDouble(i, i)), TOLERANCE);
+		}
+		assertEigenpairs(a, vd);
+	}
+
+	@Test
+	public void testLinkedMatrix() {
+		final Matrix r = DenseMatrix.Factory.randn(60, 60);
+		final Matrix a = r.mtimes(r.transpose());
+		final Matrix linked = a.transpose(Ret.LINK);
+		final Matrix[] expected = new Lanczos(Which.LARGESTMAGNITUDE, 1e-10, 1000, 3).calc(a, 3);
+		final Matrix[] actual = new Lanczos(Which.LARGESTMAGNITUDE, 1e-10, 1000, 3).calc(linked,
+				3);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expected[1].getAsDouble(i, i), actual[1].getAsDouble(i, i), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testArnoldiReal() {
+		// upper triangular with known eigenvalues 1..n on the diagonal
+		final int n = 200;
+		final Matrix a = SparseMatrix.Factory.zeros(n, n);
+		for (int i = 0; i < n; i++) {
+			a.setAsDouble(i + 1, i, i);
+			if (i + 1 < n) {
+				a.setAsDouble(0.5, i, i + 1);
+			}
+		}
+		final Matrix[] vd = new Arnoldi(Which.LARGESTMAGNITUDE, 1e-10, 1000, 4).calc(a, 4);
+		assertEquals(4, vd[0].getColumnCount());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(n - i, vd[1].getAsDouble(i, i), TOLERANCE);
+		}
+		assertEigenpairs(a, vd);
+	}
+
+	@Test
+	public void testArnoldiComplex() {
+		final Matrix a = DenseMatrix.Factory.randn(100, 100);
+		final Matrix[] vd = a.eig(6);
+		assertTrue(vd[0].getColumnCount() == 6 || vd[0].getColumnCount() == 7);
+		assertEigenpairs(a, vd);
+
+		// compare the magnitudes with the dense decomposition
+		final Matrix dense = a.eig()[1];
+		final double[] expected = new double[100];
+		for (int i = 0; i < 100; i++) {
+			double im = 0.0;
+			if (i + 1 < 100) {
+				im = Math.max(im, Math.abs(dense.getAsDouble(i, i + 1)));
+			}
+			if (i > 0) {
+				im = Math.max(im, Math.abs(dense.getAsDouble(i, i - 1)));
+			}
+			expected[i] = Math.hypot(dense.getAsDouble(i, i), im);
+		}
+		Arrays.sort(expected);
+		final Matrix d = vd[1];
+		for (int i = 0; i < 6; i++) {
+			double im = 0.0;
+			if (i + 1 < d.getColumnCount()) {
+				im = Math.max(im, Math.abs(d.getAsDouble(i, i + 1)));
+			}
+			if (i > 0) {
+				im = Math.max(im, Math.abs(d.getAsDouble(i, i - 1)));
+			}
+			assertEquals(expected[99 - i], Math.hypot(d.getAsDouble(i, i), im), 1e-6);
+		}
+	}
+
+	@Test
+	public void testSmallMatrix() {
+		final Matrix a = DenseMatrix.Factory.randn(5, 5);
+		final Matrix[] vd = a.eig(5);
+		assertEquals(5, vd[0].getColumnCount());
+		assertEigenpairs(a, vd);
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.ujmp.core.calculation.MtimesCalibration.Shape;
+import org.ujmp.core.calculation.MtimesCalibration.Strategy;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestMtimesCalibration {
+
+	@Test
+	public void testShape() {
+		assertEquals(Shape.SQUARE, Shape.getShape(100, 50, 120));
+		assertEquals(Shape.TALL, Shape.getShape(400, 50, 100));
+		assertEquals(Shape.WIDE, Shape.getShape(100, 50, 400));
+		assertEquals(Shape.VECTOR, Shape.getShape(100, 50, 1));
+		assertEquals(Shape.VECTOR, Shape.getShape(1, 50, 100));
+	}
+
+	@Test
+	public void testDefaultRanking() {
+		MtimesCalibration profile = MtimesCalibration.getDefault();
+		assertEquals(Strategy.SINGLETHREADED, profile.getRanking(3, 3, 3)[0]);
+		assertEquals(Strategy.SINGLETHREADED, profile.getRanking(50, 50, 50)[0]);
+		assertEquals(Strategy.NATIVE, profile.getRanking(500, 500, 500)[0]);
+		// same rule as Mtimes.THRESHOLD for all shapes, not only size classes
+		assertEquals(Strategy.NATIVE, profile.getRanking(110, 110, 110)[0]);
+		assertEquals(Strategy.NATIVE, profile.getRanking(100, 100, 1)[0]);
+		assertEquals(Strategy.SINGLETHREADED, profile.getRanking(99, 500, 500)[0]);
+		assertEquals(Strategy.SINGLETHREADED, profile.getRanking(500, 99, 500)[0]);
+	}
+
+	@Test
+	public void testCalibrationIsOptIn() {
+		assertFalse(UJMPSettings.getInstance().isUseMtimesCalibration());
+	}
+
+	@Test
+	public void testSaveLoad() throws Exception {
+		MtimesCalibration profile = MtimesCalibration.getDefault();
+		profile.setRanking(Shape.TALL, 2, Strategy.BLOCK, Strategy.SINGLETHREADED);
+		File file = File.createTempFile("ujmp-mtimes", ".properties");
+		try {
+			profile.save(file);
+			MtimesCalibration loaded = MtimesCalibration.load(file);
+			assertEquals(profile.toString(), loaded.toString());
+			assertEquals(Strategy.BLOCK, loaded.getRanking(Shape.TALL, 2)[0]);
+		} finally {
+			file.delete();
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.calculation.general.misc.AllPairsSimilarity;
+import org.ujmp.core.doublematrix.calculation.general.misc.RandomProjectionForest;
+import org.ujmp.core.doublematrix.calculation.general.missingvalues.Impute.ImputationMethod;
+import org.ujmp.core.util.MathUtil;
+
+public class TestRandomProjectionForest {
+
+	private static final double TOLERANCE = 1e-10;
+
+	/**
+	 * Rows around a number of cluster centres
+	 */
+	private static Matrix clusters(int rows, int cols, int clusters) {
+		final Matrix centres = DenseMatrix.Factory.randn(clusters, cols).times(5.0);
+		final Matrix x = DenseMatrix.Factory.randn(rows, cols);
+		for (int r = 0; r < rows; r++) {
+			final int c = r % clusters;
+			for (int f = 0; f < cols; f++) {
+				x.setAsDouble(x.getAsDouble(r, f) + centres.getAsDouble(c, f), r, f);
+			}
+		}
+		return x;
+	}
+
+	private static double recall(Matrix exact, Matrix approximate) {
+		int found = 0;
+		for (int r = 0; r < exact.getRowCount(); r++) {
+			for (int i = 0; i < exact.getColumnCount(); i++) {
+				for (int j = 0; j < approximate.getColumnCount(); j++) {
+					if (exact.getAsDouble(r, i) == approximate.getAsDouble(r, j)) {
+						found++;
+						break;
+					}
+				}
+			}
+		}
+		return found / (double) (exact.getRowCount() * exact.getColumnCount());
+	}
+
+	@Test
+	public void testRecall() {
+		final Matrix x = clusters(2000, 10, 20);
+		for (AllPairsSimilarity measure : new AllPairsSimilarity[] {
+				AllPairsSimilarity.minkowski(2, false), AllPairsSimilarity.cosine(false) }) {
+			final Matrix[] exact = measure.topK(x, 10, true);
+			final RandomProjectionForest forest = new RandomProjectionForest(x, measure, 10, 32,
+					42);
+			final Matrix[] approximate = forest.topK(10, 400, true);
+			assertTrue(recall(exact[0], approximate[0]) > 0.9);
+			for (int r = 0; r < x.getRowCount(); r++) {
+				final int index = (int) approximate[0].getAsDouble(r, 0);
+				assertEquals(measure.calc(x.selectRows(Ret.NEW, r).toDoubleArray()[0], 0, x
+						.selectRows(Ret.NEW, index).toDoubleArray()[0], 0, 10), approximate[1]
+						.getAsDouble(r, 0), TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void testExactForSmallMatrices() {
+		// a single leaf contains all rows
+		final Matrix x = DenseMatrix.Factory.randn(30, 4);
+		final AllPairsSimilarity measure = AllPairsSimilarity.minkowski(1, false);
+		final Matrix[] exact = measure.topK(x, 5, false);
+		final Matrix[] approximate = new RandomProjectionForest(x, measure, 1, 32, 1).topK(
+				x, 5, 0);
+		for (int r = 0; r < 30; r++) {
+			for (int i = 0; i < 5; i++) {
+				assertEquals(exact[0].getAsDouble(r, i), approximate[0].getAsDouble(r, i), 0.0);
+				assertEquals(exact[1].getAsDouble(r, i), approximate[1].getAsDouble(r, i),
+						TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void testFilter() {
+		final Matrix x = clusters(500, 5, 5);
+		final RandomProjectionForest forest = new RandomProjectionForest(x,
+				AllPairsSimilarity.minkowski(2, false), 5, 16, 7);
+		final int[] indices = new int[10];
+		final int count = forest.query(0, 10, 0, new RandomProjectionForest.Filter() {
+			public boolean accept(int row) {
+				return row % 100 == 1;
+			}
+		}, indices, null);
+		// all accepted rows are found even though they are far apart
+		assertEquals(5, count);
+		for (int i = 0; i < count; i++) {
+			assertEquals(1, indices[i] % 100);
+		}
+	}
+
+	@Test
+	public void testImputeKNNReproducible() {
+		final Matrix x = clusters(200, 4, 5);
+		for (int i = 0; i < 50; i++) {
+			x.setAsDouble(Double.NaN, MathUtil.nextInteger(200), MathUtil.nextInteger(4));
+		}
+		// only 3 candidates, so that the forest decides the neighbours
+		assertEquals(x.impute(Ret.NEW, ImputationMethod.KNN, 3, 1, 3),
+				x.impute(Ret.NEW, ImputationMethod.KNN, 3, 1, 3));
+		assertEquals(x.impute(Ret.NEW, ImputationMethod.KNN, 3, 1, 3, 7L),
+				x.impute(Ret.NEW, ImputationMethod.KNN, 3, 1, 3, 7L));
+	}
+
+	@Test
+	public void testImputeKNN() {
+		final Matrix x = clusters(30, 6, 3);
+		for (int i = 0; i < 15; i++) {
+			x.setAsDouble(Double.NaN, MathUtil.nextInteger(30), MathUtil.nextInteger(6));
+		}
+		final Matrix imputed = x.impute(Ret.NEW, ImputationMethod.KNN, 3);
+		for (int r = 0; r < 30; r++) {
+			for (int c = 0; c < 6; c++) {
+				final double value = x.getAsDouble(r, c);
+				if (!Double.isNaN(value)) {
+					assertEquals(value, imputed.getAsDouble(r, c), 0.0);
+					continue;
+				}
+				// brute force: mean of the 3 nearest rows with a value
+				final double[] distances = new double[30];
+				for (int o = 0; o < 30; o++) {
+					distances[o] = o == r || Double.isNaN(x.getAsDouble(o, c)) ? Double.MAX_VALUE
+							: x.selectRows(Ret.LINK, r).euklideanDistanceTo(
+									x.selectRows(Ret.LINK, o), true);
+				}
+				double sum = 0.0;
+				for (int k = 0; k < 3; k++) {
+					int best = 0;
+					for (int o = 1; o < 30; o++) {
+						if (distances[o] < distances[best]) {
+							best = o;
+						}
+					}
+					sum += x.getAsDouble(best, c);
+					distances[best] = Double.POSITIVE_INFINITY;
+				}
+				assertEquals(sum / 3, imputed.getAsDouble(r, c), TOLERANCE);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+import org.ujmp.core.DenseMatrix;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.doublematrix.calculation.general.decomposition.RandomizedSVD;
+import org.ujmp.core.doublematrix.impl.BlockDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultSparseDoubleMatrix;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestRandomizedSVD {
+
+	private static final double TOLERANCE = 1e-8;
+
+	private final int threads = UJMPSettings.getInstance().getNumberOfThreads();
+
+	@After
+	public void tearDown() {
+		UJMPSettings.getInstance().setNumberOfThreads(threads);
+	}
+
+	/**
+	 * Matrix with the given singular values and random singular vectors
+	 */
+	private static Matrix createMatrix(int rows, int cols, double[] singularValues, long seed) {
+		Random random = new Random(seed);
+		Matrix u = DenseMatrix.Factory.zeros(rows, singularValues.length);
+		Matrix v = DenseMatrix.Factory.zeros(cols, singularValues.length);
+		for (int j = 0; j < singularValues.length; j++) {
+			for (int i = 0; i < rows; i++) {
+				u.setAsDouble(random.nextGaussian(), i, j);
+			}
+			for (int i = 0; i < cols; i++) {
+				v.setAsDouble(random.nextGaussian(), i, j);
+			}
+		}
+		u = u.qr()[0];
+		v = v.qr()[0];
+		Matrix s = DenseMatrix.Factory.zeros(singularValues.length, singularValues.length);
+		for (int i = 0; i < singularValues.length; i++) {
+			s.setAsDouble(singularValues[i], i, i);
+		}
+		return u.mtimes(s).mtimes(v.transpose());
+	}
+
+	private static double[] decaying(int count) {
+		double[] values = new double[count];
+		for (int i = 0; i < count; i++) {
+			values[i] = 100.0 * Math.pow(0.5, i);
+		}
+		return values;
+	}
+
+	private static void assertOrthonormal(Matrix q) {
+		Matrix identity = DenseMatrix.Factory.eye(q.getColumnCount(), q.getColumnCount());
+		assertEquals(0.0, q.transpose().mtimes(q).minus(identity).normF(), TOLERANCE);
+	}
+
+	private static void assertDecomposition(Matrix a, Matrix[] usv, double[] singularValues,
+			double tolerance) {
+		int k = singularValues.length;
+		assertEquals(a.getRowCount(), usv[0].getRowCount());
+		assertEquals(k, usv[0].getColumnCount());
+		assertEquals(k, usv[1].getRowCount());
+		assertEquals(k, usv[1].getColumnCount());
+		assertEquals(a.getColumnCount(), usv[2].getRowCount());
+		assertEquals(k, usv[2].getColumnCount());
+		for (int i = 0; i < k; i++) {
+			assertEquals(singularValues[i], usv[1].getAsDouble(i, i), tolerance);
+		}
+		assertOrthonormal(usv[0]);
+		assertOrthonormal(usv[2]);
+	}
+
+	@Test
+	public void testLowRank() {
+		double[] values = new double[] { 10, 5, 3, 1, 0.5 };
+		Matrix a = createMatrix(200, 80, values, 1);
+		Matrix[] usv = a.svd(5);
+		assertDecomposition(a, usv, values, TOLERANCE);
+		Matrix product = usv[0].mtimes(usv[1]).mtimes(usv[2].transpose());
+		assertEquals(0.0, product.minus(a).normF(), TOLERANCE);
+	}
+
+	@Test
+	public void testFatMatrix() {
+		double[] values = new double[] { 4, 3, 2, 1 };
+		Matrix a = createMatrix(30, 120, values, 2);
+		Matrix[] usv = a.svd(4);
+		assertDecomposition(a, usv, values, TOLERANCE);
+		Matrix product = usv[0].mtimes(usv[1]).mtimes(usv[2].transpose());
+		assertEquals(0.0, product.minus(a).normF(), TOLERANCE);
+	}
+
+	@Test
+	public void testDecayingSpectrum() {
+		double[] values = decaying(40);
+		Matrix a = createMatrix(300, 60, values, 3);
+		Matrix[] usv = new RandomizedSVD(10, 2, 4711).calc(a, 6);
+		double[] expected = new double[6];
+		System.arraycopy(values, 0, expected, 0, 6);
+		assertDecomposition(a, usv, expected, 1e-6);
+	}
+
+	@Test
+	public void testSparse() {
+		Random random = new Random(5);
+		Matrix a = SparseMatrix.Factory.zeros(500, 300);
+		for (int i = 0; i < 2000; i++) {
+			a.setAsDouble(0.01 * random.nextGaussian(), random.nextInt(500), random.nextInt(300));
+		}
+		for (int i = 0; i < 30; i++) {
+			a.setAsDouble(10 * Math.pow(0.7, i), 3 * i, 7 * i);
+		}
+		Matrix dense = DenseMatrix.Factory.zeros(500, 300);
+		Matrix compressed = new CompressedRowSparseDoubleMatrix2D(a);
+		Matrix hash = new DefaultSparseDoubleMatrix(a);
+		Matrix[] svd = dense.plus(a).svd();
+		double[] expected = new double[3];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = svd[1].getAsDouble(i, i);
+		}
+		RandomizedSVD randomizedSVD = new RandomizedSVD(10, 2, 1);
+		for (Matrix m : new Matrix[] { a, compressed, hash }) {
+			assertDecomposition(m, randomizedSVD.calc(m, 3), expected, 1e-6);
+		}
+	}
+
+	@Test
+	public void testBlockMatrix() {
+		double[] values = new double[] { 7, 6, 5 };
+		Matrix a = createMatrix(150, 120, values, 6);
+		BlockDenseDoubleMatrix2D block = new BlockDenseDoubleMatrix2D(a, 32);
+		assertDecomposition(block, block.svd(3), values, TOLERANCE);
+	}
+
+	@Test
+	public void testThreadIndependence() {
+		Matrix a = createMatrix(5000, 50, decaying(50), 7);
+		RandomizedSVD svd = new RandomizedSVD(5, 1, 8);
+		UJMPSettings.getInstance().setNumberOfThreads(1);
+		Matrix s1 = svd.calc(a, 10)[1];
+		UJMPSettings.getInstance().setNumberOfThreads(4);
+		Matrix s4 = svd.calc(a, 10)[1];
+		assertEquals(0.0, s1.minus(s4).normF(), 1e-10);
+	}
+
+	@Test
+	public void testPinv() {
+		Matrix a = createMatrix(40, 10, new double[] { 9, 8, 7, 6, 5, 4, 3, 2, 1, 0.5 }, 9);
+		assertEquals(0.0, a.pinv(10).minus(a.pinv()).normF(), 1e-6);
+	}
+
+}
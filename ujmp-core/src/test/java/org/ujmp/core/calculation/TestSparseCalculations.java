@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.calculation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultDenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.DefaultSparseDoubleMatrix;
+import org.ujmp.core.doublematrix.impl.DefaultSparseRowDoubleMatrix2D;
+
+public class TestSparseCalculations {
+
+	private static final int[] DIMENSIONS = { Calculation.ROW, Calculation.COLUMN,
+			Calculation.ALL };
+
+	/**
+	 * Sparse matrix with positive and negative values, one full row of
+	 * negative values, one empty column and one NaN
+	 */
+	private static Matrix createDense() {
+		final Matrix m = new DefaultDenseDoubleMatrix2D(7, 9);
+		for (int r = 0; r < 7; r++) {
+			for (int c = 0; c < 8; c++) {
+				if (r == 2 || (r * 5 + c * 3) % 4 == 0) {
+					m.setAsDouble(r == 2 ? -1.0 - c : Math.sin(r * 31 + c * 7) * 3.0, r, c);
+				}
+			}
+		}
+		m.setAsDouble(Double.NaN, 5, 6);
+		return m;
+	}
+
+	private static Matrix[] createSparse(Matrix dense) {
+		return new Matrix[] { new DefaultSparseDoubleMatrix(dense),
+				new DefaultSparseRowDoubleMatrix2D(dense),
+				new CompressedRowSparseDoubleMatrix2D(dense) };
+	}
+
+	private static void assertMatrixEquals(String message, Matrix expected, Matrix actual) {
+		assertEquals(message, expected.getRowCount(), actual.getRowCount());
+		assertEquals(message, expected.getColumnCount(), actual.getColumnCount());
+		for (int r = 0; r < expected.getRowCount(); r++) {
+			for (int c = 0; c < expected.getColumnCount(); c++) {
+				assertEquals(message, expected.getAsDouble(r, c), actual.getAsDouble(r, c), 1e-12);
+			}
+		}
+	}
+
+	@Test
+	public void testEntrywise() {
+		final Matrix dense = createDense();
+		for (Matrix sparse : createSparse(dense)) {
+			final String name = sparse.getClass().getSimpleName();
+			final Matrix abs = sparse.abs(Ret.NEW);
+			assertTrue(name, abs.isSparse());
+			assertMatrixEquals(name, dense.abs(Ret.NEW), abs);
+			assertMatrixEquals(name, dense.sqrt(Ret.NEW), sparse.sqrt(Ret.NEW));
+			assertMatrixEquals(name, dense.round(Ret.NEW), sparse.round(Ret.NEW));
+			assertMatrixEquals(name, dense.times(Ret.NEW, false, 2.5),
+					sparse.times(Ret.NEW, false, 2.5));
+			assertMatrixEquals(name, dense.abs(Ret.LINK).times(Ret.LINK, false, 3.0).sqrt(Ret.NEW),
+					sparse.abs(Ret.LINK).times(Ret.LINK, false, 3.0).sqrt(Ret.NEW));
+
+			// exp(0) = 1, so the result is dense
+			final Matrix exp = sparse.exp(Ret.NEW);
+			assertFalse(name, exp.isSparse());
+			assertMatrixEquals(name, dense.exp(Ret.NEW), exp);
+		}
+	}
+
+	@Test
+	public void testEntrywiseOrig() {
+		final Matrix dense = createDense();
+		for (Matrix sparse : createSparse(dense)) {
+			final String name = sparse.getClass().getSimpleName();
+			assertMatrixEquals(name, dense.round(Ret.NEW), sparse.round(Ret.ORIG));
+			assertMatrixEquals(name, dense.round(Ret.NEW), sparse);
+		}
+	}
+
+	@Test
+	public void testAggregations() {
+		final Matrix dense = createDense();
+		for (Matrix sparse : createSparse(dense)) {
+			for (int d : DIMENSIONS) {
+				final String name = sparse.getClass().getSimpleName() + " dimension " + d;
+				for (boolean ignoreNaN : new boolean[] { false, true }) {
+					assertMatrixEquals(name, dense.sum(Ret.NEW, d, ignoreNaN),
+							sparse.sum(Ret.NEW, d, ignoreNaN));
+					assertMatrixEquals(name, dense.mean(Ret.NEW, d, ignoreNaN),
+							sparse.mean(Ret.NEW, d, ignoreNaN));
+					assertMatrixEquals(name, dense.var(Ret.NEW, d, ignoreNaN, true),
+							sparse.var(Ret.NEW, d, ignoreNaN, true));
+					assertMatrixEquals(name, dense.std(Ret.NEW, d, ignoreNaN, false),
+							sparse.std(Ret.NEW, d, ignoreNaN, false));
+					assertMatrixEquals(name, dense.prod(Ret.NEW, d, ignoreNaN),
+							sparse.prod(Ret.NEW, d, ignoreNaN));
+				}
+				assertMatrixEquals(name, dense.countMissing(Ret.NEW, d),
+						sparse.countMissing(Ret.NEW, d));
+				assertMatrixEquals(name, dense.max(Ret.NEW, d), sparse.max(Ret.NEW, d));
+				assertMatrixEquals(name, dense.min(Ret.NEW, d), sparse.min(Ret.NEW, d));
+				if (d != Calculation.ALL) {
+					assertMatrixEquals(name, dense.indexOfMax(Ret.NEW, d),
+							sparse.indexOfMax(Ret.NEW, d));
+					assertMatrixEquals(name, dense.indexOfMin(Ret.NEW, d),
+							sparse.indexOfMin(Ret.NEW, d));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testLargeSparseMatrix() {
+		final long size = 1000000;
+		final Matrix m = new DefaultSparseDoubleMatrix(size, size);
+		m.setAsDouble(-3.0, 12, 34);
+		m.setAsDouble(4.0, 999999, 999998);
+		m.setAsDouble(5.0, 12, 999998);
+
+		assertEquals(6.0, m.sum(Ret.NEW, Calculation.ALL, false).getAsDouble(0, 0), 0.0);
+		assertEquals(2.0, m.sum(Ret.NEW, Calculation.COLUMN, false).getAsDouble(12, 0), 0.0);
+		assertEquals(6.0 / size / size, m.mean(Ret.NEW, Calculation.ALL, false)
+				.getAsDouble(0, 0), 1e-24);
+		assertEquals(5.0, m.max(Ret.NEW, Calculation.ALL).getAsDouble(0, 0), 0.0);
+		assertEquals(0.0, m.max(Ret.NEW, Calculation.ROW).getAsDouble(0, 34), 0.0);
+		assertEquals(-3.0, m.min(Ret.NEW, Calculation.ALL).getAsDouble(0, 0), 0.0);
+		assertEquals(12.0, m.indexOfMin(Ret.NEW, Calculation.ROW).getAsDouble(0, 34), 0.0);
+
+		final Matrix abs = m.abs(Ret.NEW);
+		assertTrue(abs.isSparse());
+		assertEquals(3.0, abs.getAsDouble(12, 34), 0.0);
+		assertEquals(24.0, abs.times(Ret.NEW, false, 2.0).sum(Ret.NEW, Calculation.ALL, false)
+				.getAsDouble(0, 0), 0.0);
+	}
+
+}
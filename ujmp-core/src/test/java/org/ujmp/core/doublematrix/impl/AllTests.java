@@ -28,6 +28,7 @@ import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ TestBlockDenseDouble2DMatrix.class, TestBlockMultiply.class,
-		TestBlockMultiply.class })
+		TestBlockMultiply.class, TestPanelMultiply.class, TestDoubleMatrix2DVisitor.class,
+		TestSparseMultiply.class })
 public class AllTests {
 }
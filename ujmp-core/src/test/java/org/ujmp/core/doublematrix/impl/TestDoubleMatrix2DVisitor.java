@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DoubleMatrix2D;
+import org.ujmp.core.doublematrix.DoubleMatrix2DVisitor;
+import org.ujmp.core.util.DefaultSparseDoubleVector1D;
+
+public class TestDoubleMatrix2DVisitor {
+
+	private static final int ROWS = 13;
+
+	private static final int COLS = 7;
+
+	private static double value(int r, int c) {
+		return (r * 3 + c) % 4 == 0 ? r * 10.0 + c + 1.0 : 0.0;
+	}
+
+	private static <T extends DoubleMatrix2D> T fill(T m) {
+		for (int r = 0; r < m.getRowCount(); r++) {
+			for (int c = 0; c < m.getColumnCount(); c++) {
+				m.setDouble(value(r, c), r, c);
+			}
+		}
+		return m;
+	}
+
+	private static DoubleMatrix2D[] createMatrices() {
+		return new DoubleMatrix2D[] { fill(new DefaultDenseDoubleMatrix2D(ROWS, COLS)),
+				fill(new ArrayDenseDoubleMatrix2D(ROWS, COLS)),
+				fill(new BlockDenseDoubleMatrix2D(ROWS, COLS)),
+				fill(new DefaultSparseRowDoubleMatrix2D(ROWS, COLS)) };
+	}
+
+	private static void check(final DoubleMatrix2D m, final boolean available) {
+		final int[][] visits = new int[(int) m.getRowCount()][(int) m.getColumnCount()];
+		DoubleMatrix2DVisitor visitor = new DoubleMatrix2DVisitor() {
+			public void visit(int row, int column, double value) {
+				visits[row][column]++;
+				assertEquals(m.getDouble(row, column), value, 0.0);
+			}
+		};
+		if (available) {
+			m.forEachAvailableDouble(visitor);
+		} else {
+			m.forEachDouble(visitor);
+		}
+		for (int r = 0; r < visits.length; r++) {
+			for (int c = 0; c < visits[r].length; c++) {
+				if (available && m.isSparse()) {
+					assertTrue(visits[r][c] <= 1);
+					assertEquals(m.getDouble(r, c) != 0.0 ? 1 : visits[r][c], visits[r][c]);
+				} else {
+					assertEquals(1, visits[r][c]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testForEachDouble() {
+		for (DoubleMatrix2D m : createMatrices()) {
+			check(m, false);
+		}
+	}
+
+	@Test
+	public void testForEachAvailableDouble() {
+		for (DoubleMatrix2D m : createMatrices()) {
+			check(m, true);
+		}
+	}
+
+	@Test
+	public void testSparseVector() {
+		DefaultSparseDoubleVector1D column = new DefaultSparseDoubleVector1D(ROWS, 1);
+		DefaultSparseDoubleVector1D row = new DefaultSparseDoubleVector1D(1, COLS);
+		for (int i = 0; i < ROWS; i += 3) {
+			column.setDouble(i + 1.0, i, 0);
+		}
+		for (int i = 0; i < COLS; i += 2) {
+			row.setDouble(i + 1.0, 0, i);
+		}
+		check(column, true);
+		check(row, true);
+		check(column, false);
+	}
+
+	@Test
+	public void testCopyConstructors() {
+		for (DoubleMatrix2D m : createMatrices()) {
+			assertEquals(m, new DefaultDenseDoubleMatrix2D(m));
+			assertEquals(m, new ArrayDenseDoubleMatrix2D(m));
+		}
+	}
+
+	@Test
+	public void testSum() {
+		for (DoubleMatrix2D m : createMatrices()) {
+			m.setDouble(Double.NaN, 1, 2);
+			for (int dimension : new int[] { Matrix.ROW, Matrix.COLUMN, Matrix.ALL }) {
+				Matrix sum = m.sum(Ret.NEW, dimension, true);
+				Matrix expected = m.sum(Ret.LINK, dimension, true);
+				assertEquals(expected.getRowCount(), sum.getRowCount());
+				assertEquals(expected.getColumnCount(), sum.getColumnCount());
+				for (int r = 0; r < sum.getRowCount(); r++) {
+					for (int c = 0; c < sum.getColumnCount(); c++) {
+						assertEquals(expected.getAsDouble(r, c), sum.getAsDouble(r, c), 1e-10);
+					}
+				}
+				assertTrue(m.sum(Ret.NEW, dimension, false).containsMissingValues());
+			}
+		}
+	}
+
+}
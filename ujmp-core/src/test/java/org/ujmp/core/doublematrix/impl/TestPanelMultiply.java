@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestPanelMultiply {
+
+	private static double[] random(Random random, int length) {
+		double[] values = new double[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = random.nextGaussian();
+		}
+		return values;
+	}
+
+	private static void compare(boolean transA, boolean transB, int m, int n, int k,
+			double alpha, double beta) {
+		Random random = new Random(m * 31 + n * 17 + k);
+		int lda = (transA ? k : m) + 2;
+		int ldb = (transB ? n : k) + 1;
+		int ldc = m + 3;
+		double[] a = random(random, 1 + lda * (transA ? m : k));
+		double[] b = random(random, 2 + ldb * (transB ? k : n));
+		double[] c = random(random, 3 + ldc * n);
+		double[] expected = c.clone();
+
+		for (int j = 0; j < n; j++) {
+			for (int i = 0; i < m; i++) {
+				double sum = 0.0;
+				for (int p = 0; p < k; p++) {
+					double av = transA ? a[1 + p + i * lda] : a[1 + i + p * lda];
+					double bv = transB ? b[2 + j + p * ldb] : b[2 + p + j * ldb];
+					sum += av * bv;
+				}
+				int index = 3 + i + j * ldc;
+				expected[index] = alpha * sum + (beta == 0.0 ? 0.0 : beta * c[index]);
+			}
+		}
+
+		PanelMultiply.gemm(4, transA, transB, m, n, k, alpha, a, 1, lda, b, 2, ldb, beta, c, 3,
+				ldc);
+
+		for (int i = 0; i < c.length; i++) {
+			assertEquals(expected[i], c[i], 1e-10);
+		}
+	}
+
+	@Test
+	public void testMultiply() {
+		compare(false, false, 300, 270, 520, 1.0, 0.0);
+	}
+
+	@Test
+	public void testEdges() {
+		compare(false, false, 7, 5, 3, 1.0, 0.0);
+		compare(false, false, 131, 259, 257, 1.0, 0.0);
+	}
+
+	@Test
+	public void testTranspose() {
+		compare(true, false, 65, 33, 17, 1.0, 0.0);
+		compare(false, true, 65, 33, 17, 1.0, 0.0);
+		compare(true, true, 65, 33, 17, 1.0, 0.0);
+	}
+
+	@Test
+	public void testAlphaBeta() {
+		compare(false, false, 45, 38, 300, -0.5, 2.0);
+		compare(true, false, 45, 38, 300, 2.0, 1.0);
+	}
+
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.doublematrix.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.stub.AbstractCompressedSparseDoubleMatrix2D;
+import org.ujmp.core.util.UJMPSettings;
+
+public class TestSparseMultiply {
+
+	private static final double TOLERANCE = 1e-10;
+
+	private int threads;
+
+	private int threshold;
+
+	@Before
+	public void setUp() {
+		threads = UJMPSettings.getInstance().getNumberOfThreads();
+		threshold = SparseMultiply.THRESHOLD;
+		UJMPSettings.getInstance().setNumberOfThreads(4);
+		SparseMultiply.THRESHOLD = 1;
+	}
+
+	@After
+	public void tearDown() {
+		UJMPSettings.getInstance().setNumberOfThreads(threads);
+		SparseMultiply.THRESHOLD = threshold;
+	}
+
+	private static SparseDoubleMatrix2DBuilder random(Random random, int rows, int columns,
+			double density) {
+		SparseDoubleMatrix2DBuilder builder = new SparseDoubleMatrix2DBuilder(rows, columns);
+		for (int i = (int) (rows * columns * density); --i >= 0;) {
+			builder.add(random.nextInt(rows), random.nextInt(columns), random.nextGaussian());
+		}
+		return builder;
+	}
+
+	private static DenseDoubleMatrix2D dense(Matrix m) {
+		return new DefaultDenseDoubleMatrix2D(m);
+	}
+
+	private static void assertSame(Matrix expected, Matrix actual) {
+		assertEquals(expected.getRowCount(), actual.getRowCount());
+		assertEquals(expected.getColumnCount(), actual.getColumnCount());
+		for (int r = 0; r < expected.getRowCount(); r++) {
+			for (int c = 0; c < expected.getColumnCount(); c++) {
+				assertEquals(expected.getAsDouble(r, c), actual.getAsDouble(r, c), TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void testBuilder() {
+		SparseDoubleMatrix2DBuilder builder = new SparseDoubleMatrix2DBuilder(3, 4);
+		builder.add(2, 3, 1.0).add(0, 1, 2.0).add(2, 3, 2.0).add(1, 0, 5.0).add(1, 0, -5.0);
+		builder.add(0, 0, 4.0);
+		for (AbstractCompressedSparseDoubleMatrix2D m : new AbstractCompressedSparseDoubleMatrix2D[] {
+				builder.toCompressedRow(), builder.toCompressedColumn() }) {
+			assertEquals(3, m.getNonZeroCount());
+			assertEquals(4.0, m.getAsDouble(0, 0), 0.0);
+			assertEquals(2.0, m.getAsDouble(0, 1), 0.0);
+			assertEquals(0.0, m.getAsDouble(1, 0), 0.0);
+			assertEquals(3.0, m.getAsDouble(2, 3), 0.0);
+			assertTrue(m.containsCoordinates(2, 3));
+			assertFalse(m.containsCoordinates(1, 0));
+			assertFalse(m.containsCoordinates(3, 0));
+		}
+	}
+
+	@Test
+	public void testSetDouble() {
+		Random random = new Random(1);
+		for (AbstractCompressedSparseDoubleMatrix2D m : new AbstractCompressedSparseDoubleMatrix2D[] {
+				new CompressedRowSparseDoubleMatrix2D(17, 13),
+				new CompressedColumnSparseDoubleMatrix2D(17, 13) }) {
+			DenseDoubleMatrix2D expected = DenseDoubleMatrix2D.Factory.zeros(17, 13);
+			for (int i = 0; i < 500; i++) {
+				int r = random.nextInt(17);
+				int c = random.nextInt(13);
+				double v = random.nextInt(3) == 0 ? 0.0 : random.nextGaussian();
+				m.setDouble(v, r, c);
+				expected.setDouble(v, r, c);
+			}
+			assertSame(expected, m);
+			assertSame(expected, m.transpose().transpose());
+			int count = 0;
+			for (long[] c : m.availableCoordinates()) {
+				assertTrue(m.getAsDouble(c) != 0.0);
+				count++;
+			}
+			assertEquals(m.getNonZeroCount(), count);
+			m.clear();
+			assertEquals(0, m.getNonZeroCount());
+		}
+	}
+
+	@Test
+	public void testConversion() {
+		SparseDoubleMatrix2DBuilder builder = random(new Random(2), 31, 23, 0.1);
+		CompressedRowSparseDoubleMatrix2D csr = builder.toCompressedRow();
+		CompressedColumnSparseDoubleMatrix2D csc = builder.toCompressedColumn();
+		assertSame(csr, csc);
+		assertSame(csr, csr.toCompressedColumn());
+		assertSame(csc, csc.toCompressedRow());
+		assertSame(dense(csr).transpose(), csr.transpose());
+		assertSame(csr, new CompressedColumnSparseDoubleMatrix2D(dense(csr)));
+		assertSame(csr, new CompressedRowSparseDoubleMatrix2D(new DefaultSparseRowDoubleMatrix2D(
+				csr)));
+	}
+
+	@Test
+	public void testSpMV() {
+		SparseDoubleMatrix2DBuilder builder = random(new Random(3), 200, 150, 0.05);
+		double[] x = new double[150];
+		for (int i = 0; i < x.length; i++) {
+			x[i] = i % 7 - 3.0;
+		}
+		Matrix expected = dense(builder.toCompressedRow()).mtimes(
+				new ArrayDenseDoubleMatrix2D(x));
+		for (AbstractCompressedSparseDoubleMatrix2D a : new AbstractCompressedSparseDoubleMatrix2D[] {
+				builder.toCompressedRow(), builder.toCompressedColumn() }) {
+			double[] y = new double[200];
+			SparseMultiply.multiply(a, x, y);
+			for (int i = 0; i < y.length; i++) {
+				assertEquals(expected.getAsDouble(i, 0), y[i], TOLERANCE);
+			}
+		}
+	}
+
+	@Test
+	public void testSpMM() {
+		Random random = new Random(4);
+		SparseDoubleMatrix2DBuilder builder = random(random, 120, 90, 0.05);
+		DenseDoubleMatrix2D b1 = DenseDoubleMatrix2D.Factory.randn(90, 70);
+		DenseDoubleMatrix2D b2 = new ArrayDenseDoubleMatrix2D(b1);
+		DenseDoubleMatrix2D a1 = DenseDoubleMatrix2D.Factory.randn(60, 120);
+		DenseDoubleMatrix2D a2 = new ArrayDenseDoubleMatrix2D(a1);
+		DenseDoubleMatrix2D sparse = dense(builder.toCompressedRow());
+		Matrix expected1 = sparse.mtimes(b1);
+		Matrix expected2 = a1.mtimes(sparse);
+		for (AbstractCompressedSparseDoubleMatrix2D a : new AbstractCompressedSparseDoubleMatrix2D[] {
+				builder.toCompressedRow(), builder.toCompressedColumn() }) {
+			assertSame(expected1, a.mtimes(b1));
+			assertSame(expected1, a.mtimes(b2));
+			assertSame(expected2, a1.mtimes(a));
+			assertSame(expected2, a2.mtimes(a));
+			DenseDoubleMatrix2D c = new ArrayDenseDoubleMatrix2D(120, 70);
+			SparseMultiply.multiply(a, b2, c);
+			assertSame(expected1, c);
+			c = new ArrayDenseDoubleMatrix2D(60, 90);
+			SparseMultiply.multiply(a2, a, c);
+			assertSame(expected2, c);
+		}
+	}
+
+	@Test
+	public void testSpGEMM() {
+		Random random = new Random(5);
+		SparseDoubleMatrix2DBuilder builder1 = random(random, 80, 100, 0.03);
+		SparseDoubleMatrix2DBuilder builder2 = random(random, 100, 60, 0.03);
+		Matrix expected = dense(builder1.toCompressedRow()).mtimes(
+				dense(builder2.toCompressedRow()));
+		AbstractCompressedSparseDoubleMatrix2D[] a = { builder1.toCompressedRow(),
+				builder1.toCompressedColumn() };
+		AbstractCompressedSparseDoubleMatrix2D[] b = { builder2.toCompressedRow(),
+				builder2.toCompressedColumn() };
+		for (AbstractCompressedSparseDoubleMatrix2D m1 : a) {
+			for (AbstractCompressedSparseDoubleMatrix2D m2 : b) {
+				Matrix result = m1.mtimes(m2);
+				assertTrue(result instanceof AbstractCompressedSparseDoubleMatrix2D);
+				assertSame(expected, result);
+				assertSame(expected, m1.mtimes(new DefaultSparseRowDoubleMatrix2D(m2)));
+				assertSame(expected, new DefaultSparseRowDoubleMatrix2D(m1).mtimes(m2));
+				Matrix target = new CompressedColumnSparseDoubleMatrix2D(80, 60);
+				Matrix.mtimes.calc(m1, m2, target);
+				assertSame(expected, target);
+			}
+		}
+	}
+
+	@Test
+	public void testLarge() {
+		for (int i = 0; i < 2; i++) {
+			SparseDoubleMatrix2DBuilder builder1 = new SparseDoubleMatrix2DBuilder(800000, 900000);
+			SparseDoubleMatrix2DBuilder builder2 = new SparseDoubleMatrix2DBuilder(900000, 400000);
+			builder1.add(0, 0, 5.0).add(1, 1, 4.0).add(3, 4, 1.0).add(4, 2, 2.0);
+			builder1.add(3, 5, 3.0).add(4, 4, 4.0).add(334, 2214, 2.0).add(335, 2215, 3.0);
+			builder2.add(0, 0, 7.0).add(1, 1, 6.0).add(3, 4, 1.0).add(4, 1, 2.0);
+			builder2.add(3, 2, 3.0).add(2, 3, 4.0).add(2214, 334, 2.0).add(2215, 335, 3.0);
+			Matrix m1 = i == 0 ? builder1.toCompressedRow() : builder1.toCompressedColumn();
+			Matrix m2 = i == 0 ? builder2.toCompressedRow() : builder2.toCompressedColumn();
+			Matrix m3 = m1.mtimes(m2);
+			assertEquals(35.0, m3.getAsDouble(0, 0), TOLERANCE);
+			assertEquals(24.0, m3.getAsDouble(1, 1), TOLERANCE);
+			assertEquals(2.0, m3.getAsDouble(3, 1), TOLERANCE);
+			assertEquals(8.0, m3.getAsDouble(4, 1), TOLERANCE);
+			assertEquals(8.0, m3.getAsDouble(4, 3), TOLERANCE);
+			assertEquals(4.0, m3.getAsDouble(334, 334), TOLERANCE);
+			assertEquals(9.0, m3.getAsDouble(335, 335), TOLERANCE);
+			assertEquals(0.0, m3.getAsDouble(0, 1), TOLERANCE);
+		}
+	}
+
+	@Test
+	public void testLink() {
+		SparseDoubleMatrix2DBuilder builder = random(new Random(6), 20, 30, 0.1);
+		Matrix m1 = builder.toCompressedRow();
+		Matrix m2 = DenseDoubleMatrix2D.Factory.randn(30, 5);
+		assertSame(m1.mtimes(m2), m1.mtimes(Ret.NEW, true, m2));
+	}
+
+}
@@ -191,7 +191,7 @@ public abstract class AbstractMatrixTest {
 	}
 
 	@Test
-	public final void testSparseMultiplySmall() throws Exception {
+	public void testSparseMultiplySmall() throws Exception {
 		Matrix m1 = createMatrix(2, 2);
 		Matrix m2 = null;
 		if (isTestSparse() && m1.isSparse()) {
@@ -33,6 +33,8 @@ import org.ujmp.core.stringmatrix.impl.TestDefaultDenseStringMatrix2D;
 		TestMortonDenseDoubleMatrix2D.class, TestDefaultSparseColumnObjectMatrix2D.class,
 		TestDefaultSparseRowObjectMatrix2D.class, TestDefaultDenseStringMatrix2D.class,
 		TestDefaultDenseDoubleMatrixMultiD.class, TestDefaultTiledObjectMatrix2D.class,
-		TestDefaultSparseDoubleMatrix.class, TestDefaultSparseRowDoubleMatrix2D.class })
+		TestDefaultSparseDoubleMatrix.class, TestDefaultSparseRowDoubleMatrix2D.class,
+		TestCompressedRowSparseDoubleMatrix2D.class,
+		TestCompressedColumnSparseDoubleMatrix2D.class, TestMappedDenseFileMatrix.class })
 public class AllTests {
 }
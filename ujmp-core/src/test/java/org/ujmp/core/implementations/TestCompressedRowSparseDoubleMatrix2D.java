@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.implementations;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.util.matrices.MatrixLibraries;
+
+public class TestCompressedRowSparseDoubleMatrix2D extends AbstractMatrixTest {
+
+	public Matrix createMatrix(long... size) {
+		return new CompressedRowSparseDoubleMatrix2D(size[Matrix.ROW], size[Matrix.COLUMN]);
+	}
+
+	public Matrix createMatrix(Matrix source) {
+		return new CompressedRowSparseDoubleMatrix2D(source);
+	}
+
+	public boolean isTestLarge() {
+		return false;
+	}
+
+	@Override
+	public int getMatrixLibraryId() {
+		return MatrixLibraries.UJMP;
+	}
+
+	@Override
+	public boolean isTestSparse() {
+		return true;
+	}
+
+	// the inherited test writes to column 4 of a 9x4 matrix, which compressed
+	// storage rejects, so the second matrix has one more column here
+	@Test
+	@Override
+	public void testSparseMultiplySmall() throws Exception {
+		Matrix m1 = createMatrix(8, 9);
+		Matrix m2 = createMatrix(9, 5);
+		m1.setAsDouble(5.0, 0, 0);
+		m1.setAsDouble(4.0, 1, 1);
+		m1.setAsDouble(1.0, 3, 4);
+		m1.setAsDouble(2.0, 4, 2);
+		m1.setAsDouble(3.0, 3, 5);
+		m1.setAsDouble(4.0, 4, 4);
+		m2.setAsDouble(7.0, 0, 0);
+		m2.setAsDouble(6.0, 1, 1);
+		m2.setAsDouble(1.0, 3, 4);
+		m2.setAsDouble(2.0, 4, 1);
+		m2.setAsDouble(3.0, 3, 2);
+		m2.setAsDouble(4.0, 2, 3);
+		Matrix m3 = m1.mtimes(m2);
+		Matrix m4 = m1.mtimes(Ret.LINK, true, m2);
+		assertEquals(m3, m4);
+	}
+
+}
\ No newline at end of file
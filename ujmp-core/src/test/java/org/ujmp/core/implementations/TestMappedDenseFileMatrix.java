@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.implementations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.doublematrix.impl.DenseFileMatrix;
+import org.ujmp.core.doublematrix.impl.MappedDenseFileMatrix;
+import org.ujmp.core.util.matrices.MatrixLibraries;
+
+public class TestMappedDenseFileMatrix extends AbstractMatrixTest {
+
+	private static final int[] DATATYPES = { DenseFileMatrix.BYTE, DenseFileMatrix.CHAR,
+			DenseFileMatrix.DOUBLE, DenseFileMatrix.FLOAT, DenseFileMatrix.INT,
+			DenseFileMatrix.LONG, DenseFileMatrix.SHORT, DenseFileMatrix.UNSIGNEDBYTE,
+			DenseFileMatrix.UNSIGNEDSHORT, DenseFileMatrix.SHORTLITTLEENDIAN,
+			DenseFileMatrix.INTLITTLEENDIAN, DenseFileMatrix.LONGLITTLEENDIAN,
+			DenseFileMatrix.BOOLEAN };
+
+	public Matrix createMatrix(long... size) throws IOException {
+		return new MappedDenseFileMatrix(size[0], size[1]);
+	}
+
+	public Matrix createMatrix(Matrix source) throws IOException {
+		return new MappedDenseFileMatrix(source);
+	}
+
+	public boolean isTestLarge() {
+		return false;
+	}
+
+	@Override
+	public int getMatrixLibraryId() {
+		return MatrixLibraries.UJMP;
+	}
+
+	@Override
+	public boolean isTestSparse() {
+		return false;
+	}
+
+	/**
+	 * A value which can be stored exactly in every data type
+	 */
+	private static double value(int dataType, int r, int c) {
+		if (dataType == DenseFileMatrix.BOOLEAN) {
+			return (r * 7 + c * 3) % 5 == 0 ? 1.0 : 0.0;
+		} else if (dataType == DenseFileMatrix.UNSIGNEDBYTE
+				|| dataType == DenseFileMatrix.UNSIGNEDSHORT) {
+			return (r * 31 + c * 7) % 200;
+		} else {
+			return (r * 31 + c * 7) % 200 - 100;
+		}
+	}
+
+	@Test
+	public void testDataTypes() throws Exception {
+		for (int dataType : DATATYPES) {
+			final File file = File.createTempFile("testMappedDenseFileMatrix", ".dat");
+			file.deleteOnExit();
+			// small buffers, so that rows span several buffers
+			MappedDenseFileMatrix m = new MappedDenseFileMatrix(16, file, 3, dataType, false, 13,
+					11);
+			for (int r = 0; r < 13; r++) {
+				for (int c = 0; c < 11; c++) {
+					m.setDouble(value(dataType, r, c), r, c);
+				}
+			}
+			m.close();
+
+			m = new MappedDenseFileMatrix(16, file, 3, dataType, true, 13, 11);
+			final double[] row = new double[11];
+			final double[] column = new double[13];
+			final double[] block = new double[4 * 5];
+			for (int r = 0; r < 13; r++) {
+				m.getRow(r, 0, row, 0, 11);
+				for (int c = 0; c < 11; c++) {
+					assertEquals("data type " + dataType, value(dataType, r, c),
+							m.getDouble(r, c), 0.0);
+					assertEquals("data type " + dataType, value(dataType, r, c), row[c], 0.0);
+				}
+			}
+			for (int c = 0; c < 11; c++) {
+				m.getColumn(0, c, column, 0, 13);
+				for (int r = 0; r < 13; r++) {
+					assertEquals("data type " + dataType, value(dataType, r, c), column[r], 0.0);
+				}
+			}
+			m.getBlock(7, 5, 4, 5, block);
+			for (int r = 0; r < 4; r++) {
+				for (int c = 0; c < 5; c++) {
+					assertEquals("data type " + dataType, value(dataType, 7 + r, 5 + c),
+							block[c * 4 + r], 0.0);
+				}
+			}
+			m.erase();
+		}
+	}
+
+	@Test
+	public void testByteOrder() throws Exception {
+		final File file = File.createTempFile("testMappedDenseFileMatrix", ".dat");
+		file.deleteOnExit();
+		final DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+		out.writeInt(0x01020304);
+		out.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0x01020304)
+				.array());
+		out.close();
+
+		final MappedDenseFileMatrix big = new MappedDenseFileMatrix(file, 0,
+				DenseFileMatrix.INT, true, 1, 1);
+		assertEquals(0x01020304, big.getDouble(0, 0), 0.0);
+		big.close();
+		final MappedDenseFileMatrix little = new MappedDenseFileMatrix(file, 4,
+				DenseFileMatrix.INTLITTLEENDIAN, true, 1, 1);
+		assertEquals(0x01020304, little.getDouble(0, 0), 0.0);
+		little.erase();
+	}
+
+	@Test
+	public void testReadOnly() throws Exception {
+		final File file = File.createTempFile("testMappedDenseFileMatrix", ".dat");
+		file.deleteOnExit();
+		MappedDenseFileMatrix m = new MappedDenseFileMatrix(file, 0, DenseFileMatrix.DOUBLE,
+				false, 2, 2);
+		m.setDouble(1.5, 1, 1);
+		m.close();
+		m = new MappedDenseFileMatrix(file, 0, DenseFileMatrix.DOUBLE, true, 2, 2);
+		try {
+			m.setDouble(2.5, 1, 1);
+			fail("read only matrix was changed");
+		} catch (RuntimeException e) {
+		}
+		assertEquals(1.5, m.getDouble(1, 1), 0.0);
+		m.erase();
+	}
+
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		final int rows = 300;
+		final int cols = 200;
+		final MappedDenseFileMatrix m = new MappedDenseFileMatrix(4096, null, 0,
+				DenseFileMatrix.DOUBLE, false, rows, cols);
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				m.setDouble(r * cols + c, r, c);
+			}
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Future<Double>> futures = new ArrayList<Future<Double>>();
+		for (int t = 0; t < 8; t++) {
+			futures.add(executor.submit(new Callable<Double>() {
+				public Double call() {
+					final double[] row = new double[cols];
+					double sum = 0.0;
+					for (int r = 0; r < rows; r++) {
+						m.getRow(r, 0, row, 0, cols);
+						for (int c = 0; c < cols; c++) {
+							sum += row[c] + m.getDouble(r, c);
+						}
+					}
+					return sum;
+				}
+			}));
+		}
+		final double n = (double) rows * cols;
+		for (Future<Double> f : futures) {
+			assertEquals(n * (n - 1), f.get(), 0.0);
+		}
+		executor.shutdown();
+		m.erase();
+	}
+
+}
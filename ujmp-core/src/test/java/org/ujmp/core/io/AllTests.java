@@ -27,6 +27,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({})
+@Suite.SuiteClasses({ TestBinaryImportExport.class, TestDenseDoubleCSVImport.class,
+		TestDenseCSVLink.class, TestSparseCSVImport.class })
 public class AllTests {
 }
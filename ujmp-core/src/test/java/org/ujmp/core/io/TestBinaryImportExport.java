@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.calculation.Calculation.Ret;
+import org.ujmp.core.doublematrix.impl.BinaryFileMatrix;
+import org.ujmp.core.enums.ValueType;
+import org.ujmp.core.util.io.BinaryMatrixReader;
+import org.ujmp.core.util.io.BinaryMatrixWriter;
+
+public class TestBinaryImportExport {
+
+	private static Matrix createMatrix(int rows, int columns) {
+		Matrix m = Matrix.Factory.randn(rows, columns);
+		m.setLabel("test matrix");
+		m.setColumnLabel(2, "column 2");
+		m.setRowLabel(rows - 1, "last row");
+		return m;
+	}
+
+	private static void assertBlock(Matrix expected, long row, long column, Matrix actual) {
+		for (int r = 0; r < actual.getRowCount(); r++) {
+			for (int c = 0; c < actual.getColumnCount(); c++) {
+				assertEquals(expected.getAsDouble(row + r, column + c), actual.getAsDouble(r, c),
+						0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testFileBinary() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = createMatrix(37, 23);
+		m1.exportTo().file(file).asBinary(8, 5, BinaryMatrixWriter.DEFAULTCOMPRESSIONLEVEL);
+		Matrix m2 = Matrix.Factory.importFrom().file(file).asBinary();
+		assertEquals(m1, m2);
+		assertEquals("test matrix", m2.getLabel());
+		assertEquals("column 2", m2.getColumnLabel(2));
+		assertEquals("last row", m2.getRowLabel(36));
+		assertNull(m2.getRowLabel(0));
+	}
+
+	@Test
+	public void testFileBinaryDefault() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = Matrix.Factory.randn(8, 6);
+		m1.exportTo().file(file).asBinary();
+		Matrix m2 = Matrix.Factory.randn(8, 6);
+		m2.importFrom().file(file).asBinary();
+		assertEquals(m1, m2);
+	}
+
+	@Test
+	public void testFileBinaryBlock() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = createMatrix(37, 23);
+		m1.exportTo().file(file).asBinary(8, 5, Deflater.NO_COMPRESSION);
+		Matrix m2 = Matrix.Factory.importFrom().file(file).asBinary(17, 4, 20, 11);
+		assertEquals(20, m2.getRowCount());
+		assertEquals(11, m2.getColumnCount());
+		assertBlock(m1, 17, 4, m2);
+		assertEquals("last row", m2.getRowLabel(19));
+	}
+
+	@Test
+	public void testFileBinaryColumns() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = createMatrix(100, 7);
+		m1.exportTo().file(file).asBinary(1000, 1, BinaryMatrixWriter.DEFAULTCOMPRESSIONLEVEL);
+		BinaryMatrixReader reader = new BinaryMatrixReader(file);
+		assertEquals(100, reader.getTileRowCount());
+		assertEquals(1, reader.getTileColumnCount());
+		assertBlock(m1, 0, 3, reader.read(0, 3, 100, 1));
+		reader.close();
+	}
+
+	@Test
+	public void testStreamBinary() throws IOException {
+		Matrix m1 = createMatrix(37, 23);
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		m1.exportTo().stream(os).asBinary(8, 5, BinaryMatrixWriter.DEFAULTCOMPRESSIONLEVEL);
+		Matrix m2 = Matrix.Factory.importFrom().stream(new ByteArrayInputStream(os.toByteArray()))
+				.asBinary();
+		assertEquals(m1, m2);
+		assertEquals("last row", m2.getRowLabel(36));
+		Matrix m3 = Matrix.Factory.importFrom().stream(new ByteArrayInputStream(os.toByteArray()))
+				.asBinary(30, 20, 7, 3);
+		assertBlock(m1, 30, 20, m3);
+	}
+
+	@Test
+	public void testLinkBinary() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = createMatrix(37, 23);
+		m1.exportTo().file(file).asBinary(8, 5, BinaryMatrixWriter.DEFAULTCOMPRESSIONLEVEL);
+		BinaryFileMatrix m2 = (BinaryFileMatrix) Matrix.Factory.linkTo().file(file).asBinary();
+		assertEquals(m1, m2);
+		assertEquals(m1.getAsDouble(36, 22), m2.getAsDouble(36, 22), 0.0);
+		assertEquals("column 2", m2.getColumnLabel(2));
+		assertEquals(m1.sum(Ret.NEW, Matrix.ALL, false).getAsDouble(0, 0),
+				m2.sum(Ret.NEW, Matrix.ALL, false).getAsDouble(0, 0), 1e-10);
+		m2.close();
+	}
+
+	@Test
+	public void testValueTypes() throws IOException {
+		ValueType[] valueTypes = { ValueType.BOOLEAN, ValueType.BYTE, ValueType.SHORT,
+				ValueType.INT, ValueType.LONG, ValueType.FLOAT, ValueType.DOUBLE };
+		for (ValueType valueType : valueTypes) {
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			BinaryMatrixWriter writer = new BinaryMatrixWriter(os, valueType, 9, 4, 4, 3,
+					BinaryMatrixWriter.DEFAULTCOMPRESSIONLEVEL, null, null);
+			double[] row = new double[4];
+			for (int r = 0; r < 9; r++) {
+				for (int c = 0; c < 4; c++) {
+					row[c] = valueType == ValueType.BOOLEAN ? (r + c) % 2 : r * 4 - c * 3;
+				}
+				writer.writeRow(row);
+			}
+			writer.close();
+			Matrix m = BinaryMatrixReader.read(new ByteArrayInputStream(os.toByteArray()));
+			for (int r = 0; r < 9; r++) {
+				for (int c = 0; c < 4; c++) {
+					assertEquals(valueType.name(), valueType == ValueType.BOOLEAN ? (r + c) % 2
+							: r * 4 - c * 3, m.getAsDouble(r, c), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingRows() throws IOException {
+		BinaryMatrixWriter writer = new BinaryMatrixWriter(new ByteArrayOutputStream(),
+				ValueType.DOUBLE, 3, 2, 2, 2, Deflater.NO_COMPRESSION, null, null);
+		writer.writeRow(new double[2]);
+		writer.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooLarge() throws IOException {
+		// 50000 * 50000 values do not fit into an array
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new BinaryMatrixWriter(bytes, ValueType.DOUBLE, 50000, 50000, 256, 256,
+				Deflater.NO_COMPRESSION, null, null);
+		BinaryMatrixReader.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+}
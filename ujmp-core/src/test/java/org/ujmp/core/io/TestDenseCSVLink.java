@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.util.io.DenseCSVParser;
+
+public class TestDenseCSVLink {
+
+	private static void write(File file, String s, boolean append) throws IOException {
+		FileOutputStream fos = new FileOutputStream(file, append);
+		fos.write(s.getBytes("UTF-8"));
+		fos.close();
+	}
+
+	private static File createTempFile() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".csv");
+		file.deleteOnExit();
+		DenseCSVParser.getIndexFile(file).deleteOnExit();
+		return file;
+	}
+
+	@Test
+	public void testLinkCSV() throws IOException {
+		File file = createTempFile();
+		Matrix m1 = Matrix.Factory.randn(10, 4);
+		m1.exportTo().file(file).asDenseCSV();
+		Matrix m2 = Matrix.Factory.linkTo().file(file).asDenseCSV();
+		assertEquals(m1, m2);
+		assertTrue(DenseCSVParser.getIndexFile(file).isFile());
+		Matrix m3 = Matrix.Factory.linkTo().file(file).asDenseCSV();
+		assertEquals(m1, m3);
+	}
+
+	@Test
+	public void testIndexIsReused() throws IOException {
+		File file = createTempFile();
+		StringBuilder s = new StringBuilder();
+		for (int r = 0; r < 2000; r++) {
+			s.append(r % 10).append(",1\n");
+		}
+		write(file, s.toString(), false);
+		file.setLastModified(1000000000000l);
+		Matrix m1 = Matrix.Factory.linkTo().file(file).asDenseCSV(',');
+		assertEquals(2000, m1.getRowCount());
+
+		// same size and time, so the old row positions are used
+		s.setCharAt(3, ',');
+		write(file, s.toString(), false);
+		file.setLastModified(1000000000000l);
+		Matrix m2 = Matrix.Factory.linkTo().file(file).asDenseCSV(',');
+		assertEquals(2000, m2.getRowCount());
+		assertEquals(2, m2.getColumnCount());
+
+		// changed time, so the file is scanned again
+		file.setLastModified(1000000002000l);
+		Matrix m3 = Matrix.Factory.linkTo().file(file).asDenseCSV(',');
+		assertEquals(1999, m3.getRowCount());
+		assertEquals(4, m3.getColumnCount());
+	}
+
+	@Test
+	public void testAppend() throws IOException {
+		File file = createTempFile();
+		write(file, "1;2;3\n4;5;\"6", false);
+		Matrix m1 = Matrix.Factory.linkTo().file(file).asDenseCSV(';', '"');
+		assertEquals(2, m1.getRowCount());
+		assertEquals(3, m1.getColumnCount());
+
+		write(file, "\n7\";8\n9;10;11\n12;13;14;15", true);
+		file.setLastModified(file.lastModified() + 2000);
+		Matrix m2 = Matrix.Factory.linkTo().file(file).asDenseCSV(';', '"');
+		assertEquals(4, m2.getRowCount());
+		assertEquals(4, m2.getColumnCount());
+		assertEquals("6\n7", m2.getAsString(1, 2));
+		assertEquals("8", m2.getAsString(1, 3));
+		assertEquals(11.0, m2.getAsDouble(2, 2), 0.0);
+		assertEquals(15.0, m2.getAsDouble(3, 3), 0.0);
+	}
+
+	@Test
+	public void testRewrite() throws IOException {
+		File file = createTempFile();
+		write(file, "1\t2\n3\t4\n5\t6\n", false);
+		Matrix m1 = Matrix.Factory.linkTo().file(file).asDenseCSV();
+		assertEquals(3, m1.getRowCount());
+
+		// longer file with a different beginning
+		write(file, "7,8\n9,10\n11,12\n13,14\n", false);
+		file.setLastModified(file.lastModified() + 2000);
+		Matrix m2 = Matrix.Factory.linkTo().file(file).asDenseCSV();
+		assertEquals(4, m2.getRowCount());
+		assertEquals(2, m2.getColumnCount());
+		assertEquals(14.0, m2.getAsDouble(3, 1), 0.0);
+	}
+}
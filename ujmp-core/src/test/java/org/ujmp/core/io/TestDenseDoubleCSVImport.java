@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.doublematrix.DenseDoubleMatrix2D;
+import org.ujmp.core.doublematrix.impl.MappedDenseFileMatrix;
+import org.ujmp.core.stringmatrix.impl.DenseCSVStringMatrix2D;
+import org.ujmp.core.util.io.DenseCSVParser;
+import org.ujmp.core.util.io.MemoryByteBufferConcatenation;
+
+public class TestDenseDoubleCSVImport {
+
+	private static DenseCSVParser parser(String s, char columnSeparator, char enclosingCharacter)
+			throws IOException {
+		return new DenseCSVParser(new MemoryByteBufferConcatenation(ByteBuffer.wrap(s
+				.getBytes("UTF-8"))), columnSeparator, enclosingCharacter);
+	}
+
+	@Test
+	public void testFileDenseDoubleCSV() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = Matrix.Factory.randn(8, 6);
+		m1.exportTo().file(file).asDenseCSV();
+		Matrix m2 = Matrix.Factory.importFrom().file(file).asDenseDoubleCSV();
+		assertEquals(m1, m2);
+	}
+
+	@Test
+	public void testFileDenseDoubleCSVTarget() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = Matrix.Factory.randn(8, 6);
+		m1.exportTo().file(file).asDenseCSV(':', '#');
+		Matrix m2 = Matrix.Factory.randn(8, 6);
+		m2.importFrom().file(file).asDenseDoubleCSV(':', '#');
+		assertEquals(m1, m2);
+	}
+
+	@Test
+	public void testFileDenseDoubleCSVMappedTarget() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = Matrix.Factory.randn(20, 7);
+		m1.exportTo().file(file).asDenseCSV(',');
+		MappedDenseFileMatrix m2 = new MappedDenseFileMatrix(20, 7);
+		m2.importFrom().file(file).asDenseDoubleCSV();
+		assertEquals(m1, m2);
+		m2.erase();
+	}
+
+	@Test
+	public void testByteArrayDenseDoubleCSVSparseTarget() throws IOException {
+		Matrix m1 = Matrix.Factory.randn(300, 20);
+		byte[] bytes = m1.exportTo().byteArray().asDenseCSV();
+		Matrix m2 = SparseMatrix.Factory.zeros(300, 20);
+		m2.importFrom().byteArray(bytes).asDenseDoubleCSV();
+		assertEquals(m1, m2);
+	}
+
+	@Test
+	public void testStreamDenseDoubleCSV() throws IOException {
+		Matrix m1 = Matrix.Factory.randn(8, 6);
+		byte[] bytes = m1.exportTo().byteArray().asDenseCSV(';');
+		Matrix m2 = Matrix.Factory.importFrom().stream(new ByteArrayInputStream(bytes))
+				.asDenseDoubleCSV(';');
+		assertEquals(m1, m2);
+	}
+
+	@Test
+	public void testByteArrayDenseDoubleCSV() throws IOException {
+		Matrix m1 = Matrix.Factory.randn(8, 6);
+		byte[] bytes = m1.exportTo().byteArray().asDenseCSV();
+		Matrix m2 = Matrix.Factory.importFrom().byteArray(bytes).asDenseDoubleCSV();
+		assertEquals(m1, m2);
+	}
+
+	@Test
+	public void testSeparatorDetection() throws IOException {
+		assertEquals('\t', parser("1\t2\n3\t4\n", '\0', '\0').getColumnSeparator());
+		assertEquals(';', parser("1,5;2\n3,5;4\n", '\0', '\0').getColumnSeparator());
+		assertEquals(',', parser("1,2,3\n4,5,6", '\0', '\0').getColumnSeparator());
+		assertEquals(' ', parser("1 2\n3 4\n", '\0', '\0').getColumnSeparator());
+		DenseCSVParser p = parser("1,2,3\n4,5,6", '\0', '\0');
+		assertEquals(2, p.getRowCount());
+		assertEquals(3, p.getColumnCount());
+	}
+
+	@Test
+	public void testEnclosingCharacter() throws IOException {
+		DenseCSVParser p = parser("\"1,5\",2\r\n\"a\nb\",\"-3e2\"\r\n", ',', '"');
+		assertEquals(2, p.getRowCount());
+		assertEquals(2, p.getColumnCount());
+		DenseDoubleMatrix2D m = p.parse();
+		assertEquals(Double.NaN, m.getDouble(0, 0), 0.0);
+		assertEquals(2.0, m.getDouble(0, 1), 0.0);
+		assertEquals(Double.NaN, m.getDouble(1, 0), 0.0);
+		assertEquals(-300.0, m.getDouble(1, 1), 0.0);
+	}
+
+	@Test
+	public void testMissingAndTextValues() throws IOException {
+		DenseDoubleMatrix2D m = parser("1,true,x\n2\n,false,NaN\n", ',', '\0').parse();
+		assertEquals(3, m.getRowCount());
+		assertEquals(3, m.getColumnCount());
+		assertEquals(1.0, m.getDouble(0, 1), 0.0);
+		assertEquals(Double.NaN, m.getDouble(0, 2), 0.0);
+		assertEquals(0.0, m.getDouble(1, 2), 0.0);
+		assertEquals(Double.NaN, m.getDouble(2, 0), 0.0);
+		assertEquals(0.0, m.getDouble(2, 1), 0.0);
+	}
+
+	@Test
+	public void testParseDouble() throws IOException {
+		Random random = new Random(1);
+		for (int i = 0; i < 10000; i++) {
+			String s;
+			switch (i % 4) {
+			case 0:
+				s = String.valueOf(random.nextInt());
+				break;
+			case 1:
+				s = String.valueOf(random.nextInt(1000000) / 1000.0);
+				break;
+			case 2:
+				s = random.nextInt(100000) + "e" + (random.nextInt(40) - 20);
+				break;
+			default:
+				s = String.valueOf(random.nextGaussian());
+			}
+			byte[] bytes = (" " + s + " ").getBytes("UTF-8");
+			double value = DenseCSVParser.parseDouble(bytes, 0, bytes.length);
+			if (!Double.isNaN(value)) {
+				assertEquals(s, Double.parseDouble(s), value, 0.0);
+			}
+		}
+		assertEquals(Double.NaN, DenseCSVParser.parseDouble(new byte[] { '1', 'x' }, 0, 2), 0.0);
+	}
+
+	@Test
+	public void testLargeFile() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		final int rows = 100000;
+		final int cols = 5;
+		Random random = new Random(2);
+		double[][] values = new double[rows][cols];
+		StringBuilder s = new StringBuilder();
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				values[r][c] = random.nextInt(2000000) / 100.0 - 10000;
+				if (c > 0) {
+					s.append(',');
+				}
+				if (r % 7 == 3 && c == 2) {
+					s.append('"').append(values[r][c]).append('"');
+				} else {
+					s.append(values[r][c]);
+				}
+			}
+			s.append("\r\n");
+		}
+		FileOutputStream fos = new FileOutputStream(file);
+		fos.write(s.toString().getBytes("UTF-8"));
+		fos.close();
+		assertEquals(true, file.length() > 2 * DenseCSVParser.MINCHUNKSIZE);
+
+		DenseDoubleMatrix2D m = new DenseCSVParser(file, '\0', '"').parse();
+		assertEquals(rows, m.getRowCount());
+		assertEquals(cols, m.getColumnCount());
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				assertEquals(values[r][c], m.getDouble(r, c), 0.0);
+			}
+		}
+
+		DenseCSVStringMatrix2D strings = new DenseCSVStringMatrix2D(',', '"', file);
+		assertEquals(rows, strings.getRowCount());
+		assertEquals(cols, strings.getColumnCount());
+		assertEquals(values[rows - 1][2], strings.getAsDouble(rows - 1, 2), 0.0);
+		assertEquals(values[10][2], strings.getAsDouble(10, 2), 0.0);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.Matrix;
+import org.ujmp.core.SparseMatrix;
+import org.ujmp.core.doublematrix.impl.CompressedRowSparseDoubleMatrix2D;
+import org.ujmp.core.util.io.SparseCSVReader;
+
+public class TestSparseCSVImport {
+
+	private static CompressedRowSparseDoubleMatrix2D read(String s, char columnSeparator,
+			int maxEntriesInMemory) throws IOException {
+		return new SparseCSVReader(new ByteArrayInputStream(s.getBytes("UTF-8")),
+				columnSeparator, maxEntriesInMemory).read();
+	}
+
+	@Test
+	public void testFileSparseCSV() throws IOException {
+		File file = File.createTempFile("ujmp-junit", ".tmp");
+		file.deleteOnExit();
+		Matrix m1 = SparseMatrix.Factory.zeros(20, 15);
+		m1.setAsDouble(1.5, 0, 3);
+		m1.setAsDouble(-2.0, 7, 0);
+		m1.setAsDouble(3.25e-7, 12, 9);
+		m1.setAsDouble(Math.PI, 19, 14);
+		ExportMatrixSPARSECSV.toFile(file, m1);
+		Matrix m2 = Matrix.Factory.importFrom().file(file).asSparseCSV();
+		assertTrue(m2 instanceof CompressedRowSparseDoubleMatrix2D);
+		assertEquals(m1, m2);
+	}
+
+	@Test
+	public void testByteArraySparseCSVTarget() throws IOException {
+		Matrix m = Matrix.Factory.zeros(3, 4);
+		m.importFrom().byteArray("0;1;2.5\r\n2;3;-1\r\n".getBytes("UTF-8")).asSparseCSV(';');
+		assertEquals(2.5, m.getAsDouble(0, 1), 0.0);
+		assertEquals(-1.0, m.getAsDouble(2, 3), 0.0);
+		assertEquals(0.0, m.getAsDouble(1, 1), 0.0);
+	}
+
+	@Test
+	public void testStreamSparseCSV() throws IOException {
+		Matrix m = Matrix.Factory.importFrom()
+				.stream(new ByteArrayInputStream("1,2,3\n0,0,true".getBytes("UTF-8")))
+				.asSparseCSV();
+		assertEquals(2, m.getRowCount());
+		assertEquals(3, m.getColumnCount());
+		assertEquals(3.0, m.getAsDouble(1, 2), 0.0);
+		assertEquals(1.0, m.getAsDouble(0, 0), 0.0);
+	}
+
+	@Test
+	public void testDuplicatesAndSkippedLines() throws IOException {
+		CompressedRowSparseDoubleMatrix2D m = read(
+				"1\t1\t5\n\nheader\n1\t1\t6\n2\t0\t1\n2\t0\t0\n0\t3\t x \n4\t4\t4\t4\n", '\0', 2);
+		assertEquals(3, m.getRowCount());
+		assertEquals(4, m.getColumnCount());
+		assertEquals(6.0, m.getDouble(1, 1), 0.0);
+		assertEquals(0.0, m.getDouble(2, 0), 0.0);
+		assertEquals(Double.NaN, m.getDouble(0, 3), 0.0);
+		assertEquals(2, m.getNonZeroCount());
+	}
+
+	@Test
+	public void testDuplicatesInSeveralRuns() throws IOException {
+		// runs of two entries each, the last value of an entry must win
+		CompressedRowSparseDoubleMatrix2D m = read(
+				"2,2,9\n0,0,1\n0,0,2\n2,2,2\n0,0,3\n1,1,5\n1,1,0\n0,0,4\n", ',', 2);
+		assertEquals(4.0, m.getDouble(0, 0), 0.0);
+		assertEquals(0.0, m.getDouble(1, 1), 0.0);
+		assertEquals(2.0, m.getDouble(2, 2), 0.0);
+		assertEquals(2, m.getNonZeroCount());
+	}
+
+	@Test
+	public void testInvalidIndex() throws IOException {
+		try {
+			read("1,a,2\n", ',', 10);
+			fail("invalid index was accepted");
+		} catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testExternalMerge() throws IOException {
+		Random random = new Random(3);
+		int rows = 300;
+		int columns = 70000;
+		StringBuilder s = new StringBuilder();
+		Matrix expected = SparseMatrix.Factory.zeros(rows, columns);
+		for (int i = 0; i < 20000; i++) {
+			int row = random.nextInt(rows);
+			int column = random.nextInt(20) * 3500 + random.nextInt(2);
+			double value = random.nextInt(5) == 0 ? 0.0 : random.nextInt(1000) / 8.0;
+			s.append(row).append(',').append(column).append(',').append(value).append('\n');
+			expected.setAsDouble(value, row, column);
+		}
+		s.append(rows - 1).append(',').append(columns - 1).append(",1\n");
+		expected.setAsDouble(1.0, rows - 1, columns - 1);
+
+		Matrix m1 = read(s.toString(), ',', SparseCSVReader.DEFAULTMAXENTRIESINMEMORY);
+		Matrix m2 = read(s.toString(), ',', 997);
+		assertEquals(expected, m1);
+		assertEquals(expected, m2);
+	}
+}
@@ -27,6 +27,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({ TestStringUtil.class, TestUJMPFormat.class, TestXMLUtil.class, ByteBufferConcatenationTest.class })
+@Suite.SuiteClasses({ TestLongDoubleHashMap.class, TestMathUtil.class, TestStringUtil.class, TestUJMPFormat.class,
+		TestXMLUtil.class, ByteBufferConcatenationTest.class,
+		org.ujmp.core.util.concurrent.TestPForRange.class })
 public class AllTests {
 }
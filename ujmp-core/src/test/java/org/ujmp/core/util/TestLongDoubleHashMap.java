@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.ujmp.core.doublematrix.impl.DefaultSparseDoubleMatrix;
+
+public class TestLongDoubleHashMap {
+
+	@Test
+	public void testPutGetRemove() {
+		LongDoubleHashMap map = new LongDoubleHashMap();
+		assertTrue(map.isEmpty());
+		assertEquals(0.0, map.put(3, 1.5), 0.0);
+		assertEquals(1.5, map.put(3, 2.5), 0.0);
+		map.put(0, -1.0);
+		assertEquals(2, map.size());
+		assertEquals(2.5, map.get(3), 0.0);
+		assertEquals(-1.0, map.get(0), 0.0);
+		assertEquals(0.0, map.get(7), 0.0);
+		assertEquals(Double.NaN, map.get(7, Double.NaN), 0.0);
+		assertTrue(map.containsKey(0));
+		assertFalse(map.containsKey(-1));
+		assertEquals(4.0, map.add(3, 1.5), 0.0);
+		assertEquals(2.0, map.add(9, 2.0), 0.0);
+		assertEquals(4.0, map.remove(3), 0.0);
+		assertEquals(0.0, map.remove(3), 0.0);
+		assertFalse(map.containsKey(3));
+		assertEquals(2, map.size());
+		map.clear();
+		assertEquals(0, map.size());
+		assertEquals(0.0, map.get(0), 0.0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeKey() {
+		new LongDoubleHashMap().put(-5, 1.0);
+	}
+
+	@Test
+	public void testRandomAgainstHashMap() {
+		Random random = new Random(4711);
+		LongDoubleHashMap map = new LongDoubleHashMap(4, 0.75f, 0.2f);
+		Map<Long, Double> reference = new HashMap<Long, Double>();
+		for (int i = 0; i < 200000; i++) {
+			// small key range to get many collisions and removals
+			long key = random.nextInt(5000) * 1024l;
+			if (random.nextInt(3) == 0) {
+				Double expected = reference.remove(key);
+				assertEquals(expected == null ? 0.0 : expected, map.remove(key), 0.0);
+			} else {
+				double value = random.nextDouble();
+				reference.put(key, value);
+				map.put(key, value);
+			}
+			assertEquals(reference.size(), map.size());
+		}
+		for (long key = 0; key < 5000 * 1024l; key += 512) {
+			Double expected = reference.get(key);
+			assertEquals(expected == null ? 0.0 : expected, map.get(key), 0.0);
+		}
+		int count = 0;
+		for (int slot = map.nextSlot(0); slot >= 0; slot = map.nextSlot(slot + 1)) {
+			assertEquals(reference.get(map.getKeyAt(slot)), map.getValueAt(slot), 0.0);
+			count++;
+		}
+		assertEquals(reference.size(), count);
+	}
+
+	@Test
+	public void testResize() {
+		LongDoubleHashMap map = new LongDoubleHashMap(0, 0.5f, 0.1f);
+		int initialCapacity = map.capacity();
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i + 1);
+		}
+		assertTrue(map.capacity() >= 2000);
+		for (int i = 0; i < 1000; i += 2) {
+			map.remove(i);
+		}
+		assertEquals(500, map.size());
+		map.trimToSize();
+		assertTrue(map.capacity() < 2048);
+		for (int i = 1; i < 1000; i++) {
+			map.remove(i);
+		}
+		assertEquals(0, map.size());
+		assertTrue(map.capacity() <= 16);
+		map.ensureCapacity(100);
+		int capacity = map.capacity();
+		for (int i = 0; i < 100; i++) {
+			map.put(i * 7919l, i);
+		}
+		assertEquals(capacity, map.capacity());
+		map.clear();
+		assertEquals(initialCapacity, map.capacity());
+	}
+
+	@Test
+	public void testPutAll() {
+		long[] keys = new long[] { 5, 1, 5, 8, 100 };
+		double[] values = new double[] { 1, 2, 3, 4, 5 };
+		LongDoubleHashMap map = new LongDoubleHashMap();
+		map.putAll(keys, values, 4);
+		assertEquals(3, map.size());
+		assertEquals(3.0, map.get(5), 0.0);
+		assertEquals(0.0, map.get(100), 0.0);
+		LongDoubleHashMap copy = new LongDoubleHashMap();
+		copy.put(100, 6.0);
+		copy.putAll(map);
+		assertEquals(4, copy.size());
+		assertEquals(4.0, copy.get(8), 0.0);
+		assertEquals(6.0, copy.get(100), 0.0);
+		assertEquals(4, new LongDoubleHashMap(copy).size());
+	}
+
+	@Test
+	public void testSparseMatrixMultiD() {
+		DefaultSparseDoubleMatrix m = new DefaultSparseDoubleMatrix(3, 1, 4);
+		m.setDouble(1.0, 2, 0, 3);
+		m.setDouble(2.0, 0, 0, 1);
+		m.setDouble(3.0, 2, 0, 4);
+		assertEquals(2, m.getValueCount());
+		assertEquals(1.0, m.getDouble(2, 0, 3), 0.0);
+		assertEquals(0.0, m.getDouble(1, 0, 3), 0.0);
+		assertTrue(m.containsCoordinates(0, 0, 1));
+		assertFalse(m.containsCoordinates(0, 0, 4));
+		int count = 0;
+		for (long[] c : m.availableCoordinates()) {
+			assertEquals(m.getDouble(c), c[0] == 2 ? 1.0 : 2.0, 0.0);
+			count++;
+		}
+		assertEquals(2, count);
+		m.setSize(2, 1, 5);
+		assertEquals(1, m.getValueCount());
+		assertEquals(2.0, m.getDouble(0, 0, 1), 0.0);
+		m.setDouble(0.0, 0, 0, 1);
+		assertEquals(0, m.getValueCount());
+	}
+
+}
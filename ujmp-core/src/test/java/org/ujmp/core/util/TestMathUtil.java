@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+package org.ujmp.core.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TestMathUtil {
+
+	@Test
+	public void testTinv() {
+		assertEquals(12.7062, MathUtil.tinv(0.975, 1), 1e-3);
+		assertEquals(4.3027, MathUtil.tinv(0.975, 2), 1e-3);
+		assertEquals(3.1824, MathUtil.tinv(0.975, 3), 1e-3);
+		assertEquals(2.2281, MathUtil.tinv(0.975, 10), 1e-3);
+		assertEquals(-2.2281, MathUtil.tinv(0.025, 10), 1e-3);
+		assertEquals(3.1693, MathUtil.tinv(0.995, 10), 1e-3);
+		assertEquals(1.8946, MathUtil.tinv(0.95, 7), 1e-3);
+		assertEquals(0.0, MathUtil.tinv(0.5, 4), 0.0);
+		assertEquals(MathUtil.norminv(0.975, 0, 1), MathUtil.tinv(0.975, 1e6), 1e-3);
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2008-2015 by Holger Arndt
+ *
+ * This file is part of the Universal Java Matrix Package (UJMP).
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership and licensing.
+ *
+ * UJMP is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * UJMP is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with UJMP; if not, write to the
+ * Free Software Foundation, Inc., 51 Franklin St, Fifth Floor,
+ * Boston, MA  02110-1301  USA
+ */
+
+
+package org.ujmp.core.util.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+public class TestPForRange {
+
+	@Test
+	public void testAllIndicesOnce() {
+		final AtomicIntegerArray counts = new AtomicIntegerArray(1000);
+		new PForRange(4, 3, 0, 999) {
+			@Override
+			public void step(int first, int last) {
+				for (int i = first; i <= last; i++) {
+					counts.incrementAndGet(i);
+				}
+			}
+		};
+		for (int i = 0; i < counts.length(); i++) {
+			assertEquals(1, counts.get(i));
+		}
+	}
+
+	@Test
+	public void testEmptyRange() {
+		new PForRange(4, 5, 4) {
+			@Override
+			public void step(int first, int last) {
+				throw new RuntimeException("must not be called");
+			}
+		};
+	}
+
+	@Test
+	public void testNested() {
+		final AtomicIntegerArray counts = new AtomicIntegerArray(100 * 100);
+		new PFor(4, 0, 99) {
+			@Override
+			public void step(final int i) {
+				new PFor(4, 0, 99) {
+					@Override
+					public void step(int j) {
+						counts.incrementAndGet(i * 100 + j);
+					}
+				};
+			}
+		};
+		for (int i = 0; i < counts.length(); i++) {
+			assertEquals(1, counts.get(i));
+		}
+	}
+
+	@Test
+	public void testForeignPool() {
+		// a loop started in another fork/join pool must not run in that pool
+		final AtomicBoolean foreign = new AtomicBoolean(false);
+		new ForkJoinPool(2).invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				new PForRange(4, 1, 0, 99) {
+					@Override
+					public void step(int first, int last) {
+						if (!UJMPForkJoinPool.isWorkerThread()) {
+							foreign.set(true);
+						}
+					}
+				};
+			}
+		});
+		assertFalse(foreign.get());
+	}
+
+	@Test
+	public void testException() {
+		boolean thrown = false;
+		try {
+			new PForRange(4, 1, 0, 99) {
+				@Override
+				public void step(int first, int last) {
+					if (first <= 50 && last >= 50) {
+						throw new IllegalStateException("step 50");
+					}
+				}
+			};
+		} catch (IllegalStateException e) {
+			thrown = true;
+		}
+		assertTrue(thrown);
+	}
+
+}